@@ -0,0 +1,120 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Synthetic files for benchmarks.
+ */
+/* package */ final class BenchmarkFiles {
+    /**
+     * Number of class files in a package.
+     */
+    private static final int CLASSES_PER_PACKAGE = 100;
+
+    /**
+     * Number of packages in a parent package.
+     */
+    private static final int PACKAGES_PER_PARENT = 10;
+
+    /**
+     * Do not create instance because this is utility class.
+     */
+    private BenchmarkFiles() {
+        // no operation.
+    }
+
+    /**
+     * Get the relative path of a synthetic class file.
+     *
+     * Class files are put in packages of two levels.
+     *
+     * @param index Index of the class file
+     * @return Relative path
+     */
+    public static String getPath(int index) {
+        int packageIndex = index / CLASSES_PER_PACKAGE;
+
+        return "p" + (packageIndex / PACKAGES_PER_PARENT) +
+                File.separator + "q" + packageIndex +
+                File.separator + "C" + index + ".class";
+    }
+
+    /**
+     * Create files of synthetic class files that do not exist.
+     *
+     * @param directory Base directory
+     * @param count Number of class files
+     * @return Class files
+     */
+    public static List<File> listClassFiles(File directory, int count) {
+        ArrayList<File> classFiles = new ArrayList<File>(count);
+        for (int i = 0; i < count; i++) {
+            classFiles.add(new File(directory, getPath(i)));
+        }
+
+        return classFiles;
+    }
+
+    /**
+     * Create a temporary directory that contains empty class files.
+     *
+     * @param count Number of class files
+     * @return Directory
+     * @throws IOException If I/O error occurs
+     */
+    public static File createClassFiles(int count) throws IOException {
+        File directory = File.createTempFile("jlint-benchmark", "");
+        if (!directory.delete() || !directory.mkdir()) {
+            throw new IOException("Cannot create " + directory);
+        }
+
+        for (File classFile : listClassFiles(directory, count)) {
+            File packageDirectory = classFile.getParentFile();
+            if (!packageDirectory.isDirectory() &&
+                    !packageDirectory.mkdirs()) {
+                throw new IOException("Cannot create " + packageDirectory);
+            }
+            if (!classFile.createNewFile()) {
+                throw new IOException("Cannot create " + classFile);
+            }
+        }
+
+        return directory;
+    }
+
+    /**
+     * Delete a file or a directory and its contents.
+     *
+     * @param file File or directory
+     */
+    public static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+
+        file.delete();
+    }
+}
@@ -0,0 +1,139 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.FileSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of scanning and canonicalizing class files by
+ * {@link JlintTask#getClassFiles()}.
+ *
+ * <p>The exclude pattern does not match any file, but it makes the task
+ * scan the directory even if collapseDirectories is true.</p>
+ *
+ * <p>With snapshot, listings recorded in the first iterations are reused
+ * by the later ones.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ClassFileScanBenchmark {
+    /**
+     * Number of class files in the tree.
+     */
+    @Param({ "10000", "50000", "200000" })
+    public int classFiles;
+
+    /**
+     * Whether directories are passed instead of their class files.
+     */
+    @Param({ "false", "true" })
+    public boolean collapseDirectories;
+
+    /**
+     * Whether listings of directories are reused through snapshotFile.
+     */
+    @Param({ "false", "true" })
+    public boolean snapshot;
+
+    /**
+     * Directory of the tree.
+     */
+    private File mDirectory;
+
+    /**
+     * Snapshot file, or null.
+     */
+    private File mSnapshotFile;
+
+    /**
+     * Task to measure.
+     */
+    private JlintTask mTask;
+
+    /**
+     * Create the tree and the task.
+     *
+     * @throws IOException If I/O error occurs
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mDirectory = BenchmarkFiles.createClassFiles(classFiles);
+
+        Project project = new Project();
+        project.setBaseDir(mDirectory);
+
+        FileSet fileSet = new FileSet();
+        fileSet.setProject(project);
+        fileSet.setDir(mDirectory);
+        fileSet.setIncludes("**/*.class");
+        fileSet.setExcludes("**/Excluded.class");
+
+        mTask = new JlintTask();
+        mTask.setProject(project);
+        mTask.setCollapseDirectories(collapseDirectories);
+        mTask.addFileSet(fileSet);
+        if (snapshot) {
+            mSnapshotFile = File.createTempFile("snapshot", ".bin");
+            mTask.setSnapshotFile(mSnapshotFile);
+        }
+    }
+
+    /**
+     * Delete the tree.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkFiles.delete(mDirectory);
+        if (mSnapshotFile != null) {
+            mSnapshotFile.delete();
+        }
+    }
+
+    /**
+     * Scan and canonicalize class files.
+     *
+     * @return Class files
+     */
+    @Benchmark
+    public List<File> getClassFiles() {
+        return mTask.getClassFiles();
+    }
+}
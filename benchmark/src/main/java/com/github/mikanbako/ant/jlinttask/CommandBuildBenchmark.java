@@ -0,0 +1,124 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of sharding class files and building commands by
+ * {@link JlintExecutor#execute(LineConsumer, LineConsumer)}.
+ *
+ * <p>Commands are not executed. Each command outputs only a summary
+ * line.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CommandBuildBenchmark {
+    /**
+     * Implementation of {@link CommandExecutor} that only counts
+     * arguments.
+     */
+    private static final class CountingExecutor implements CommandExecutor {
+        /**
+         * Number of arguments of executed commands.
+         */
+        private long mArguments;
+
+        @Override
+        public synchronized int execute(List<String> command,
+                LineConsumer output, LineConsumer error) throws IOException {
+            mArguments += command.size();
+            output.consumeLine("Verification completed: 0 reported messages.");
+
+            return 0;
+        }
+    }
+
+    /**
+     * Implementation of {@link LineConsumer} that discards lines.
+     */
+    private static final class NullLineConsumer implements LineConsumer {
+        @Override
+        public void consumeLine(String line) {
+            // no operation.
+        }
+    }
+
+    /**
+     * Number of class files.
+     */
+    @Param({ "10000", "100000" })
+    public int classFiles;
+
+    /**
+     * Maximum number of Jlint processes.
+     */
+    @Param({ "1", "4" })
+    public int threads;
+
+    /**
+     * Class files that do not exist.
+     */
+    private List<File> mClassFiles;
+
+    /**
+     * Create the class files.
+     */
+    @Setup
+    public void setUp() {
+        mClassFiles = BenchmarkFiles.listClassFiles(
+                new File(System.getProperty("java.io.tmpdir"),
+                        "jlint-benchmark"), classFiles);
+    }
+
+    /**
+     * Shard the class files and build commands.
+     *
+     * @return Number of arguments
+     * @throws Exception If error occurs
+     */
+    @Benchmark
+    public long execute() throws Exception {
+        CountingExecutor commandExecutor = new CountingExecutor();
+        JlintExecutor executor = new JlintExecutor(
+                commandExecutor, new File("jlint"), mClassFiles);
+        executor.setThreads(threads);
+        executor.execute(new NullLineConsumer(), new NullLineConsumer());
+
+        return commandExecutor.mArguments;
+    }
+}
@@ -0,0 +1,100 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of parsing a large message filter file by
+ * {@link OptionParser#parse(java.io.Reader)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class OptionParserBenchmark {
+    /**
+     * Options written to the filter file in turn.
+     */
+    private static final String[] OPTIONS = {
+        "-all", "+data_flow", "-synchronization", "+inheritance",
+        "-zero_operand", "+weak_cmp", "-shadow_local", "+not_overridden",
+    };
+
+    /**
+     * Number of options in a line.
+     */
+    private static final int OPTIONS_PER_LINE = 4;
+
+    /**
+     * Number of lines in the filter file.
+     */
+    @Param({ "1000", "100000" })
+    public int lines;
+
+    /**
+     * Content of the filter file.
+     */
+    private String mFilter;
+
+    /**
+     * Create the content of the filter file.
+     */
+    @Setup
+    public void setUp() {
+        StringBuilder filter = new StringBuilder();
+        int option = 0;
+        for (int i = 0; i < lines; i++) {
+            for (int j = 0; j < OPTIONS_PER_LINE; j++) {
+                filter.append(OPTIONS[option % OPTIONS.length]).append(' ');
+                option++;
+            }
+            filter.append('\n');
+        }
+
+        mFilter = filter.toString();
+    }
+
+    /**
+     * Parse the filter file.
+     *
+     * @return Options
+     * @throws IOException If I/O error occurs
+     */
+    @Benchmark
+    public Set<String> parse() throws IOException {
+        return OptionParser.parse(new StringReader(mFilter));
+    }
+}
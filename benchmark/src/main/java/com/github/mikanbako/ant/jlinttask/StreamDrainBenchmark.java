@@ -0,0 +1,182 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of draining the output of a process by
+ * {@link ProcessExecutor}.
+ *
+ * <p>The process is a JVM that writes lines like Jlint, so the start of
+ * the JVM is included in every measurement. Compare the volumes with each
+ * other rather than with zero.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class StreamDrainBenchmark {
+    /**
+     * Program that writes lines like Jlint to the standard output.
+     */
+    public static final class Emitter {
+        /**
+         * Do not create instance.
+         */
+        private Emitter() {
+            // no operation.
+        }
+
+        /**
+         * Write lines.
+         *
+         * @param arguments Number of lines
+         * @throws IOException If I/O error occurs
+         */
+        public static void main(String[] arguments) throws IOException {
+            int lines = Integer.parseInt(arguments[0]);
+            BufferedWriter writer = new BufferedWriter(
+                    new OutputStreamWriter(System.out));
+            for (int i = 0; i < lines; i++) {
+                writer.write("com/example/Foo.java:" + i +
+                        ": Method wait() is called without synchronizing" +
+                        " on this.");
+                writer.newLine();
+            }
+            writer.write("Verification completed: " + lines +
+                    " reported messages.");
+            writer.newLine();
+            writer.flush();
+        }
+    }
+
+    /**
+     * Implementation of {@link LineConsumer} that discards lines.
+     */
+    private static final class NullLineConsumer implements LineConsumer {
+        /**
+         * Number of consumed lines.
+         */
+        private long mLines;
+
+        @Override
+        public void consumeLine(String line) {
+            mLines++;
+        }
+    }
+
+    /**
+     * Number of lines written by the process.
+     */
+    @Param({ "1000", "100000", "1000000" })
+    public int lines;
+
+    /**
+     * Command that executes {@link Emitter}.
+     */
+    private List<String> mCommand;
+
+    /**
+     * File to which the output is copied.
+     */
+    private File mOutputFile;
+
+    /**
+     * Create the command.
+     *
+     * @throws IOException If I/O error occurs
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mCommand = new ArrayList<String>();
+        mCommand.add(new File(new File(System.getProperty("java.home"),
+                "bin"), "java").getAbsolutePath());
+        mCommand.add("-cp");
+        mCommand.add(System.getProperty("java.class.path"));
+        mCommand.add(Emitter.class.getName());
+        mCommand.add(Integer.toString(lines));
+
+        mOutputFile = File.createTempFile("jlint-benchmark", ".txt");
+    }
+
+    /**
+     * Delete the output file.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mOutputFile.delete();
+    }
+
+    /**
+     * Drain the output line by line.
+     *
+     * @return Number of consumed lines
+     * @throws Exception If error occurs
+     */
+    @Benchmark
+    public long drainLines() throws Exception {
+        NullLineConsumer output = new NullLineConsumer();
+        new ProcessExecutor().execute(
+                mCommand, output, new NullLineConsumer());
+
+        return output.mLines;
+    }
+
+    /**
+     * Copy the output to a file as it is.
+     *
+     * @return Size of the file
+     * @throws Exception If error occurs
+     */
+    @Benchmark
+    public long copyToFile() throws Exception {
+        FileOutputStream output = new FileOutputStream(mOutputFile);
+        try {
+            new ProcessExecutor().execute(
+                    mCommand, output.getChannel(), new NullLineConsumer());
+        } finally {
+            output.close();
+        }
+
+        return mOutputFile.length();
+    }
+}
@@ -0,0 +1,544 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * On-disk cache of Jlint findings for each class file.
+ *
+ * <p>The cache is valid only for the environment in which the findings
+ * were produced. The environment is identified by a digest of the Jlint
+ * executable, its options and the source directory. If the environment
+ * changes, the cache is discarded.</p>
+ *
+ * <p>The {@link DependencyGraph} of the classes is kept in a separate
+ * file. It depends only on the class files, so it is kept even if the
+ * environment changes.</p>
+ */
+/* package */ final class AnalysisCache {
+    /**
+     * Name of the cache file in the cache directory.
+     */
+    private static final String CACHE_FILE_NAME = "jlint-analysis.cache";
+
+    /**
+     * Name of the dependency graph file in the cache directory.
+     */
+    private static final String GRAPH_FILE_NAME = "jlint-dependencies.graph";
+
+    /**
+     * Version of the format of the cache file.
+     */
+    private static final int FORMAT_VERSION = 3;
+
+    /**
+     * Algorithm of digest.
+     */
+    private static final String DIGEST_ALGORITHM = "SHA-1";
+
+    /**
+     * Size of buffer to read files in bytes.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Mask to convert a byte into an unsigned value.
+     */
+    private static final int BYTE_MASK = 0xff;
+
+    /**
+     * Radix of hexadecimal.
+     */
+    private static final int HEX_RADIX = 16;
+
+    /**
+     * Cached analysis of a class file.
+     */
+    /* package */ static final class Entry {
+        /**
+         * Canonical path of the class file.
+         */
+        private final String mPath;
+
+        /**
+         * Last modified time of the class file.
+         */
+        private final long mLastModified;
+
+        /**
+         * Length of the class file.
+         */
+        private final long mLength;
+
+        /**
+         * Digest of the content of the class file.
+         */
+        private final String mDigest;
+
+        /**
+         * Information of the class, or null if the file is not a class
+         * file. Referred classes are kept in {@link DependencyGraph}.
+         */
+        private final ClassFileInfo mClassFileInfo;
+
+        /**
+         * Findings produced for the class file.
+         */
+        private final ArrayList<String> mFindings = new ArrayList<String>();
+
+        /**
+         * Constructor.
+         *
+         * @param path Canonical path of the class file
+         * @param lastModified Last modified time of the class file
+         * @param length Length of the class file
+         * @param digest Digest of the content of the class file
+         * @param classFileInfo Information of the class, or null if the
+         *  file is not a class file
+         */
+        /* package */ Entry(String path, long lastModified, long length,
+                String digest, ClassFileInfo classFileInfo) {
+            mPath = path;
+            mLastModified = lastModified;
+            mLength = length;
+            mDigest = digest;
+            mClassFileInfo = classFileInfo;
+        }
+
+        /**
+         * Get the canonical path of the class file.
+         *
+         * @return Canonical path of the class file
+         */
+        public String getPath() {
+            return mPath;
+        }
+
+        /**
+         * Get the last modified time of the class file.
+         *
+         * @return Last modified time
+         */
+        public long getLastModified() {
+            return mLastModified;
+        }
+
+        /**
+         * Get the length of the class file.
+         *
+         * @return Length in bytes
+         */
+        public long getLength() {
+            return mLength;
+        }
+
+        /**
+         * Get the digest of the content of the class file.
+         *
+         * @return Digest in hexadecimal
+         */
+        public String getDigest() {
+            return mDigest;
+        }
+
+        /**
+         * Get the information of the class.
+         *
+         * @return Information of the class, or null if the file is not
+         *  a class file
+         */
+        public ClassFileInfo getClassFileInfo() {
+            return mClassFileInfo;
+        }
+
+        /**
+         * Get the findings produced for the class file.
+         *
+         * @return Unmodifiable list of findings
+         */
+        public List<String> getFindings() {
+            return Collections.unmodifiableList(mFindings);
+        }
+
+        /**
+         * Replace the findings produced for the class file.
+         *
+         * @param findings Findings
+         */
+        public void setFindings(Collection<String> findings) {
+            mFindings.clear();
+            mFindings.addAll(findings);
+        }
+    }
+
+    /**
+     * File in which the cache is stored.
+     */
+    private final File mCacheFile;
+
+    /**
+     * Key of the environment.
+     */
+    private final String mEnvironmentKey;
+
+    /**
+     * Entries for each canonical path.
+     */
+    private final HashMap<String, Entry> mEntries =
+            new HashMap<String, Entry>();
+
+    /**
+     * File in which the dependency graph is stored.
+     */
+    private final File mGraphFile;
+
+    /**
+     * Dependency graph of the classes.
+     */
+    private final DependencyGraph mDependencyGraph;
+
+    /**
+     * Constructor.
+     *
+     * @param cacheDirectory Directory in which the cache is stored
+     * @param environmentKey Key of the environment
+     */
+    private AnalysisCache(File cacheDirectory, String environmentKey) {
+        mCacheFile = new File(cacheDirectory, CACHE_FILE_NAME);
+        mEnvironmentKey = environmentKey;
+        mGraphFile = new File(cacheDirectory, GRAPH_FILE_NAME);
+        mDependencyGraph = DependencyGraph.load(mGraphFile);
+    }
+
+    /**
+     * Load the cache from the cache directory.
+     *
+     * If the cache does not exist, is broken or is made in another
+     * environment, an empty cache is returned.
+     *
+     * @param cacheDirectory Cache directory
+     * @param environmentKey Key of the environment
+     * @return Cache
+     */
+    public static AnalysisCache load(File cacheDirectory,
+            String environmentKey) {
+        AnalysisCache cache = new AnalysisCache(
+                cacheDirectory, environmentKey);
+
+        if (cache.mCacheFile.isFile()) {
+            try {
+                cache.read();
+            } catch (IOException e) {
+                // The broken cache is discarded.
+                cache.mEntries.clear();
+            }
+        }
+
+        return cache;
+    }
+
+    /**
+     * Get the dependency graph of the classes.
+     *
+     * Changes to the graph are saved by {@link #save()}.
+     *
+     * @return Dependency graph
+     */
+    public DependencyGraph getDependencyGraph() {
+        return mDependencyGraph;
+    }
+
+    /**
+     * Get the entry for a class file.
+     *
+     * @param path Canonical path of the class file
+     * @return Entry, or null if the class file is not cached
+     */
+    public Entry get(String path) {
+        return mEntries.get(path);
+    }
+
+    /**
+     * Get all entries.
+     *
+     * @return Unmodifiable collection of entries
+     */
+    public Collection<Entry> getEntries() {
+        return Collections.unmodifiableCollection(mEntries.values());
+    }
+
+    /**
+     * Replace all entries.
+     *
+     * @param entries New entries
+     */
+    public void setEntries(Collection<Entry> entries) {
+        mEntries.clear();
+        for (Entry entry : entries) {
+            mEntries.put(entry.getPath(), entry);
+        }
+    }
+
+    /**
+     * Read the cache file.
+     *
+     * @throws IOException If the cache file cannot be read or is broken
+     */
+    private void read() throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(mCacheFile), BUFFER_SIZE));
+        try {
+            if (input.readInt() != FORMAT_VERSION ||
+                    !mEnvironmentKey.equals(input.readUTF())) {
+                return;
+            }
+
+            int entryCount = input.readInt();
+            for (int i = 0; i < entryCount; i++) {
+                String path = input.readUTF();
+                long lastModified = input.readLong();
+                long length = input.readLong();
+                String digest = input.readUTF();
+
+                ClassFileInfo classFileInfo = null;
+                if (input.readBoolean()) {
+                    String className = input.readUTF();
+                    String sourceFile = null;
+                    if (input.readBoolean()) {
+                        sourceFile = input.readUTF();
+                    }
+                    classFileInfo = new ClassFileInfo(className, sourceFile,
+                            Collections.<String>emptySet());
+                }
+
+                Entry entry = new Entry(
+                        path, lastModified, length, digest, classFileInfo);
+                entry.setFindings(
+                        readStrings(input, new ArrayList<String>()));
+
+                mEntries.put(path, entry);
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Save the cache and the dependency graph into the cache directory.
+     *
+     * The files are replaced after the whole content is written.
+     *
+     * @throws IOException If I/O error occurs
+     */
+    public void save() throws IOException {
+        File directory = mCacheFile.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException(
+                    "Cannot create " + directory.getAbsolutePath());
+        }
+
+        File temporaryFile = new File(directory, CACHE_FILE_NAME + ".tmp");
+        DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(
+                        new FileOutputStream(temporaryFile), BUFFER_SIZE));
+        try {
+            output.writeInt(FORMAT_VERSION);
+            output.writeUTF(mEnvironmentKey);
+
+            output.writeInt(mEntries.size());
+            for (Entry entry : mEntries.values()) {
+                output.writeUTF(entry.getPath());
+                output.writeLong(entry.getLastModified());
+                output.writeLong(entry.getLength());
+                output.writeUTF(entry.getDigest());
+
+                ClassFileInfo classFileInfo = entry.getClassFileInfo();
+                output.writeBoolean(classFileInfo != null);
+                if (classFileInfo != null) {
+                    output.writeUTF(classFileInfo.getClassName());
+                    output.writeBoolean(classFileInfo.getSourceFile() != null);
+                    if (classFileInfo.getSourceFile() != null) {
+                        output.writeUTF(classFileInfo.getSourceFile());
+                    }
+                }
+
+                writeStrings(output, entry.getFindings());
+            }
+        } finally {
+            output.close();
+        }
+
+        if (mCacheFile.exists() && !mCacheFile.delete()) {
+            throw new IOException(
+                    "Cannot replace " + mCacheFile.getAbsolutePath());
+        }
+        if (!temporaryFile.renameTo(mCacheFile)) {
+            throw new IOException(
+                    "Cannot replace " + mCacheFile.getAbsolutePath());
+        }
+
+        mDependencyGraph.save(mGraphFile);
+    }
+
+    /**
+     * Read strings.
+     *
+     * @param <T> Type of destination
+     * @param input Input
+     * @param strings Destination of strings
+     * @return The destination
+     * @throws IOException If I/O error occurs
+     */
+    private static <T extends Collection<String>> T readStrings(
+            DataInputStream input, T strings) throws IOException {
+        int count = input.readInt();
+        for (int i = 0; i < count; i++) {
+            strings.add(input.readUTF());
+        }
+
+        return strings;
+    }
+
+    /**
+     * Write strings.
+     *
+     * @param output Output
+     * @param strings Strings
+     * @throws IOException If I/O error occurs
+     */
+    private static void writeStrings(DataOutputStream output,
+            Collection<String> strings) throws IOException {
+        output.writeInt(strings.size());
+        for (String string : strings) {
+            output.writeUTF(string);
+        }
+    }
+
+    /**
+     * Compute the key of the environment in which Jlint runs.
+     *
+     * @param jlintExecutable Jlint executable file
+     * @param options Options of Jlint
+     * @param sourceDirectory Source directory, or null
+     * @return Key of the environment
+     * @throws IOException If the Jlint executable file cannot be read
+     */
+    public static String computeEnvironmentKey(File jlintExecutable,
+            Set<String> options, File sourceDirectory) throws IOException {
+        MessageDigest digest = createDigest();
+
+        digest.update(digest(jlintExecutable).getBytes(
+                Charset.forName("UTF-8")));
+        for (String option : options) {
+            digest.update(('\n' + option).getBytes(Charset.forName("UTF-8")));
+        }
+        if (sourceDirectory != null) {
+            digest.update(('\n' + "-source " + sourceDirectory.getPath())
+                    .getBytes(Charset.forName("UTF-8")));
+        }
+
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Compute the digest of a file.
+     *
+     * @param file File
+     * @return Digest in hexadecimal
+     * @throws IOException If the file cannot be read
+     */
+    public static String digest(File file) throws IOException {
+        MessageDigest digest = createDigest();
+
+        InputStream input = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (true) {
+                int length = input.read(buffer);
+                if (length < 0) {
+                    break;
+                }
+
+                digest.update(buffer, 0, length);
+            }
+        } finally {
+            input.close();
+        }
+
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Compute the digest of content.
+     *
+     * @param content Content
+     * @return Digest in hexadecimal
+     */
+    public static String digest(byte[] content) {
+        return toHex(createDigest().digest(content));
+    }
+
+    /**
+     * Create {@link MessageDigest}.
+     *
+     * @return {@link MessageDigest}
+     */
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform supports SHA-1.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Convert bytes into hexadecimal.
+     *
+     * @param bytes Bytes
+     * @return Hexadecimal
+     */
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            int value = b & BYTE_MASK;
+            hex.append(Character.forDigit(value / HEX_RADIX, HEX_RADIX));
+            hex.append(Character.forDigit(value % HEX_RADIX, HEX_RADIX));
+        }
+
+        return hex.toString();
+    }
+}
@@ -0,0 +1,230 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Implementation of {@link FindingConsumer} that checks findings against
+ * a baseline as they are output.
+ *
+ * <p>A baseline is a set of fingerprints of findings that are already
+ * known. See {@link Finding#getFingerprint(String, int)}. The paths of
+ * findings are made relative to the source directory, and findings that
+ * have the same path and message are numbered in order of output. So a
+ * message repeated in a file is known only as many times as it is in the
+ * baseline. Every finding is passed to the destination as it is.</p>
+ */
+/* package */ final class BaselineChecker implements FindingConsumer {
+    /**
+     * Version of the baseline file format.
+     */
+    private static final int FORMAT_VERSION = 2;
+
+    /**
+     * Size of buffer to read and write the baseline file in bytes.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Fingerprints of known findings.
+     */
+    private final LongHashSet mBaseline;
+
+    /**
+     * Path of the source directory with "/" as separators and ending with
+     * "/", or null.
+     */
+    private final String mBasePath;
+
+    /**
+     * Number of findings checked so far for each fingerprint of the first
+     * occurrence.
+     */
+    private final LongIntHashMap mOccurrences = new LongIntHashMap();
+
+    /**
+     * Categories of findings that are checked, or null for all categories.
+     */
+    private final Set<Finding.Category> mCategories;
+
+    /**
+     * Destination of findings.
+     */
+    private final FindingConsumer mDestination;
+
+    /**
+     * Destination of new findings.
+     */
+    private final LineConsumer mNewFindings;
+
+    /**
+     * Fingerprints of findings that are checked, or null if they are not
+     * recorded.
+     */
+    private final LongHashSet mFingerprints;
+
+    /**
+     * Number of new findings.
+     */
+    private long mNewFindingCount;
+
+    /**
+     * Constructor.
+     *
+     * @param baseline Fingerprints of known findings
+     * @param sourceDirectory Source directory to which the paths of
+     *  findings are made relative, or null
+     * @param categories Categories of findings that are checked, or null
+     *  for all categories
+     * @param destination Destination of findings
+     * @param newFindings Destination of lines of new findings
+     * @param recordsFingerprints true if the fingerprints of the checked
+     *  findings are recorded to update the baseline
+     */
+    public BaselineChecker(LongHashSet baseline, File sourceDirectory,
+            Set<Finding.Category> categories, FindingConsumer destination,
+            LineConsumer newFindings, boolean recordsFingerprints) {
+        mBaseline = baseline;
+        if (sourceDirectory == null) {
+            mBasePath = null;
+        } else {
+            String basePath =
+                    sourceDirectory.getAbsolutePath().replace('\\', '/');
+            if (!basePath.endsWith("/")) {
+                basePath += "/";
+            }
+            mBasePath = basePath;
+        }
+        mCategories = categories;
+        mDestination = destination;
+        mNewFindings = newFindings;
+        mFingerprints = recordsFingerprints ? new LongHashSet() : null;
+    }
+
+    @Override
+    public void consumeFinding(Finding finding) throws IOException {
+        if (mCategories == null ||
+                mCategories.contains(finding.getCategory())) {
+            long fingerprint = finding.getFingerprint(mBasePath, 0);
+            int occurrence = mOccurrences.getAndIncrement(fingerprint);
+            if (occurrence > 0) {
+                fingerprint = finding.getFingerprint(mBasePath, occurrence);
+            }
+            if (mFingerprints != null) {
+                mFingerprints.add(fingerprint);
+            }
+
+            if (!mBaseline.contains(fingerprint)) {
+                mNewFindingCount++;
+                mNewFindings.consumeLine(finding.getText());
+            }
+        }
+
+        mDestination.consumeFinding(finding);
+    }
+
+    /**
+     * Get the number of findings that are not in the baseline.
+     *
+     * @return Number of new findings
+     */
+    public long getNewFindingCount() {
+        return mNewFindingCount;
+    }
+
+    /**
+     * Get the fingerprints of the checked findings.
+     *
+     * @return Fingerprints, or null if they are not recorded
+     */
+    public LongHashSet getFingerprints() {
+        return mFingerprints;
+    }
+
+    /**
+     * Load a baseline from a file.
+     *
+     * @param file Baseline file. If it does not exist, the baseline is
+     *  empty.
+     * @return Fingerprints of known findings
+     * @throws IOException If I/O error occurs or the file is broken
+     */
+    public static LongHashSet load(File file) throws IOException {
+        if (!file.exists()) {
+            return new LongHashSet();
+        }
+
+        DataInputStream input = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file), BUFFER_SIZE));
+        try {
+            int version = input.readInt();
+            if (version > 0 && version < FORMAT_VERSION) {
+                throw new IOException(file.getAbsolutePath() +
+                        " is a baseline file of an older format. " +
+                        "Delete it and create it again.");
+            } else if (version != FORMAT_VERSION) {
+                throw new IOException(file.getAbsolutePath() +
+                        " is not a baseline file.");
+            }
+
+            int count = input.readInt();
+            LongHashSet baseline = new LongHashSet(count);
+            for (int i = 0; i < count; i++) {
+                baseline.add(input.readLong());
+            }
+
+            return baseline;
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Save a baseline to a file.
+     *
+     * @param file Baseline file
+     * @param baseline Fingerprints of known findings
+     * @throws IOException If I/O error occurs
+     */
+    public static void save(File file, LongHashSet baseline)
+            throws IOException {
+        long[] fingerprints = baseline.toArray();
+
+        DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(
+                        new FileOutputStream(file), BUFFER_SIZE));
+        try {
+            output.writeInt(FORMAT_VERSION);
+            output.writeInt(fingerprints.length);
+            for (long fingerprint : fingerprints) {
+                output.writeLong(fingerprint);
+            }
+        } finally {
+            output.close();
+        }
+    }
+}
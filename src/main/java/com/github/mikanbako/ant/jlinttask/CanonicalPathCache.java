@@ -0,0 +1,154 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cache of canonical directories.
+ *
+ * <p>A file is canonicalized by canonicalizing its parent directory once
+ * and appending its name. So a directory that is a symbolic link is
+ * resolved once for all of its files. A file that is itself a symbolic
+ * link is kept as it is, which Jlint reads in the same way.</p>
+ *
+ * <p>The cache is kept between jlint tasks in a project by
+ * {@link TaskCache}. After {@link #revalidate()}, a cached directory is
+ * canonicalized again if its modification time has changed, for example
+ * because a symbolic link on its path points to another directory. A
+ * directory is validated once until the next {@link #revalidate()}, so
+ * that the files in it do not check it again.</p>
+ *
+ * <p>This object is thread-safe.</p>
+ */
+/* package */ final class CanonicalPathCache {
+    /**
+     * Canonical directory.
+     */
+    private static final class Entry {
+        /**
+         * Canonical directory.
+         */
+        private final File mCanonicalDirectory;
+
+        /**
+         * Modification time of the directory.
+         */
+        private final long mModifiedTime;
+
+        /**
+         * Generation in which this entry is validated last.
+         */
+        private volatile int mGeneration;
+
+        /**
+         * Constructor.
+         *
+         * @param canonicalDirectory Canonical directory
+         * @param modifiedTime Modification time of the directory
+         * @param generation Generation in which this entry is created
+         */
+        /* package */ Entry(File canonicalDirectory, long modifiedTime,
+                int generation) {
+            mCanonicalDirectory = canonicalDirectory;
+            mModifiedTime = modifiedTime;
+            mGeneration = generation;
+        }
+    }
+
+    /**
+     * Canonical directories for each absolute path.
+     */
+    private final ConcurrentHashMap<String, Entry> mDirectories =
+            new ConcurrentHashMap<String, Entry>();
+
+    /**
+     * Current generation. Entries of older generations are validated
+     * before they are used.
+     */
+    private final AtomicInteger mGeneration = new AtomicInteger();
+
+    /**
+     * Validate the cached directories again on their next use.
+     *
+     * This method is called when a task starts, because directories may
+     * be changed between tasks.
+     */
+    public void revalidate() {
+        mGeneration.incrementAndGet();
+    }
+
+    /**
+     * Get the canonical file of a file.
+     *
+     * @param file File
+     * @return Canonical file
+     * @throws IOException If the file cannot be canonicalized
+     */
+    public File getCanonicalFile(File file) throws IOException {
+        String name = file.getName();
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent == null || name.isEmpty() || ".".equals(name) ||
+                "..".equals(name)) {
+            return file.getCanonicalFile();
+        }
+
+        return new File(getCanonicalDirectory(parent), name);
+    }
+
+    /**
+     * Get the canonical file of a directory.
+     *
+     * @param directory Directory
+     * @return Canonical directory
+     * @throws IOException If the directory cannot be canonicalized
+     */
+    public File getCanonicalDirectory(File directory) throws IOException {
+        String path = directory.getAbsolutePath();
+        int generation = mGeneration.get();
+        Entry entry = mDirectories.get(path);
+        if (entry != null && entry.mGeneration != generation) {
+            long modifiedTime = directory.lastModified();
+            if (modifiedTime != 0 && modifiedTime == entry.mModifiedTime) {
+                entry.mGeneration = generation;
+            } else {
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            entry = new Entry(directory.getCanonicalFile(),
+                    directory.lastModified(), generation);
+            mDirectories.put(path, entry);
+        }
+
+        return entry.mCanonicalDirectory;
+    }
+
+    /**
+     * Get the number of cached directories.
+     *
+     * @return Number of cached directories
+     */
+    public int size() {
+        return mDirectories.size();
+    }
+}
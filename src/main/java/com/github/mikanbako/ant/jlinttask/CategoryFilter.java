@@ -0,0 +1,169 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Evaluate message filtering options of Jlint by categories.
+ *
+ * <p>Only "all" and the categories of {@link Finding.Category} are
+ * evaluated. The options are applied in order as Jlint applies them, so
+ * "-all +data_flow" enables only data_flow and "+data_flow -all" enables
+ * nothing. "+all" enables every category again. Messages of
+ * {@link Finding.Category#UNKNOWN} are enabled and disabled only by
+ * "all".</p>
+ *
+ * <p>The findings that are kept in the result and the reports are those
+ * of {@link #getKeptCategories(Set)}, which is the single rule for
+ * findings of {@link Finding.Category#UNKNOWN}.</p>
+ */
+/* package */ final class CategoryFilter {
+    /**
+     * Name of option that enables or disables all messages.
+     */
+    private static final String ALL = "all";
+
+    /**
+     * Do not create instance because this is utility class.
+     */
+    private CategoryFilter() {
+        // no operation.
+    }
+
+    /**
+     * Get the categories enabled by options.
+     *
+     * @param options Message filtering options in order
+     * @return Enabled categories
+     */
+    public static EnumSet<Finding.Category> getCategories(
+            Set<String> options) {
+        EnumSet<Finding.Category> categories =
+                EnumSet.allOf(Finding.Category.class);
+        for (String option : options) {
+            boolean disabled = option.startsWith("-");
+            String name = option;
+            if (disabled || name.startsWith("+")) {
+                name = name.substring(1);
+            }
+
+            if (ALL.equals(name)) {
+                if (disabled) {
+                    categories.clear();
+                } else {
+                    categories.addAll(EnumSet.allOf(Finding.Category.class));
+                }
+                continue;
+            }
+
+            Finding.Category category = Finding.Category.forOptionName(name);
+            if (category == null) {
+                continue;
+            }
+            if (disabled) {
+                categories.remove(category);
+            } else {
+                categories.add(category);
+            }
+        }
+
+        return categories;
+    }
+
+    /**
+     * Get the categories of findings that are kept by options.
+     *
+     * <p>A finding of {@link Finding.Category#UNKNOWN} is a message that
+     * is not in the table of known messages, so it may be in any category.
+     * It is kept unless all categories are disabled, so that no message
+     * that the options could enable is lost.</p>
+     *
+     * @param options Message filtering options in order
+     * @return Categories of findings that are kept
+     */
+    public static EnumSet<Finding.Category> getKeptCategories(
+            Set<String> options) {
+        EnumSet<Finding.Category> categories = getCategories(options);
+        if (!categories.isEmpty()) {
+            categories.add(Finding.Category.UNKNOWN);
+        }
+
+        return categories;
+    }
+
+    /**
+     * Get options that enable additional categories.
+     *
+     * <p>Jlint applies options in order. So "-all" comes first, the
+     * categories follow, and the options other than "all" and categories
+     * are kept in their order at the end, so that they still enable or
+     * disable individual messages.</p>
+     *
+     * @param options Message filtering options in order
+     * @param categories Categories to enable in addition to the categories
+     *  enabled by the options
+     * @return Options that enable both, in order
+     */
+    public static Set<String> widen(Set<String> options,
+            Set<Finding.Category> categories) {
+        EnumSet<Finding.Category> enabled = getCategories(options);
+        if (enabled.containsAll(categories)) {
+            return options;
+        }
+        enabled.addAll(categories);
+
+        LinkedHashSet<String> widened = new LinkedHashSet<String>();
+        if (!enabled.contains(Finding.Category.UNKNOWN)) {
+            widened.add("-" + ALL);
+            for (Finding.Category category : enabled) {
+                widened.add("+" + category.getOptionName());
+            }
+        } else if (!enabled.containsAll(
+                EnumSet.allOf(Finding.Category.class))) {
+            for (Finding.Category category : EnumSet.complementOf(enabled)) {
+                widened.add("-" + category.getOptionName());
+            }
+        }
+
+        for (String option : options) {
+            if (!isCategoryOption(option)) {
+                widened.add(option);
+            }
+        }
+
+        return widened;
+    }
+
+    /**
+     * Check whether an option is "all" or a category.
+     *
+     * @param option Option
+     * @return true if the option is "all" or a category
+     */
+    private static boolean isCategoryOption(String option) {
+        String name = option;
+        if (name.startsWith("+") || name.startsWith("-")) {
+            name = name.substring(1);
+        }
+
+        return ALL.equals(name) || Finding.Category.forOptionName(name) != null;
+    }
+}
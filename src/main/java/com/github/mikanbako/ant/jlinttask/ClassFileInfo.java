@@ -0,0 +1,491 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Information read from the constant pool of a class file.
+ *
+ * <p>Only the name of the class, the name of its source file and the
+ * names of the classes it refers to are read. The bytecode is skipped.</p>
+ */
+/* package */ final class ClassFileInfo {
+    /**
+     * Magic number of class file.
+     */
+    private static final int MAGIC = 0xCAFEBABE;
+
+    /**
+     * Tag of CONSTANT_Utf8.
+     */
+    private static final int CONSTANT_UTF8 = 1;
+
+    /**
+     * Tag of CONSTANT_Integer.
+     */
+    private static final int CONSTANT_INTEGER = 3;
+
+    /**
+     * Tag of CONSTANT_Float.
+     */
+    private static final int CONSTANT_FLOAT = 4;
+
+    /**
+     * Tag of CONSTANT_Long.
+     */
+    private static final int CONSTANT_LONG = 5;
+
+    /**
+     * Tag of CONSTANT_Double.
+     */
+    private static final int CONSTANT_DOUBLE = 6;
+
+    /**
+     * Tag of CONSTANT_Class.
+     */
+    private static final int CONSTANT_CLASS = 7;
+
+    /**
+     * Tag of CONSTANT_String.
+     */
+    private static final int CONSTANT_STRING = 8;
+
+    /**
+     * Tag of CONSTANT_Fieldref.
+     */
+    private static final int CONSTANT_FIELDREF = 9;
+
+    /**
+     * Tag of CONSTANT_Methodref.
+     */
+    private static final int CONSTANT_METHODREF = 10;
+
+    /**
+     * Tag of CONSTANT_InterfaceMethodref.
+     */
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+
+    /**
+     * Tag of CONSTANT_NameAndType.
+     */
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    /**
+     * Tag of CONSTANT_MethodHandle.
+     */
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+
+    /**
+     * Tag of CONSTANT_MethodType.
+     */
+    private static final int CONSTANT_METHOD_TYPE = 16;
+
+    /**
+     * Tag of CONSTANT_Dynamic.
+     */
+    private static final int CONSTANT_DYNAMIC = 17;
+
+    /**
+     * Tag of CONSTANT_InvokeDynamic.
+     */
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+
+    /**
+     * Tag of CONSTANT_Module.
+     */
+    private static final int CONSTANT_MODULE = 19;
+
+    /**
+     * Tag of CONSTANT_Package.
+     */
+    private static final int CONSTANT_PACKAGE = 20;
+
+    /**
+     * Size of u4 in bytes.
+     */
+    private static final int U4_SIZE = 4;
+
+    /**
+     * Size of u8 in bytes.
+     */
+    private static final int U8_SIZE = 8;
+
+    /**
+     * Name of SourceFile attribute.
+     */
+    private static final String SOURCE_FILE_ATTRIBUTE = "SourceFile";
+
+    /**
+     * Name of the class in internal form such as "java/lang/String".
+     */
+    private final String mClassName;
+
+    /**
+     * Name of the source file, or null if it is not recorded.
+     */
+    private final String mSourceFile;
+
+    /**
+     * Names of the classes referred by the class in internal form.
+     */
+    private final Set<String> mReferencedClasses;
+
+    /**
+     * Constructor.
+     *
+     * @param className Name of the class in internal form
+     * @param sourceFile Name of the source file, or null
+     * @param referencedClasses Names of the referred classes
+     */
+    /* package */ ClassFileInfo(String className, String sourceFile,
+            Set<String> referencedClasses) {
+        mClassName = className;
+        mSourceFile = sourceFile;
+        mReferencedClasses = Collections.unmodifiableSet(
+                new TreeSet<String>(referencedClasses));
+    }
+
+    /**
+     * Get the name of the class.
+     *
+     * @return Name of the class in internal form such as "java/lang/String"
+     */
+    public String getClassName() {
+        return mClassName;
+    }
+
+    /**
+     * Get the name of the source file.
+     *
+     * @return Name of the source file, or null if it is not recorded
+     */
+    public String getSourceFile() {
+        return mSourceFile;
+    }
+
+    /**
+     * Get the path of the source file relative to the source directory.
+     *
+     * @return Path separated by '/' such as "java/lang/String.java",
+     *  or null if the source file is not recorded
+     */
+    public String getSourcePath() {
+        if (mSourceFile == null) {
+            return null;
+        }
+
+        int packageEnd = mClassName.lastIndexOf('/');
+        if (packageEnd < 0) {
+            return mSourceFile;
+        }
+
+        return mClassName.substring(0, packageEnd + 1) + mSourceFile;
+    }
+
+    /**
+     * Get the names of the classes referred by the class.
+     *
+     * The class itself is not contained.
+     *
+     * @return Unmodifiable set of names in internal form
+     */
+    public Set<String> getReferencedClasses() {
+        return mReferencedClasses;
+    }
+
+    /**
+     * Read information from a class file.
+     *
+     * @param classFile Class file
+     * @return Information of the class
+     * @throws IOException If the file cannot be read or is not a valid
+     *  class file
+     */
+    public static ClassFileInfo read(File classFile) throws IOException {
+        return read(readContent(classFile));
+    }
+
+    /**
+     * Read information from the content of a class file.
+     *
+     * @param content Content of class file
+     * @return Information of the class
+     * @throws IOException If the content is not a valid class file
+     */
+    public static ClassFileInfo read(byte[] content) throws IOException {
+        DataInputStream input = new DataInputStream(
+                new ByteArrayInputStream(content));
+
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Not a class file.");
+        }
+        // Skip minor and major version.
+        input.readUnsignedShort();
+        input.readUnsignedShort();
+
+        // Read the constant pool.
+
+        int constantPoolCount = input.readUnsignedShort();
+        String[] utf8s = new String[constantPoolCount];
+        int[] classNameIndexes = new int[constantPoolCount];
+        int[] descriptorIndexes = new int[constantPoolCount];
+
+        for (int i = 1; i < constantPoolCount; i++) {
+            int tag = input.readUnsignedByte();
+            switch (tag) {
+                case CONSTANT_UTF8:
+                    utf8s[i] = input.readUTF();
+                    break;
+                case CONSTANT_CLASS:
+                    classNameIndexes[i] = input.readUnsignedShort();
+                    break;
+                case CONSTANT_NAME_AND_TYPE:
+                    input.readUnsignedShort();
+                    descriptorIndexes[i] = input.readUnsignedShort();
+                    break;
+                case CONSTANT_METHOD_TYPE:
+                    descriptorIndexes[i] = input.readUnsignedShort();
+                    break;
+                case CONSTANT_STRING:
+                case CONSTANT_MODULE:
+                case CONSTANT_PACKAGE:
+                    input.readUnsignedShort();
+                    break;
+                case CONSTANT_METHOD_HANDLE:
+                    input.readUnsignedByte();
+                    input.readUnsignedShort();
+                    break;
+                case CONSTANT_INTEGER:
+                case CONSTANT_FLOAT:
+                case CONSTANT_FIELDREF:
+                case CONSTANT_METHODREF:
+                case CONSTANT_INTERFACE_METHODREF:
+                case CONSTANT_DYNAMIC:
+                case CONSTANT_INVOKE_DYNAMIC:
+                    skip(input, U4_SIZE);
+                    break;
+                case CONSTANT_LONG:
+                case CONSTANT_DOUBLE:
+                    skip(input, U8_SIZE);
+                    // 8-byte constants take two entries.
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag: " + tag);
+            }
+        }
+
+        // Read this class.
+
+        input.readUnsignedShort();
+        String className = getClassName(
+                utf8s, classNameIndexes, input.readUnsignedShort());
+        if (className == null) {
+            throw new IOException("Invalid this_class.");
+        }
+
+        // Skip super class, interfaces, fields and methods.
+
+        input.readUnsignedShort();
+        skip(input, input.readUnsignedShort() * 2);
+        skipMembers(input);
+        skipMembers(input);
+
+        // Read SourceFile attribute.
+
+        String sourceFile = null;
+        int attributeCount = input.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            String name = getUtf8(utf8s, input.readUnsignedShort());
+            int length = input.readInt();
+            if (SOURCE_FILE_ATTRIBUTE.equals(name)) {
+                sourceFile = getUtf8(utf8s, input.readUnsignedShort());
+            } else {
+                skip(input, length);
+            }
+        }
+
+        // Collect referred classes.
+
+        TreeSet<String> referencedClasses = new TreeSet<String>();
+        for (int i = 1; i < constantPoolCount; i++) {
+            if (classNameIndexes[i] != 0) {
+                String name = getClassName(utf8s, classNameIndexes, i);
+                if (name != null) {
+                    addClassName(name, referencedClasses);
+                }
+            }
+            if (descriptorIndexes[i] != 0) {
+                String descriptor = getUtf8(utf8s, descriptorIndexes[i]);
+                if (descriptor != null) {
+                    addDescriptorClasses(descriptor, referencedClasses);
+                }
+            }
+        }
+        referencedClasses.remove(className);
+
+        return new ClassFileInfo(className, sourceFile, referencedClasses);
+    }
+
+    /**
+     * Get the value of CONSTANT_Utf8 from the constant pool.
+     *
+     * @param utf8s Values of CONSTANT_Utf8
+     * @param index Index of CONSTANT_Utf8
+     * @return Value, or null if the entry is not CONSTANT_Utf8
+     * @throws IOException If the index is out of the constant pool
+     */
+    private static String getUtf8(String[] utf8s, int index) throws
+            IOException {
+        if (index <= 0 || index >= utf8s.length) {
+            throw new IOException("Invalid constant pool index: " + index);
+        }
+
+        return utf8s[index];
+    }
+
+    /**
+     * Get the name of class from the constant pool.
+     *
+     * @param utf8s Values of CONSTANT_Utf8
+     * @param classNameIndexes Name indexes of CONSTANT_Class
+     * @param index Index of CONSTANT_Class
+     * @return Name of class, or null if the index is invalid
+     */
+    private static String getClassName(String[] utf8s,
+            int[] classNameIndexes, int index) {
+        if (index <= 0 || index >= classNameIndexes.length) {
+            return null;
+        }
+
+        int nameIndex = classNameIndexes[index];
+        if (nameIndex <= 0 || nameIndex >= utf8s.length) {
+            return null;
+        }
+
+        return utf8s[nameIndex];
+    }
+
+    /**
+     * Add the name of class in CONSTANT_Class.
+     *
+     * The name of an array class is a descriptor of the array.
+     *
+     * @param name Name of class
+     * @param classNames Destination of the name
+     */
+    private static void addClassName(String name, Set<String> classNames) {
+        if (name.startsWith("[")) {
+            addDescriptorClasses(name, classNames);
+        } else {
+            classNames.add(name);
+        }
+    }
+
+    /**
+     * Add the names of classes in a field or method descriptor.
+     *
+     * @param descriptor Descriptor
+     * @param classNames Destination of the names
+     */
+    private static void addDescriptorClasses(String descriptor,
+            Set<String> classNames) {
+        int start = descriptor.indexOf('L');
+        while (start >= 0) {
+            int end = descriptor.indexOf(';', start);
+            if (end < 0) {
+                return;
+            }
+
+            classNames.add(descriptor.substring(start + 1, end));
+            start = descriptor.indexOf('L', end);
+        }
+    }
+
+    /**
+     * Skip fields or methods.
+     *
+     * @param input Input positioned at the count of members
+     * @throws IOException If the input is too short
+     */
+    private static void skipMembers(DataInputStream input) throws
+            IOException {
+        int memberCount = input.readUnsignedShort();
+        for (int i = 0; i < memberCount; i++) {
+            // Skip access flags, name and descriptor.
+            skip(input, 2 + 2 + 2);
+
+            int attributeCount = input.readUnsignedShort();
+            for (int j = 0; j < attributeCount; j++) {
+                input.readUnsignedShort();
+                skip(input, input.readInt());
+            }
+        }
+    }
+
+    /**
+     * Skip bytes.
+     *
+     * @param input Input
+     * @param length Number of bytes to skip
+     * @throws IOException If the input is too short
+     */
+    private static void skip(DataInputStream input, int length) throws
+            IOException {
+        if (length < 0 || input.skipBytes(length) != length) {
+            throw new IOException("Class file is truncated.");
+        }
+    }
+
+    /**
+     * Read the content of a file.
+     *
+     * @param file File
+     * @return Content
+     * @throws IOException If the file cannot be read
+     */
+    /* package */ static byte[] readContent(File file) throws IOException {
+        InputStream input = new FileInputStream(file);
+        try {
+            byte[] content = new byte[(int) file.length()];
+            int offset = 0;
+            while (offset < content.length) {
+                int length = input.read(
+                        content, offset, content.length - offset);
+                if (length < 0) {
+                    throw new IOException(
+                            file.getAbsolutePath() + " is truncated.");
+                }
+                offset += length;
+            }
+
+            return content;
+        } finally {
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Build commands that execute Jlint within the limit of command length.
+ *
+ * <p>The length of a command is measured as the size that the operating
+ * system copies for its arguments. Each argument takes its bytes, the
+ * terminating null character and a pointer to it.</p>
+ */
+/* package */ final class CommandBuilder {
+    /**
+     * Size of pointer to an argument in bytes.
+     */
+    private static final int POINTER_SIZE = 8;
+
+    /**
+     * Charset in which arguments are passed to the operating system.
+     */
+    private static final Charset ARGUMENT_CHARSET = Charset.defaultCharset();
+
+    /**
+     * Maximum length of a command line on Windows in characters, with
+     * room for the quotes around arguments.
+     */
+    private static final long WINDOWS_MAX_COMMAND_LENGTH = 32000;
+
+    /**
+     * ARG_MAX of Linux in bytes, which is the limit of the arguments and
+     * the environment variables with the default stack size.
+     */
+    private static final long LINUX_ARG_MAX = 2L * 1024 * 1024;
+
+    /**
+     * ARG_MAX of Mac OS X in bytes.
+     */
+    private static final long MAC_ARG_MAX = 1024 * 1024;
+
+    /**
+     * ARG_MAX of other systems in bytes, which is the smallest one of
+     * the common systems.
+     */
+    private static final long OTHER_ARG_MAX = 256 * 1024;
+
+    /**
+     * Bytes kept free from ARG_MAX for the program path and for variables
+     * that the launcher may add to the environment.
+     */
+    private static final long ARG_MAX_MARGIN = 16 * 1024;
+
+    /**
+     * Default maximum length of command in bytes.
+     *
+     * On Windows, a command line is limited to 32767 characters. On the
+     * other systems, the arguments share ARG_MAX with the environment
+     * variables, so the default is ARG_MAX less the size of the current
+     * environment.
+     */
+    public static final long DEFAULT_MAX_COMMAND_LENGTH =
+            getDefaultMaxCommandLength(System.getProperty("os.name"),
+                    System.getenv());
+
+    /**
+     * Arguments that every command starts with.
+     */
+    private final ArrayList<String> mPrefix;
+
+    /**
+     * Maximum length of command in bytes. 0 means no limit.
+     */
+    private final long mMaxCommandLength;
+
+    /**
+     * Constructor.
+     *
+     * @param prefix Arguments that every command starts with
+     * @param maxCommandLength Maximum length of command in bytes.
+     *  0 means no limit.
+     */
+    public CommandBuilder(List<String> prefix, long maxCommandLength) {
+        mPrefix = new ArrayList<String>(prefix);
+        mMaxCommandLength = maxCommandLength;
+    }
+
+    /**
+     * Split class files into batches.
+     *
+     * The class files are split in order so that the command for each
+     * batch does not exceed the maximum length. A class file whose path
+     * alone exceeds the limit makes a batch of its own.
+     *
+     * @param classFiles Class files
+     * @return Batches of class files. At least one batch is returned.
+     */
+    public List<List<File>> split(List<File> classFiles) {
+        ArrayList<List<File>> batches = new ArrayList<List<File>>();
+
+        long prefixLength = 0;
+        for (String argument : mPrefix) {
+            prefixLength += measure(argument);
+        }
+
+        ArrayList<File> batch = new ArrayList<File>();
+        long commandLength = prefixLength;
+        for (File classFile : classFiles) {
+            long argumentLength = measure(classFile.getAbsolutePath());
+
+            if (mMaxCommandLength > 0 && !batch.isEmpty() &&
+                    commandLength + argumentLength > mMaxCommandLength) {
+                batches.add(batch);
+
+                batch = new ArrayList<File>();
+                commandLength = prefixLength;
+            }
+
+            batch.add(classFile);
+            commandLength += argumentLength;
+        }
+        batches.add(batch);
+
+        return batches;
+    }
+
+    /**
+     * Build the command for a batch of class files.
+     *
+     * @param batch Batch of class files
+     * @return Command
+     */
+    public List<String> build(List<File> batch) {
+        ArrayList<String> command = new ArrayList<String>(mPrefix);
+        for (File classFile : batch) {
+            command.add(classFile.getAbsolutePath());
+        }
+
+        return command;
+    }
+
+    /**
+     * Get the default maximum length of command.
+     *
+     * @param osName Name of the operating system
+     * @param environment Environment variables passed to commands
+     * @return Default maximum length of command in bytes
+     */
+    /* package */ static long getDefaultMaxCommandLength(String osName,
+            Map<String, String> environment) {
+        long argMax;
+        if (osName.startsWith("Windows")) {
+            return WINDOWS_MAX_COMMAND_LENGTH;
+        } else if (osName.startsWith("Linux")) {
+            argMax = LINUX_ARG_MAX;
+        } else if (osName.startsWith("Mac")) {
+            argMax = MAC_ARG_MAX;
+        } else {
+            argMax = OTHER_ARG_MAX;
+        }
+
+        long environmentLength = 0;
+        for (Map.Entry<String, String> variable : environment.entrySet()) {
+            environmentLength +=
+                    measure(variable.getKey() + '=' + variable.getValue());
+        }
+
+        return Math.max(argMax - environmentLength - ARG_MAX_MARGIN,
+                OTHER_ARG_MAX / 2);
+    }
+
+    /**
+     * Measure the length of an argument.
+     *
+     * @param argument Argument
+     * @return Length of the argument in bytes
+     */
+    /* package */ static long measure(String argument) {
+        return argument.getBytes(ARGUMENT_CHARSET).length + 1 + POINTER_SIZE;
+    }
+}
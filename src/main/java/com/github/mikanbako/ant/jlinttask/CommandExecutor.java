@@ -27,16 +27,19 @@ import java.util.List;
     /**
      * Execute a command.
      *
+     * Lines are delivered to the consumers on the calling thread
+     * as the command outputs them.
+     *
      * @param command Program and its arguments
-     * @param output {@link StringBuilder} that is appended for the standard
+     * @param output {@link LineConsumer} that consumes the standard
      *  output from command
-     * @param error {@link StringBuilder} that is appended for the standard
+     * @param error {@link LineConsumer} that consumes the standard
      *  error from command
      * @return Exit code of program.
      * @throws IOException If I/O error occurs
      * @throws InterruptedException If other thread is interrupted.
      */
     int execute(List<String> command,
-            StringBuilder output, StringBuilder error) throws
+            LineConsumer output, LineConsumer error) throws
             IOException, InterruptedException;
 }
@@ -0,0 +1,325 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Graph of references between classes.
+ *
+ * <p>Each class refers to the classes that its constant pool names.
+ * Referred classes do not have to be in the graph themselves.</p>
+ */
+/* package */ final class DependencyGraph {
+    /**
+     * Version of the format of the graph file.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Size of buffer to read and write the graph file in bytes.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Referred classes for each class.
+     */
+    private final HashMap<String, Set<String>> mReferences =
+            new HashMap<String, Set<String>>();
+
+    /**
+     * Whether the class is in the graph.
+     *
+     * @param className Name of class
+     * @return true if the class is in the graph
+     */
+    public boolean contains(String className) {
+        return mReferences.containsKey(className);
+    }
+
+    /**
+     * Set the classes that a class refers to.
+     *
+     * @param className Name of class
+     * @param referencedClasses Names of referred classes
+     */
+    public void setReferences(String className,
+            Collection<String> referencedClasses) {
+        mReferences.put(className, new TreeSet<String>(referencedClasses));
+    }
+
+    /**
+     * Get the classes that a class refers to.
+     *
+     * @param className Name of class
+     * @return Unmodifiable set of names of referred classes
+     */
+    public Set<String> getReferences(String className) {
+        Set<String> references = mReferences.get(className);
+        if (references == null) {
+            return Collections.emptySet();
+        }
+
+        return Collections.unmodifiableSet(references);
+    }
+
+    /**
+     * Remove classes that are not in the collection.
+     *
+     * @param classNames Names of classes to keep
+     */
+    public void retain(Collection<String> classNames) {
+        mReferences.keySet().retainAll(classNames);
+    }
+
+    /**
+     * Get the classes that refer to the classes directly or indirectly.
+     *
+     * A finding for a class can change only if a class in this set
+     * changes.
+     *
+     * @param classNames Names of classes
+     * @return Names of the classes and the classes that refer to them
+     */
+    public Set<String> getDependents(Collection<String> classNames) {
+        HashMap<String, List<String>> referrers =
+                new HashMap<String, List<String>>();
+        for (Map.Entry<String, Set<String>> entry : mReferences.entrySet()) {
+            for (String referencedClass : entry.getValue()) {
+                List<String> classReferrers = referrers.get(referencedClass);
+                if (classReferrers == null) {
+                    classReferrers = new ArrayList<String>();
+                    referrers.put(referencedClass, classReferrers);
+                }
+                classReferrers.add(entry.getKey());
+            }
+        }
+
+        return traverse(classNames, referrers);
+    }
+
+    /**
+     * Get the classes that the classes refer to directly or indirectly.
+     *
+     * @param classNames Names of classes
+     * @return Names of the classes and the classes that they refer to.
+     *  Only classes in the graph are followed.
+     */
+    public Set<String> getDependencies(Collection<String> classNames) {
+        return traverse(classNames, mReferences);
+    }
+
+    /**
+     * Get the classes that refer to the classes directly.
+     *
+     * Unlike {@link #getDependents(Collection)}, classes that refer to
+     * the classes only through other classes are not contained.
+     *
+     * @param classNames Names of classes
+     * @return Names of the classes and the classes in the graph that
+     *  refer to them
+     */
+    public Set<String> getDirectDependents(Collection<String> classNames) {
+        HashSet<String> targets = new HashSet<String>(classNames);
+        HashSet<String> dependents = new HashSet<String>(classNames);
+        for (Map.Entry<String, Set<String>> entry : mReferences.entrySet()) {
+            for (String referencedClass : entry.getValue()) {
+                if (targets.contains(referencedClass)) {
+                    dependents.add(entry.getKey());
+                    break;
+                }
+            }
+        }
+
+        return dependents;
+    }
+
+    /**
+     * Traverse edges from the classes.
+     *
+     * @param classNames Names of classes to start from
+     * @param edges Edges for each class
+     * @return Names of the reached classes including the start classes
+     */
+    private static Set<String> traverse(Collection<String> classNames,
+            Map<String, ? extends Collection<String>> edges) {
+        HashSet<String> reached = new HashSet<String>(classNames);
+        ArrayList<String> pending = new ArrayList<String>(reached);
+
+        while (!pending.isEmpty()) {
+            Collection<String> nextClasses =
+                    edges.get(pending.remove(pending.size() - 1));
+            if (nextClasses == null) {
+                continue;
+            }
+
+            for (String nextClass : nextClasses) {
+                if (reached.add(nextClass)) {
+                    pending.add(nextClass);
+                }
+            }
+        }
+
+        return reached;
+    }
+
+    /**
+     * Load the graph from a file.
+     *
+     * If the file does not exist or is broken, an empty graph is returned.
+     *
+     * @param file Graph file
+     * @return Graph
+     */
+    public static DependencyGraph load(File file) {
+        DependencyGraph graph = new DependencyGraph();
+
+        if (file.isFile()) {
+            try {
+                graph.read(file);
+            } catch (IOException e) {
+                // The broken graph is discarded.
+                graph.mReferences.clear();
+            }
+        }
+
+        return graph;
+    }
+
+    /**
+     * Read the graph file.
+     *
+     * Names of classes are stored once and edges are stored as indexes.
+     *
+     * @param file Graph file
+     * @throws IOException If the file cannot be read or is broken
+     */
+    private void read(File file) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file), BUFFER_SIZE));
+        try {
+            if (input.readInt() != FORMAT_VERSION) {
+                return;
+            }
+
+            String[] names = new String[input.readInt()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = input.readUTF();
+            }
+
+            int classCount = input.readInt();
+            for (int i = 0; i < classCount; i++) {
+                String className = names[input.readInt()];
+
+                TreeSet<String> references = new TreeSet<String>();
+                int referenceCount = input.readInt();
+                for (int j = 0; j < referenceCount; j++) {
+                    references.add(names[input.readInt()]);
+                }
+
+                mReferences.put(className, references);
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Graph file is broken.");
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Save the graph to a file.
+     *
+     * The file is replaced after the whole graph is written.
+     *
+     * @param file Graph file
+     * @throws IOException If I/O error occurs
+     */
+    public void save(File file) throws IOException {
+        HashMap<String, Integer> indexes = new HashMap<String, Integer>();
+        ArrayList<String> names = new ArrayList<String>();
+        for (Map.Entry<String, Set<String>> entry : mReferences.entrySet()) {
+            addName(entry.getKey(), names, indexes);
+            for (String referencedClass : entry.getValue()) {
+                addName(referencedClass, names, indexes);
+            }
+        }
+
+        File temporaryFile = new File(file.getPath() + ".tmp");
+        DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(
+                        new FileOutputStream(temporaryFile), BUFFER_SIZE));
+        try {
+            output.writeInt(FORMAT_VERSION);
+
+            output.writeInt(names.size());
+            for (String name : names) {
+                output.writeUTF(name);
+            }
+
+            output.writeInt(mReferences.size());
+            for (Map.Entry<String, Set<String>> entry :
+                    mReferences.entrySet()) {
+                output.writeInt(indexes.get(entry.getKey()));
+                output.writeInt(entry.getValue().size());
+                for (String referencedClass : entry.getValue()) {
+                    output.writeInt(indexes.get(referencedClass));
+                }
+            }
+        } finally {
+            output.close();
+        }
+
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Cannot replace " + file.getAbsolutePath());
+        }
+        if (!temporaryFile.renameTo(file)) {
+            throw new IOException("Cannot replace " + file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Add a name to the table of names.
+     *
+     * @param name Name
+     * @param names Table of names
+     * @param indexes Indexes of names in the table
+     */
+    private static void addName(String name, List<String> names,
+            Map<String, Integer> indexes) {
+        if (!indexes.containsKey(name)) {
+            indexes.put(name, names.size());
+            names.add(name);
+        }
+    }
+}
@@ -0,0 +1,425 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collapse included files into directories where possible.
+ *
+ * <p>Jlint analyzes all class files in a directory and its subdirectories
+ * when a directory is passed. So a directory whose analyzable files are
+ * all included can be passed instead of the files.</p>
+ *
+ * <p>Files are regarded as analyzable by their extension. So only entries
+ * that do not look like analyzable files are checked whether they are
+ * directories.</p>
+ *
+ * <p>If a {@link FileSnapshot} is given, directories are listed through
+ * it, so directories already listed by the scanner or unchanged since the
+ * previous run are not read again.</p>
+ */
+/* package */ final class DirectoryCollapser {
+    /**
+     * Extensions of files that Jlint analyzes in a directory.
+     */
+    private static final String[] ANALYZABLE_EXTENSIONS = {
+        ".class", ".jar", ".zip",
+    };
+
+    /**
+     * Directory in which files are included.
+     */
+    private final File mBaseDirectory;
+
+    /**
+     * Whether only directories that have no analyzable subdirectory
+     * are collapsed.
+     */
+    private final boolean mLeafOnly;
+
+    /**
+     * Snapshot through which directories are listed, or null.
+     */
+    private final FileSnapshot mSnapshot;
+
+    /**
+     * Names of included files for each directory relative to the base
+     * directory.
+     */
+    private final HashMap<String, Set<String>> mIncludedFiles =
+            new HashMap<String, Set<String>>();
+
+    /**
+     * Relative directories that contain included files in their subtree.
+     */
+    private final HashSet<String> mIncludingDirectories =
+            new HashSet<String>();
+
+    /**
+     * Result of collapsing.
+     */
+    private final ArrayList<File> mResult = new ArrayList<File>();
+
+    /**
+     * Constructor.
+     *
+     * @param baseDirectory Directory in which files are included
+     * @param includedFiles Paths of included files relative to the base
+     *  directory
+     * @param leafOnly true if only directories that have no analyzable
+     *  subdirectory are collapsed. This keeps packages apart.
+     * @param snapshot Snapshot through which directories are listed, or
+     *  null to list them directly
+     */
+    private DirectoryCollapser(File baseDirectory, String[] includedFiles,
+            boolean leafOnly, FileSnapshot snapshot) {
+        mBaseDirectory = baseDirectory;
+        mLeafOnly = leafOnly;
+        mSnapshot = snapshot;
+
+        for (String includedFile : includedFiles) {
+            int separatorIndex = includedFile.lastIndexOf(File.separatorChar);
+
+            String directory;
+            String name;
+            if (separatorIndex < 0) {
+                directory = "";
+                name = includedFile;
+            } else {
+                directory = includedFile.substring(0, separatorIndex);
+                name = includedFile.substring(separatorIndex + 1);
+            }
+
+            Set<String> names = mIncludedFiles.get(directory);
+            if (names == null) {
+                names = new HashSet<String>();
+                mIncludedFiles.put(directory, names);
+            }
+            names.add(name);
+
+            while (mIncludingDirectories.add(directory) &&
+                    directory.length() > 0) {
+                int parentIndex = directory.lastIndexOf(File.separatorChar);
+                if (parentIndex < 0) {
+                    directory = "";
+                } else {
+                    directory = directory.substring(0, parentIndex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Collapse included files into directories.
+     *
+     * @param baseDirectory Directory in which files are included
+     * @param includedFiles Paths of included files relative to the base
+     *  directory
+     * @param leafOnly true if only directories that have no analyzable
+     *  subdirectory are collapsed. This keeps packages apart.
+     * @return Included files and directories whose analyzable files are
+     *  all included
+     */
+    public static List<File> collapse(File baseDirectory,
+            String[] includedFiles, boolean leafOnly) {
+        return collapse(baseDirectory, includedFiles, leafOnly, null);
+    }
+
+    /**
+     * Collapse included files into directories, listing directories
+     * through a snapshot.
+     *
+     * @param baseDirectory Directory in which files are included
+     * @param includedFiles Paths of included files relative to the base
+     *  directory
+     * @param leafOnly true if only directories that have no analyzable
+     *  subdirectory are collapsed. This keeps packages apart.
+     * @param snapshot Snapshot through which directories are listed, or
+     *  null to list them directly
+     * @return Included files and directories whose analyzable files are
+     *  all included
+     */
+    public static List<File> collapse(File baseDirectory,
+            String[] includedFiles, boolean leafOnly, FileSnapshot snapshot) {
+        DirectoryCollapser collapser = new DirectoryCollapser(
+                baseDirectory, includedFiles, leafOnly, snapshot);
+
+        if (includedFiles.length > 0) {
+            collapser.visit("");
+        }
+
+        return collapser.mResult;
+    }
+
+    /**
+     * Whether the file is analyzable by its name.
+     *
+     * @param name Name of file
+     * @return true if the file is analyzable
+     */
+    /* package */ static boolean isAnalyzable(String name) {
+        for (String extension : ANALYZABLE_EXTENSIONS) {
+            if (name.endsWith(extension)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Result of visiting a directory.
+     */
+    private static final class Visit {
+        /**
+         * Whether all analyzable files in the subtree are included.
+         */
+        private boolean mFullyIncluded = true;
+
+        /**
+         * Whether the subtree contains analyzable files.
+         */
+        private boolean mAnalyzable;
+
+        /**
+         * Whether a subdirectory contains analyzable files.
+         */
+        private boolean mHasAnalyzableSubdirectory;
+
+        /**
+         * Whether the directory can be passed instead of its files.
+         */
+        private boolean mCollapsible;
+    }
+
+    /**
+     * Visit a directory.
+     *
+     * If the directory is not collapsible, its included files and
+     * collapsible subdirectories are added to the result.
+     *
+     * @param directory Directory relative to the base directory
+     * @return Result of visiting
+     */
+    private Visit visit(String directory) {
+        Visit visit = new Visit();
+
+        Set<String> includedNames = mIncludedFiles.get(directory);
+        if (includedNames == null) {
+            includedNames = new HashSet<String>();
+        }
+
+        ArrayList<String> names = new ArrayList<String>();
+        ArrayList<String> subdirectories = new ArrayList<String>();
+        if (!list(toFile(directory), names, subdirectories)) {
+            // The directory cannot be listed. So only its included files
+            // are passed.
+            names.addAll(includedNames);
+            visit.mFullyIncluded = false;
+        }
+        Collections.sort(names);
+        Collections.sort(subdirectories);
+
+        for (String name : names) {
+            if (isAnalyzable(name)) {
+                visit.mAnalyzable = true;
+                if (!includedNames.contains(name)) {
+                    visit.mFullyIncluded = false;
+                }
+            }
+        }
+
+        // Visit subdirectories that contain included files. The result of
+        // collapsible subdirectories is kept until this directory turns out
+        // to be not collapsible.
+
+        ArrayList<String> collapsibleSubdirectories = new ArrayList<String>();
+        ArrayList<String> otherSubdirectories = new ArrayList<String>();
+        int resultSize = mResult.size();
+        for (String name : subdirectories) {
+            String subdirectory = resolve(directory, name);
+            if (!mIncludingDirectories.contains(subdirectory)) {
+                otherSubdirectories.add(subdirectory);
+                continue;
+            }
+
+            Visit subdirectoryVisit = visit(subdirectory);
+            if (subdirectoryVisit.mAnalyzable) {
+                visit.mAnalyzable = true;
+                visit.mHasAnalyzableSubdirectory = true;
+            }
+            if (!subdirectoryVisit.mFullyIncluded) {
+                visit.mFullyIncluded = false;
+            }
+            if (subdirectoryVisit.mCollapsible &&
+                    subdirectoryVisit.mAnalyzable) {
+                collapsibleSubdirectories.add(subdirectory);
+            }
+        }
+
+        // Subdirectories that contain no included file matter only if this
+        // directory may still be fully included.
+
+        for (String subdirectory : otherSubdirectories) {
+            if (!visit.mFullyIncluded) {
+                break;
+            }
+
+            if (containsAnalyzable(toFile(subdirectory))) {
+                visit.mFullyIncluded = false;
+                visit.mAnalyzable = true;
+                visit.mHasAnalyzableSubdirectory = true;
+            }
+        }
+
+        visit.mCollapsible = visit.mFullyIncluded &&
+                !(mLeafOnly && visit.mHasAnalyzableSubdirectory);
+        if (visit.mCollapsible) {
+            if (directory.length() == 0 && visit.mAnalyzable) {
+                mResult.add(mBaseDirectory);
+            }
+            return visit;
+        }
+
+        // This directory is not collapsible. So add its included files and
+        // the collapsible subdirectories before the results of the others.
+
+        ArrayList<File> files = new ArrayList<File>();
+        for (String name : names) {
+            if (includedNames.contains(name)) {
+                files.add(toFile(resolve(directory, name)));
+            }
+        }
+        for (String subdirectory : collapsibleSubdirectories) {
+            files.add(toFile(subdirectory));
+        }
+        mResult.addAll(resultSize, files);
+
+        return visit;
+    }
+
+    /**
+     * List a directory.
+     *
+     * Without a snapshot, only entries that do not look like analyzable
+     * files are checked whether they are directories.
+     *
+     * @param directory Directory
+     * @param files List to which the names of files are added
+     * @param subdirectories List to which the names of subdirectories are
+     *  added
+     * @return true if the directory is listed
+     */
+    private boolean list(File directory, List<String> files,
+            List<String> subdirectories) {
+        if (mSnapshot != null) {
+            FileSnapshot.Listing listing;
+            try {
+                listing = mSnapshot.list(directory);
+            } catch (IOException e) {
+                return false;
+            }
+
+            files.addAll(Arrays.asList(listing.getFiles()));
+            subdirectories.addAll(Arrays.asList(listing.getDirectories()));
+            return true;
+        }
+
+        String[] names = directory.list();
+        if (names == null) {
+            return false;
+        }
+
+        for (String name : names) {
+            if (isAnalyzable(name) ||
+                    !new File(directory, name).isDirectory()) {
+                files.add(name);
+            } else {
+                subdirectories.add(name);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Whether the directory contains analyzable files in its subtree.
+     *
+     * @param directory Directory
+     * @return true if the directory contains analyzable files
+     */
+    private boolean containsAnalyzable(File directory) {
+        ArrayList<String> files = new ArrayList<String>();
+        ArrayList<String> subdirectories = new ArrayList<String>();
+        if (!list(directory, files, subdirectories)) {
+            return false;
+        }
+
+        for (String name : files) {
+            if (isAnalyzable(name)) {
+                return true;
+            }
+        }
+
+        for (String name : subdirectories) {
+            if (containsAnalyzable(new File(directory, name))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Resolve a name in a directory relative to the base directory.
+     *
+     * @param directory Directory relative to the base directory
+     * @param name Name in the directory
+     * @return Path relative to the base directory
+     */
+    private static String resolve(String directory, String name) {
+        if (directory.length() == 0) {
+            return name;
+        }
+
+        return directory + File.separatorChar + name;
+    }
+
+    /**
+     * Convert a path relative to the base directory into a file.
+     *
+     * @param path Path relative to the base directory
+     * @return File
+     */
+    private File toFile(String path) {
+        if (path.length() == 0) {
+            return mBaseDirectory;
+        }
+
+        return new File(mBaseDirectory, path);
+    }
+}
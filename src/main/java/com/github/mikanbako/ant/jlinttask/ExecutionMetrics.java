@@ -0,0 +1,386 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Durations of phases and counts of an execution of Jlint task.
+ *
+ * <p>Durations are accumulated in nanoseconds, so a phase that occurs
+ * many times, for example once for each file, is summed up. This object
+ * is thread safe.</p>
+ */
+/* package */ final class ExecutionMetrics {
+    /**
+     * Phase to scan filesets.
+     */
+    public static final String PHASE_SCAN = "scan";
+
+    /**
+     * Phase to get canonical paths of class files.
+     */
+    public static final String PHASE_CANONICALIZE = "canonicalize";
+
+    /**
+     * Phase to read message filtering options.
+     */
+    public static final String PHASE_OPTIONS = "options";
+
+    /**
+     * Phase to wait until the memory scheduler admits Jlint processes.
+     */
+    public static final String PHASE_SCHEDULE = "schedule";
+
+    /**
+     * Phase to start Jlint processes.
+     */
+    public static final String PHASE_SPAWN = "spawn";
+
+    /**
+     * Phase in which Jlint processes run, from their start to their exit.
+     */
+    public static final String PHASE_JLINT = "jlint";
+
+    /**
+     * Phase to consume output from Jlint processes.
+     */
+    public static final String PHASE_OUTPUT = "output";
+
+    /**
+     * Phase to finish reports and close output files.
+     */
+    public static final String PHASE_REPORT = "report";
+
+    /**
+     * Whole execution of the task.
+     */
+    public static final String PHASE_TOTAL = "total";
+
+    /**
+     * Number of class files and directories passed to Jlint.
+     */
+    public static final String COUNT_CLASS_FILES = "classFiles";
+
+    /**
+     * Number of Jlint processes.
+     */
+    public static final String COUNT_PROCESSES = "processes";
+
+    /**
+     * Total bytes of command lines of Jlint processes.
+     */
+    public static final String COUNT_ARGUMENT_BYTES = "argumentBytes";
+
+    /**
+     * Number of lines of the standard output from Jlint processes.
+     */
+    public static final String COUNT_OUTPUT_LINES = "outputLines";
+
+    /**
+     * Number of lines of the standard error from Jlint processes.
+     */
+    public static final String COUNT_ERROR_LINES = "errorLines";
+
+    /**
+     * Number of findings in the result.
+     */
+    public static final String COUNT_FINDINGS = "findings";
+
+    /**
+     * Total CPU time of Jlint processes in milliseconds.
+     */
+    public static final String COUNT_CPU_MILLIS = "cpuMillis";
+
+    /**
+     * Largest peak resident set size of Jlint processes in bytes.
+     */
+    public static final String COUNT_PEAK_RESIDENT_BYTES =
+            "peakResidentBytes";
+
+    /**
+     * Total bytes read from storage by Jlint processes.
+     */
+    public static final String COUNT_READ_BYTES = "readBytes";
+
+    /**
+     * Total bytes written to storage by Jlint processes.
+     */
+    public static final String COUNT_WRITTEN_BYTES = "writtenBytes";
+
+    /**
+     * Number of directories listed while scanning file sets.
+     */
+    public static final String COUNT_LISTED_DIRECTORIES =
+            "listedDirectories";
+
+    /**
+     * Number of directories whose recorded listings are reused while
+     * scanning file sets.
+     */
+    public static final String COUNT_REUSED_DIRECTORIES =
+            "reusedDirectories";
+
+    /**
+     * Names of the counts of findings for each category, indexed by the
+     * ordinal of the category.
+     */
+    private static final String[] FINDING_COUNT_NAMES =
+            createFindingCountNames();
+
+    /**
+     * Durations of phases in nanoseconds.
+     */
+    private final LinkedHashMap<String, Long> mPhaseNanos =
+            new LinkedHashMap<String, Long>();
+
+    /**
+     * Counts.
+     */
+    private final LinkedHashMap<String, Long> mCounts =
+            new LinkedHashMap<String, Long>();
+
+    /**
+     * Counts of findings for each category, indexed by the ordinal of the
+     * category. They are counted without locking and are added to the
+     * counts when the counts are read.
+     */
+    private final AtomicLongArray mFindingCounts =
+            new AtomicLongArray(FINDING_COUNT_NAMES.length);
+
+    /**
+     * Resource usage of each Jlint process.
+     */
+    private final ArrayList<ProcessUsage> mProcessUsages =
+            new ArrayList<ProcessUsage>();
+
+    /**
+     * Add a duration of a phase.
+     *
+     * @param phase Phase
+     * @param startNanos Value of {@link System#nanoTime()} at the start of
+     *  the phase
+     */
+    public void addTimeSince(String phase, long startNanos) {
+        addTime(phase, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Add a duration of a phase.
+     *
+     * @param phase Phase
+     * @param nanos Duration in nanoseconds
+     */
+    public synchronized void addTime(String phase, long nanos) {
+        add(mPhaseNanos, phase, nanos);
+    }
+
+    /**
+     * Add to a count.
+     *
+     * @param name Name of count
+     * @param delta Value to add
+     */
+    public synchronized void addCount(String name, long delta) {
+        add(mCounts, name, delta);
+    }
+
+    /**
+     * Add resource usage of a Jlint process.
+     *
+     * CPU time and I/O are summed up, and the largest peak resident set
+     * size is kept. Values that could not be sampled are ignored.
+     *
+     * @param usage Resource usage
+     */
+    public synchronized void addProcessUsage(ProcessUsage usage) {
+        mProcessUsages.add(usage);
+
+        if (usage.getCpuMillis() >= 0) {
+            add(mCounts, COUNT_CPU_MILLIS, usage.getCpuMillis());
+        }
+        if (usage.getPeakResidentBytes() >= 0) {
+            Long peak = mCounts.get(COUNT_PEAK_RESIDENT_BYTES);
+            if (peak == null || peak < usage.getPeakResidentBytes()) {
+                mCounts.put(COUNT_PEAK_RESIDENT_BYTES,
+                        usage.getPeakResidentBytes());
+            }
+        }
+        if (usage.getReadBytes() >= 0) {
+            add(mCounts, COUNT_READ_BYTES, usage.getReadBytes());
+        }
+        if (usage.getWrittenBytes() >= 0) {
+            add(mCounts, COUNT_WRITTEN_BYTES, usage.getWrittenBytes());
+        }
+    }
+
+    /**
+     * Clear all durations, counts and resource usage.
+     */
+    public synchronized void clear() {
+        mPhaseNanos.clear();
+        mCounts.clear();
+        for (int i = 0; i < mFindingCounts.length(); i++) {
+            mFindingCounts.set(i, 0);
+        }
+        mProcessUsages.clear();
+    }
+
+    /**
+     * Get resource usage of each Jlint process.
+     *
+     * @return Resource usage in order of the end of the processes
+     */
+    public synchronized List<ProcessUsage> getProcessUsages() {
+        return new ArrayList<ProcessUsage>(mProcessUsages);
+    }
+
+    /**
+     * Get durations of phases.
+     *
+     * @return Durations in nanoseconds for each phase, in order of their
+     *  first occurrence
+     */
+    public synchronized Map<String, Long> getPhaseNanos() {
+        return new LinkedHashMap<String, Long>(mPhaseNanos);
+    }
+
+    /**
+     * Get counts.
+     *
+     * @return Counts for each name, in order of their first occurrence.
+     *  The counts of findings follow the others.
+     */
+    public synchronized Map<String, Long> getCounts() {
+        LinkedHashMap<String, Long> counts =
+                new LinkedHashMap<String, Long>(mCounts);
+
+        long[] findingCounts = new long[FINDING_COUNT_NAMES.length];
+        long total = 0;
+        for (int i = 0; i < findingCounts.length; i++) {
+            findingCounts[i] = mFindingCounts.get(i);
+            total += findingCounts[i];
+        }
+        if (total > 0) {
+            add(counts, COUNT_FINDINGS, total);
+            for (int i = 0; i < findingCounts.length; i++) {
+                if (findingCounts[i] > 0) {
+                    add(counts, FINDING_COUNT_NAMES[i], findingCounts[i]);
+                }
+            }
+        }
+
+        return counts;
+    }
+
+    /**
+     * Create {@link FindingConsumer} that counts findings by category
+     * before passing them to a destination.
+     *
+     * Findings are counted as {@link #COUNT_FINDINGS} and
+     * {@link #COUNT_FINDINGS} followed by "." and the category.
+     *
+     * @param destination Destination of findings
+     * @param categories Categories of findings that are counted, or null
+     *  for all categories
+     * @return {@link FindingConsumer} that counts findings
+     */
+    public FindingConsumer countFindings(final FindingConsumer destination,
+            final Set<Finding.Category> categories) {
+        return new FindingConsumer() {
+            @Override
+            public void consumeFinding(Finding finding) throws IOException {
+                if (categories == null ||
+                        categories.contains(finding.getCategory())) {
+                    mFindingCounts.incrementAndGet(
+                            finding.getCategory().ordinal());
+                }
+
+                destination.consumeFinding(finding);
+            }
+        };
+    }
+
+    /**
+     * Write the metrics as JSON.
+     *
+     * The JSON has "phaseNanos" and "counts" objects.
+     *
+     * @param writer Destination
+     * @throws IOException If I/O error occurs
+     */
+    public synchronized void write(Writer writer) throws IOException {
+        JsonWriter jsonWriter = new JsonWriter(writer);
+        jsonWriter.beginObject();
+
+        jsonWriter.name("phaseNanos").beginObject();
+        for (Map.Entry<String, Long> phase : mPhaseNanos.entrySet()) {
+            jsonWriter.breakLine().name(phase.getKey())
+                    .value(phase.getValue());
+        }
+        jsonWriter.breakLine().endObject();
+
+        jsonWriter.name("counts").beginObject();
+        for (Map.Entry<String, Long> count : getCounts().entrySet()) {
+            jsonWriter.breakLine().name(count.getKey())
+                    .value(count.getValue());
+        }
+        jsonWriter.breakLine().endObject();
+
+        jsonWriter.endObject().breakLine().flush();
+    }
+
+    /**
+     * Create the names of the counts of findings for each category.
+     *
+     * @return Names indexed by the ordinal of the category
+     */
+    private static String[] createFindingCountNames() {
+        Finding.Category[] categories = Finding.Category.values();
+        String[] names = new String[categories.length];
+        for (Finding.Category category : categories) {
+            names[category.ordinal()] =
+                    COUNT_FINDINGS + "." + category.getOptionName();
+        }
+
+        return names;
+    }
+
+    /**
+     * Add a value to a map.
+     *
+     * @param map Map
+     * @param key Key
+     * @param delta Value to add
+     */
+    private static void add(Map<String, Long> map, String key, long delta) {
+        Long value = map.get(key);
+        if (value == null) {
+            map.put(key, delta);
+        } else {
+            map.put(key, value + delta);
+        }
+    }
+}
@@ -0,0 +1,354 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Listings of directories kept between runs.
+ *
+ * <p>A directory is listed again only if its modification time differs
+ * from the recorded one. Adding, removing or renaming an entry changes
+ * the modification time of the directory, so an unchanged directory
+ * reuses its recorded listing without reading it.</p>
+ *
+ * <p>A directory modified just before it is listed may be modified again
+ * within the resolution of modification times. Such a listing is recorded
+ * without its modification time, and it is listed again in the next
+ * run.</p>
+ *
+ * <p>Only the directories listed or reused in this run are saved.</p>
+ *
+ * <p>This object is thread-safe.</p>
+ */
+/* package */ final class FileSnapshot {
+    /**
+     * Version of the format of the snapshot file.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Modification time of a listing that is not reused.
+     */
+    private static final long UNKNOWN_MODIFIED_TIME = -1;
+
+    /**
+     * Resolution of modification times in milliseconds that is assumed
+     * for every file system.
+     */
+    /* package */ static final long MODIFIED_TIME_RESOLUTION_MILLIS = 2000;
+
+    /**
+     * Size of buffer to read and write the snapshot file in bytes.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Entries of a directory.
+     */
+    /* package */ static final class Listing {
+        /**
+         * Modification time of the directory, or
+         * {@link FileSnapshot#UNKNOWN_MODIFIED_TIME}.
+         */
+        private final long mModifiedTime;
+
+        /**
+         * Names of files.
+         */
+        private final String[] mFiles;
+
+        /**
+         * Names of subdirectories.
+         */
+        private final String[] mDirectories;
+
+        /**
+         * Constructor.
+         *
+         * @param modifiedTime Modification time of the directory
+         * @param files Names of files
+         * @param directories Names of subdirectories
+         */
+        /* package */ Listing(long modifiedTime, String[] files,
+                String[] directories) {
+            mModifiedTime = modifiedTime;
+            mFiles = files;
+            mDirectories = directories;
+        }
+
+        /**
+         * Get the names of files.
+         *
+         * @return Names of files
+         */
+        public String[] getFiles() {
+            return mFiles.clone();
+        }
+
+        /**
+         * Get the names of subdirectories.
+         *
+         * @return Names of subdirectories
+         */
+        public String[] getDirectories() {
+            return mDirectories.clone();
+        }
+    }
+
+    /**
+     * Listings recorded in the previous run for each absolute path.
+     */
+    private final ConcurrentHashMap<String, Listing> mPreviousListings =
+            new ConcurrentHashMap<String, Listing>();
+
+    /**
+     * Listings of this run for each absolute path.
+     */
+    private final ConcurrentHashMap<String, Listing> mListings =
+            new ConcurrentHashMap<String, Listing>();
+
+    /**
+     * Number of directories listed in this run.
+     */
+    private final AtomicInteger mListedCount = new AtomicInteger();
+
+    /**
+     * Number of directories whose recorded listings are reused in this
+     * run.
+     */
+    private final AtomicInteger mReusedCount = new AtomicInteger();
+
+    /**
+     * Load a snapshot from a file.
+     *
+     * If the file does not exist or is broken, an empty snapshot is
+     * returned.
+     *
+     * @param file Snapshot file
+     * @return Snapshot
+     */
+    public static FileSnapshot load(File file) {
+        FileSnapshot snapshot = new FileSnapshot();
+
+        if (file.isFile()) {
+            try {
+                snapshot.read(file);
+            } catch (IOException e) {
+                // The broken snapshot is discarded.
+                snapshot.mPreviousListings.clear();
+            }
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * List a directory.
+     *
+     * The recorded listing is returned if the directory is not modified.
+     * A directory that is already listed in this run is not listed again
+     * nor counted.
+     *
+     * @param directory Directory
+     * @return Listing of the directory
+     * @throws IOException If the directory cannot be listed
+     */
+    public Listing list(File directory) throws IOException {
+        String path = directory.getAbsolutePath();
+        Listing listing = mListings.get(path);
+        if (listing != null) {
+            return listing;
+        }
+
+        long modifiedTime = directory.lastModified();
+        listing = mPreviousListings.get(path);
+        if (listing != null && modifiedTime != 0 &&
+                listing.mModifiedTime == modifiedTime) {
+            mReusedCount.incrementAndGet();
+        } else {
+            listing = readListing(directory, modifiedTime);
+            mListedCount.incrementAndGet();
+        }
+        mListings.put(path, listing);
+
+        return listing;
+    }
+
+    /**
+     * Read the entries of a directory.
+     *
+     * @param directory Directory
+     * @param modifiedTime Modification time of the directory
+     * @return Listing of the directory
+     * @throws IOException If the directory cannot be listed
+     */
+    private static Listing readListing(File directory, long modifiedTime)
+            throws IOException {
+        File[] entries = directory.listFiles();
+        if (entries == null) {
+            throw new IOException(directory.getAbsolutePath() +
+                    " cannot be listed.");
+        }
+
+        ArrayList<String> files = new ArrayList<String>();
+        ArrayList<String> directories = new ArrayList<String>();
+        for (File entry : entries) {
+            if (entry.isDirectory()) {
+                directories.add(entry.getName());
+            } else {
+                files.add(entry.getName());
+            }
+        }
+
+        // The directory may be modified again without changing its
+        // modification time.
+        if (modifiedTime == 0 || System.currentTimeMillis() - modifiedTime <
+                MODIFIED_TIME_RESOLUTION_MILLIS) {
+            modifiedTime = UNKNOWN_MODIFIED_TIME;
+        }
+
+        return new Listing(modifiedTime,
+                files.toArray(new String[files.size()]),
+                directories.toArray(new String[directories.size()]));
+    }
+
+    /**
+     * Get the number of directories listed in this run.
+     *
+     * @return Number of listed directories
+     */
+    public int getListedCount() {
+        return mListedCount.get();
+    }
+
+    /**
+     * Get the number of directories whose recorded listings are reused in
+     * this run.
+     *
+     * @return Number of reused directories
+     */
+    public int getReusedCount() {
+        return mReusedCount.get();
+    }
+
+    /**
+     * Read the snapshot file.
+     *
+     * @param file Snapshot file
+     * @throws IOException If the file cannot be read or is broken
+     */
+    private void read(File file) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file), BUFFER_SIZE));
+        try {
+            if (input.readInt() != FORMAT_VERSION) {
+                return;
+            }
+
+            int directoryCount = input.readInt();
+            for (int i = 0; i < directoryCount; i++) {
+                String path = input.readUTF();
+                long modifiedTime = input.readLong();
+                String[] files = readNames(input);
+                String[] directories = readNames(input);
+                mPreviousListings.put(path,
+                        new Listing(modifiedTime, files, directories));
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Read names of entries.
+     *
+     * @param input Input of the snapshot file
+     * @return Names
+     * @throws IOException If the file cannot be read or is broken
+     */
+    private static String[] readNames(DataInputStream input)
+            throws IOException {
+        int count = input.readInt();
+        if (count < 0) {
+            throw new IOException("Number of names is negative.");
+        }
+
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = input.readUTF();
+        }
+
+        return names;
+    }
+
+    /**
+     * Save the listings of this run to a file.
+     *
+     * @param file Snapshot file
+     * @throws IOException If I/O error occurs
+     */
+    public void save(File file) throws IOException {
+        DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(
+                        new FileOutputStream(file), BUFFER_SIZE));
+        try {
+            output.writeInt(FORMAT_VERSION);
+
+            ArrayList<Map.Entry<String, Listing>> entries =
+                    new ArrayList<Map.Entry<String, Listing>>(
+                            mListings.entrySet());
+            output.writeInt(entries.size());
+            for (Map.Entry<String, Listing> entry : entries) {
+                Listing listing = entry.getValue();
+                output.writeUTF(entry.getKey());
+                output.writeLong(listing.mModifiedTime);
+                writeNames(output, listing.mFiles);
+                writeNames(output, listing.mDirectories);
+            }
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Write names of entries.
+     *
+     * @param output Output of the snapshot file
+     * @param names Names
+     * @throws IOException If I/O error occurs
+     */
+    private static void writeNames(DataOutputStream output, String[] names)
+            throws IOException {
+        output.writeInt(names.length);
+        for (String name : names) {
+            output.writeUTF(name);
+        }
+    }
+}
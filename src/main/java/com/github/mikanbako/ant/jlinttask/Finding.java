@@ -0,0 +1,328 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+/**
+ * A message reported by Jlint.
+ *
+ * <p>A message is output by Jlint as "path:line: message". This object
+ * keeps the output line and the positions of its parts, so the path and
+ * the message are not copied until they are requested.</p>
+ */
+public final class Finding {
+    /**
+     * Offset basis of FNV-1a hash.
+     */
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    /**
+     * Prime of FNV-1a hash.
+     */
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Category of message.
+     *
+     * <p>The categories are the same as the message filtering options
+     * of Jlint.</p>
+     */
+    public enum Category {
+        /**
+         * Synchronization problems, for example deadlocks and race
+         * conditions.
+         */
+        SYNCHRONIZATION("synchronization"),
+
+        /**
+         * Problems of class hierarchy, for example shadowed fields and
+         * methods that are not overridden.
+         */
+        INHERITANCE("inheritance"),
+
+        /**
+         * Problems found by data flow analysis, for example null
+         * references and truncation.
+         */
+        DATA_FLOW("data_flow"),
+
+        /**
+         * The category could not be determined.
+         */
+        UNKNOWN("unknown");
+
+        /**
+         * Name of message filtering option.
+         */
+        private final String mOptionName;
+
+        /**
+         * Constructor.
+         *
+         * @param optionName Name of message filtering option
+         */
+        Category(String optionName) {
+            mOptionName = optionName;
+        }
+
+        /**
+         * Get the name of message filtering option, for example
+         * "data_flow".
+         *
+         * @return Name of message filtering option
+         */
+        public String getOptionName() {
+            return mOptionName;
+        }
+
+        /**
+         * Get the category of a message filtering option.
+         *
+         * @param optionName Name of message filtering option, with or
+         *  without "+" or "-"
+         * @return Category, or null if the option is not a category
+         */
+        public static Category forOptionName(String optionName) {
+            String name = optionName;
+            if (name.startsWith("+") || name.startsWith("-")) {
+                name = name.substring(1);
+            }
+
+            for (Category category : values()) {
+                if (category != UNKNOWN &&
+                        category.mOptionName.equals(name)) {
+                    return category;
+                }
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * Line output from Jlint.
+     */
+    private final String mText;
+
+    /**
+     * End index of path in the text.
+     */
+    private final int mPathEnd;
+
+    /**
+     * Line number in source file.
+     */
+    private final int mLineNumber;
+
+    /**
+     * Start index of message in the text.
+     */
+    private final int mMessageStart;
+
+    /**
+     * Category of message.
+     */
+    private final Category mCategory;
+
+    /**
+     * Constructor.
+     *
+     * @param text Line output from Jlint
+     * @param pathEnd End index of path in the text
+     * @param lineNumber Line number in source file
+     * @param messageStart Start index of message in the text
+     * @param category Category of message
+     */
+    /* package */ Finding(String text, int pathEnd, int lineNumber,
+            int messageStart, Category category) {
+        mText = text;
+        mPathEnd = pathEnd;
+        mLineNumber = lineNumber;
+        mMessageStart = messageStart;
+        mCategory = category;
+    }
+
+    /**
+     * Get the line output from Jlint.
+     *
+     * @return Line output from Jlint
+     */
+    public String getText() {
+        return mText;
+    }
+
+    /**
+     * Get the path of source file.
+     *
+     * @return Path of source file as output by Jlint
+     */
+    public String getPath() {
+        return mText.substring(0, mPathEnd);
+    }
+
+    /**
+     * Get the line number in source file.
+     *
+     * @return Line number
+     */
+    public int getLineNumber() {
+        return mLineNumber;
+    }
+
+    /**
+     * Get the message.
+     *
+     * @return Message without path and line number
+     */
+    public String getMessage() {
+        return mText.substring(mMessageStart);
+    }
+
+    /**
+     * Get the start index of message in the text.
+     *
+     * @return Start index of message
+     */
+    /* package */ int getMessageStart() {
+        return mMessageStart;
+    }
+
+    /**
+     * Get the category of message.
+     *
+     * @return Category
+     */
+    public Category getCategory() {
+        return mCategory;
+    }
+
+    /**
+     * Get the fingerprint of this finding as it is the first occurrence,
+     * without a base directory.
+     *
+     * @return Fingerprint
+     * @see #getFingerprint(String, int)
+     */
+    public long getFingerprint() {
+        return getFingerprint(null, 0);
+    }
+
+    /**
+     * Get the fingerprint of this finding.
+     *
+     * <p>The fingerprint is a 64-bit hash of the path relative to the base
+     * directory, the message and the occurrence number. The line number is
+     * not included, so the fingerprint does not change when the source
+     * code around the finding is edited. Separators of the path are
+     * normalized, and the base directory is removed so that the
+     * fingerprint does not depend on where the sources are checked out.
+     * The occurrence number tells the same message repeated in a file
+     * from each other.</p>
+     *
+     * @param basePath Path of the base directory with "/" as separators,
+     *  ending with "/", or null. It is removed from the path of this
+     *  finding if the path starts with it.
+     * @param occurrence Number of the findings that have the same relative
+     *  path and message and precede this finding
+     * @return Fingerprint
+     */
+    public long getFingerprint(String basePath, int occurrence) {
+        int pathStart = 0;
+        if (basePath != null && startsWith(basePath)) {
+            pathStart = basePath.length();
+        }
+
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = pathStart; i < mPathEnd; i++) {
+            hash = (hash ^ normalize(mText.charAt(i))) * FNV_PRIME;
+        }
+
+        // Separate the path from the message.
+        hash = (hash ^ ':') * FNV_PRIME;
+
+        int length = mText.length();
+        for (int i = mMessageStart; i < length; i++) {
+            hash = (hash ^ mText.charAt(i)) * FNV_PRIME;
+        }
+
+        if (occurrence > 0) {
+            hash = (hash ^ ':') * FNV_PRIME;
+            for (int shift = 0; shift < Integer.SIZE; shift += Byte.SIZE) {
+                hash = (hash ^ ((occurrence >>> shift) & 0xff)) * FNV_PRIME;
+            }
+        }
+
+        return hash;
+    }
+
+    /**
+     * Check whether the path of this finding starts with a path.
+     *
+     * @param basePath Path with "/" as separators
+     * @return true if the normalized path of this finding starts with it
+     */
+    private boolean startsWith(String basePath) {
+        int length = basePath.length();
+        if (length > mPathEnd) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (normalize(mText.charAt(i)) != basePath.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Normalize a separator of path.
+     *
+     * @param c Character of path
+     * @return "/" if the character is a separator, or the character
+     */
+    private static char normalize(char c) {
+        if (c == '\\') {
+            return '/';
+        }
+
+        return c;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof Finding)) {
+            return false;
+        }
+
+        return mText.equals(((Finding) object).mText);
+    }
+
+    @Override
+    public int hashCode() {
+        return mText.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return mText;
+    }
+}
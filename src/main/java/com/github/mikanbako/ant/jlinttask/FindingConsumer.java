@@ -0,0 +1,33 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.IOException;
+
+/**
+ * This object consumes findings as they are parsed from output of Jlint.
+ */
+public interface FindingConsumer {
+    /**
+     * Consume a finding.
+     *
+     * @param finding Finding
+     * @throws IOException If I/O error occurs
+     */
+    void consumeFinding(Finding finding) throws IOException;
+}
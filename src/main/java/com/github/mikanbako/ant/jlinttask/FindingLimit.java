@@ -0,0 +1,126 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Limit of the number of findings output by Jlint processes.
+ *
+ * <p>The findings are counted as the processes output them. When the
+ * limit is exceeded, {@link FindingLimitExceededException} is thrown from
+ * the output of the process, so the process is destroyed and the other
+ * processes are cancelled. Findings that are reported without running
+ * Jlint, for example cached findings, are counted by
+ * {@link #add(String)}.</p>
+ *
+ * <p>The lines are parsed here on the side of each process, before the
+ * output of the processes is merged and parsed once for the reports,
+ * because the process must be stopped as soon as the limit is exceeded.
+ * A limit is only set when maxFindings is specified.</p>
+ *
+ * <p>This object is thread safe, so a limit is shared by the processes
+ * that run concurrently.</p>
+ */
+/* package */ final class FindingLimit {
+    /**
+     * Maximum number of findings.
+     */
+    private final long mMaxFindings;
+
+    /**
+     * Categories of findings that are counted, or null for all categories.
+     */
+    private final Set<Finding.Category> mCategories;
+
+    /**
+     * Counted findings.
+     */
+    private final ArrayList<String> mFindings = new ArrayList<String>();
+
+    /**
+     * Constructor.
+     *
+     * @param maxFindings Maximum number of findings
+     * @param categories Categories of findings that are counted, or null for
+     *  all categories
+     */
+    public FindingLimit(long maxFindings, Set<Finding.Category> categories) {
+        mMaxFindings = maxFindings;
+        mCategories = categories;
+    }
+
+    /**
+     * Create {@link LineConsumer} that counts findings before passing lines
+     * to a destination.
+     *
+     * @param destination Destination of lines
+     * @return {@link LineConsumer} that counts findings
+     */
+    public LineConsumer wrap(final LineConsumer destination) {
+        return new LineConsumer() {
+            @Override
+            public void consumeLine(String line) throws IOException {
+                count(line);
+                destination.consumeLine(line);
+            }
+        };
+    }
+
+    /**
+     * Count a finding that is not output by the Jlint processes.
+     *
+     * @param line Line formatted as the output from Jlint
+     * @throws FindingLimitExceededException If the limit is exceeded
+     */
+    public void add(String line) throws FindingLimitExceededException {
+        count(line);
+    }
+
+    /**
+     * Count a line if it is a finding.
+     *
+     * @param line Line output from Jlint
+     * @throws FindingLimitExceededException If the limit is exceeded
+     */
+    private synchronized void count(String line) throws
+            FindingLimitExceededException {
+        Finding finding = FindingParser.parse(line);
+        if (finding == null || (mCategories != null &&
+                !mCategories.contains(finding.getCategory()))) {
+            return;
+        }
+
+        mFindings.add(line);
+        if (mFindings.size() > mMaxFindings) {
+            throw new FindingLimitExceededException(mMaxFindings);
+        }
+    }
+
+    /**
+     * Get the findings counted so far.
+     *
+     * @return Findings in order of output
+     */
+    public synchronized List<String> getFindings() {
+        return new ArrayList<String>(mFindings);
+    }
+}
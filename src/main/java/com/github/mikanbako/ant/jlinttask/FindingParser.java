@@ -0,0 +1,242 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Parse findings from output of Jlint.
+ *
+ * <p>A finding is a line formatted as "path:line: message". The path may
+ * contain colons, for example a drive letter on Windows. Lines are scanned
+ * character by character without regular expressions, and no object except
+ * the {@link Finding} itself is created for each line. So this object can
+ * parse a large output as it is streamed.</p>
+ *
+ * <p>Jlint does not output the category of a message. The category is
+ * looked up by matching the message with the formats of the messages in
+ * {@link OptionParser#MESSAGES}. A message that matches no format is
+ * {@link Finding.Category#UNKNOWN}.</p>
+ */
+public final class FindingParser implements LineConsumer {
+    /**
+     * Maximum number of digits of line number.
+     */
+    private static final int MAX_LINE_NUMBER_DIGITS = 9;
+
+    /**
+     * Radix of line number.
+     */
+    private static final int RADIX = 10;
+
+    /**
+     * Prefix of a variable part in a format of message.
+     */
+    private static final char VARIABLE_PREFIX = '%';
+
+    /**
+     * Fixed parts of the format of each message of
+     * {@link OptionParser#MESSAGES}, in order. The first part is empty if
+     * the format starts with a variable part, and so is the last part if
+     * the format ends with a variable part.
+     */
+    private static final String[][] FORMAT_PARTS;
+
+    /**
+     * Category of each message of {@link OptionParser#MESSAGES}.
+     */
+    private static final Finding.Category[] FORMAT_CATEGORIES;
+
+    static {
+        int count = OptionParser.MESSAGES.length;
+        FORMAT_PARTS = new String[count][];
+        FORMAT_CATEGORIES = new Finding.Category[count];
+        for (int i = 0; i < count; i++) {
+            FORMAT_CATEGORIES[i] = Finding.Category.forOptionName(
+                    OptionParser.MESSAGES[i][0]);
+            FORMAT_PARTS[i] = splitFormat(OptionParser.MESSAGES[i][2]);
+        }
+    }
+
+    /**
+     * Destination of findings.
+     */
+    private final FindingConsumer mFindings;
+
+    /**
+     * Destination of lines that are not findings, or null.
+     */
+    private final LineConsumer mOthers;
+
+    /**
+     * Constructor.
+     *
+     * Lines that are not findings are ignored.
+     *
+     * @param findings Destination of findings
+     */
+    public FindingParser(FindingConsumer findings) {
+        this(findings, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param findings Destination of findings
+     * @param others Destination of lines that are not findings, or null to
+     *  ignore them
+     */
+    /* package */ FindingParser(FindingConsumer findings,
+            LineConsumer others) {
+        mFindings = findings;
+        mOthers = others;
+    }
+
+    @Override
+    public void consumeLine(String line) throws IOException {
+        Finding finding = parse(line);
+        if (finding != null) {
+            mFindings.consumeFinding(finding);
+        } else if (mOthers != null) {
+            mOthers.consumeLine(line);
+        }
+    }
+
+    /**
+     * Parse a line output from Jlint.
+     *
+     * @param line Line output from Jlint
+     * @return Finding, or null if the line is not a finding
+     */
+    public static Finding parse(String line) {
+        int length = line.length();
+        int colonIndex = line.indexOf(':');
+
+        // The path ends at the first colon followed by digits and a colon.
+
+        while (colonIndex > 0) {
+            int index = colonIndex + 1;
+            int lineNumber = 0;
+            while (index < length &&
+                    index - colonIndex <= MAX_LINE_NUMBER_DIGITS) {
+                char c = line.charAt(index);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                lineNumber = lineNumber * RADIX + (c - '0');
+                index++;
+            }
+
+            if (index > colonIndex + 1 && index < length &&
+                    line.charAt(index) == ':') {
+                int messageStart = index + 1;
+                while (messageStart < length &&
+                        line.charAt(messageStart) == ' ') {
+                    messageStart++;
+                }
+
+                return new Finding(line, colonIndex, lineNumber,
+                        messageStart, getCategory(line, messageStart));
+            }
+
+            colonIndex = line.indexOf(':', colonIndex + 1);
+        }
+
+        return null;
+    }
+
+    /**
+     * Split a format of message into fixed parts.
+     *
+     * @param format Format of message
+     * @return Fixed parts
+     */
+    private static String[] splitFormat(String format) {
+        ArrayList<String> parts = new ArrayList<String>();
+        int start = 0;
+        int index = format.indexOf(VARIABLE_PREFIX);
+        while (index >= 0) {
+            parts.add(format.substring(start, index));
+            start = Math.min(index + 2, format.length());
+            index = format.indexOf(VARIABLE_PREFIX, start);
+        }
+        parts.add(format.substring(start));
+
+        return parts.toArray(new String[parts.size()]);
+    }
+
+    /**
+     * Get the category of a message.
+     *
+     * @param line Line output from Jlint
+     * @param messageStart Start index of message in the line
+     * @return Category, or {@link Finding.Category#UNKNOWN} if the message
+     *  matches no format
+     */
+    /* package */ static Finding.Category getCategory(
+            String line, int messageStart) {
+        for (int i = 0; i < FORMAT_PARTS.length; i++) {
+            if (matches(line, messageStart, FORMAT_PARTS[i])) {
+                return FORMAT_CATEGORIES[i];
+            }
+        }
+
+        return Finding.Category.UNKNOWN;
+    }
+
+    /**
+     * Check whether a message matches a format.
+     *
+     * The fixed parts must appear in order, the first one at the start of
+     * the message and the last one at the end of the message.
+     *
+     * @param line Line output from Jlint
+     * @param messageStart Start index of message in the line
+     * @param parts Fixed parts of the format
+     * @return true if the message matches the format
+     */
+    private static boolean matches(String line, int messageStart,
+            String[] parts) {
+        if (!line.startsWith(parts[0], messageStart)) {
+            return false;
+        }
+
+        int last = parts.length - 1;
+        if (last == 0) {
+            return line.length() - messageStart == parts[0].length();
+        }
+
+        int end = line.length() - parts[last].length();
+        if (end < messageStart + parts[0].length() ||
+                !line.startsWith(parts[last], end)) {
+            return false;
+        }
+
+        int index = messageStart + parts[0].length();
+        for (int i = 1; i < last; i++) {
+            index = line.indexOf(parts[i], index);
+            if (index < 0 || index + parts[i].length() > end) {
+                return false;
+            }
+            index += parts[i].length();
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,508 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Incremental analysis with {@link AnalysisCache}.
+ *
+ * <p>Only class files that are changed, and class files connected to
+ * changed classes by references in either direction, are analyzed again.
+ * Jlint checks across classes only through references, so a finding of a
+ * class can change only when a class connected to it changes. All the
+ * connected classes are passed to Jlint together, so the checks across
+ * them are the same as a full analysis, and their findings are taken from
+ * the new output. Findings of the other classes are taken from the
+ * cache.</p>
+ *
+ * <p>Jlint reads line numbers from class files, and it uses the source
+ * directory only as the prefix of the paths in findings. So the findings
+ * depend on the path of the source directory, which is part of the key of
+ * the cache, and not on the source files themselves.</p>
+ *
+ * <p>The output from Jlint is kept in a {@link LineBuffer}, which spills
+ * to a temporary file. {@link #close()} deletes the file.</p>
+ *
+ * <p>Each line from Jlint is attributed to one class file. A finding is
+ * attributed to the first class file analyzed again that is compiled from
+ * the source file in the finding. Lines that cannot be attributed are
+ * attributed to the first class file analyzed again. So a finding that
+ * Jlint outputs repeatedly is reported as many times, as the baseline
+ * counts occurrences.</p>
+ */
+/* package */ final class IncrementalAnalysis implements Closeable {
+    /**
+     * Cache of findings.
+     */
+    private final AnalysisCache mCache;
+
+    /**
+     * Entries of the current class files in order of the class files.
+     */
+    private final ArrayList<AnalysisCache.Entry> mEntries =
+            new ArrayList<AnalysisCache.Entry>();
+
+    /**
+     * Entries of class files analyzed again.
+     */
+    private final LinkedHashSet<AnalysisCache.Entry> mReanalyzedEntries =
+            new LinkedHashSet<AnalysisCache.Entry>();
+
+    /**
+     * Entries of class files passed to Jlint.
+     */
+    private final LinkedHashSet<AnalysisCache.Entry> mAnalyzedEntries =
+            new LinkedHashSet<AnalysisCache.Entry>();
+
+    /**
+     * Output from Jlint except summary lines.
+     */
+    private final LineBuffer mOutput = new LineBuffer();
+
+    /**
+     * Constructor.
+     *
+     * @param cache Cache of findings
+     */
+    private IncrementalAnalysis(AnalysisCache cache) {
+        mCache = cache;
+    }
+
+    /**
+     * Prepare incremental analysis of class files.
+     *
+     * @param cache Cache of findings
+     * @param classFiles Canonical class files
+     * @return Incremental analysis
+     * @throws IOException If a class file cannot be read
+     */
+    public static IncrementalAnalysis prepare(AnalysisCache cache,
+            List<File> classFiles) throws IOException {
+        IncrementalAnalysis analysis = new IncrementalAnalysis(cache);
+        DependencyGraph graph = cache.getDependencyGraph();
+
+        // Find changed class files and update the dependency graph.
+
+        HashSet<String> changedClassNames = new HashSet<String>();
+        HashSet<String> currentPaths = new HashSet<String>();
+        HashSet<String> currentClassNames = new HashSet<String>();
+        ArrayList<AnalysisCache.Entry> changedEntries =
+                new ArrayList<AnalysisCache.Entry>();
+
+        for (File classFile : classFiles) {
+            String path = classFile.getPath();
+            if (!currentPaths.add(path)) {
+                continue;
+            }
+
+            AnalysisCache.Entry cachedEntry = cache.get(path);
+            AnalysisCache.Entry entry = getUnchangedEntry(
+                    cachedEntry, classFile);
+            ClassFileInfo readClassFileInfo = null;
+            if (entry == null) {
+                entry = createEntry(classFile);
+                readClassFileInfo = entry.getClassFileInfo();
+
+                if (cachedEntry != null && cachedEntry.getDigest().equals(
+                        entry.getDigest())) {
+                    // Only the time stamp is changed.
+                    entry.setFindings(cachedEntry.getFindings());
+                } else {
+                    changedEntries.add(entry);
+                    addClassName(cachedEntry, changedClassNames);
+                    addClassName(entry, changedClassNames);
+                }
+            }
+
+            ClassFileInfo classFileInfo = entry.getClassFileInfo();
+            if (classFileInfo != null) {
+                String className = classFileInfo.getClassName();
+                currentClassNames.add(className);
+
+                if (readClassFileInfo == null && !graph.contains(className)) {
+                    // The graph is lost. So the class file is read again.
+                    readClassFileInfo = ClassFileInfo.read(classFile);
+                }
+                if (readClassFileInfo != null) {
+                    graph.setReferences(className,
+                            readClassFileInfo.getReferencedClasses());
+                }
+            }
+
+            analysis.mEntries.add(entry);
+        }
+
+        // Removed classes are regarded as changed.
+
+        for (AnalysisCache.Entry cachedEntry : cache.getEntries()) {
+            if (!currentPaths.contains(cachedEntry.getPath())) {
+                addClassName(cachedEntry, changedClassNames);
+            }
+        }
+        graph.retain(currentClassNames);
+
+        analysis.selectReanalyzedEntries(
+                graph, changedEntries, changedClassNames);
+
+        return analysis;
+    }
+
+    /**
+     * Select class files that are analyzed again and class files that
+     * they refer to.
+     *
+     * @param graph Dependency graph of the current classes
+     * @param changedEntries Entries of changed class files
+     * @param changedClassNames Names of changed or removed classes
+     */
+    private void selectReanalyzedEntries(DependencyGraph graph,
+            List<AnalysisCache.Entry> changedEntries,
+            Set<String> changedClassNames) {
+        mReanalyzedEntries.addAll(changedEntries);
+
+        if (changedClassNames.isEmpty() && mReanalyzedEntries.isEmpty()) {
+            return;
+        }
+
+        // Findings of a class may change when a class that it refers to
+        // changes. Only direct references are followed, because
+        // following them transitively reaches almost every class of a
+        // connected code base. The cache cannot prove that files that
+        // are not class files are unaffected.
+
+        Set<String> dependents = graph.getDirectDependents(changedClassNames);
+        HashSet<String> referencedClassNames = new HashSet<String>();
+        for (AnalysisCache.Entry entry : mEntries) {
+            ClassFileInfo classFileInfo = entry.getClassFileInfo();
+            if (classFileInfo == null ||
+                    dependents.contains(classFileInfo.getClassName())) {
+                mReanalyzedEntries.add(entry);
+            }
+            if (classFileInfo != null &&
+                    mReanalyzedEntries.contains(entry)) {
+                referencedClassNames.addAll(
+                        graph.getReferences(classFileInfo.getClassName()));
+            }
+        }
+
+        // The classes that the classes analyzed again refer to are passed
+        // to Jlint as well, so that Jlint checks the references. Their
+        // findings are taken from the cache. The order of the class files
+        // is kept.
+
+        for (AnalysisCache.Entry entry : mEntries) {
+            ClassFileInfo classFileInfo = entry.getClassFileInfo();
+            if (mReanalyzedEntries.contains(entry) ||
+                    (classFileInfo != null && referencedClassNames.contains(
+                            classFileInfo.getClassName()))) {
+                mAnalyzedEntries.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Get the class files that are passed to Jlint.
+     *
+     * @return Class files. If this is empty, Jlint does not have to run.
+     */
+    public List<File> getAnalyzedFiles() {
+        ArrayList<File> files = new ArrayList<File>();
+        for (AnalysisCache.Entry entry : mAnalyzedEntries) {
+            files.add(new File(entry.getPath()));
+        }
+
+        return files;
+    }
+
+    /**
+     * Get the cached findings of the class files that are not analyzed
+     * again.
+     *
+     * They are output by {@link #finish(LineConsumer)} together with the
+     * output from Jlint.
+     *
+     * @return Findings in order of the class files
+     */
+    public List<String> getCachedFindings() {
+        ArrayList<String> findings = new ArrayList<String>();
+        for (AnalysisCache.Entry entry : mEntries) {
+            if (!mReanalyzedEntries.contains(entry)) {
+                findings.addAll(entry.getFindings());
+            }
+        }
+
+        return findings;
+    }
+
+    /**
+     * Get the number of class files analyzed again.
+     *
+     * @return Number of class files analyzed again
+     */
+    public int getReanalyzedCount() {
+        return mReanalyzedEntries.size();
+    }
+
+    /**
+     * Get the number of all class files.
+     *
+     * @return Number of all class files
+     */
+    public int getClassFileCount() {
+        return mEntries.size();
+    }
+
+    /**
+     * Get {@link LineConsumer} that consumes the standard output from
+     * Jlint.
+     *
+     * @return {@link LineConsumer}
+     */
+    public LineConsumer getOutputConsumer() {
+        return new LineConsumer() {
+            @Override
+            public void consumeLine(String line) throws IOException {
+                if (OutputMerger.parseSummary(line) < 0) {
+                    mOutput.consumeLine(line);
+                }
+            }
+        };
+    }
+
+    /**
+     * Merge the output from Jlint with the cached findings, output the
+     * report and update the cache.
+     *
+     * The findings are output in order of the class files followed by
+     * a summary line.
+     *
+     * @param output Destination of the report
+     * @throws IOException If I/O error occurs
+     */
+    public void finish(LineConsumer output) throws IOException {
+        attributeOutput();
+        mOutput.close();
+
+        long findingCount = 0;
+        for (AnalysisCache.Entry entry : mEntries) {
+            for (String line : entry.getFindings()) {
+                output.consumeLine(line);
+                if (FindingParser.parse(line) != null) {
+                    findingCount++;
+                }
+            }
+        }
+        output.consumeLine(OutputMerger.formatSummary(findingCount));
+
+        mCache.setEntries(mEntries);
+        mCache.save();
+    }
+
+    /**
+     * Delete the temporary file of the output from Jlint.
+     *
+     * @throws IOException If I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        mOutput.close();
+    }
+
+    /**
+     * Attribute the output from Jlint to the class files analyzed again.
+     *
+     * @throws IOException If I/O error occurs
+     */
+    private void attributeOutput() throws IOException {
+        final HashMap<String, List<AnalysisCache.Entry>> entriesBySourcePath =
+                new HashMap<String, List<AnalysisCache.Entry>>();
+        final HashMap<String, List<AnalysisCache.Entry>> entriesBySourceFile =
+                new HashMap<String, List<AnalysisCache.Entry>>();
+        for (AnalysisCache.Entry entry : mAnalyzedEntries) {
+            ClassFileInfo classFileInfo = entry.getClassFileInfo();
+            if (classFileInfo != null &&
+                    classFileInfo.getSourceFile() != null) {
+                addEntry(entriesBySourcePath,
+                        classFileInfo.getSourcePath(), entry);
+                addEntry(entriesBySourceFile,
+                        classFileInfo.getSourceFile(), entry);
+            }
+        }
+
+        final HashMap<AnalysisCache.Entry, List<String>> findings =
+                new HashMap<AnalysisCache.Entry, List<String>>();
+        for (AnalysisCache.Entry entry : mReanalyzedEntries) {
+            findings.put(entry, new ArrayList<String>());
+        }
+        final List<String> unattributedLines;
+        if (mReanalyzedEntries.isEmpty()) {
+            unattributedLines = null;
+        } else {
+            unattributedLines =
+                    findings.get(mReanalyzedEntries.iterator().next());
+        }
+
+        mOutput.replay(new LineConsumer() {
+            @Override
+            public void consumeLine(String line) {
+                Finding finding = FindingParser.parse(line);
+                List<AnalysisCache.Entry> entries = null;
+                if (finding != null) {
+                    entries = findEntries(finding.getPath(),
+                            entriesBySourcePath, entriesBySourceFile);
+                }
+                if (entries == null) {
+                    if (unattributedLines != null) {
+                        unattributedLines.add(line);
+                    }
+                    return;
+                }
+
+                // The line is attributed once even if some class files
+                // are compiled from the source file.
+                for (AnalysisCache.Entry entry : entries) {
+                    List<String> entryFindings = findings.get(entry);
+                    if (entryFindings != null) {
+                        entryFindings.add(line);
+                        return;
+                    }
+                }
+            }
+        });
+
+        for (Map.Entry<AnalysisCache.Entry, List<String>> entryFindings :
+                findings.entrySet()) {
+            entryFindings.getKey().setFindings(entryFindings.getValue());
+        }
+    }
+
+    /**
+     * Find the entries of class files compiled from a source file.
+     *
+     * @param sourcePath Path of source file in a finding
+     * @param entriesBySourcePath Entries for each source path
+     * @param entriesBySourceFile Entries for each source file name
+     * @return Entries, or null if no entry is found
+     */
+    private static List<AnalysisCache.Entry> findEntries(String sourcePath,
+            Map<String, List<AnalysisCache.Entry>> entriesBySourcePath,
+            Map<String, List<AnalysisCache.Entry>> entriesBySourceFile) {
+        // Try the longest suffix of the path first.
+
+        String path = sourcePath.replace('\\', '/');
+        while (true) {
+            List<AnalysisCache.Entry> entries = entriesBySourcePath.get(path);
+            if (entries != null) {
+                return entries;
+            }
+
+            int separatorIndex = path.indexOf('/');
+            if (separatorIndex < 0) {
+                break;
+            }
+            path = path.substring(separatorIndex + 1);
+        }
+
+        return entriesBySourceFile.get(path);
+    }
+
+    /**
+     * Add an entry to the list for a key.
+     *
+     * @param entries Lists of entries
+     * @param key Key
+     * @param entry Entry to add
+     */
+    private static void addEntry(
+            Map<String, List<AnalysisCache.Entry>> entries,
+            String key, AnalysisCache.Entry entry) {
+        List<AnalysisCache.Entry> list = entries.get(key);
+        if (list == null) {
+            list = new ArrayList<AnalysisCache.Entry>();
+            entries.put(key, list);
+        }
+        list.add(entry);
+    }
+
+    /**
+     * Add the class name of the entry.
+     *
+     * @param entry Entry, or null
+     * @param classNames Destination of the class name
+     */
+    private static void addClassName(AnalysisCache.Entry entry,
+            Set<String> classNames) {
+        if (entry != null && entry.getClassFileInfo() != null) {
+            classNames.add(entry.getClassFileInfo().getClassName());
+        }
+    }
+
+    /**
+     * Get the cached entry if the class file is not modified.
+     *
+     * @param cachedEntry Cached entry, or null
+     * @param classFile Class file
+     * @return The cached entry, or null if the class file may be modified
+     */
+    private static AnalysisCache.Entry getUnchangedEntry(
+            AnalysisCache.Entry cachedEntry, File classFile) {
+        if (cachedEntry != null &&
+                cachedEntry.getLastModified() == classFile.lastModified() &&
+                cachedEntry.getLength() == classFile.length()) {
+            return cachedEntry;
+        }
+
+        return null;
+    }
+
+    /**
+     * Create an entry for a class file.
+     *
+     * @param classFile Class file
+     * @return Entry that has no finding
+     * @throws IOException If the class file cannot be read
+     */
+    private static AnalysisCache.Entry createEntry(File classFile) throws
+            IOException {
+        long lastModified = classFile.lastModified();
+        byte[] content = ClassFileInfo.readContent(classFile);
+
+        ClassFileInfo classFileInfo = null;
+        if (classFile.getName().endsWith(".class")) {
+            try {
+                classFileInfo = ClassFileInfo.read(content);
+            } catch (IOException e) {
+                // The file is analyzed every time.
+                classFileInfo = null;
+            }
+        }
+
+        return new AnalysisCache.Entry(classFile.getPath(), lastModified,
+                content.length, AnalysisCache.digest(content), classFileInfo);
+    }
+}
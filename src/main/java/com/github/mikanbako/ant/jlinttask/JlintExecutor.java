@@ -17,12 +17,24 @@
  */
 package com.github.mikanbako.ant.jlinttask;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * This object executes Jlint.
@@ -46,15 +58,74 @@ import java.util.Set;
     private File mSourceDirectory;
 
     /**
-     * Set of option.
+     * Set of option in the order in which they are passed to Jlint.
      */
-    private final HashSet<String> mOptions = new HashSet<String>();
+    private final LinkedHashSet<String> mOptions =
+            new LinkedHashSet<String>();
 
     /**
      * Object that executes command.
      */
     private final CommandExecutor mCommandExecutor;
 
+    /**
+     * Maximum number of Jlint processes that run concurrently.
+     */
+    private int mThreads = 1;
+
+    /**
+     * Whether class files are split by dependencies instead of package.
+     */
+    private boolean mShardByDependency;
+
+    /**
+     * Metrics to which durations and counts are added, or null.
+     */
+    private ExecutionMetrics mMetrics;
+
+    /**
+     * Recorder of spans, or null.
+     */
+    private TraceRecorder mTrace;
+
+    /**
+     * Consumer of messages about sharding, or null.
+     */
+    private LineConsumer mLog;
+
+    /**
+     * Limit of findings, or null.
+     */
+    private FindingLimit mFindingLimit;
+
+    /**
+     * Statistics of analysis durations, or null.
+     */
+    private ShardStatistics mStatistics;
+
+    /**
+     * Scheduler that admits Jlint processes, or null.
+     */
+    private MemoryScheduler mScheduler;
+
+    /**
+     * Maximum resident set size of a Jlint process in bytes, or 0 for no
+     * limit.
+     */
+    private long mMaxMemory;
+
+    /**
+     * Maximum size of output of each Jlint process kept on the heap while
+     * Jlint processes run concurrently, in bytes.
+     */
+    private long mMaxBufferedBytes = LineBuffer.DEFAULT_MAX_HEAP_BYTES;
+
+    /**
+     * Maximum length of command in bytes. 0 means no limit.
+     */
+    private long mMaxCommandLength =
+            CommandBuilder.DEFAULT_MAX_COMMAND_LENGTH;
+
     /**
      * Constructor.
      *
@@ -96,7 +167,9 @@ import java.util.Set;
     /**
      * Set options.
      *
-     * The option does not have its argument.
+     * The option does not have its argument. The options are passed to
+     * Jlint in the iteration order of the set, because Jlint applies
+     * message filtering options in order.
      *
      * @param options Set of options.
      */
@@ -105,36 +178,643 @@ import java.util.Set;
         mOptions.addAll(options);
     }
 
+    /**
+     * Set maximum number of Jlint processes that run concurrently.
+     *
+     * If this number is 2 or more, class files are split by package and
+     * each part is analyzed by a separate Jlint process.
+     * Default is 1.
+     *
+     * @param threads Maximum number of Jlint processes
+     * @throws IllegalArgumentException If threads is less than 1
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be 1 or more.");
+        }
+
+        mThreads = threads;
+    }
+
+    /**
+     * Set whether class files are split by dependencies between the
+     * classes instead of package.
+     *
+     * Default is false.
+     *
+     * @param shardByDependency true if class files are split by
+     *  dependencies
+     * @see Sharder#shardByDependency(List, int, ShardStatistics)
+     */
+    public void setShardByDependency(boolean shardByDependency) {
+        mShardByDependency = shardByDependency;
+    }
+
+    /**
+     * Set metrics to which durations and counts are added.
+     *
+     * @param metrics Metrics, or null
+     */
+    public void setMetrics(ExecutionMetrics metrics) {
+        mMetrics = metrics;
+        if (mCommandExecutor instanceof ProcessExecutor) {
+            ((ProcessExecutor) mCommandExecutor).setMetrics(metrics);
+        }
+    }
+
+    /**
+     * Set the maximum resident set size of a Jlint process.
+     *
+     * @param maxMemory Maximum resident set size in bytes, or 0 for no
+     *  limit
+     * @see ProcessExecutor#setMaxMemory(long)
+     */
+    public void setMaxMemory(long maxMemory) {
+        mMaxMemory = maxMemory;
+        if (mCommandExecutor instanceof ProcessExecutor) {
+            ((ProcessExecutor) mCommandExecutor).setMaxMemory(maxMemory);
+        }
+    }
+
+    /**
+     * Set a recorder of spans.
+     *
+     * @param trace Recorder of spans, or null
+     */
+    public void setTrace(TraceRecorder trace) {
+        mTrace = trace;
+        if (mCommandExecutor instanceof ProcessExecutor) {
+            ((ProcessExecutor) mCommandExecutor).setTrace(trace);
+        }
+    }
+
+    /**
+     * Set a consumer of messages about sharding.
+     *
+     * For example, a message is consumed when classes that refer to each
+     * other are split into different shards.
+     *
+     * @param log Consumer of messages, or null to ignore them
+     */
+    public void setLog(LineConsumer log) {
+        mLog = log;
+    }
+
+    /**
+     * Set the limit of findings.
+     *
+     * When the limit is exceeded, the Jlint processes are stopped and
+     * {@link #execute(LineConsumer, LineConsumer)} throws
+     * {@link FindingLimitExceededException}.
+     *
+     * @param findingLimit Limit of findings, or null for no limit
+     */
+    public void setFindingLimit(FindingLimit findingLimit) {
+        mFindingLimit = findingLimit;
+    }
+
+    /**
+     * Set statistics of analysis durations.
+     *
+     * The statistics are used to balance the estimated durations of the
+     * shards, and the duration of each Jlint process is recorded to them.
+     *
+     * @param statistics Statistics, or null to balance the number of
+     *  class files
+     */
+    public void setStatistics(ShardStatistics statistics) {
+        mStatistics = statistics;
+        if (mCommandExecutor instanceof ProcessExecutor) {
+            ((ProcessExecutor) mCommandExecutor).setUsageSampled(
+                    statistics != null);
+        }
+    }
+
+    /**
+     * Set a scheduler that admits Jlint processes within a memory budget.
+     *
+     * The memory of each Jlint process is estimated by the statistics if
+     * they are set, or by the size of its class files.
+     *
+     * @param scheduler Scheduler, or null to start Jlint processes
+     *  without waiting
+     */
+    public void setScheduler(MemoryScheduler scheduler) {
+        mScheduler = scheduler;
+    }
+
+    /**
+     * Set the maximum size of output of each Jlint process kept on the
+     * heap while Jlint processes run concurrently.
+     *
+     * The output after this size is kept in a temporary file until it is
+     * merged. Default is {@link LineBuffer#DEFAULT_MAX_HEAP_BYTES}.
+     *
+     * @param maxBufferedBytes Maximum size in bytes
+     */
+    public void setMaxBufferedBytes(long maxBufferedBytes) {
+        mMaxBufferedBytes = maxBufferedBytes;
+    }
+
+    /**
+     * Set maximum length of command in bytes.
+     *
+     * If the command for class files exceeds this length, the class files
+     * are split into batches and each batch is analyzed by a separate Jlint
+     * process. Default is {@link CommandBuilder#DEFAULT_MAX_COMMAND_LENGTH}.
+     *
+     * @param maxCommandLength Maximum length of command in bytes.
+     *  0 means no limit.
+     * @throws IllegalArgumentException If maxCommandLength is negative
+     */
+    public void setMaxCommandLength(long maxCommandLength) {
+        if (maxCommandLength < 0) {
+            throw new IllegalArgumentException(
+                    "maxCommandLength must not be negative.");
+        }
+
+        mMaxCommandLength = maxCommandLength;
+    }
+
     /**
      * Execute Jlint.
      *
-     * @param output {@link StringBuilder} that is appended for the standard
+     * If class files are split into some shards or batches, the output
+     * from each Jlint process is merged into a single report in order of
+     * the shards and the batches.
+     *
+     * @param output {@link LineConsumer} that consumes the standard
      *  output from Jlint
-     * @param error {@link StringBuilder} that is appended for the standard
+     * @param error {@link LineConsumer} that consumes the standard
      *  error from Jlint
      * @return Exit code
      * @throws IOException If I/O error occurs
      * @throws InterruptedException If this thread is interrupted
      */
-    public int execute(StringBuilder output, StringBuilder error) throws
+    public int execute(LineConsumer output, LineConsumer error) throws
             IOException, InterruptedException {
-        ArrayList<String> command = new ArrayList<String>();
+        CommandBuilder commandBuilder = new CommandBuilder(
+                createCommandPrefix(), mMaxCommandLength);
+        List<List<File>> batches = createBatches(commandBuilder);
 
-        command.add(mJlintExecutable.getAbsolutePath());
+        return execute(commandBuilder, batches, output, error);
+    }
 
-        if (mSourceDirectory != null) {
-            command.add("-source");
-            command.add(mSourceDirectory.getAbsolutePath());
+    /**
+     * Execute Jlint and write its output to a file.
+     *
+     * If class files are analyzed by a single Jlint process and no limit
+     * of findings is set, the standard output of the process is copied to
+     * the file as it is, without decoding it or splitting it into lines.
+     * Otherwise the output is merged as
+     * {@link #execute(LineConsumer, LineConsumer)} does and written in the
+     * default charset.
+     *
+     * @param output File to which the output is written
+     * @param error {@link LineConsumer} that consumes the standard
+     *  error from Jlint
+     * @return Exit code
+     * @throws IOException If I/O error occurs
+     * @throws InterruptedException If this thread is interrupted
+     */
+    public int execute(FileChannel output, LineConsumer error) throws
+            IOException, InterruptedException {
+        CommandBuilder commandBuilder = new CommandBuilder(
+                createCommandPrefix(), mMaxCommandLength);
+        List<List<File>> batches = createBatches(commandBuilder);
+
+        if (batches.size() == 1 && mFindingLimit == null &&
+                mCommandExecutor instanceof ProcessExecutor) {
+            return executeBatch(commandBuilder, 0, batches.get(0),
+                    null, output, error);
         }
 
-        for (String option : mOptions) {
-            command.add(option);
+        BufferedWriter writer = new BufferedWriter(Channels.newWriter(
+                output, Charset.defaultCharset().name()));
+        int exitCode = execute(commandBuilder, batches,
+                new WriterLineConsumer(writer), error);
+        // The writer is not closed, so that the file is kept open.
+        writer.flush();
+
+        return exitCode;
+    }
+
+    /**
+     * Split class files into batches, each of which is analyzed by a Jlint
+     * process.
+     *
+     * @param commandBuilder Builder of commands
+     * @return Batches of class files
+     * @throws IOException If I/O error occurs while messages are logged
+     */
+    private List<List<File>> createBatches(CommandBuilder commandBuilder)
+            throws IOException {
+        TraceRecorder.Span buildSpan = null;
+        if (mTrace != null) {
+            buildSpan = mTrace.begin("build commands", "task");
         }
 
-        for (File classFile : mClassFiles) {
-            command.add(classFile.getAbsolutePath());
+        ArrayList<List<File>> batches = new ArrayList<List<File>>();
+        List<List<File>> shards;
+        if (mThreads <= 1) {
+            // A single worker runs every batch, so sharding, which builds
+            // the dependency graph, would only cost time.
+            shards = Collections.<List<File>>singletonList(mClassFiles);
+        } else if (mShardByDependency) {
+            ArrayList<String> notes = new ArrayList<String>();
+            shards = Sharder.shardByDependency(
+                    mClassFiles, mThreads, mStatistics, notes);
+            if (mLog != null) {
+                for (String note : notes) {
+                    mLog.consumeLine(note);
+                }
+            }
+        } else {
+            shards = Sharder.shardByPackage(
+                    mClassFiles, mThreads, mStatistics);
+        }
+        for (List<File> shard : shards) {
+            List<List<File>> shardBatches = commandBuilder.split(shard);
+            // Jlint does not analyze references between batches, so the
+            // split is logged.
+            if (shardBatches.size() > 1 && mLog != null) {
+                mLog.consumeLine("A shard of " + shard.size() +
+                        " class files is split into " + shardBatches.size() +
+                        " Jlint processes by maxCommandLength " +
+                        mMaxCommandLength + ".");
+            }
+            batches.addAll(shardBatches);
+        }
+        if (batches.isEmpty()) {
+            batches.addAll(commandBuilder.split(mClassFiles));
+        }
+
+        if (mTrace != null) {
+            buildSpan.setArgument("shards", batches.size()).end();
+        }
+
+        return batches;
+    }
+
+    /**
+     * Execute Jlint processes for batches of class files.
+     *
+     * @param commandBuilder Builder of commands
+     * @param batches Batches of class files
+     * @param output {@link LineConsumer} that consumes the merged standard
+     *  output from Jlint
+     * @param error {@link LineConsumer} that consumes the standard
+     *  error from Jlint
+     * @return The first exit code that is not 0, or 0
+     * @throws IOException If I/O error occurs
+     * @throws InterruptedException If this thread is interrupted
+     */
+    private int execute(CommandBuilder commandBuilder,
+            List<List<File>> batches, LineConsumer output,
+            LineConsumer error) throws IOException, InterruptedException {
+        if (batches.size() == 1) {
+            return executeBatch(commandBuilder, 0, batches.get(0),
+                    output, null, error);
+        } else if (mThreads == 1) {
+            return executeSequentially(commandBuilder, batches,
+                    output, error);
+        } else {
+            return executeConcurrently(commandBuilder, batches,
+                    output, error);
+        }
+    }
+
+    /**
+     * Execute a Jlint process for a batch of class files.
+     *
+     * If statistics are set, the duration and the peak resident set size
+     * of the process are recorded. If a scheduler is set, the process is
+     * started after the scheduler admits it.
+     *
+     * @param commandBuilder Builder of commands
+     * @param index Index of the batch
+     * @param batch Batch of class files
+     * @param output {@link LineConsumer} that consumes the standard
+     *  output from Jlint, or null if rawOutput is given
+     * @param rawOutput File to which the standard output is copied as it
+     *  is, or null
+     * @param error {@link LineConsumer} that consumes the standard
+     *  error from Jlint
+     * @return Exit code
+     * @throws IOException If I/O error occurs
+     * @throws InterruptedException If this thread is interrupted
+     */
+    private int executeBatch(CommandBuilder commandBuilder, int index,
+            List<File> batch, LineConsumer output, FileChannel rawOutput,
+            LineConsumer error) throws IOException, InterruptedException {
+        TraceRecorder.Span span = null;
+        if (mTrace != null) {
+            span = mTrace.begin("shard " + index, "shard")
+                    .setArgument("shard", index)
+                    .setArgument("classFiles", batch.size());
+        }
+
+        long reservedBytes = 0;
+        if (mScheduler != null) {
+            reservedBytes = acquire(batch);
+        }
+        try {
+            return executeAdmittedBatch(commandBuilder, batch,
+                    output, rawOutput, error);
+        } finally {
+            if (mScheduler != null) {
+                mScheduler.release(reservedBytes);
+            }
+            if (mTrace != null) {
+                span.end();
+            }
+        }
+    }
+
+    /**
+     * Wait until the scheduler admits a Jlint process for a batch.
+     *
+     * @param batch Batch of class files
+     * @return Memory reserved by the scheduler in bytes
+     * @throws InterruptedException If this thread is interrupted
+     */
+    private long acquire(List<File> batch) throws InterruptedException {
+        long estimatedBytes;
+        if (mStatistics != null) {
+            estimatedBytes = mStatistics.estimateMemory(batch);
+        } else {
+            estimatedBytes = ShardStatistics.estimateMemoryBySize(batch);
+        }
+        if (mMaxMemory > 0) {
+            // A process never grows beyond the limit.
+            estimatedBytes = Math.min(estimatedBytes, mMaxMemory);
+        }
+
+        TraceRecorder.Span span = null;
+        if (mTrace != null) {
+            span = mTrace.begin("schedule", "shard")
+                    .setArgument("estimatedBytes", estimatedBytes);
+        }
+        long startNanos = System.nanoTime();
+
+        long reservedBytes = mScheduler.acquire(estimatedBytes);
+
+        if (mMetrics != null) {
+            mMetrics.addTimeSince(ExecutionMetrics.PHASE_SCHEDULE,
+                    startNanos);
+        }
+        if (mTrace != null) {
+            span.end();
+        }
+
+        return reservedBytes;
+    }
+
+    /**
+     * Execute a Jlint process for a batch of class files that is admitted
+     * by the scheduler.
+     *
+     * @param commandBuilder Builder of commands
+     * @param batch Batch of class files
+     * @param output {@link LineConsumer} that consumes the standard
+     *  output from Jlint, or null if rawOutput is given
+     * @param rawOutput File to which the standard output is copied as it
+     *  is, or null
+     * @param error {@link LineConsumer} that consumes the standard
+     *  error from Jlint
+     * @return Exit code
+     * @throws IOException If I/O error occurs
+     * @throws InterruptedException If this thread is interrupted
+     */
+    private int executeAdmittedBatch(CommandBuilder commandBuilder,
+            List<File> batch, LineConsumer output, FileChannel rawOutput,
+            LineConsumer error) throws IOException, InterruptedException {
+        long startNanos = System.nanoTime();
+
+        LineConsumer batchOutput = output;
+        if (mFindingLimit != null) {
+            batchOutput = mFindingLimit.wrap(output);
+        }
+
+        List<String> command = commandBuilder.build(batch);
+        if (mMetrics != null) {
+            long argumentBytes = 0;
+            for (String argument : command) {
+                argumentBytes += CommandBuilder.measure(argument);
+            }
+            mMetrics.addCount(ExecutionMetrics.COUNT_PROCESSES, 1);
+            mMetrics.addCount(ExecutionMetrics.COUNT_CLASS_FILES,
+                    batch.size());
+            mMetrics.addCount(ExecutionMetrics.COUNT_ARGUMENT_BYTES,
+                    argumentBytes);
+        }
+
+        int exitCode;
+        if (rawOutput == null) {
+            exitCode = mCommandExecutor.execute(command, batchOutput, error);
+        } else {
+            exitCode = ((ProcessExecutor) mCommandExecutor).execute(
+                    command, rawOutput, error);
+        }
+
+        if (mStatistics != null) {
+            long peakResidentBytes = -1;
+            if (mCommandExecutor instanceof ProcessExecutor) {
+                ProcessUsage usage =
+                        ((ProcessExecutor) mCommandExecutor).getLastUsage();
+                if (usage != null) {
+                    peakResidentBytes = usage.getPeakResidentBytes();
+                }
+            }
+            mStatistics.record(batch, System.nanoTime() - startNanos,
+                    peakResidentBytes);
+        }
+
+        return exitCode;
+    }
+
+    /**
+     * Execute Jlint processes one after another.
+     *
+     * @param commandBuilder Builder of commands
+     * @param batches Batches of class files
+     * @param output {@link LineConsumer} that consumes the merged standard
+     *  output from Jlint
+     * @param error {@link LineConsumer} that consumes the standard
+     *  error from Jlint
+     * @return The first exit code that is not 0, or 0
+     * @throws IOException If I/O error occurs
+     * @throws InterruptedException If this thread is interrupted
+     */
+    private int executeSequentially(CommandBuilder commandBuilder,
+            List<List<File>> batches, LineConsumer output,
+            LineConsumer error) throws IOException, InterruptedException {
+        OutputMerger merger = new OutputMerger(output);
+        int exitCode = 0;
+        for (int i = 0; i < batches.size(); i++) {
+            int batchExitCode = executeBatch(
+                    commandBuilder, i, batches.get(i), merger, null, error);
+
+            if (exitCode == 0) {
+                exitCode = batchExitCode;
+            }
+        }
+        merger.finish();
+
+        return exitCode;
+    }
+
+    /**
+     * Execute Jlint processes concurrently.
+     *
+     * @param commandBuilder Builder of commands
+     * @param batches Batches of class files
+     * @param output {@link LineConsumer} that consumes the merged standard
+     *  output from Jlint
+     * @param error {@link LineConsumer} that consumes the standard
+     *  error from Jlint
+     * @return The first exit code that is not 0, or 0
+     * @throws IOException If I/O error occurs
+     * @throws InterruptedException If this thread is interrupted
+     */
+    private int executeConcurrently(final CommandBuilder commandBuilder,
+            List<List<File>> batches, LineConsumer output,
+            LineConsumer error) throws IOException, InterruptedException {
+        ExecutorService executorService = Executors.newFixedThreadPool(
+                Math.min(mThreads, batches.size()));
+        ArrayList<LineBuffer> outputs = new ArrayList<LineBuffer>();
+        ArrayList<LineBuffer> errors = new ArrayList<LineBuffer>();
+        try {
+            CompletionService<Integer> completionService =
+                    new ExecutorCompletionService<Integer>(executorService);
+            ArrayList<Future<Integer>> results =
+                    new ArrayList<Future<Integer>>();
+
+            for (int i = 0; i < batches.size(); i++) {
+                final int index = i;
+                final List<File> batch = batches.get(i);
+                final LineBuffer batchOutput =
+                        new LineBuffer(mMaxBufferedBytes);
+                final LineBuffer batchError =
+                        new LineBuffer(mMaxBufferedBytes);
+
+                Callable<Integer> task = new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        return executeBatch(commandBuilder, index, batch,
+                                batchOutput, null, batchError);
+                    }
+                };
+                results.add(completionService.submit(task));
+                outputs.add(batchOutput);
+                errors.add(batchError);
+            }
+
+            // Wait for the processes in order of their end, so that a
+            // failure stops the other processes at once.
+
+            for (int i = 0; i < batches.size(); i++) {
+                getExitCode(completionService.take());
+            }
+
+            // Merge the output in order of the batches.
+
+            TraceRecorder.Span mergeSpan = null;
+            if (mTrace != null) {
+                mergeSpan = mTrace.begin("merge", "task");
+            }
+
+            OutputMerger merger = new OutputMerger(output);
+            int exitCode = 0;
+            for (int i = 0; i < batches.size(); i++) {
+                int batchExitCode = getExitCode(results.get(i));
+
+                outputs.get(i).replay(merger);
+                outputs.get(i).close();
+                errors.get(i).replay(error);
+                errors.get(i).close();
+
+                if (exitCode == 0) {
+                    exitCode = batchExitCode;
+                }
+            }
+            merger.finish();
+
+            if (mTrace != null) {
+                mergeSpan.end();
+            }
+
+            return exitCode;
+        } finally {
+            executorService.shutdownNow();
+            closeBuffers(outputs);
+            closeBuffers(errors);
+        }
+    }
+
+    /**
+     * Close buffers of output and delete their temporary files.
+     *
+     * @param buffers Buffers
+     */
+    private static void closeBuffers(List<LineBuffer> buffers) {
+        for (LineBuffer buffer : buffers) {
+            try {
+                buffer.close();
+            } catch (IOException e) {
+                // The temporary file is deleted even if it is not closed
+                // successfully.
+            }
+        }
+    }
+
+    /**
+     * Get exit code of Jlint process executed concurrently.
+     *
+     * @param result Result of execution
+     * @return Exit code
+     * @throws IOException If I/O error occurred
+     * @throws InterruptedException If this thread is interrupted
+     */
+    private static int getExitCode(Future<Integer> result) throws
+            IOException, InterruptedException {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Create arguments that every command starts with.
+     *
+     * @return Program and its options
+     */
+    private List<String> createCommandPrefix() {
+        ArrayList<String> prefix = new ArrayList<String>();
+
+        prefix.add(mJlintExecutable.getAbsolutePath());
+
+        if (mSourceDirectory != null) {
+            prefix.add("-source");
+            prefix.add(mSourceDirectory.getAbsolutePath());
+        }
+
+        for (String option : mOptions) {
+            prefix.add(option);
         }
 
-        return mCommandExecutor.execute(command, output, error);
+        return prefix;
     }
 }
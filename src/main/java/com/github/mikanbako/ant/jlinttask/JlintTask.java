@@ -17,24 +17,34 @@
  */
 package com.github.mikanbako.ant.jlinttask;
 
-import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.io.Reader;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.tools.ant.BuildEvent;
 import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.BuildListener;
 import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.Project;
 import org.apache.tools.ant.Task;
 import org.apache.tools.ant.types.FileSet;
 
@@ -42,6 +52,30 @@ import org.apache.tools.ant.types.FileSet;
  * Ant Task class that executes Jlint.
  */
 public final class JlintTask extends Task {
+    /**
+     * Value of shardMode attribute to split class files by package.
+     */
+    private static final String SHARD_MODE_PACKAGE = "package";
+
+    /**
+     * Value of shardMode attribute to split class files by dependencies.
+     */
+    private static final String SHARD_MODE_DEPENDENCY = "dependency";
+
+    /**
+     * Bytes of a kilobyte.
+     */
+    private static final long KILOBYTE = 1024;
+
+    /**
+     * Patterns of {@link FileSet} that include all files.
+     *
+     * A pattern that includes only class files is not one of them,
+     * because Jlint analyzes jar and zip files in a directory as well.
+     */
+    private static final Set<String> EVERYTHING_PATTERNS =
+            new HashSet<String>(Arrays.asList("**", "**/*"));
+
     /**
      * Path of executable file of Jlint.
      */
@@ -57,6 +91,11 @@ public final class JlintTask extends Task {
      */
     private File mOutputFile;
 
+    /**
+     * Format of result.
+     */
+    private String mFormat = ReportWriter.FORMAT_TEXT;
+
     /**
      * Message filter.
      */
@@ -67,11 +106,133 @@ public final class JlintTask extends Task {
      */
     private File mMessageFilterFile;
 
+    /**
+     * Maximum number of Jlint processes that run concurrently.
+     */
+    private int mThreads = 1;
+
+    /**
+     * How class files are split for Jlint processes.
+     */
+    private String mShardMode = SHARD_MODE_PACKAGE;
+
+    /**
+     * File in which analysis durations are recorded.
+     */
+    private File mStatisticsFile;
+
+    /**
+     * File in which listings of directories are recorded.
+     */
+    private File mSnapshotFile;
+
+    /**
+     * Memory budget shared by Jlint processes, for example "2g", or null
+     * for no budget.
+     */
+    private String mMemoryBudget;
+
+    /**
+     * Maximum number of Jlint processes that run concurrently within the
+     * memory budget. 0 means the number of processors.
+     */
+    private int mCores;
+
+    /**
+     * File of fingerprints of known findings.
+     */
+    private File mBaselineFile;
+
+    /**
+     * Whether the build fails if a finding is not in the baseline.
+     */
+    private boolean mFailOnNew;
+
+    /**
+     * Whether the baseline is replaced by the findings of this run.
+     */
+    private boolean mUpdateBaseline;
+
+    /**
+     * Maximum number of findings before Jlint is stopped, or -1 if it is
+     * not specified.
+     */
+    private int mMaxFindings = -1;
+
+    /**
+     * Comma separated categories of findings counted for maxFindings, or
+     * null for all categories.
+     */
+    private String mFailFastCategories;
+
+    /**
+     * Prefix of properties to which metrics are set, or null.
+     */
+    private String mMetricsPrefix;
+
+    /**
+     * File in which metrics are written as JSON, or null.
+     */
+    private File mMetricsFile;
+
+    /**
+     * Metrics of the current execution, cleared by {@link #execute()}.
+     */
+    private final ExecutionMetrics mMetrics = new ExecutionMetrics();
+
+    /**
+     * File in which spans of the execution are written, or null.
+     */
+    private File mTraceFile;
+
+    /**
+     * Recorder of spans of the current execution, or null.
+     */
+    private TraceRecorder mTrace;
+
+    /**
+     * Maximum resident set size of a Jlint process, for example "512m", or
+     * null for no limit.
+     */
+    private String mMaxMemory;
+
+    /**
+     * Maximum length of command in bytes.
+     */
+    private long mMaxCommandLength =
+            CommandBuilder.DEFAULT_MAX_COMMAND_LENGTH;
+
+    /**
+     * Directory in which findings are cached.
+     */
+    private File mCacheDirectory;
+
+    /**
+     * Whether directories whose class files are all included are passed
+     * to Jlint instead of their class files.
+     */
+    private boolean mCollapseDirectories;
+
+    /**
+     * Whether results of identical analyses in the build are reused.
+     */
+    private boolean mReuseResults;
+
+    /**
+     * Cache shared by jlint tasks in the project.
+     */
+    private TaskCache mTaskCache;
+
     /**
      * Path of class files analyzed by Jlint.
      */
     private final ArrayList<FileSet> mClassFileSets = new ArrayList<FileSet>();
 
+    /**
+     * Reports written in addition to the result.
+     */
+    private final ArrayList<Report> mReports = new ArrayList<Report>();
+
     /**
      * Set the path of Jlint.
      *
@@ -118,241 +279,1666 @@ public final class JlintTask extends Task {
     }
 
     /**
-     * Add {@link FileSet} that contains class files.
+     * Set the maximum number of Jlint processes that run concurrently.
      *
-     * @param fileSet {@link FileSet} that contains class file
+     * @param threads Maximum number of Jlint processes
      */
-    public void addFileSet(FileSet fileSet) {
-        mClassFileSets.add(fileSet);
+    public void setThreads(int threads) {
+        mThreads = threads;
     }
 
-    @Override
-    public void execute() {
-        log("Executing Jlint.");
-
-        // Check attributes and nested elements.
-
-        checkProperties();
-
-        // Execute command.
-
-        JlintExecutor executor = new JlintExecutor(
-                getJlintExecutable(), getClassFiles());
-
-        executor.setOptions(getOptions());
-
-        if (mSourceDirectory != null) {
-            executor.setSourceDirectory(getSourceDirectory());
-        }
-
-        int exitCode;
-        try {
-            StringBuilder output = new StringBuilder();
-            StringBuilder error = new StringBuilder();
-
-            exitCode = executor.execute(output, error);
-
-            log(error.toString());
-
-            if (exitCode == 0) {
-                outputResult(output.toString());
-            }
-        } catch (IOException e) {
-            throw new BuildException(e);
-        } catch (InterruptedException e) {
-            throw new BuildException(e);
-        }
-
-        if (exitCode != 0) {
-            throw new BuildException("Exit code is " + exitCode);
-        }
-
-        log("Executing Jlint is finished.");
+    /**
+     * Set how class files are split for Jlint processes.
+     *
+     * @param shardMode "package" or "dependency"
+     */
+    public void setShardMode(String shardMode) {
+        mShardMode = shardMode;
     }
 
     /**
-     * Check whether properties are valid.
+     * Set the file in which analysis durations are recorded.
      *
-     * @throws BuildException Properties are invalid
+     * @param statisticsFile File in which analysis durations are recorded
      */
-    private void checkProperties() {
-        // Check executable attribute.
-
-        if (mJlintExecutable == null) {
-            throw new BuildException("executable attribute is required.");
-        }
-        if (!mJlintExecutable.canExecute()) {
-            throw new BuildException(mJlintExecutable.getAbsolutePath() +
-                    " must be an executable file.");
-        }
-
-        // Check messageFilterFile attribute.
-        if (mMessageFilterFile != null && !mMessageFilterFile.isFile()) {
-            throw new BuildException(mMessageFilterFile.getAbsolutePath() +
-                    " must be a file.");
-        }
-
-        // Check sourceDirectory attribute.
-
-        if (mSourceDirectory != null && !mSourceDirectory.isDirectory()) {
-            throw new BuildException(mSourceDirectory.getAbsolutePath() +
-                    " must be a directory.");
-        }
-
-        // Check outputFile attribute.
-
-        if (mOutputFile != null && mOutputFile.isDirectory()) {
-            throw new BuildException(mOutputFile.getAbsolutePath() +
-                    " must not be directory.");
-        }
-
-        // Check nested fileset elements.
+    public void setStatsFile(File statisticsFile) {
+        mStatisticsFile = statisticsFile;
+    }
 
-        if (mClassFileSets.isEmpty()) {
-            throw new BuildException("Nested fileset elements are required.");
-        }
+    /**
+     * Set the file in which listings of directories are recorded.
+     *
+     * @param snapshotFile File in which listings of directories are
+     *  recorded
+     */
+    public void setSnapshotFile(File snapshotFile) {
+        mSnapshotFile = snapshotFile;
     }
 
     /**
-     * Get canonical Jlint executable file.
+     * Set the memory budget shared by Jlint processes of all jlint tasks.
      *
-     * @return Canonical Jlint executable file
-     * @throws BuildException If this method cannot get the file
+     * @param memoryBudget Memory budget in bytes, followed by "k", "m" or
+     *  "g" optionally
      */
-    private File getJlintExecutable() {
-        try {
-            return mJlintExecutable.getCanonicalFile();
-        } catch (IOException e) {
-            throw new BuildException(e);
-        }
+    public void setMemoryBudget(String memoryBudget) {
+        mMemoryBudget = memoryBudget;
     }
 
     /**
-     * Get options of Jlint.
+     * Set the maximum number of Jlint processes of all jlint tasks that
+     * run concurrently within the memory budget.
      *
-     * @return Set that contains Jlint options
-     * @throws BuildException If this method cannot get options
+     * @param cores Maximum number of Jlint processes
      */
-    private Set<String> getOptions() {
-        HashSet<String> options = new HashSet<String>();
+    public void setCores(int cores) {
+        mCores = cores;
+    }
 
-        if (mMessageFilter != null) {
-            options.addAll(OptionParser.parse(mMessageFilter));
-        }
+    /**
+     * Set the format of result.
+     *
+     * @param format "text", "xml", "sarif" or "json"
+     */
+    public void setFormat(String format) {
+        mFormat = format;
+    }
 
-        if (mMessageFilterFile != null) {
-            Reader reader = null;
+    /**
+     * Set the file of fingerprints of known findings.
+     *
+     * @param baselineFile File of fingerprints of known findings
+     */
+    public void setBaseline(File baselineFile) {
+        mBaselineFile = baselineFile;
+    }
 
-            try {
-                reader = createReader(mMessageFilterFile);
-                options.addAll(
-                        OptionParser.parse(reader));
-            } catch (IOException e) {
-                throw new BuildException(
-                        "messageFilterFile attribute is invalid.", e);
-            } finally {
-                if (reader != null) {
-                    try {
-                        reader.close();
-                    } catch (IOException e) {
-                        throw new BuildException("I/O error occurred.", e);
-                    }
-                }
-            }
-        }
+    /**
+     * Set whether the build fails if a finding is not in the baseline.
+     *
+     * @param failOnNew true if the build fails if a finding is not in the
+     *  baseline
+     */
+    public void setFailOnNew(boolean failOnNew) {
+        mFailOnNew = failOnNew;
+    }
 
-        return options;
+    /**
+     * Set whether the baseline is replaced by the findings of this run.
+     *
+     * @param updateBaseline true if the baseline is replaced
+     */
+    public void setUpdateBaseline(boolean updateBaseline) {
+        mUpdateBaseline = updateBaseline;
     }
 
     /**
-     * Create {@link Reader} for the file.
+     * Set the maximum number of findings.
+     *
+     * When Jlint outputs more findings, Jlint is stopped and the build
+     * fails.
      *
-     * @param file File to read.
-     * @return {@link Reader} for the file.
-     * @throws IOException If this method cannot create a {@link Reader}
+     * @param maxFindings Maximum number of findings
      */
-    private Reader createReader(File file) throws IOException {
-        return new BufferedReader(
-                new InputStreamReader(
-                        new FileInputStream(file),
-                        Charset.forName("ASCII")));
+    public void setMaxFindings(int maxFindings) {
+        mMaxFindings = maxFindings;
     }
 
     /**
-     * Get canonical source directory.
+     * Set categories of findings counted for maxFindings.
      *
-     * @return Canonical source directory
-     * @throws IllegalStateException If source directory is not specified
-     * @throws BuildException If this method cannot get the directory
+     * @param failFastCategories Comma separated categories, for example
+     *  "synchronization,data_flow"
      */
-    private File getSourceDirectory() {
-        if (mSourceDirectory == null) {
-            throw new IllegalStateException(
-                    "sourceDirectory is not specified.");
-        }
+    public void setFailFastCategories(String failFastCategories) {
+        mFailFastCategories = failFastCategories;
+    }
 
-        try {
-            return mSourceDirectory.getCanonicalFile();
-        } catch (IOException e) {
-            throw new BuildException(e);
-        }
+    /**
+     * Set the prefix of properties to which metrics are set.
+     *
+     * @param metricsPrefix Prefix of properties, for example "jlint."
+     */
+    public void setMetricsPrefix(String metricsPrefix) {
+        mMetricsPrefix = metricsPrefix;
     }
 
     /**
-     * Get canonical class files.
+     * Set the file in which metrics are written as JSON.
      *
-     * @return Canonical class files
+     * @param metricsFile File in which metrics are written
      */
-    private List<File> getClassFiles() {
-        ArrayList<File> classFiles = new ArrayList<File>();
+    public void setMetricsFile(File metricsFile) {
+        mMetricsFile = metricsFile;
+    }
 
-        for (FileSet fileSet : mClassFileSets) {
-            DirectoryScanner directoryScanner =
-                    fileSet.getDirectoryScanner(getProject());
+    /**
+     * Set the file in which spans of the execution are written in the
+     * trace event format.
+     *
+     * @param traceFile File in which spans are written
+     */
+    public void setTraceFile(File traceFile) {
+        mTraceFile = traceFile;
+    }
 
-            File baseDirectory = directoryScanner.getBasedir();
-            for (String file : directoryScanner.getIncludedFiles()) {
-                File absoluteFile = new File(baseDirectory, file);
+    /**
+     * Set the maximum resident set size of a Jlint process.
+     *
+     * @param maxMemory Maximum resident set size in bytes, followed by "k",
+     *  "m" or "g" optionally
+     */
+    public void setMaxMemory(String maxMemory) {
+        mMaxMemory = maxMemory;
+    }
 
-                try {
-                    classFiles.add(absoluteFile.getCanonicalFile());
-                } catch (IOException e) {
-                    throw new BuildException(e);
-                }
-            }
-        }
+    /**
+     * Set the maximum length of command that executes Jlint in bytes.
+     *
+     * @param maxCommandLength Maximum length of command. 0 means no limit.
+     */
+    public void setMaxCommandLength(long maxCommandLength) {
+        mMaxCommandLength = maxCommandLength;
+    }
 
-        return classFiles;
+    /**
+     * Set whether directories whose class files are all included are
+     * passed to Jlint instead of their class files.
+     *
+     * @param collapseDirectories true if directories are passed
+     */
+    public void setCollapseDirectories(boolean collapseDirectories) {
+        mCollapseDirectories = collapseDirectories;
     }
 
     /**
-     * Output the result.
+     * Set whether results of identical analyses in the build are reused.
      *
-     * @param result The result
-     * @throws FileNotFoundException If outputFile is not created or cannot
-     *  be written
+     * @param reuseResults true if results are reused
      */
-    private void outputResult(String result) throws FileNotFoundException {
-        // If outputFile is not specified, output result to log.
+    public void setReuseResults(boolean reuseResults) {
+        mReuseResults = reuseResults;
+    }
 
-        if (mOutputFile == null) {
-            log(result);
+    /**
+     * Set the directory in which findings are cached.
+     *
+     * @param cacheDirectory Directory in which findings are cached
+     */
+    public void setCacheDir(File cacheDirectory) {
+        mCacheDirectory = cacheDirectory;
+    }
 
-            return;
-        }
+    /**
+     * Add {@link FileSet} that contains class files.
+     *
+     * @param fileSet {@link FileSet} that contains class file
+     */
+    public void addFileSet(FileSet fileSet) {
+        mClassFileSets.add(fileSet);
+    }
+
+    /**
+     * Create a nested report element.
+     *
+     * @return Report element
+     */
+    public Report createReport() {
+        Report report = new Report();
+        mReports.add(report);
+
+        return report;
+    }
+
+    @Override
+    public void execute() {
+        log("Executing Jlint.");
+
+        long startNanos = System.nanoTime();
+        mMetrics.clear();
+        mTrace = null;
+        TraceRecorder.Span taskSpan = null;
+        if (mTraceFile != null) {
+            mTrace = new TraceRecorder();
+            taskSpan = mTrace.begin("jlint task", "task");
+        }
+
+        // The trace is written even if the task fails, because the trace
+        // of a failed build is the one that is looked into.
+
+        boolean succeeded = false;
+        try {
+            executeJlint(startNanos);
+            succeeded = true;
+        } finally {
+            if (mTrace != null) {
+                taskSpan.end();
+                writeTrace(succeeded);
+            }
+        }
+
+        log("Executing Jlint is finished.");
+    }
+
+    /**
+     * Execute Jlint with the attributes and the nested elements.
+     *
+     * @param startNanos Time at which the task started, in nanoseconds
+     * @throws BuildException If Jlint cannot be executed or fails
+     */
+    private void executeJlint(long startNanos) {
+        mTaskCache = getTaskCache();
+
+        // Check attributes and nested elements.
+
+        checkProperties();
+
+        // Execute command.
+
+        File jlintExecutable = getJlintExecutable();
+        List<File> classFiles = getClassFiles();
+        long optionsStartNanos = System.nanoTime();
+        Set<String> filterOptions = getOptions();
+        mMetrics.addTimeSince(ExecutionMetrics.PHASE_OPTIONS,
+                optionsStartNanos);
+        Set<String> options = getJlintOptions(filterOptions);
+
+        File sourceDirectory = null;
+        if (mSourceDirectory != null) {
+            sourceDirectory = getSourceDirectory();
+        }
+
+        IncrementalAnalysis incrementalAnalysis = null;
+        if (mCacheDirectory != null) {
+            incrementalAnalysis = prepareIncrementalAnalysis(
+                    jlintExecutable, options, sourceDirectory, classFiles);
+            classFiles = incrementalAnalysis.getAnalyzedFiles();
+        }
+
+        JlintExecutor executor = new JlintExecutor(
+                jlintExecutable, classFiles);
+
+        executor.setOptions(options);
+        executor.setThreads(mThreads);
+        executor.setShardByDependency(
+                SHARD_MODE_DEPENDENCY.equals(mShardMode));
+        executor.setMaxCommandLength(mMaxCommandLength);
+        executor.setMetrics(mMetrics);
+        executor.setTrace(mTrace);
+        executor.setLog(new LogLineConsumer());
+        if (mMaxMemory != null) {
+            if (!ProcessSampler.isSupported()) {
+                log("maxMemory attribute is ignored because /proc is not " +
+                        "available.", Project.MSG_WARN);
+            }
+            executor.setMaxMemory(parseMemorySize(mMaxMemory));
+        }
+
+        ShardStatistics statistics = null;
+        if (mStatisticsFile != null) {
+            statistics = ShardStatistics.load(mStatisticsFile);
+            executor.setStatistics(statistics);
+        }
+
+        if (mMemoryBudget != null) {
+            executor.setScheduler(
+                    getScheduler(parseMemorySize(mMemoryBudget)));
+        }
+
+        if (sourceDirectory != null) {
+            executor.setSourceDirectory(sourceDirectory);
+        }
+
+        // Messages that are output only for the reports are filtered out
+        // from the result.
+
+        Set<Finding.Category> resultCategories = null;
+        if (!options.equals(filterOptions)) {
+            resultCategories =
+                    CategoryFilter.getKeptCategories(filterOptions);
+        }
+
+        FindingLimit findingLimit = createFindingLimit(resultCategories);
+        executor.setFindingLimit(findingLimit);
+
+        BaselineChecker baselineChecker = null;
+        int exitCode;
+        ArrayList<BufferedWriter> resultWriters =
+                new ArrayList<BufferedWriter>();
+        try {
+            ArrayList<ReportWriter> reportWriters =
+                    new ArrayList<ReportWriter>();
+            if (isPassThrough(resultCategories, findingLimit,
+                    incrementalAnalysis)) {
+                exitCode = executePassThrough(executor);
+            } else {
+                // Each line is parsed once and the findings are passed
+                // through the metrics and the baseline to the reports.
+                ArrayList<LineConsumer> otherOutputs =
+                        new ArrayList<LineConsumer>();
+                FindingConsumer findings = createOutput(resultCategories,
+                        resultWriters, reportWriters, otherOutputs);
+                if (isMetricsRequested()) {
+                    findings = mMetrics.countFindings(
+                            findings, resultCategories);
+                }
+
+                if (mBaselineFile != null) {
+                    baselineChecker = new BaselineChecker(
+                            BaselineChecker.load(mBaselineFile),
+                            sourceDirectory, resultCategories, findings,
+                            new LineConsumer() {
+                                @Override
+                                public void consumeLine(String line) {
+                                    log("New finding: " + line,
+                                            Project.MSG_WARN);
+                                }
+                            }, mUpdateBaseline);
+                    findings = baselineChecker;
+                }
+
+                LineConsumer output = new FindingParser(findings,
+                        otherOutputs.isEmpty() ? null : otherOutputs.get(0));
+
+                if (incrementalAnalysis == null && findingLimit == null &&
+                        mReuseResults) {
+                    exitCode = executeOrReuse(executor, output,
+                            jlintExecutable, options, sourceDirectory,
+                            classFiles);
+                } else if (incrementalAnalysis == null) {
+                    exitCode = executor.execute(
+                            output, new LogLineConsumer());
+                } else {
+                    // The cached findings are counted before Jlint runs,
+                    // so that the limit fails fast without running Jlint.
+                    if (findingLimit != null) {
+                        for (String finding :
+                                incrementalAnalysis.getCachedFindings()) {
+                            findingLimit.add(finding);
+                        }
+                    }
+
+                    exitCode = 0;
+                    if (!classFiles.isEmpty()) {
+                        exitCode = executor.execute(
+                                incrementalAnalysis.getOutputConsumer(),
+                                new LogLineConsumer());
+                    }
+
+                    if (exitCode == 0) {
+                        incrementalAnalysis.finish(output);
+                    }
+                }
+            }
+
+            if (exitCode == 0) {
+                TraceRecorder.Span reportSpan = null;
+                if (mTrace != null) {
+                    reportSpan = mTrace.begin("report", "task");
+                }
+
+                long reportStartNanos = System.nanoTime();
+                for (ReportWriter reportWriter : reportWriters) {
+                    reportWriter.finish();
+                }
+                mMetrics.addTimeSince(ExecutionMetrics.PHASE_REPORT,
+                        reportStartNanos);
+
+                if (mTrace != null) {
+                    reportSpan.end();
+                }
+            }
+        } catch (FindingLimitExceededException e) {
+            for (String finding : findingLimit.getFindings()) {
+                log(finding, Project.MSG_ERR);
+            }
+            deleteResults();
+
+            throw new BuildException(e.getMessage(), e);
+        } catch (MemoryLimitExceededException e) {
+            deleteResults();
+
+            throw new BuildException(e.getMessage(), e);
+        } catch (IOException e) {
+            throw new BuildException(e);
+        } catch (InterruptedException e) {
+            throw new BuildException(e);
+        } finally {
+            if (incrementalAnalysis != null) {
+                closeIncrementalAnalysis(incrementalAnalysis);
+            }
+
+            long closeStartNanos = System.nanoTime();
+            for (BufferedWriter resultWriter : resultWriters) {
+                closeResultWriter(resultWriter);
+            }
+            mMetrics.addTimeSince(ExecutionMetrics.PHASE_REPORT,
+                    closeStartNanos);
+        }
+
+        if (exitCode != 0) {
+            // The result of failed execution is not kept.
+            deleteResults();
+
+            throw new BuildException("Exit code is " + exitCode);
+        }
+
+        if (statistics != null) {
+            saveStatistics(statistics);
+        }
+
+        if (baselineChecker != null) {
+            checkBaseline(baselineChecker);
+        }
+
+        if (mOutputFile != null) {
+            log("Result is " + mOutputFile.getAbsolutePath());
+        }
+        for (Report report : mReports) {
+            log("Report is " + report.getOutputFile().getAbsolutePath());
+        }
+
+        for (ProcessUsage usage : mMetrics.getProcessUsages()) {
+            log(usage.toString());
+        }
+
+        mMetrics.addTimeSince(ExecutionMetrics.PHASE_TOTAL, startNanos);
+        publishMetrics();
+    }
+
+    /**
+     * Check whether properties are valid.
+     *
+     * @throws BuildException Properties are invalid
+     */
+    private void checkProperties() {
+        // Check executable attribute.
+
+        if (mJlintExecutable == null) {
+            throw new BuildException("executable attribute is required.");
+        }
+        if (!mTaskCache.canExecute(mJlintExecutable)) {
+            throw new BuildException(mJlintExecutable.getAbsolutePath() +
+                    " must be an executable file.");
+        }
+
+        // Check messageFilterFile attribute.
+        if (mMessageFilterFile != null && !mMessageFilterFile.isFile()) {
+            throw new BuildException(mMessageFilterFile.getAbsolutePath() +
+                    " must be a file.");
+        }
+
+        // Check sourceDirectory attribute.
+
+        if (mSourceDirectory != null && !mSourceDirectory.isDirectory()) {
+            throw new BuildException(mSourceDirectory.getAbsolutePath() +
+                    " must be a directory.");
+        }
+
+        // Check outputFile attribute.
+
+        if (mOutputFile != null && mOutputFile.isDirectory()) {
+            throw new BuildException(mOutputFile.getAbsolutePath() +
+                    " must not be directory.");
+        }
+
+        // Check format attribute.
+
+        if (!ReportWriter.FORMAT_TEXT.equals(mFormat)) {
+            if (!ReportWriter.isSupported(mFormat)) {
+                throw new BuildException("format attribute must be " +
+                        ReportWriter.FORMAT_TEXT + ", " +
+                        ReportWriter.FORMAT_XML + ", " +
+                        ReportWriter.FORMAT_SARIF + " or " +
+                        ReportWriter.FORMAT_JSON + ".");
+            }
+            if (mOutputFile == null) {
+                throw new BuildException("outputFile attribute is required " +
+                        "when format attribute is " + mFormat + ".");
+            }
+        }
+
+        // Check threads attribute.
+
+        if (mThreads < 1) {
+            throw new BuildException("threads attribute must be 1 or more.");
+        }
+
+        // Check memoryBudget and cores attributes.
+
+        if (mMemoryBudget != null && parseMemorySize(mMemoryBudget) <= 0) {
+            throw new BuildException(
+                    "memoryBudget attribute must be positive.");
+        }
+        if (mCores < 0) {
+            throw new BuildException("cores attribute must not be negative.");
+        }
+
+        // Check shardMode attribute.
+
+        if (!SHARD_MODE_PACKAGE.equals(mShardMode) &&
+                !SHARD_MODE_DEPENDENCY.equals(mShardMode)) {
+            throw new BuildException("shardMode attribute must be " +
+                    SHARD_MODE_PACKAGE + " or " + SHARD_MODE_DEPENDENCY + ".");
+        }
+
+        // Check maxCommandLength attribute.
+
+        if (mMaxCommandLength < 0) {
+            throw new BuildException(
+                    "maxCommandLength attribute must not be negative.");
+        }
+
+        // Check cacheDir attribute.
+
+        if (mCacheDirectory != null && mCacheDirectory.exists() &&
+                !mCacheDirectory.isDirectory()) {
+            throw new BuildException(mCacheDirectory.getAbsolutePath() +
+                    " must be a directory.");
+        }
+
+        // Check statsFile attribute.
+
+        if (mStatisticsFile != null && mStatisticsFile.isDirectory()) {
+            throw new BuildException(mStatisticsFile.getAbsolutePath() +
+                    " must not be directory.");
+        }
+
+        // Check snapshotFile attribute.
+
+        if (mSnapshotFile != null && mSnapshotFile.isDirectory()) {
+            throw new BuildException(mSnapshotFile.getAbsolutePath() +
+                    " must not be directory.");
+        }
+
+        // Check baseline attribute.
+
+        if (mBaselineFile != null && mBaselineFile.isDirectory()) {
+            throw new BuildException(mBaselineFile.getAbsolutePath() +
+                    " must not be directory.");
+        }
+        if (mBaselineFile == null && (mFailOnNew || mUpdateBaseline)) {
+            throw new BuildException("baseline attribute is required " +
+                    "when failOnNew or updateBaseline attribute is true.");
+        }
+
+        // Check failFastCategories attribute.
+
+        if (mFailFastCategories != null) {
+            getFailFastCategories();
+        }
+
+        // Check metricsFile attribute.
+
+        if (mMetricsFile != null && mMetricsFile.isDirectory()) {
+            throw new BuildException(mMetricsFile.getAbsolutePath() +
+                    " must not be directory.");
+        }
+
+        // Check traceFile attribute.
+
+        if (mTraceFile != null && mTraceFile.isDirectory()) {
+            throw new BuildException(mTraceFile.getAbsolutePath() +
+                    " must not be directory.");
+        }
+
+        // Check maxMemory attribute.
+
+        if (mMaxMemory != null && parseMemorySize(mMaxMemory) <= 0) {
+            throw new BuildException("maxMemory attribute must be positive.");
+        }
+
+        // Check nested report elements.
+
+        for (Report report : mReports) {
+            if (report.getOutputFile() == null) {
+                throw new BuildException(
+                        "outputFile attribute of report is required.");
+            }
+            if (report.getOutputFile().isDirectory()) {
+                throw new BuildException(
+                        report.getOutputFile().getAbsolutePath() +
+                        " must not be directory.");
+            }
+            if (!ReportWriter.isSupported(report.getFormat())) {
+                throw new BuildException(
+                        "format attribute of report is invalid.");
+            }
+        }
+
+        // Check nested fileset elements.
+
+        if (mClassFileSets.isEmpty()) {
+            throw new BuildException("Nested fileset elements are required.");
+        }
+    }
+
+    /**
+     * Get canonical Jlint executable file.
+     *
+     * @return Canonical Jlint executable file
+     * @throws BuildException If this method cannot get the file
+     */
+    private File getJlintExecutable() {
+        try {
+            return mTaskCache.getCanonicalFile(mJlintExecutable);
+        } catch (IOException e) {
+            throw new BuildException(e);
+        }
+    }
+
+    /**
+     * Get options of Jlint.
+     *
+     * @return Set that contains Jlint options
+     * @throws BuildException If this method cannot get options
+     */
+    private Set<String> getOptions() {
+        LinkedHashSet<String> options = new LinkedHashSet<String>();
+
+        if (mMessageFilter != null) {
+            options.addAll(OptionParser.parse(mMessageFilter));
+        }
+
+        if (mMessageFilterFile != null) {
+            try {
+                options.addAll(
+                        mTaskCache.getFilterOptions(mMessageFilterFile));
+            } catch (IOException e) {
+                throw new BuildException(
+                        "messageFilterFile attribute is invalid.", e);
+            }
+        }
+
+        return options;
+    }
+
+    /**
+     * Get canonical source directory.
+     *
+     * @return Canonical source directory
+     * @throws IllegalStateException If source directory is not specified
+     * @throws BuildException If this method cannot get the directory
+     */
+    private File getSourceDirectory() {
+        if (mSourceDirectory == null) {
+            throw new IllegalStateException(
+                    "sourceDirectory is not specified.");
+        }
+
+        try {
+            return mTaskCache.getCanonicalFile(mSourceDirectory);
+        } catch (IOException e) {
+            throw new BuildException(e);
+        }
+    }
+
+    /**
+     * Prepare incremental analysis.
+     *
+     * @param jlintExecutable Canonical Jlint executable file
+     * @param options Options of Jlint
+     * @param sourceDirectory Canonical source directory, or null
+     * @param classFiles Canonical class files
+     * @return Incremental analysis
+     * @throws BuildException If I/O error occurs
+     */
+    private IncrementalAnalysis prepareIncrementalAnalysis(
+            File jlintExecutable, Set<String> options, File sourceDirectory,
+            List<File> classFiles) {
+        try {
+            AnalysisCache cache = AnalysisCache.load(mCacheDirectory,
+                    AnalysisCache.computeEnvironmentKey(
+                            jlintExecutable, options, sourceDirectory));
+
+            IncrementalAnalysis incrementalAnalysis =
+                    IncrementalAnalysis.prepare(cache, classFiles);
+
+            log(incrementalAnalysis.getReanalyzedCount() + " of " +
+                    incrementalAnalysis.getClassFileCount() +
+                    " class files are analyzed again.");
+
+            return incrementalAnalysis;
+        } catch (IOException e) {
+            throw new BuildException("cacheDir attribute is invalid.", e);
+        }
+    }
+
+    /**
+     * Get canonical class files.
+     *
+     * If collapseDirectories attribute is true, cacheDir attribute is
+     * not specified and class files are not split by dependencies,
+     * directories whose analyzable files are all included are returned
+     * instead of their files.
+     * When Jlint runs in some threads, only directories that have no
+     * analyzable subdirectory are returned so that packages are kept apart.
+     *
+     * File sets are scanned concurrently. Class files included by some
+     * file sets are returned only once, and neither are class files and
+     * directories under a returned directory.
+     *
+     * This method is package-private so that benchmarks can measure it.
+     *
+     * @return Canonical class files and directories
+     */
+    /* package */ List<File> getClassFiles() {
+        // The caches and splitting by dependencies need each class file.
+        final boolean collapseDirectories = mCollapseDirectories &&
+                mCacheDirectory == null && !mReuseResults &&
+                !(mThreads > 1 && SHARD_MODE_DEPENDENCY.equals(mShardMode));
+        final boolean leafOnly = mThreads > 1;
+        final CanonicalPathCache cache =
+                getTaskCache().getCanonicalPathCache();
+        cache.revalidate();
+        final FileSnapshot snapshot;
+        if (mSnapshotFile != null) {
+            snapshot = FileSnapshot.load(mSnapshotFile);
+        } else {
+            snapshot = null;
+        }
+
+        ArrayList<List<File>> scannedFiles = new ArrayList<List<File>>();
+        if (mClassFileSets.size() <= 1) {
+            for (FileSet fileSet : mClassFileSets) {
+                scannedFiles.add(scanFileSet(fileSet, collapseDirectories,
+                        leafOnly, cache, snapshot));
+            }
+        } else {
+            ExecutorService executorService = Executors.newFixedThreadPool(
+                    Math.min(mClassFileSets.size(),
+                            Runtime.getRuntime().availableProcessors()));
+            try {
+                ArrayList<Future<List<File>>> results =
+                        new ArrayList<Future<List<File>>>();
+                for (final FileSet fileSet : mClassFileSets) {
+                    Callable<List<File>> task = new Callable<List<File>>() {
+                        @Override
+                        public List<File> call() {
+                            return scanFileSet(fileSet, collapseDirectories,
+                                    leafOnly, cache, snapshot);
+                        }
+                    };
+                    results.add(executorService.submit(task));
+                }
+
+                for (Future<List<File>> result : results) {
+                    scannedFiles.add(getScannedFiles(result));
+                }
+            } finally {
+                executorService.shutdownNow();
+            }
+        }
+
+        if (snapshot != null) {
+            saveSnapshot(snapshot);
+        }
+
+        // Overlapping file sets include the same class files, which are
+        // passed to Jlint only once.
+        ArrayList<File> classFiles = new ArrayList<File>();
+        HashSet<File> addedFiles = new HashSet<File>();
+        int duplicatedCount = 0;
+        for (List<File> files : scannedFiles) {
+            for (File file : files) {
+                if (addedFiles.add(file)) {
+                    classFiles.add(file);
+                } else {
+                    duplicatedCount++;
+                }
+            }
+        }
+
+        // A directory collapsed in a file set may include the files and
+        // the directories of another file set. Jlint would analyze them
+        // twice, so they are removed.
+        if (collapseDirectories && scannedFiles.size() > 1) {
+            ArrayList<File> uncoveredFiles =
+                    new ArrayList<File>(classFiles.size());
+            for (File file : classFiles) {
+                if (isUnderAny(file, addedFiles)) {
+                    duplicatedCount++;
+                } else {
+                    uncoveredFiles.add(file);
+                }
+            }
+            classFiles = uncoveredFiles;
+        }
+
+        if (duplicatedCount > 0) {
+            log(duplicatedCount + " class files included by some file sets " +
+                    "are analyzed once.", Project.MSG_VERBOSE);
+        }
+
+        return classFiles;
+    }
+
+    /**
+     * Check whether a file is under any of directories.
+     *
+     * Only the paths are compared, so the file and the directories must
+     * be canonical.
+     *
+     * @param file Canonical file
+     * @param directories Canonical directories, which may include other
+     *  files
+     * @return true if an ancestor of the file is in the directories
+     */
+    private static boolean isUnderAny(File file, Set<File> directories) {
+        for (File parent = file.getParentFile(); parent != null;
+                parent = parent.getParentFile()) {
+            if (directories.contains(parent)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Scan a {@link FileSet} for class files.
+     *
+     * @param fileSet {@link FileSet}
+     * @param collapseDirectories Whether directories whose analyzable files
+     *  are all included are returned instead of their files
+     * @param leafOnly Whether only directories that have no analyzable
+     *  subdirectory are returned
+     * @param cache Cache of canonical directories
+     * @param snapshot Snapshot through which directories are listed, or
+     *  null to list every directory
+     * @return Canonical class files and directories
+     * @throws BuildException If this method cannot get a canonical file
+     */
+    private List<File> scanFileSet(FileSet fileSet,
+            boolean collapseDirectories, boolean leafOnly,
+            CanonicalPathCache cache, FileSnapshot snapshot) {
+        if (collapseDirectories && !leafOnly && includesEverything(fileSet)) {
+            // The directory is passed without scanning.
+            return Collections.singletonList(getCanonicalClassDirectory(
+                    fileSet.getDir(getProject()), cache));
+        }
+
+        TraceRecorder.Span scanSpan = null;
+        if (mTrace != null) {
+            scanSpan = mTrace.begin("scan", "task");
+        }
+
+        long scanStartNanos = System.nanoTime();
+        DirectoryScanner directoryScanner;
+        if (snapshot != null && SnapshotScanner.isApplicable(fileSet)) {
+            directoryScanner = new SnapshotScanner(snapshot);
+            fileSet.setupDirectoryScanner(directoryScanner, getProject());
+            directoryScanner.scan();
+        } else {
+            directoryScanner = fileSet.getDirectoryScanner(getProject());
+        }
+
+        File baseDirectory = directoryScanner.getBasedir();
+        String[] includedFiles = directoryScanner.getIncludedFiles();
+
+        List<File> files;
+        if (collapseDirectories) {
+            files = DirectoryCollapser.collapse(
+                    baseDirectory, includedFiles, leafOnly, snapshot);
+        } else {
+            files = new ArrayList<File>(includedFiles.length);
+            for (String file : includedFiles) {
+                files.add(new File(baseDirectory, file));
+            }
+        }
+        mMetrics.addTimeSince(ExecutionMetrics.PHASE_SCAN, scanStartNanos);
+
+        if (mTrace != null) {
+            scanSpan.setArgument("files", files.size()).end();
+        }
+
+        long canonicalizeStartNanos = System.nanoTime();
+        ArrayList<File> classFiles = new ArrayList<File>(files.size());
+        try {
+            for (File file : files) {
+                // Collapsed directories are resolved as directories.
+                if (collapseDirectories && file.isDirectory()) {
+                    classFiles.add(cache.getCanonicalDirectory(file));
+                } else {
+                    classFiles.add(cache.getCanonicalFile(file));
+                }
+            }
+        } catch (IOException e) {
+            throw new BuildException(e);
+        }
+        mMetrics.addTimeSince(ExecutionMetrics.PHASE_CANONICALIZE,
+                canonicalizeStartNanos);
+
+        return classFiles;
+    }
+
+    /**
+     * Get the class files scanned concurrently.
+     *
+     * @param result Result of scanning
+     * @return Canonical class files and directories
+     * @throws BuildException If scanning failed or this thread is
+     *  interrupted
+     */
+    private static List<File> getScannedFiles(Future<List<File>> result) {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new BuildException(cause);
+        } catch (InterruptedException e) {
+            throw new BuildException(e);
+        }
+    }
+
+    /**
+     * Whether the {@link FileSet} includes all files in its directory
+     * that Jlint analyzes.
+     *
+     * This method checks only patterns of the {@link FileSet}. So the
+     * directory is not scanned.
+     *
+     * @param fileSet {@link FileSet}
+     * @return true if the {@link FileSet} includes all files that Jlint
+     *  analyzes
+     */
+    private boolean includesEverything(FileSet fileSet) {
+        if (fileSet.hasSelectors() || !fileSet.isFollowSymlinks()) {
+            return false;
+        }
+
+        File directory = fileSet.getDir(getProject());
+        if (directory == null || !directory.isDirectory()) {
+            return false;
+        }
 
-        // If outputFile is specified, output result to the file.
+        String[] excludes = fileSet.mergeExcludes(getProject());
+        if (excludes != null && excludes.length > 0) {
+            return false;
+        }
 
-        PrintWriter writer = new PrintWriter(
-                new OutputStreamWriter(
-                        new FileOutputStream(mOutputFile),
-                        Charset.defaultCharset()));
+        String[] includes = fileSet.mergeIncludes(getProject());
+        if (includes == null || includes.length == 0) {
+            return true;
+        }
+
+        for (String include : includes) {
+            if (EVERYTHING_PATTERNS.contains(
+                    include.replace('\\', '/'))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Get options passed to Jlint.
+     *
+     * If nested report elements enable message categories that are
+     * disabled by the options, the options are widened so that a single
+     * run of Jlint outputs the messages of all reports.
+     *
+     * @param options Message filtering options of the result
+     * @return Options passed to Jlint
+     */
+    private Set<String> getJlintOptions(Set<String> options) {
+        if (mReports.isEmpty()) {
+            return options;
+        }
+
+        EnumSet<Finding.Category> categories =
+                EnumSet.noneOf(Finding.Category.class);
+        for (Report report : mReports) {
+            categories.addAll(getCategories(report.getMessageFilter()));
+        }
+
+        return CategoryFilter.widen(options, categories);
+    }
+
+    /**
+     * Get the categories enabled by message filtering options.
+     *
+     * @param messageFilter Message filtering options, or null
+     * @return Enabled categories
+     */
+    private static EnumSet<Finding.Category> getCategories(
+            String messageFilter) {
+        if (messageFilter == null) {
+            return EnumSet.allOf(Finding.Category.class);
+        }
+
+        return CategoryFilter.getCategories(
+                OptionParser.parse(messageFilter));
+    }
+
+    /**
+     * Create the destination of findings output from Jlint.
+     *
+     * @param resultCategories Categories of findings in the result, or null
+     *  for all categories
+     * @param resultWriters List to which the created writers are added
+     * @param reportWriters List to which the started writers of reports are
+     *  added
+     * @param otherOutputs List to which the destination of lines that are
+     *  not findings is added if they are kept
+     * @return Destination of findings output from Jlint
+     * @throws IOException If I/O error occurs
+     */
+    private FindingConsumer createOutput(
+            Set<Finding.Category> resultCategories,
+            List<BufferedWriter> resultWriters,
+            List<ReportWriter> reportWriters,
+            List<LineConsumer> otherOutputs) throws IOException {
+        LineConsumer output;
+        ReportWriter resultReportWriter = null;
+        if (mOutputFile == null) {
+            output = new LogLineConsumer();
+        } else {
+            BufferedWriter resultWriter =
+                    createResultWriter(mOutputFile, mFormat);
+            resultWriters.add(resultWriter);
+            output = new WriterLineConsumer(resultWriter);
+            if (!ReportWriter.FORMAT_TEXT.equals(mFormat)) {
+                resultReportWriter =
+                        ReportWriter.create(mFormat, resultWriter);
+            }
+        }
+
+        if (mReports.isEmpty()) {
+            if (resultReportWriter == null) {
+                // The output of Jlint is kept as it is, so the summary of
+                // Jlint is passed instead of being written on finish.
+                otherOutputs.add(output);
+                return new TextReportWriter(output);
+            }
+
+            resultReportWriter.start();
+            reportWriters.add(resultReportWriter);
+            return resultReportWriter;
+        }
+
+        if (resultReportWriter == null) {
+            resultReportWriter = new TextReportWriter(output);
+        }
+
+        List<String> noFilter = Collections.emptyList();
+        ReportDispatcher dispatcher = new ReportDispatcher();
+        dispatcher.addReport(resultCategories, noFilter, noFilter,
+                resultReportWriter);
+        reportWriters.add(resultReportWriter);
+
+        for (Report report : mReports) {
+            BufferedWriter reportWriter = createResultWriter(
+                    report.getOutputFile(), report.getFormat());
+            resultWriters.add(reportWriter);
+
+            ReportWriter writer =
+                    ReportWriter.create(report.getFormat(), reportWriter);
+            Set<Finding.Category> categories = null;
+            if (report.getMessageFilter() != null) {
+                categories = CategoryFilter.getKeptCategories(
+                        OptionParser.parse(report.getMessageFilter()));
+            }
+            dispatcher.addReport(categories, report.getPaths(),
+                    report.getMessages(), writer);
+            reportWriters.add(writer);
+        }
+
+        for (ReportWriter writer : reportWriters) {
+            writer.start();
+        }
+
+        return dispatcher;
+    }
+
+    /**
+     * Execute Jlint, or reuse the result of the same analysis in the build.
+     *
+     * @param executor Executor of Jlint
+     * @param output Destination of output from Jlint
+     * @param jlintExecutable Canonical Jlint executable file
+     * @param options Options of Jlint
+     * @param sourceDirectory Canonical source directory, or null
+     * @param classFiles Canonical class files
+     * @return Exit code of Jlint
+     * @throws IOException If I/O error occurs
+     * @throws InterruptedException If this thread is interrupted
+     */
+    private int executeOrReuse(JlintExecutor executor, LineConsumer output,
+            File jlintExecutable, Set<String> options, File sourceDirectory,
+            List<File> classFiles) throws IOException, InterruptedException {
+        String key = TaskCache.computeResultKey(jlintExecutable, options,
+                sourceDirectory, classFiles, mThreads + " " + mShardMode +
+                        " " + mMaxCommandLength);
+        if (key == null) {
+            return executor.execute(output, new LogLineConsumer());
+        }
+
+        List<String> result = mTaskCache.getResult(key);
+        if (result != null) {
+            log("Reusing the result of the same analysis.");
+            for (String line : result) {
+                output.consumeLine(line);
+            }
+
+            return 0;
+        }
+
+        TaskCache.ResultRecorder recorder =
+                new TaskCache.ResultRecorder(output);
+        int exitCode = executor.execute(recorder, new LogLineConsumer());
+        if (exitCode == 0 && recorder.getLines() != null) {
+            mTaskCache.putResult(key, recorder.getLines(),
+                    recorder.getCharacters());
+        }
+
+        return exitCode;
+    }
+
+    /**
+     * Check whether the output of Jlint is written to outputFile as it is.
+     *
+     * This is the case when outputFile is text and nothing parses or
+     * filters the output.
+     *
+     * @param resultCategories Categories of findings in the result, or null
+     *  for all categories
+     * @param findingLimit Limit of findings, or null
+     * @param incrementalAnalysis Incremental analysis, or null
+     * @return true if the output is written as it is
+     */
+    private boolean isPassThrough(Set<Finding.Category> resultCategories,
+            FindingLimit findingLimit,
+            IncrementalAnalysis incrementalAnalysis) {
+        return mOutputFile != null &&
+                ReportWriter.FORMAT_TEXT.equals(mFormat) &&
+                mReports.isEmpty() &&
+                resultCategories == null &&
+                findingLimit == null &&
+                incrementalAnalysis == null &&
+                mBaselineFile == null &&
+                mMetricsPrefix == null &&
+                mMetricsFile == null &&
+                !mReuseResults;
+    }
+
+    /**
+     * Execute Jlint and write its output to outputFile as it is.
+     *
+     * @param executor Executor of Jlint
+     * @return Exit code
+     * @throws IOException If I/O error occurs
+     * @throws InterruptedException If this thread is interrupted
+     */
+    private int executePassThrough(JlintExecutor executor) throws
+            IOException, InterruptedException {
+        FileOutputStream output = new FileOutputStream(mOutputFile);
+        try {
+            return executor.execute(output.getChannel(),
+                    new LogLineConsumer());
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Get canonical file of a directory of class files.
+     *
+     * The duration is added to the metrics.
+     *
+     * @param classDirectory Directory of class files
+     * @param cache Cache of canonical directories
+     * @return Canonical directory
+     * @throws BuildException If this method cannot get the directory
+     */
+    private File getCanonicalClassDirectory(File classDirectory,
+            CanonicalPathCache cache) {
+        long startNanos = System.nanoTime();
+        File canonicalFile;
+        try {
+            canonicalFile = cache.getCanonicalDirectory(classDirectory);
+        } catch (IOException e) {
+            throw new BuildException(e);
+        }
+        mMetrics.addTimeSince(ExecutionMetrics.PHASE_CANONICALIZE,
+                startNanos);
+
+        return canonicalFile;
+    }
+
+    /**
+     * Check whether the metrics are published.
+     *
+     * @return true if metricsPrefix or metricsFile is set
+     */
+    private boolean isMetricsRequested() {
+        return mMetricsPrefix != null || mMetricsFile != null;
+    }
+
+    /**
+     * Publish the metrics as properties and into metricsFile.
+     *
+     * Durations are published in milliseconds as
+     * "prefix" + "time." + phase, and counts as "prefix" + name.
+     *
+     * @throws BuildException If I/O error occurs
+     */
+    private void publishMetrics() {
+        if (mMetricsPrefix != null) {
+            for (Map.Entry<String, Long> phase :
+                    mMetrics.getPhaseNanos().entrySet()) {
+                getProject().setNewProperty(
+                        mMetricsPrefix + "time." + phase.getKey(),
+                        Long.toString(TimeUnit.NANOSECONDS.toMillis(
+                                phase.getValue())));
+            }
+            for (Map.Entry<String, Long> count :
+                    mMetrics.getCounts().entrySet()) {
+                getProject().setNewProperty(mMetricsPrefix + count.getKey(),
+                        Long.toString(count.getValue()));
+            }
+        }
+
+        if (mMetricsFile != null) {
+            BufferedWriter writer = null;
+            try {
+                writer = createResultWriter(mMetricsFile,
+                        ReportWriter.FORMAT_JSON);
+                mMetrics.write(writer);
+            } catch (IOException e) {
+                throw new BuildException("metricsFile attribute is invalid.",
+                        e);
+            } finally {
+                if (writer != null) {
+                    closeResultWriter(writer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the recorded spans into traceFile.
+     *
+     * If the task failed, an I/O error is logged instead of being thrown,
+     * so that it does not hide the failure of the task.
+     *
+     * @param succeeded true if the task succeeded
+     * @throws BuildException If I/O error occurs and the task succeeded
+     */
+    private void writeTrace(boolean succeeded) {
+        BufferedWriter writer = null;
         try {
-            writer.append(result);
+            writer = createResultWriter(mTraceFile, ReportWriter.FORMAT_JSON);
+            mTrace.write(writer);
+        } catch (IOException e) {
+            if (succeeded) {
+                throw new BuildException("traceFile attribute is invalid.",
+                        e);
+            }
+            log("Writing traceFile failed: " + e.getMessage(),
+                    Project.MSG_WARN);
         } finally {
-            writer.close();
+            if (writer != null) {
+                closeResultWriter(writer);
+            }
+        }
+    }
+
+    /**
+     * Create the limit of findings.
+     *
+     * @param resultCategories Categories of findings in the result, or null
+     *  for all categories
+     * @return Limit of findings, or null if no limit is specified
+     */
+    private FindingLimit createFindingLimit(
+            Set<Finding.Category> resultCategories) {
+        if (mMaxFindings < 0 && mFailFastCategories == null) {
+            return null;
+        }
+
+        EnumSet<Finding.Category> categories =
+                EnumSet.allOf(Finding.Category.class);
+        if (resultCategories != null) {
+            categories.retainAll(resultCategories);
+        }
+        if (mFailFastCategories != null) {
+            categories.retainAll(getFailFastCategories());
+        }
+
+        // Any finding of failFastCategories fails the build by default.
+        return new FindingLimit(Math.max(mMaxFindings, 0), categories);
+    }
+
+    /**
+     * Get categories of findings counted for maxFindings.
+     *
+     * @return Categories
+     * @throws BuildException If a category is invalid
+     */
+    private EnumSet<Finding.Category> getFailFastCategories() {
+        EnumSet<Finding.Category> categories =
+                EnumSet.noneOf(Finding.Category.class);
+        for (String name : mFailFastCategories.split("[,\\s]+")) {
+            if (name.isEmpty()) {
+                continue;
+            }
+
+            Finding.Category category = Finding.Category.forOptionName(name);
+            if (category == null || name.startsWith("+") ||
+                    name.startsWith("-")) {
+                throw new BuildException(name + " in failFastCategories " +
+                        "attribute is not a category.");
+            }
+            categories.add(category);
+        }
+
+        return categories;
+    }
+
+    /**
+     * Get the scheduler shared by jlint tasks of the project.
+     *
+     * The scheduler is created by the first task that uses it.
+     *
+     * @param budget Memory budget in bytes
+     * @return Scheduler
+     */
+    private MemoryScheduler getScheduler(long budget) {
+        int cores = mCores;
+        if (cores == 0) {
+            cores = Runtime.getRuntime().availableProcessors();
+        }
+
+        Project project = getProject();
+        synchronized (project) {
+            Object reference =
+                    project.getReference(MemoryScheduler.REFERENCE_ID);
+            if (reference instanceof MemoryScheduler) {
+                MemoryScheduler scheduler = (MemoryScheduler) reference;
+                if (scheduler.getBudget() != budget ||
+                        scheduler.getMaxProcesses() != cores) {
+                    log("memoryBudget and cores attributes are ignored " +
+                            "because another jlint task shares " +
+                            scheduler.getBudget() + " bytes among " +
+                            scheduler.getMaxProcesses() + " processes.",
+                            Project.MSG_WARN);
+                }
+
+                return scheduler;
+            }
+
+            MemoryScheduler scheduler = new MemoryScheduler(budget, cores);
+            project.addReference(MemoryScheduler.REFERENCE_ID, scheduler);
+
+            return scheduler;
+        }
+    }
+
+    /**
+     * Parse a size of memory.
+     *
+     * @param size Size in bytes, followed by "k", "m" or "g" optionally
+     * @return Size in bytes
+     * @throws BuildException If the size is invalid
+     */
+    private static long parseMemorySize(String size) {
+        String number = size.trim();
+        long unit = 1;
+        if (!number.isEmpty()) {
+            switch (Character.toLowerCase(
+                    number.charAt(number.length() - 1))) {
+                case 'k':
+                    unit = KILOBYTE;
+                    break;
+                case 'm':
+                    unit = KILOBYTE * KILOBYTE;
+                    break;
+                case 'g':
+                    unit = KILOBYTE * KILOBYTE * KILOBYTE;
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (unit > 1) {
+            number = number.substring(0, number.length() - 1);
+        }
+
+        try {
+            return Long.parseLong(number) * unit;
+        } catch (NumberFormatException e) {
+            throw new BuildException(size + " is not a size of memory.", e);
+        }
+    }
+
+    /**
+     * Delete the result and the reports of failed execution.
+     */
+    private void deleteResults() {
+        if (mOutputFile != null) {
+            mOutputFile.delete();
+        }
+        for (Report report : mReports) {
+            report.getOutputFile().delete();
+        }
+    }
+
+    /**
+     * Check the findings against the baseline and update the baseline.
+     *
+     * @param baselineChecker Checker of the findings
+     * @throws BuildException If a new finding is found and failOnNew is
+     *  true, or I/O error occurs
+     */
+    private void checkBaseline(BaselineChecker baselineChecker) {
+        long newFindingCount = baselineChecker.getNewFindingCount();
+        log(newFindingCount + " findings are not in the baseline.");
+
+        if (mFailOnNew && newFindingCount > 0) {
+            throw new BuildException(newFindingCount +
+                    " new findings are found.");
+        }
+
+        if (mUpdateBaseline) {
+            try {
+                BaselineChecker.save(mBaselineFile,
+                        baselineChecker.getFingerprints());
+            } catch (IOException e) {
+                throw new BuildException("baseline attribute is invalid.", e);
+            }
+        }
+    }
+
+    /**
+     * Get the cache shared by jlint tasks in the project.
+     *
+     * @return Cache shared by jlint tasks
+     */
+    private TaskCache getTaskCache() {
+        Project project = getProject();
+        synchronized (project) {
+            Object reference = project.getReference(TaskCache.REFERENCE_ID);
+            if (reference instanceof TaskCache) {
+                return (TaskCache) reference;
+            }
+
+            TaskCache cache = new TaskCache();
+            project.addReference(TaskCache.REFERENCE_ID, cache);
+
+            project.addBuildListener(new ResultsReleaser(cache));
+
+            return cache;
+        }
+    }
+
+    /**
+     * Delete the temporary file of incremental analysis.
+     *
+     * @param incrementalAnalysis Incremental analysis
+     * @throws BuildException If I/O error occurs
+     */
+    private void closeIncrementalAnalysis(
+            IncrementalAnalysis incrementalAnalysis) {
+        try {
+            incrementalAnalysis.close();
+        } catch (IOException e) {
+            throw new BuildException("I/O error occurred.", e);
+        }
+    }
+
+    /**
+     * Save analysis durations into statsFile.
+     *
+     * @param statistics Statistics of analysis durations
+     * @throws BuildException If I/O error occurs
+     */
+    private void saveStatistics(ShardStatistics statistics) {
+        for (ShardStatistics.Shard shard : statistics.getShards()) {
+            log("Analyzed " + shard.getClassCount() + " class files in " +
+                    TimeUnit.NANOSECONDS.toMillis(shard.getNanos()) + " ms.",
+                    Project.MSG_VERBOSE);
+        }
+
+        try {
+            statistics.save(mStatisticsFile);
+        } catch (IOException e) {
+            throw new BuildException("statsFile attribute is invalid.", e);
+        }
+    }
+
+    /**
+     * Save listings of directories into snapshotFile.
+     *
+     * @param snapshot Snapshot of directories
+     * @throws BuildException If I/O error occurs
+     */
+    private void saveSnapshot(FileSnapshot snapshot) {
+        log("Listed " + snapshot.getListedCount() + " directories and " +
+                "reused " + snapshot.getReusedCount() + " listings.",
+                Project.MSG_VERBOSE);
+        mMetrics.addCount(ExecutionMetrics.COUNT_LISTED_DIRECTORIES,
+                snapshot.getListedCount());
+        mMetrics.addCount(ExecutionMetrics.COUNT_REUSED_DIRECTORIES,
+                snapshot.getReusedCount());
+
+        try {
+            snapshot.save(mSnapshotFile);
+        } catch (IOException e) {
+            throw new BuildException("snapshotFile attribute is invalid.", e);
+        }
+    }
+
+    /**
+     * Create {@link BufferedWriter} for a result file.
+     *
+     * Text is encoded in the default encoding as Jlint outputs it, and
+     * the other formats are encoded in UTF-8.
+     *
+     * @param outputFile Result file
+     * @param format Format of result
+     * @return {@link BufferedWriter} for the result file
+     * @throws FileNotFoundException If the result file is not created or
+     *  cannot be written
+     */
+    private static BufferedWriter createResultWriter(File outputFile,
+            String format) throws FileNotFoundException {
+        Charset charset;
+        if (ReportWriter.FORMAT_TEXT.equals(format)) {
+            charset = Charset.defaultCharset();
+        } else {
+            charset = Charset.forName("UTF-8");
+        }
+
+        return new BufferedWriter(
+                new OutputStreamWriter(
+                        new FileOutputStream(outputFile), charset));
+    }
+
+    /**
+     * Close {@link BufferedWriter} for outputFile.
+     *
+     * @param resultWriter {@link BufferedWriter} for outputFile
+     * @throws BuildException If I/O error occurs
+     */
+    private void closeResultWriter(BufferedWriter resultWriter) {
+        try {
+            resultWriter.close();
+        } catch (IOException e) {
+            throw new BuildException("I/O error occurred.", e);
+        }
+    }
+
+    /**
+     * Implementation of {@link BuildListener} that discards the results
+     * kept in {@link TaskCache} when the build finishes, because no task
+     * can reuse them after that.
+     */
+    private static final class ResultsReleaser implements BuildListener {
+        /**
+         * Cache that keeps the results.
+         */
+        private final TaskCache mTaskCache;
+
+        /**
+         * Constructor.
+         *
+         * @param taskCache Cache that keeps the results
+         */
+        /* package */ ResultsReleaser(TaskCache taskCache) {
+            mTaskCache = taskCache;
+        }
+
+        @Override
+        public void buildStarted(BuildEvent event) {
+            // no operation.
         }
 
-        log("Result is " + mOutputFile.getAbsolutePath());
+        @Override
+        public void buildFinished(BuildEvent event) {
+            mTaskCache.clearResults();
+        }
+
+        @Override
+        public void targetStarted(BuildEvent event) {
+            // no operation.
+        }
+
+        @Override
+        public void targetFinished(BuildEvent event) {
+            // no operation.
+        }
+
+        @Override
+        public void taskStarted(BuildEvent event) {
+            // no operation.
+        }
+
+        @Override
+        public void taskFinished(BuildEvent event) {
+            // no operation.
+        }
+
+        @Override
+        public void messageLogged(BuildEvent event) {
+            // no operation.
+        }
+    }
+
+    /**
+     * Implementation of {@link LineConsumer} that outputs lines to log.
+     */
+    private final class LogLineConsumer implements LineConsumer {
+        @Override
+        public void consumeLine(String line) {
+            log(line);
+        }
     }
 }
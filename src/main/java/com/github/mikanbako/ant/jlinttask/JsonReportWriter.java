@@ -0,0 +1,79 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Implementation of {@link ReportWriter} that writes JSON.
+ *
+ * <p>The report is formatted as below. Each finding is written in a
+ * line.</p>
+ *
+ * <pre>
+ * {"findings":[
+ * {"path":"Foo.java","line":12,"category":"data_flow","message":"..."}
+ * ],"count":1}
+ * </pre>
+ */
+/* package */ final class JsonReportWriter extends ReportWriter {
+    /**
+     * Writer of JSON.
+     */
+    private final JsonWriter mJsonWriter;
+
+    /**
+     * Number of findings.
+     */
+    private long mCount;
+
+    /**
+     * Constructor.
+     *
+     * @param writer Destination of report
+     */
+    public JsonReportWriter(Writer writer) {
+        mJsonWriter = new JsonWriter(writer);
+    }
+
+    @Override
+    public void start() throws IOException {
+        mJsonWriter.beginObject().name("findings").beginArray();
+    }
+
+    @Override
+    public void consumeFinding(Finding finding) throws IOException {
+        mJsonWriter.breakLine().beginObject()
+                .name("path").value(finding.getPath())
+                .name("line").value(finding.getLineNumber())
+                .name("category").value(
+                        finding.getCategory().getOptionName())
+                .name("message").value(finding.getMessage())
+                .endObject();
+
+        mCount++;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        mJsonWriter.breakLine().endArray()
+                .name("count").value(mCount).endObject()
+                .breakLine().flush();
+    }
+}
@@ -0,0 +1,330 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Write JSON to a {@link Writer} as it is generated.
+ *
+ * <p>This object only separates values by commas and escapes strings.
+ * The caller is responsible for the structure of the document.</p>
+ */
+/* package */ final class JsonWriter {
+    /**
+     * Initial depth of nesting that can be tracked.
+     */
+    private static final int INITIAL_DEPTH = 8;
+
+    /**
+     * Mask of characters that must be escaped by "\\u".
+     */
+    private static final int CONTROL_CHARACTER_MASK = 0xffe0;
+
+    /**
+     * Hexadecimal digits.
+     */
+    private static final String HEX_DIGITS = "0123456789abcdef";
+
+    /**
+     * Number of bits of a hexadecimal digit.
+     */
+    private static final int HEX_DIGIT_BITS = 4;
+
+    /**
+     * Mask of a hexadecimal digit.
+     */
+    private static final int HEX_DIGIT_MASK = 0xf;
+
+    /**
+     * Destination.
+     */
+    private final Writer mWriter;
+
+    /**
+     * Whether the object or array at each depth has a value.
+     */
+    private boolean[] mHasValue = new boolean[INITIAL_DEPTH];
+
+    /**
+     * Depth of nesting.
+     */
+    private int mDepth;
+
+    /**
+     * Whether a name is written and its value is not written yet.
+     */
+    private boolean mAfterName;
+
+    /**
+     * Whether a line separator is written before the next value.
+     */
+    private boolean mLineBreakPending;
+
+    /**
+     * Constructor.
+     *
+     * @param writer Destination
+     */
+    public JsonWriter(Writer writer) {
+        mWriter = writer;
+    }
+
+    /**
+     * Begin an object.
+     *
+     * @return This object
+     * @throws IOException If I/O error occurs
+     */
+    public JsonWriter beginObject() throws IOException {
+        return begin('{');
+    }
+
+    /**
+     * End an object.
+     *
+     * @return This object
+     * @throws IOException If I/O error occurs
+     */
+    public JsonWriter endObject() throws IOException {
+        return end('}');
+    }
+
+    /**
+     * Begin an array.
+     *
+     * @return This object
+     * @throws IOException If I/O error occurs
+     */
+    public JsonWriter beginArray() throws IOException {
+        return begin('[');
+    }
+
+    /**
+     * End an array.
+     *
+     * @return This object
+     * @throws IOException If I/O error occurs
+     */
+    public JsonWriter endArray() throws IOException {
+        return end(']');
+    }
+
+    /**
+     * Write a name of member of an object.
+     *
+     * @param name Name
+     * @return This object
+     * @throws IOException If I/O error occurs
+     */
+    public JsonWriter name(String name) throws IOException {
+        separate();
+        writeString(name);
+        mWriter.write(':');
+        mAfterName = true;
+
+        return this;
+    }
+
+    /**
+     * Write a string value.
+     *
+     * @param value Value, or null
+     * @return This object
+     * @throws IOException If I/O error occurs
+     */
+    public JsonWriter value(String value) throws IOException {
+        separate();
+        if (value == null) {
+            mWriter.write("null");
+        } else {
+            writeString(value);
+        }
+
+        return this;
+    }
+
+    /**
+     * Write a number value.
+     *
+     * @param value Value
+     * @return This object
+     * @throws IOException If I/O error occurs
+     */
+    public JsonWriter value(long value) throws IOException {
+        separate();
+        mWriter.write(Long.toString(value));
+
+        return this;
+    }
+
+    /**
+     * Write a boolean value.
+     *
+     * @param value Value
+     * @return This object
+     * @throws IOException If I/O error occurs
+     */
+    public JsonWriter value(boolean value) throws IOException {
+        separate();
+        mWriter.write(Boolean.toString(value));
+
+        return this;
+    }
+
+    /**
+     * Write a line separator before the next value or the end of the
+     * current object or array.
+     *
+     * @return This object
+     */
+    public JsonWriter breakLine() {
+        mLineBreakPending = true;
+
+        return this;
+    }
+
+    /**
+     * Flush the destination.
+     *
+     * A requested line separator is written before flushing.
+     *
+     * @throws IOException If I/O error occurs
+     */
+    public void flush() throws IOException {
+        writePendingLineBreak();
+        mWriter.flush();
+    }
+
+    /**
+     * Begin an object or an array.
+     *
+     * @param bracket Opening bracket
+     * @return This object
+     * @throws IOException If I/O error occurs
+     */
+    private JsonWriter begin(char bracket) throws IOException {
+        separate();
+        mWriter.write(bracket);
+
+        mDepth++;
+        if (mDepth == mHasValue.length) {
+            boolean[] hasValue = new boolean[mHasValue.length * 2];
+            System.arraycopy(mHasValue, 0, hasValue, 0, mHasValue.length);
+            mHasValue = hasValue;
+        }
+        mHasValue[mDepth] = false;
+
+        return this;
+    }
+
+    /**
+     * End an object or an array.
+     *
+     * @param bracket Closing bracket
+     * @return This object
+     * @throws IOException If I/O error occurs
+     */
+    private JsonWriter end(char bracket) throws IOException {
+        writePendingLineBreak();
+        mWriter.write(bracket);
+        mDepth--;
+
+        return this;
+    }
+
+    /**
+     * Write a comma if a value precedes in the current object or array.
+     *
+     * @throws IOException If I/O error occurs
+     */
+    private void separate() throws IOException {
+        if (mAfterName) {
+            // The value of a member follows its name.
+            mAfterName = false;
+            return;
+        }
+
+        if (mHasValue[mDepth]) {
+            mWriter.write(',');
+        }
+        mHasValue[mDepth] = true;
+
+        writePendingLineBreak();
+    }
+
+    /**
+     * Write a line separator if it is requested by {@link #breakLine()}.
+     *
+     * @throws IOException If I/O error occurs
+     */
+    private void writePendingLineBreak() throws IOException {
+        if (mLineBreakPending) {
+            mWriter.write('\n');
+            mLineBreakPending = false;
+        }
+    }
+
+    /**
+     * Write an escaped string.
+     *
+     * @param value String
+     * @throws IOException If I/O error occurs
+     */
+    private void writeString(String value) throws IOException {
+        mWriter.write('"');
+
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String escape;
+            if (c == '"') {
+                escape = "\\\"";
+            } else if (c == '\\') {
+                escape = "\\\\";
+            } else if (c == '\n') {
+                escape = "\\n";
+            } else if (c == '\r') {
+                escape = "\\r";
+            } else if (c == '\t') {
+                escape = "\\t";
+            } else if ((c & CONTROL_CHARACTER_MASK) == 0) {
+                escape = null;
+            } else {
+                continue;
+            }
+
+            // Write the characters that are not escaped at once.
+            mWriter.write(value, start, i - start);
+            start = i + 1;
+
+            if (escape != null) {
+                mWriter.write(escape);
+            } else {
+                mWriter.write("\\u00");
+                mWriter.write(HEX_DIGITS.charAt(c >> HEX_DIGIT_BITS));
+                mWriter.write(HEX_DIGITS.charAt(c & HEX_DIGIT_MASK));
+            }
+        }
+        mWriter.write(value, start, length - start);
+
+        mWriter.write('"');
+    }
+}
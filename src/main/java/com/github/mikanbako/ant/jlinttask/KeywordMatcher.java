@@ -0,0 +1,191 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Find keywords in text by the Aho-Corasick algorithm.
+ *
+ * <p>All keywords are found by scanning the text once, however many
+ * keywords there are. The automaton is compiled into arrays, so matching
+ * does not create objects.</p>
+ */
+/* package */ final class KeywordMatcher {
+    /**
+     * Labels of the transitions from each state, sorted.
+     */
+    private final char[][] mLabels;
+
+    /**
+     * Destinations of the transitions from each state.
+     */
+    private final int[][] mTargets;
+
+    /**
+     * State to fall back to when no transition matches.
+     */
+    private final int[] mFailures;
+
+    /**
+     * Indexes of keywords that end at each state, including the keywords
+     * of the fallback states.
+     */
+    private final int[][] mOutputs;
+
+    /**
+     * Constructor.
+     *
+     * @param keywords Keywords. An empty keyword is ignored.
+     */
+    public KeywordMatcher(List<String> keywords) {
+        // Build a trie.
+
+        ArrayList<TreeMap<Character, Integer>> trie =
+                new ArrayList<TreeMap<Character, Integer>>();
+        ArrayList<ArrayList<Integer>> outputs =
+                new ArrayList<ArrayList<Integer>>();
+        trie.add(new TreeMap<Character, Integer>());
+        outputs.add(new ArrayList<Integer>());
+
+        for (int i = 0; i < keywords.size(); i++) {
+            String keyword = keywords.get(i);
+            if (keyword.isEmpty()) {
+                continue;
+            }
+
+            int state = 0;
+            for (int j = 0; j < keyword.length(); j++) {
+                Integer next = trie.get(state).get(keyword.charAt(j));
+                if (next == null) {
+                    next = trie.size();
+                    trie.get(state).put(keyword.charAt(j), next);
+                    trie.add(new TreeMap<Character, Integer>());
+                    outputs.add(new ArrayList<Integer>());
+                }
+                state = next;
+            }
+            outputs.get(state).add(i);
+        }
+
+        int stateCount = trie.size();
+        mLabels = new char[stateCount][];
+        mTargets = new int[stateCount][];
+        for (int state = 0; state < stateCount; state++) {
+            TreeMap<Character, Integer> transitions = trie.get(state);
+            mLabels[state] = new char[transitions.size()];
+            mTargets[state] = new int[transitions.size()];
+
+            int index = 0;
+            for (Character label : transitions.keySet()) {
+                mLabels[state][index] = label;
+                mTargets[state][index] = transitions.get(label);
+                index++;
+            }
+        }
+
+        // Compute the fallback states in breadth-first order, so the
+        // fallback state of the parent is computed first.
+
+        mFailures = new int[stateCount];
+        int[] queue = new int[stateCount];
+        int head = 0;
+        int tail = 0;
+        for (int target : mTargets[0]) {
+            queue[tail++] = target;
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            for (int i = 0; i < mLabels[state].length; i++) {
+                int target = mTargets[state][i];
+                queue[tail++] = target;
+
+                int failure = mFailures[state];
+                int next = transit(failure, mLabels[state][i]);
+                while (next < 0 && failure != 0) {
+                    failure = mFailures[failure];
+                    next = transit(failure, mLabels[state][i]);
+                }
+                if (next < 0 || next == target) {
+                    next = 0;
+                }
+                mFailures[target] = next;
+
+                outputs.get(target).addAll(outputs.get(next));
+            }
+        }
+
+        mOutputs = new int[stateCount][];
+        for (int state = 0; state < stateCount; state++) {
+            ArrayList<Integer> stateOutputs = outputs.get(state);
+            mOutputs[state] = new int[stateOutputs.size()];
+            for (int i = 0; i < mOutputs[state].length; i++) {
+                mOutputs[state][i] = stateOutputs.get(i);
+            }
+        }
+    }
+
+    /**
+     * Find keywords in text.
+     *
+     * @param text Text
+     * @param start Index in the text from which keywords are found
+     * @param matched Set to which the indexes of found keywords are added
+     */
+    public void match(String text, int start, BitSet matched) {
+        int state = 0;
+        int length = text.length();
+        for (int i = start; i < length; i++) {
+            char c = text.charAt(i);
+
+            int next = transit(state, c);
+            while (next < 0 && state != 0) {
+                state = mFailures[state];
+                next = transit(state, c);
+            }
+            if (next < 0) {
+                next = 0;
+            }
+            state = next;
+
+            for (int keywordIndex : mOutputs[state]) {
+                matched.set(keywordIndex);
+            }
+        }
+    }
+
+    /**
+     * Get the destination of a transition.
+     *
+     * @param state Source state
+     * @param label Label of the transition
+     * @return Destination state, or -1 if there is no transition
+     */
+    private int transit(int state, char label) {
+        int index = Arrays.binarySearch(mLabels[state], label);
+        if (index < 0) {
+            return -1;
+        }
+
+        return mTargets[state][index];
+    }
+}
@@ -0,0 +1,205 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+
+/**
+ * Implementation of {@link LineConsumer} that keeps lines until they are
+ * replayed.
+ *
+ * <p>Lines are kept on the heap up to a limit. The lines after the limit
+ * are written to a temporary file, so that a large output does not
+ * exhaust the heap. The temporary file is deleted by
+ * {@link #close()}.</p>
+ *
+ * <p>A buffer may be closed by another thread than the one that fills
+ * it, so that a failed execution does not leave the temporary file.</p>
+ */
+/* package */ final class LineBuffer implements LineConsumer, Closeable {
+    /**
+     * Default size of lines kept on the heap in bytes.
+     */
+    public static final long DEFAULT_MAX_HEAP_BYTES = 1024 * 1024;
+
+    /**
+     * Estimated size of a character on the heap in bytes.
+     */
+    private static final int BYTES_PER_CHAR = 2;
+
+    /**
+     * Estimated size of a line on the heap in bytes except its characters.
+     */
+    private static final int LINE_OVERHEAD_BYTES = 48;
+
+    /**
+     * Charset of the temporary file.
+     */
+    private static final String SPILL_CHARSET = "UTF-8";
+
+    /**
+     * Lines kept on the heap.
+     */
+    private final ArrayList<String> mLines = new ArrayList<String>();
+
+    /**
+     * Maximum size of lines kept on the heap in bytes.
+     */
+    private final long mMaxHeapBytes;
+
+    /**
+     * Estimated size of lines kept on the heap in bytes.
+     */
+    private long mHeapBytes;
+
+    /**
+     * Temporary file to which the remaining lines are written, or null.
+     */
+    private File mSpillFile;
+
+    /**
+     * Writer of the temporary file, or null.
+     */
+    private BufferedWriter mSpillWriter;
+
+    /**
+     * Whether this buffer is closed.
+     */
+    private boolean mClosed;
+
+    /**
+     * Constructor with {@link #DEFAULT_MAX_HEAP_BYTES}.
+     */
+    public LineBuffer() {
+        this(DEFAULT_MAX_HEAP_BYTES);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maxHeapBytes Maximum size of lines kept on the heap in bytes
+     */
+    public LineBuffer(long maxHeapBytes) {
+        mMaxHeapBytes = maxHeapBytes;
+    }
+
+    @Override
+    public synchronized void consumeLine(String line) throws IOException {
+        if (mClosed) {
+            throw new IOException("Buffer is closed.");
+        }
+
+        long lineBytes =
+                (long) line.length() * BYTES_PER_CHAR + LINE_OVERHEAD_BYTES;
+        if (mSpillFile == null && mHeapBytes + lineBytes <= mMaxHeapBytes) {
+            mLines.add(line);
+            mHeapBytes += lineBytes;
+            return;
+        }
+
+        if (mSpillWriter == null) {
+            // The file is kept in mSpillFile before it is opened, so that
+            // close() deletes it even if it could not be opened.
+            if (mSpillFile == null) {
+                mSpillFile = File.createTempFile("jlint", ".lines");
+            }
+            RandomAccessFile file = new RandomAccessFile(mSpillFile, "rw");
+            boolean opened = false;
+            try {
+                mSpillWriter = new BufferedWriter(Channels.newWriter(
+                        file.getChannel(), SPILL_CHARSET));
+                opened = true;
+            } finally {
+                if (!opened) {
+                    file.close();
+                }
+            }
+        }
+
+        // Lines read from a stream never contain line terminators.
+        mSpillWriter.write(line);
+        mSpillWriter.write('\n');
+    }
+
+    /**
+     * Check whether lines are written to the temporary file.
+     *
+     * @return true if lines are written to the temporary file
+     */
+    public synchronized boolean isSpilled() {
+        return mSpillFile != null;
+    }
+
+    /**
+     * Deliver the kept lines to the consumer in order.
+     *
+     * @param consumer Destination of the lines
+     * @throws IOException If I/O error occurs
+     */
+    public synchronized void replay(LineConsumer consumer) throws
+            IOException {
+        for (String line : mLines) {
+            consumer.consumeLine(line);
+        }
+
+        if (mSpillWriter == null) {
+            return;
+        }
+
+        mSpillWriter.flush();
+        BufferedReader reader = new BufferedReader(Channels.newReader(
+                new FileInputStream(mSpillFile).getChannel(),
+                SPILL_CHARSET));
+        try {
+            for (String line = reader.readLine(); line != null;
+                    line = reader.readLine()) {
+                consumer.consumeLine(line);
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Delete the temporary file.
+     *
+     * @throws IOException If I/O error occurs
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        mClosed = true;
+        try {
+            if (mSpillWriter != null) {
+                mSpillWriter.close();
+            }
+        } finally {
+            mSpillWriter = null;
+            if (mSpillFile != null) {
+                mSpillFile.delete();
+            }
+        }
+    }
+}
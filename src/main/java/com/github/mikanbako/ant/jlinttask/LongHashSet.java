@@ -0,0 +1,209 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+/**
+ * Set of long values by open addressing.
+ *
+ * <p>Values are stored in an array without boxing, so a set of a million
+ * values takes about 16 MB at most. The values are expected to be hashes,
+ * and they are mixed again before probing.</p>
+ */
+/* package */ final class LongHashSet {
+    /**
+     * Minimum capacity of the table.
+     */
+    private static final int MINIMUM_CAPACITY = 16;
+
+    /**
+     * Multiplier of the hash mixer.
+     */
+    private static final long MIX_MULTIPLIER = 0x9e3779b97f4a7c15L;
+
+    /**
+     * Shift of the hash mixer.
+     */
+    private static final int MIX_SHIFT = 32;
+
+    /**
+     * Table of values. 0 means an empty slot.
+     */
+    private long[] mTable;
+
+    /**
+     * Number of values in the table.
+     */
+    private int mSize;
+
+    /**
+     * Whether 0 is in this set.
+     */
+    private boolean mHasZero;
+
+    /**
+     * Constructor.
+     */
+    public LongHashSet() {
+        this(0);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param expectedSize Expected number of values
+     */
+    public LongHashSet(int expectedSize) {
+        int capacity = MINIMUM_CAPACITY;
+        // The table is kept at most half full.
+        while (capacity < expectedSize * 2) {
+            capacity *= 2;
+        }
+        mTable = new long[capacity];
+    }
+
+    /**
+     * Add a value.
+     *
+     * @param value Value
+     * @return true if the value is added, false if it is already in this set
+     */
+    public boolean add(long value) {
+        if (value == 0) {
+            boolean added = !mHasZero;
+            mHasZero = true;
+            return added;
+        }
+
+        if ((mSize + 1) * 2 > mTable.length) {
+            rehash(mTable.length * 2);
+        }
+
+        if (!insert(mTable, value)) {
+            return false;
+        }
+        mSize++;
+
+        return true;
+    }
+
+    /**
+     * Check whether a value is in this set.
+     *
+     * @param value Value
+     * @return true if the value is in this set
+     */
+    public boolean contains(long value) {
+        if (value == 0) {
+            return mHasZero;
+        }
+
+        int mask = mTable.length - 1;
+        int index = mix(value) & mask;
+        while (true) {
+            long slot = mTable[index];
+            if (slot == value) {
+                return true;
+            }
+            if (slot == 0) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Get the number of values.
+     *
+     * @return Number of values
+     */
+    public int size() {
+        if (mHasZero) {
+            return mSize + 1;
+        }
+
+        return mSize;
+    }
+
+    /**
+     * Get all values.
+     *
+     * @return Values in no particular order
+     */
+    public long[] toArray() {
+        long[] values = new long[size()];
+        int index = 0;
+        if (mHasZero) {
+            index++;
+        }
+        for (long slot : mTable) {
+            if (slot != 0) {
+                values[index++] = slot;
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Insert a value into a table by linear probing.
+     *
+     * @param table Table
+     * @param value Value other than 0
+     * @return true if the value is inserted, false if it is already in the
+     *  table
+     */
+    private static boolean insert(long[] table, long value) {
+        int mask = table.length - 1;
+        int index = mix(value) & mask;
+        while (table[index] != 0) {
+            if (table[index] == value) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        table[index] = value;
+
+        return true;
+    }
+
+    /**
+     * Resize the table.
+     *
+     * @param capacity New capacity
+     */
+    private void rehash(int capacity) {
+        long[] table = new long[capacity];
+        for (long slot : mTable) {
+            if (slot != 0) {
+                insert(table, slot);
+            }
+        }
+        mTable = table;
+    }
+
+    /**
+     * Mix bits of a value into the lower bits.
+     *
+     * @param value Value
+     * @return Mixed hash
+     */
+    private static int mix(long value) {
+        long hash = value * MIX_MULTIPLIER;
+        return (int) (hash ^ (hash >>> MIX_SHIFT));
+    }
+}
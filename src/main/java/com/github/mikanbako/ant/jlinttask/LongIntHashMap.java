@@ -0,0 +1,161 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+/**
+ * Map from long keys to int counts by open addressing.
+ *
+ * <p>Keys and counts are stored in arrays without boxing in the same way
+ * as {@link LongHashSet}. The keys are expected to be hashes, and they are
+ * mixed again before probing.</p>
+ */
+/* package */ final class LongIntHashMap {
+    /**
+     * Minimum capacity of the table.
+     */
+    private static final int MINIMUM_CAPACITY = 16;
+
+    /**
+     * Multiplier of the hash mixer.
+     */
+    private static final long MIX_MULTIPLIER = 0x9e3779b97f4a7c15L;
+
+    /**
+     * Shift of the hash mixer.
+     */
+    private static final int MIX_SHIFT = 32;
+
+    /**
+     * Table of keys. 0 means an empty slot.
+     */
+    private long[] mKeys;
+
+    /**
+     * Table of counts at the same indexes as the keys.
+     */
+    private int[] mCounts;
+
+    /**
+     * Number of keys in the table.
+     */
+    private int mSize;
+
+    /**
+     * Count of the key 0.
+     */
+    private int mZeroCount;
+
+    /**
+     * Constructor.
+     */
+    public LongIntHashMap() {
+        mKeys = new long[MINIMUM_CAPACITY];
+        mCounts = new int[MINIMUM_CAPACITY];
+    }
+
+    /**
+     * Increment the count of a key.
+     *
+     * @param key Key
+     * @return Count before it is incremented, 0 if the key is new
+     */
+    public int getAndIncrement(long key) {
+        if (key == 0) {
+            return mZeroCount++;
+        }
+
+        // The table is kept at most half full.
+        if ((mSize + 1) * 2 > mKeys.length) {
+            rehash(mKeys.length * 2);
+        }
+
+        int mask = mKeys.length - 1;
+        int index = mix(key) & mask;
+        while (mKeys[index] != 0) {
+            if (mKeys[index] == key) {
+                return mCounts[index]++;
+            }
+            index = (index + 1) & mask;
+        }
+        mKeys[index] = key;
+        mCounts[index] = 1;
+        mSize++;
+
+        return 0;
+    }
+
+    /**
+     * Get the count of a key.
+     *
+     * @param key Key
+     * @return Count, 0 if the key is not in this map
+     */
+    public int get(long key) {
+        if (key == 0) {
+            return mZeroCount;
+        }
+
+        int mask = mKeys.length - 1;
+        int index = mix(key) & mask;
+        while (true) {
+            long slot = mKeys[index];
+            if (slot == key) {
+                return mCounts[index];
+            }
+            if (slot == 0) {
+                return 0;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Resize the table.
+     *
+     * @param capacity New capacity
+     */
+    private void rehash(int capacity) {
+        long[] keys = new long[capacity];
+        int[] counts = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < mKeys.length; i++) {
+            long key = mKeys[i];
+            if (key != 0) {
+                int index = mix(key) & mask;
+                while (keys[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                counts[index] = mCounts[i];
+            }
+        }
+        mKeys = keys;
+        mCounts = counts;
+    }
+
+    /**
+     * Mix bits of a key into the lower bits.
+     *
+     * @param key Key
+     * @return Mixed hash
+     */
+    private static int mix(long key) {
+        long hash = key * MIX_MULTIPLIER;
+        return (int) (hash ^ (hash >>> MIX_SHIFT));
+    }
+}
@@ -0,0 +1,44 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a Jlint process is destroyed because its resident set size
+ * exceeds the limit.
+ */
+/* package */ final class MemoryLimitExceededException extends IOException {
+    /**
+     * Serial version UID.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor.
+     *
+     * @param usage Resource usage of the destroyed process
+     * @param maxMemory Maximum resident set size in bytes
+     */
+    public MemoryLimitExceededException(ProcessUsage usage, long maxMemory) {
+        super("Jlint process " + usage.getProcessId() + " is killed " +
+                "because its resident set size " +
+                usage.getPeakResidentBytes() + " bytes exceeds " +
+                maxMemory + " bytes.");
+    }
+}
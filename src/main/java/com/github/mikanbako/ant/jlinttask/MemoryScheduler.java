@@ -0,0 +1,134 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+/**
+ * Scheduler that admits Jlint processes within a memory budget.
+ *
+ * <p>A Jlint process is started only when its estimated memory fits into
+ * the budget that is not reserved by running processes, and the number
+ * of running processes is less than the number of processors. A process
+ * whose estimate exceeds the whole budget is started alone.</p>
+ *
+ * <p>A scheduler is shared by all jlint tasks of a project as the
+ * reference {@link #REFERENCE_ID}, so that tasks executed in parallel
+ * share the budget.</p>
+ */
+/* package */ final class MemoryScheduler {
+    /**
+     * ID of the reference of the scheduler in a project.
+     */
+    public static final String REFERENCE_ID = "jlint.memoryScheduler";
+
+    /**
+     * Memory budget in bytes.
+     */
+    private final long mBudget;
+
+    /**
+     * Maximum number of processes that run concurrently.
+     */
+    private final int mMaxProcesses;
+
+    /**
+     * Memory reserved by running processes in bytes.
+     */
+    private long mReservedBytes;
+
+    /**
+     * Number of running processes.
+     */
+    private int mRunningProcesses;
+
+    /**
+     * Constructor.
+     *
+     * @param budget Memory budget in bytes
+     * @param maxProcesses Maximum number of processes that run
+     *  concurrently
+     * @throws IllegalArgumentException If an argument is not positive
+     */
+    public MemoryScheduler(long budget, int maxProcesses) {
+        if (budget <= 0 || maxProcesses <= 0) {
+            throw new IllegalArgumentException("Argument is not positive.");
+        }
+
+        mBudget = budget;
+        mMaxProcesses = maxProcesses;
+    }
+
+    /**
+     * Get the memory budget.
+     *
+     * @return Memory budget in bytes
+     */
+    public long getBudget() {
+        return mBudget;
+    }
+
+    /**
+     * Get the maximum number of processes that run concurrently.
+     *
+     * @return Maximum number of processes
+     */
+    public int getMaxProcesses() {
+        return mMaxProcesses;
+    }
+
+    /**
+     * Wait until a process can be started.
+     *
+     * @param estimatedBytes Estimated memory of the process in bytes
+     * @return Reserved memory in bytes, which must be passed to
+     *  {@link #release(long)} after the process ends
+     * @throws InterruptedException If this thread is interrupted
+     */
+    public synchronized long acquire(long estimatedBytes) throws
+            InterruptedException {
+        long bytes = Math.min(Math.max(estimatedBytes, 0), mBudget);
+        while (mRunningProcesses >= mMaxProcesses ||
+                mReservedBytes + bytes > mBudget) {
+            wait();
+        }
+
+        mReservedBytes += bytes;
+        mRunningProcesses++;
+
+        return bytes;
+    }
+
+    /**
+     * Release memory reserved by a process that ends.
+     *
+     * @param bytes Memory returned by {@link #acquire(long)}
+     */
+    public synchronized void release(long bytes) {
+        mReservedBytes -= bytes;
+        mRunningProcesses--;
+        notifyAll();
+    }
+
+    /**
+     * Get the memory reserved by running processes.
+     *
+     * @return Reserved memory in bytes
+     */
+    public synchronized long getReservedBytes() {
+        return mReservedBytes;
+    }
+}
@@ -20,16 +20,94 @@ package com.github.mikanbako.ant.jlinttask;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.regex.Pattern;
 
 /**
  * Parse Jlint options.
  *
- * <p>This class does not support option that has argument.</p>
+ * <p>This class does not support option that has argument. Jlint applies
+ * message filtering options in order, so the options are kept in the
+ * order in which they are given.</p>
  */
 /* package */ final class OptionParser {
+    /**
+     * Messages of Jlint in the taxonomy of message filtering options.
+     *
+     * <p>Each row is the name of the category option, the message code
+     * that is also accepted as an option, and the format of the message.
+     * In the format, "%" followed by a character is a variable part, for
+     * example a method name.</p>
+     */
+    /* package */ static final String[][] MESSAGES = {
+        {"synchronization", "sync_loop",
+            "Loop %d: invocation of synchronized method %m can cause " +
+            "deadlock"},
+        {"synchronization", "lock_loop",
+            "Lock %s is requested while holding lock %s, with other " +
+            "thread holding %s and requesting lock %s"},
+        {"synchronization", "wait_deadlock",
+            "Call sequence to method %m can cause deadlock in wait()"},
+        {"synchronization", "wait_other_monitor",
+            "Method wait() can be invoked with monitor of other object " +
+            "locked"},
+        {"synchronization", "wait_nosync",
+            "Method %s() is called without synchronizing on %s"},
+        {"synchronization", "nosync_call",
+            "Method %m is called from non-synchronized method"},
+        {"synchronization", "concurrent_call",
+            "Method %m can be called from different threads and is not " +
+            "synchronized"},
+        {"synchronization", "concurrent_access",
+            "Field '%s' of class %c can be accessed from different " +
+            "threads and is not volatile"},
+        {"synchronization", "run_nosync",
+            "Method %m implementing 'Runnable' interface is not " +
+            "synchronized"},
+        {"synchronization", "nosync_override",
+            "Synchronized method %m is overridden by non-synchronized " +
+            "method of derived class %c"},
+        {"synchronization", "lock_changed",
+            "Value of lock %s is changed outside synchronization or " +
+            "constructor"},
+        {"synchronization", "lock_changed_owned",
+            "Value of lock %s is changed while (potentially) owning it"},
+        {"inheritance", "not_overridden",
+            "Method %m is not overridden by method with the same name of " +
+            "derived class %c"},
+        {"inheritance", "field_redefined",
+            "Field '%s' in class %c shadows %s in base class %c"},
+        {"inheritance", "shadow_local",
+            "Local variable '%s' shadows component of class %c"},
+        {"inheritance", "super_finalize",
+            "Method finalize() doesn't call super.finalize()"},
+        {"data_flow", "null_reference",
+            "Value of referenced variable '%s' may be NULL"},
+        {"data_flow", "null_param",
+            "Method %m can be invoked with NULL as %d parameter and this " +
+            "parameter is used without check for null"},
+        {"data_flow", "null_pointer", "NULL reference can be used"},
+        {"data_flow", "zero_operand", "Zero operand for %s operation"},
+        {"data_flow", "zero_result", "Result of operation %s is always 0"},
+        {"data_flow", "shift_count",
+            "Shift count range [%d,%d] is out of domain"},
+        {"data_flow", "truncation",
+            "Data can be lost as a result of truncation to %s"},
+        {"data_flow", "same_result",
+            "Comparison always produces the same result"},
+        {"data_flow", "string_cmp", "Compare strings as object references"},
+        {"data_flow", "bounds",
+            "Index [%d,%d] may be out of array bounds"},
+        {"data_flow", "neg_len", "Array length [%d,%d] may be negative"},
+        {"data_flow", "incomp_case",
+            "Switch case constant %d can't be produced by switch " +
+            "expression"},
+        {"data_flow", "short_char_cmp", "Comparison of short with char"},
+        {"data_flow", "type_cast",
+            "Maybe type cast is not correctly applied"},
+    };
+
     /**
      * Pattern to split by white space.
      */
@@ -47,13 +125,13 @@ import java.util.regex.Pattern;
      * Parse options from {@link String}.
      *
      * @param optionString Options represented by {@link String}.
-     * @return Set of options.
+     * @return Set of options in the given order.
      */
     public static Set<String> parse(String optionString) {
         String[] splittedOptions =
                 SPLIT_BY_WHITE_SPACE_PATTERN.split(optionString);
 
-        HashSet<String> options = new HashSet<String>();
+        LinkedHashSet<String> options = new LinkedHashSet<String>();
 
         // Add options expected empty string.
         for (String optionCandidate : splittedOptions) {
@@ -69,12 +147,12 @@ import java.util.regex.Pattern;
      * Parse options from {@link Reader}.
      *
      * @param optionReader {@link Reader} that reads options
-     * @return Set of options
+     * @return Set of options in the given order
      * @throws IOException If I/O error occurs
      */
     public static Set<String> parse(Reader optionReader) throws IOException {
         BufferedReader reader = new BufferedReader(optionReader);
-        HashSet<String> options = new HashSet<String>();
+        LinkedHashSet<String> options = new LinkedHashSet<String>();
 
         while (true) {
             String line = reader.readLine();
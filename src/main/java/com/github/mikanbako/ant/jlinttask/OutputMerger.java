@@ -0,0 +1,118 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.IOException;
+
+/**
+ * Implementation of {@link LineConsumer} that merges output from some Jlint
+ * processes into a single report.
+ *
+ * <p>Each Jlint process outputs a summary line that counts its messages.
+ * This object holds back the summary lines and outputs a single summary
+ * line that counts all messages by {@link #finish()}.</p>
+ */
+/* package */ final class OutputMerger implements LineConsumer {
+    /**
+     * Prefix of summary line.
+     */
+    private static final String SUMMARY_PREFIX = "Verification completed: ";
+
+    /**
+     * Suffix of summary line.
+     */
+    private static final String SUMMARY_SUFFIX = " reported messages.";
+
+    /**
+     * Destination of merged output.
+     */
+    private final LineConsumer mDestination;
+
+    /**
+     * Total number of messages in the summary lines.
+     */
+    private long mMessageCount;
+
+    /**
+     * Whether any summary line is consumed.
+     */
+    private boolean mHasSummary;
+
+    /**
+     * Constructor.
+     *
+     * @param destination Destination of merged output
+     */
+    public OutputMerger(LineConsumer destination) {
+        mDestination = destination;
+    }
+
+    @Override
+    public void consumeLine(String line) throws IOException {
+        long count = parseSummary(line);
+        if (count < 0) {
+            mDestination.consumeLine(line);
+        } else {
+            mMessageCount += count;
+            mHasSummary = true;
+        }
+    }
+
+    /**
+     * Output the merged summary line.
+     *
+     * Nothing is output if no summary line is consumed.
+     *
+     * @throws IOException If I/O error occurs
+     */
+    public void finish() throws IOException {
+        if (mHasSummary) {
+            mDestination.consumeLine(formatSummary(mMessageCount));
+        }
+    }
+
+    /**
+     * Format summary line.
+     *
+     * @param messageCount Number of messages
+     * @return Summary line
+     */
+    /* package */ static String formatSummary(long messageCount) {
+        return SUMMARY_PREFIX + messageCount + SUMMARY_SUFFIX;
+    }
+
+    /**
+     * Parse summary line.
+     *
+     * @param line Line
+     * @return Number of messages, or -1 if the line is not summary line
+     */
+    /* package */ static long parseSummary(String line) {
+        if (!line.startsWith(SUMMARY_PREFIX) ||
+                !line.endsWith(SUMMARY_SUFFIX)) {
+            return -1;
+        }
+
+        try {
+            return Long.parseLong(line.substring(SUMMARY_PREFIX.length(),
+                    line.length() - SUMMARY_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -17,70 +17,321 @@
  */
 package com.github.mikanbako.ant.jlinttask;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.LineNumberReader;
-import java.nio.charset.Charset;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.channels.FileChannel;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 /**
  * Implementation of {@link CommandExecutor} executes as subprocess.
+ *
+ * <p>The standard output and the standard error of the subprocess are
+ * drained on their own threads while the subprocess runs. So the
+ * subprocess is never blocked by a full pipe.</p>
  */
 /* package */ final class ProcessExecutor implements CommandExecutor {
     /**
-     * Line separator on this platform.
+     * Maximum number of lines that are read but not consumed yet.
      */
-    private static final String LINE_SEPARATOR =
-            System.getProperty("line.separator");
+    private static final int HANDOFF_CAPACITY = 1024;
 
+    /**
+     * Metrics to which durations and counts are added, or null.
+     */
+    private volatile ExecutionMetrics mMetrics;
+
+    /**
+     * Whether resource usage of processes can be sampled.
+     */
+    private static final boolean SAMPLING_SUPPORTED =
+            ProcessSampler.isSupported();
+
+    /**
+     * Recorder of spans, or null.
+     */
+    private volatile TraceRecorder mTrace;
+
+    /**
+     * Maximum resident set size of a process in bytes, or 0 for no limit.
+     */
+    private volatile long mMaxMemory;
+
+    /**
+     * Whether resource usage is sampled without metrics.
+     */
+    private volatile boolean mUsageSampled;
+
+    /**
+     * Resource usage of the last process executed by each thread.
+     */
+    private final ThreadLocal<ProcessUsage> mLastUsage =
+            new ThreadLocal<ProcessUsage>();
+
+    /**
+     * Set metrics to which durations and counts are added.
+     *
+     * @param metrics Metrics, or null
+     */
+    public void setMetrics(ExecutionMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    /**
+     * Set the maximum resident set size of a process.
+     *
+     * A process that exceeds it is destroyed, and
+     * {@link #execute(List, LineConsumer, LineConsumer)} throws
+     * {@link MemoryLimitExceededException}. The limit is enforced only on
+     * systems that have /proc.
+     *
+     * @param maxMemory Maximum resident set size in bytes, or 0 for no
+     *  limit
+     */
+    public void setMaxMemory(long maxMemory) {
+        mMaxMemory = maxMemory;
+    }
+
+    /**
+     * Set whether resource usage of processes is sampled even if no
+     * metrics are set.
+     *
+     * @param usageSampled true to sample resource usage
+     * @see #getLastUsage()
+     */
+    public void setUsageSampled(boolean usageSampled) {
+        mUsageSampled = usageSampled;
+    }
+
+    /**
+     * Get the resource usage of the last process executed by this thread.
+     *
+     * @return Resource usage, or null if it is not sampled
+     */
+    public ProcessUsage getLastUsage() {
+        return mLastUsage.get();
+    }
+
+    /**
+     * Set a recorder of spans.
+     *
+     * The start, the lifetime and the draining of output of each process
+     * are recorded.
+     *
+     * @param trace Recorder of spans, or null
+     */
+    public void setTrace(TraceRecorder trace) {
+        mTrace = trace;
+    }
 
     @Override
     public int execute(List<String> command,
-            StringBuilder output, StringBuilder error) throws
+            LineConsumer output, LineConsumer error) throws
+            IOException, InterruptedException {
+        return execute(command, output, null, error);
+    }
+
+    /**
+     * Execute a command and copy its standard output to a file as it is.
+     *
+     * The standard output is neither decoded nor split into lines.
+     *
+     * @param command Program and its arguments
+     * @param output File to which the standard output is copied
+     * @param error {@link LineConsumer} that consumes the standard
+     *  error from command
+     * @return Exit code of program
+     * @throws IOException If I/O error occurs
+     * @throws InterruptedException If this thread is interrupted
+     */
+    public int execute(List<String> command, FileChannel output,
+            LineConsumer error) throws IOException, InterruptedException {
+        return execute(command, null, output, error);
+    }
+
+    /**
+     * Execute a command.
+     *
+     * @param command Program and its arguments
+     * @param output {@link LineConsumer} that consumes the standard
+     *  output from command, or null if rawOutput is given
+     * @param rawOutput File to which the standard output is copied, or null
+     * @param error {@link LineConsumer} that consumes the standard
+     *  error from command
+     * @return Exit code of program
+     * @throws IOException If I/O error occurs
+     * @throws InterruptedException If this thread is interrupted
+     */
+    private int execute(List<String> command, LineConsumer output,
+            FileChannel rawOutput, LineConsumer error) throws
             IOException, InterruptedException {
+        ExecutionMetrics metrics = mMetrics;
+        TraceRecorder trace = mTrace;
+        mLastUsage.remove();
+
         // Execute command.
 
+        TraceRecorder.Span processSpan = null;
+        TraceRecorder.Span spawnSpan = null;
+        if (trace != null) {
+            processSpan = trace.begin("process", "jlint");
+            spawnSpan = trace.begin("spawn", "jlint");
+        }
+
+        long startNanos = System.nanoTime();
         ProcessBuilder processBuilder = new ProcessBuilder(command);
         Process process = processBuilder.start();
+        long spawnedNanos = System.nanoTime();
+
+        long processId = getProcessId(process);
+        if (trace != null) {
+            spawnSpan.end();
+            processSpan.setArgument("pid", processId);
+        }
+
+        long maxMemory = mMaxMemory;
+        ProcessSampler sampler = null;
+        if (SAMPLING_SUPPORTED &&
+                (metrics != null || maxMemory > 0 || mUsageSampled)) {
+            sampler = new ProcessSampler(process, processId, maxMemory);
+        }
+
+        // Extract output from command while it runs.
+
+        BlockingQueue<StreamPumper.Line> queue =
+                new ArrayBlockingQueue<StreamPumper.Line>(HANDOFF_CAPACITY);
+        StreamPumper outputPumper = new StreamPumper(
+                process.getInputStream(), rawOutput, queue, "Jlint stdout");
+        StreamPumper errorPumper = new StreamPumper(
+                process.getErrorStream(), queue, "Jlint stderr");
+
+        boolean finished = false;
+        try {
+            process.getOutputStream().close();
+
+            outputPumper.start();
+            errorPumper.start();
+            if (sampler != null) {
+                sampler.start();
+            }
+
+            TraceRecorder.Span drainSpan = null;
+            if (trace != null) {
+                drainSpan = trace.begin("drain", "jlint");
+            }
+
+            long outputLines = 0;
+            long errorLines = 0;
+            long consumingNanos = 0;
+            int runningPumpers = 2;
+            while (runningPumpers > 0) {
+                StreamPumper.Line line = queue.take();
+                if (line.isEnd()) {
+                    runningPumpers--;
+                    continue;
+                }
 
-        process.waitFor();
+                long consumingStartNanos = System.nanoTime();
+                if (line.getSource() == outputPumper) {
+                    output.consumeLine(line.getText());
+                    outputLines++;
+                } else {
+                    error.consumeLine(line.getText());
+                    errorLines++;
+                }
+                consumingNanos += System.nanoTime() - consumingStartNanos;
+            }
+
+            if (trace != null) {
+                drainSpan.end();
+            }
+
+            // The exited process can be sampled until it is waited for.
+            if (sampler != null) {
+                sampler.stop();
+                mLastUsage.set(sampler.getUsage());
+            }
+
+            int exitCode = process.waitFor();
 
-        // Extract output from command.
+            if (trace != null) {
+                processSpan.setArgument("exitCode", exitCode);
+                processSpan.end();
+            }
+
+            if (metrics != null) {
+                metrics.addTime(ExecutionMetrics.PHASE_SPAWN,
+                        spawnedNanos - startNanos);
+                metrics.addTimeSince(ExecutionMetrics.PHASE_JLINT,
+                        spawnedNanos);
+                metrics.addTime(ExecutionMetrics.PHASE_OUTPUT,
+                        consumingNanos);
+                metrics.addCount(ExecutionMetrics.COUNT_OUTPUT_LINES,
+                        outputLines);
+                metrics.addCount(ExecutionMetrics.COUNT_ERROR_LINES,
+                        errorLines);
+                if (sampler != null) {
+                    metrics.addProcessUsage(sampler.getUsage());
+                }
+            }
+
+            if (sampler != null && sampler.isKilled()) {
+                throw new MemoryLimitExceededException(
+                        sampler.getUsage(), maxMemory);
+            }
 
-        read(process.getInputStream(), output);
-        read(process.getErrorStream(), error);
+            outputPumper.checkError();
+            errorPumper.checkError();
 
-        return process.exitValue();
+            finished = true;
+
+            return exitCode;
+        } finally {
+            if (!finished) {
+                if (sampler != null) {
+                    sampler.cancel();
+                }
+                process.destroy();
+                outputPumper.stop();
+                errorPumper.stop();
+            }
+        }
     }
 
     /**
-     * Read string from the {@link InputStream}.
+     * Get the ID of a process.
      *
-     * @param inputStream {@link InputStream} to read string
-     * @param destination Destination of the string
-     * @throws IOException If I/O error occurs
+     * Process.pid() is called by reflection because it is not available
+     * before Java 9.
+     *
+     * @param process Process
+     * @return ID of the process, or -1 if it is unknown
      */
-    private void read(InputStream inputStream,
-            StringBuilder destination) throws IOException {
-        LineNumberReader reader = new LineNumberReader(
-                new BufferedReader(
-                        new InputStreamReader(
-                                inputStream,
-                                Charset.defaultCharset())));
+    /* package */ static long getProcessId(Process process) {
         try {
-            while (true) {
-                String line = reader.readLine();
-                if (line == null) {
-                    break;
-                }
+            Object processId =
+                    Process.class.getMethod("pid").invoke(process);
+            return ((Number) processId).longValue();
+        } catch (NoSuchMethodException e) {
+            // Older Java keeps the ID in a private field.
+        } catch (IllegalAccessException e) {
+            return -1;
+        } catch (InvocationTargetException e) {
+            return -1;
+        }
 
-                destination.append(line);
-                destination.append(LINE_SEPARATOR);
-            }
-        } finally {
-            reader.close();
+        try {
+            Field field = process.getClass().getDeclaredField("pid");
+            field.setAccessible(true);
+            return field.getInt(process);
+        } catch (NoSuchFieldException e) {
+            return -1;
+        } catch (IllegalAccessException e) {
+            return -1;
+        } catch (SecurityException e) {
+            return -1;
         }
     }
 }
@@ -0,0 +1,371 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+
+/**
+ * Sample resource usage of a process from /proc while it runs.
+ *
+ * <p>The resident set size, the CPU time and the I/O are read from
+ * /proc/&lt;pid&gt;/status, stat and io periodically on a daemon thread.
+ * If the resident set size exceeds the limit, the process is destroyed.
+ * On systems without /proc, nothing is sampled.</p>
+ */
+/* package */ final class ProcessSampler implements Runnable {
+    /**
+     * Interval between samples in milliseconds.
+     */
+    private static final long SAMPLE_INTERVAL_MILLIS = 100;
+
+    /**
+     * Bytes of a kilobyte in /proc/&lt;pid&gt;/status.
+     */
+    private static final long KILOBYTE = 1024;
+
+    /**
+     * Clock ticks per second of CPU times in /proc/&lt;pid&gt;/stat.
+     *
+     * Java cannot get sysconf(_SC_CLK_TCK), and it is 100 on almost all
+     * Linux systems.
+     */
+    private static final long CLOCK_TICKS_PER_SECOND = 100;
+
+    /**
+     * Milliseconds of a second.
+     */
+    private static final long MILLIS_PER_SECOND = 1000;
+
+    /**
+     * Radix of numbers in /proc.
+     */
+    private static final int RADIX = 10;
+
+    /**
+     * Index of utime in /proc/&lt;pid&gt;/stat, counted from the state
+     * after the command name.
+     */
+    private static final int UTIME_INDEX = 11;
+
+    /**
+     * Index of stime in /proc/&lt;pid&gt;/stat, counted from the state
+     * after the command name.
+     */
+    private static final int STIME_INDEX = 12;
+
+    /**
+     * Directory of the process in /proc.
+     */
+    private final File mDirectory;
+
+    /**
+     * Process.
+     */
+    private final Process mProcess;
+
+    /**
+     * ID of the process.
+     */
+    private final long mProcessId;
+
+    /**
+     * Maximum resident set size in bytes, or 0 for no limit.
+     */
+    private final long mMaxResidentBytes;
+
+    /**
+     * Thread that samples.
+     */
+    private final Thread mThread;
+
+    /**
+     * Peak resident set size in bytes.
+     */
+    private long mPeakResidentBytes = -1;
+
+    /**
+     * Last sampled CPU time in milliseconds.
+     */
+    private long mCpuMillis = -1;
+
+    /**
+     * Last sampled bytes read from storage.
+     */
+    private long mReadBytes = -1;
+
+    /**
+     * Last sampled bytes written to storage.
+     */
+    private long mWrittenBytes = -1;
+
+    /**
+     * Whether the process is destroyed because of the limit.
+     */
+    private boolean mKilled;
+
+    /**
+     * Constructor.
+     *
+     * @param process Process
+     * @param processId ID of the process
+     * @param maxResidentBytes Maximum resident set size in bytes, or 0 for
+     *  no limit
+     */
+    public ProcessSampler(Process process, long processId,
+            long maxResidentBytes) {
+        mDirectory = new File("/proc/" + processId);
+        mProcess = process;
+        mProcessId = processId;
+        mMaxResidentBytes = maxResidentBytes;
+
+        mThread = new Thread(this, "Jlint sampler " + processId);
+        mThread.setDaemon(true);
+    }
+
+    /**
+     * Check whether resource usage of processes can be sampled.
+     *
+     * @return true if /proc is available
+     */
+    public static boolean isSupported() {
+        return new File("/proc/self/stat").isFile();
+    }
+
+    /**
+     * Start sampling.
+     *
+     * Nothing is sampled if the process has no directory in /proc.
+     */
+    public void start() {
+        if (mProcessId > 0 && mDirectory.isDirectory()) {
+            mThread.start();
+        }
+    }
+
+    /**
+     * Stop sampling and take the last sample.
+     *
+     * This should be called after the output of the process ends and
+     * before the process is waited for, when the CPU time of the exited
+     * process can still be read.
+     *
+     * @throws InterruptedException If this thread is interrupted
+     */
+    public void stop() throws InterruptedException {
+        if (!mThread.isAlive()) {
+            return;
+        }
+
+        mThread.interrupt();
+        mThread.join();
+        sample();
+    }
+
+    /**
+     * Stop sampling without taking the last sample.
+     */
+    public void cancel() {
+        mThread.interrupt();
+    }
+
+    /**
+     * Check whether the process is destroyed because of the limit.
+     *
+     * @return true if the process is destroyed
+     */
+    public synchronized boolean isKilled() {
+        return mKilled;
+    }
+
+    /**
+     * Get the sampled resource usage.
+     *
+     * @return Resource usage
+     */
+    public synchronized ProcessUsage getUsage() {
+        return new ProcessUsage(mProcessId, mPeakResidentBytes, mCpuMillis,
+                mReadBytes, mWrittenBytes);
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                sample();
+                Thread.sleep(SAMPLE_INTERVAL_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            // Sampling is stopped.
+        }
+    }
+
+    /**
+     * Take a sample.
+     *
+     * Files that cannot be read are ignored, because the process may exit
+     * at any time.
+     */
+    private void sample() {
+        long residentBytes = -1;
+        long peakBytes = -1;
+        long cpuMillis = -1;
+        long readBytes = -1;
+        long writtenBytes = -1;
+
+        try {
+            BufferedReader reader = open("status");
+            try {
+                for (String line = reader.readLine(); line != null;
+                        line = reader.readLine()) {
+                    if (line.startsWith("VmRSS:")) {
+                        residentBytes = parseNumber(line) * KILOBYTE;
+                    } else if (line.startsWith("VmHWM:")) {
+                        peakBytes = parseNumber(line) * KILOBYTE;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            // The process has exited.
+        }
+
+        try {
+            BufferedReader reader = open("stat");
+            try {
+                cpuMillis = parseCpuMillis(reader.readLine());
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            // The process has exited.
+        }
+
+        try {
+            BufferedReader reader = open("io");
+            try {
+                for (String line = reader.readLine(); line != null;
+                        line = reader.readLine()) {
+                    if (line.startsWith("read_bytes:")) {
+                        readBytes = parseNumber(line);
+                    } else if (line.startsWith("write_bytes:")) {
+                        writtenBytes = parseNumber(line);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            // The file is not readable by this user.
+        }
+
+        boolean kill = false;
+        synchronized (this) {
+            mPeakResidentBytes = Math.max(mPeakResidentBytes,
+                    Math.max(residentBytes, peakBytes));
+            if (cpuMillis >= 0) {
+                mCpuMillis = cpuMillis;
+            }
+            if (readBytes >= 0) {
+                mReadBytes = readBytes;
+            }
+            if (writtenBytes >= 0) {
+                mWrittenBytes = writtenBytes;
+            }
+
+            if (mMaxResidentBytes > 0 && !mKilled &&
+                    mPeakResidentBytes > mMaxResidentBytes) {
+                mKilled = true;
+                kill = true;
+            }
+        }
+
+        if (kill) {
+            mProcess.destroy();
+        }
+    }
+
+    /**
+     * Open a file in the directory of the process.
+     *
+     * @param name Name of file
+     * @return Reader of the file
+     * @throws IOException If the file cannot be opened
+     */
+    private BufferedReader open(String name) throws IOException {
+        return new BufferedReader(new InputStreamReader(
+                new FileInputStream(new File(mDirectory, name)),
+                Charset.forName("US-ASCII")));
+    }
+
+    /**
+     * Parse the first number in a line.
+     *
+     * @param line Line, for example "VmRSS:     1234 kB"
+     * @return Number, or -1 if the line has no number
+     */
+    /* package */ static long parseNumber(String line) {
+        long number = -1;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c >= '0' && c <= '9') {
+                number = Math.max(number, 0) * RADIX + (c - '0');
+            } else if (number >= 0) {
+                break;
+            }
+        }
+
+        return number;
+    }
+
+    /**
+     * Parse the CPU time from /proc/&lt;pid&gt;/stat.
+     *
+     * @param stat Content of /proc/&lt;pid&gt;/stat
+     * @return CPU time in user and kernel mode in milliseconds, or -1
+     */
+    /* package */ static long parseCpuMillis(String stat) {
+        if (stat == null) {
+            return -1;
+        }
+
+        // The command name may contain spaces and parentheses.
+        int nameEnd = stat.lastIndexOf(')');
+        if (nameEnd < 0) {
+            return -1;
+        }
+
+        String[] fields = stat.substring(nameEnd + 1).trim().split(" ");
+        if (fields.length <= STIME_INDEX) {
+            return -1;
+        }
+
+        try {
+            long ticks = Long.parseLong(fields[UTIME_INDEX]) +
+                    Long.parseLong(fields[STIME_INDEX]);
+            return ticks * MILLIS_PER_SECOND / CLOCK_TICKS_PER_SECOND;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
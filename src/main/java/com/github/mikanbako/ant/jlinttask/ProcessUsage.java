@@ -0,0 +1,121 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+/**
+ * Resource usage of a process.
+ *
+ * <p>Values that could not be sampled are -1.</p>
+ */
+/* package */ final class ProcessUsage {
+    /**
+     * ID of the process.
+     */
+    private final long mProcessId;
+
+    /**
+     * Peak resident set size in bytes.
+     */
+    private final long mPeakResidentBytes;
+
+    /**
+     * CPU time in user and kernel mode in milliseconds.
+     */
+    private final long mCpuMillis;
+
+    /**
+     * Bytes read from storage.
+     */
+    private final long mReadBytes;
+
+    /**
+     * Bytes written to storage.
+     */
+    private final long mWrittenBytes;
+
+    /**
+     * Constructor.
+     *
+     * @param processId ID of the process
+     * @param peakResidentBytes Peak resident set size in bytes
+     * @param cpuMillis CPU time in milliseconds
+     * @param readBytes Bytes read from storage
+     * @param writtenBytes Bytes written to storage
+     */
+    public ProcessUsage(long processId, long peakResidentBytes,
+            long cpuMillis, long readBytes, long writtenBytes) {
+        mProcessId = processId;
+        mPeakResidentBytes = peakResidentBytes;
+        mCpuMillis = cpuMillis;
+        mReadBytes = readBytes;
+        mWrittenBytes = writtenBytes;
+    }
+
+    /**
+     * Get the ID of the process.
+     *
+     * @return ID of the process
+     */
+    public long getProcessId() {
+        return mProcessId;
+    }
+
+    /**
+     * Get the peak resident set size.
+     *
+     * @return Peak resident set size in bytes, or -1
+     */
+    public long getPeakResidentBytes() {
+        return mPeakResidentBytes;
+    }
+
+    /**
+     * Get the CPU time in user and kernel mode.
+     *
+     * @return CPU time in milliseconds, or -1
+     */
+    public long getCpuMillis() {
+        return mCpuMillis;
+    }
+
+    /**
+     * Get the bytes read from storage.
+     *
+     * @return Bytes read from storage, or -1
+     */
+    public long getReadBytes() {
+        return mReadBytes;
+    }
+
+    /**
+     * Get the bytes written to storage.
+     *
+     * @return Bytes written to storage, or -1
+     */
+    public long getWrittenBytes() {
+        return mWrittenBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "Jlint process " + mProcessId + ": peak RSS " +
+                mPeakResidentBytes + " bytes, CPU " + mCpuMillis +
+                " ms, read " + mReadBytes + " bytes, written " +
+                mWrittenBytes + " bytes";
+    }
+}
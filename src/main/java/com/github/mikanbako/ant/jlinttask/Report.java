@@ -0,0 +1,168 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Nested report element of {@link JlintTask}.
+ *
+ * <p>A report is written from the same run of Jlint as the other reports,
+ * with its own filters.</p>
+ */
+public final class Report {
+    /**
+     * File in which the report is written.
+     */
+    private File mOutputFile;
+
+    /**
+     * Format of the report.
+     */
+    private String mFormat = ReportWriter.FORMAT_TEXT;
+
+    /**
+     * Message filtering options, or null.
+     */
+    private String mMessageFilter;
+
+    /**
+     * Comma separated patterns of source paths, or null.
+     */
+    private String mPaths;
+
+    /**
+     * Comma separated keywords of messages, or null.
+     */
+    private String mMessages;
+
+    /**
+     * Set the file in which the report is written.
+     *
+     * @param outputFile File in which the report is written
+     */
+    public void setOutputFile(File outputFile) {
+        mOutputFile = outputFile;
+    }
+
+    /**
+     * Set the format of the report.
+     *
+     * @param format "text", "xml", "sarif" or "json"
+     */
+    public void setFormat(String format) {
+        mFormat = format;
+    }
+
+    /**
+     * Set message filtering options.
+     *
+     * Only "all" and the message categories are evaluated.
+     *
+     * @param messageFilter Message filtering options
+     */
+    public void setMessageFilter(String messageFilter) {
+        mMessageFilter = messageFilter;
+    }
+
+    /**
+     * Set patterns of source paths reported.
+     *
+     * @param paths Comma separated patterns as patterns of fileset
+     */
+    public void setPaths(String paths) {
+        mPaths = paths;
+    }
+
+    /**
+     * Set keywords of messages reported.
+     *
+     * @param messages Comma separated keywords. A message that contains
+     *  any keyword is reported.
+     */
+    public void setMessages(String messages) {
+        mMessages = messages;
+    }
+
+    /**
+     * Get the file in which the report is written.
+     *
+     * @return File in which the report is written, or null
+     */
+    /* package */ File getOutputFile() {
+        return mOutputFile;
+    }
+
+    /**
+     * Get the format of the report.
+     *
+     * @return Format of the report
+     */
+    /* package */ String getFormat() {
+        return mFormat;
+    }
+
+    /**
+     * Get message filtering options.
+     *
+     * @return Message filtering options, or null
+     */
+    /* package */ String getMessageFilter() {
+        return mMessageFilter;
+    }
+
+    /**
+     * Get patterns of source paths reported.
+     *
+     * @return Patterns, or an empty list for all paths
+     */
+    /* package */ List<String> getPaths() {
+        return split(mPaths);
+    }
+
+    /**
+     * Get keywords of messages reported.
+     *
+     * @return Keywords, or an empty list for all messages
+     */
+    /* package */ List<String> getMessages() {
+        return split(mMessages);
+    }
+
+    /**
+     * Split a comma separated list.
+     *
+     * @param list Comma separated list, or null
+     * @return Elements that are not empty
+     */
+    private static List<String> split(String list) {
+        ArrayList<String> elements = new ArrayList<String>();
+        if (list != null) {
+            for (String element : list.split(",")) {
+                String trimmed = element.trim();
+                if (!trimmed.isEmpty()) {
+                    elements.add(trimmed);
+                }
+            }
+        }
+
+        return elements;
+    }
+}
@@ -0,0 +1,202 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.tools.ant.types.selectors.SelectorUtils;
+
+/**
+ * Implementation of {@link FindingConsumer} that routes each finding to
+ * the reports whose filters match it.
+ *
+ * <p>A finding is routed to a report only if its category is in the
+ * categories of the report, including
+ * {@link Finding.Category#UNKNOWN}. See
+ * {@link CategoryFilter#getKeptCategories(Set)} for the categories that
+ * keep such findings.</p>
+ *
+ * <p>The keywords of all reports are matched by a single
+ * {@link KeywordMatcher}, so a message is scanned once however many
+ * reports there are.</p>
+ *
+ * <p>This object is not thread safe.</p>
+ */
+/* package */ final class ReportDispatcher implements FindingConsumer {
+    /**
+     * Routes to the reports.
+     */
+    private final ArrayList<Route> mRoutes = new ArrayList<Route>();
+
+    /**
+     * Keywords of all reports.
+     */
+    private final ArrayList<String> mKeywords = new ArrayList<String>();
+
+    /**
+     * Matcher of the keywords, or null if it is not built yet.
+     */
+    private KeywordMatcher mMatcher;
+
+    /**
+     * Indexes of the keywords found in the current message.
+     */
+    private final BitSet mMatched = new BitSet();
+
+    /**
+     * Add a report.
+     *
+     * @param categories Categories of findings reported, or null for all
+     *  categories
+     * @param pathPatterns Patterns of source paths reported. If empty,
+     *  findings of all paths are reported.
+     * @param keywords Keywords of messages reported. If empty, all
+     *  messages are reported.
+     * @param destination Destination of findings
+     */
+    public void addReport(Set<Finding.Category> categories,
+            List<String> pathPatterns, List<String> keywords,
+            FindingConsumer destination) {
+        String[] patterns = new String[pathPatterns.size()];
+        for (int i = 0; i < patterns.length; i++) {
+            patterns[i] = normalize(pathPatterns.get(i));
+        }
+
+        BitSet keywordIndexes = new BitSet();
+        for (String keyword : keywords) {
+            keywordIndexes.set(mKeywords.size());
+            mKeywords.add(keyword);
+        }
+
+        mRoutes.add(new Route(categories, patterns, keywordIndexes,
+                destination));
+        mMatcher = null;
+    }
+
+    @Override
+    public void consumeFinding(Finding finding) throws IOException {
+        if (mMatcher == null) {
+            mMatcher = new KeywordMatcher(mKeywords);
+        }
+
+        mMatched.clear();
+        if (!mKeywords.isEmpty()) {
+            mMatcher.match(finding.getText(), finding.getMessageStart(),
+                    mMatched);
+        }
+
+        String path = null;
+        for (Route route : mRoutes) {
+            if (route.mCategories != null &&
+                    !route.mCategories.contains(finding.getCategory())) {
+                continue;
+            }
+
+            if (!route.mKeywordIndexes.isEmpty() &&
+                    !route.mKeywordIndexes.intersects(mMatched)) {
+                continue;
+            }
+
+            if (route.mPathPatterns.length > 0) {
+                if (path == null) {
+                    path = normalize(finding.getPath());
+                }
+                if (!matchesAny(route.mPathPatterns, path)) {
+                    continue;
+                }
+            }
+
+            route.mDestination.consumeFinding(finding);
+        }
+    }
+
+    /**
+     * Check whether a path matches any pattern.
+     *
+     * @param patterns Patterns
+     * @param path Path
+     * @return true if the path matches any pattern
+     */
+    private static boolean matchesAny(String[] patterns, String path) {
+        for (String pattern : patterns) {
+            if (SelectorUtils.matchPath(pattern, path)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Replace separators of a path by the separator on this platform.
+     *
+     * @param path Path
+     * @return Normalized path
+     */
+    private static String normalize(String path) {
+        return path.replace('/', File.separatorChar).replace(
+                '\\', File.separatorChar);
+    }
+
+    /**
+     * Route to a report.
+     */
+    private static final class Route {
+        /**
+         * Categories of findings reported, or null for all categories.
+         */
+        private final Set<Finding.Category> mCategories;
+
+        /**
+         * Normalized patterns of source paths reported.
+         */
+        private final String[] mPathPatterns;
+
+        /**
+         * Indexes of keywords of messages reported.
+         */
+        private final BitSet mKeywordIndexes;
+
+        /**
+         * Destination of findings.
+         */
+        private final FindingConsumer mDestination;
+
+        /**
+         * Constructor.
+         *
+         * @param categories Categories of findings reported, or null for
+         *  all categories
+         * @param pathPatterns Normalized patterns of source paths reported
+         * @param keywordIndexes Indexes of keywords of messages reported
+         * @param destination Destination of findings
+         */
+        public Route(Set<Finding.Category> categories, String[] pathPatterns,
+                BitSet keywordIndexes, FindingConsumer destination) {
+            mCategories = categories;
+            mPathPatterns = pathPatterns;
+            mKeywordIndexes = keywordIndexes;
+            mDestination = destination;
+        }
+    }
+}
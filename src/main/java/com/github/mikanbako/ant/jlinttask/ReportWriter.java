@@ -0,0 +1,96 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+
+/**
+ * Write findings into a report as they are parsed.
+ *
+ * <p>The report is written by {@link #start()}, a call of
+ * {@link #consumeFinding(Finding)} for each finding and {@link #finish()}.
+ * Findings are not held in memory.</p>
+ */
+/* package */ abstract class ReportWriter implements FindingConsumer {
+    /**
+     * Format of plain text output as Jlint outputs.
+     */
+    public static final String FORMAT_TEXT = "text";
+
+    /**
+     * Format of XML.
+     */
+    public static final String FORMAT_XML = "xml";
+
+    /**
+     * Format of SARIF 2.1.0.
+     */
+    public static final String FORMAT_SARIF = "sarif";
+
+    /**
+     * Format of JSON.
+     */
+    public static final String FORMAT_JSON = "json";
+
+    /**
+     * Check whether a format is supported.
+     *
+     * @param format Format of report
+     * @return true if the format is supported
+     */
+    public static boolean isSupported(String format) {
+        return FORMAT_TEXT.equals(format) || FORMAT_XML.equals(format) ||
+                FORMAT_SARIF.equals(format) || FORMAT_JSON.equals(format);
+    }
+
+    /**
+     * Create a writer of a format.
+     *
+     * @param format Format of report
+     * @param writer Destination of report
+     * @return Writer of report, or null if the format is not supported
+     */
+    public static ReportWriter create(String format, BufferedWriter writer) {
+        if (FORMAT_TEXT.equals(format)) {
+            return new TextReportWriter(new WriterLineConsumer(writer));
+        } else if (FORMAT_XML.equals(format)) {
+            return new XmlReportWriter(writer);
+        } else if (FORMAT_SARIF.equals(format)) {
+            return new SarifReportWriter(writer);
+        } else if (FORMAT_JSON.equals(format)) {
+            return new JsonReportWriter(writer);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Write the beginning of report.
+     *
+     * @throws IOException If I/O error occurs
+     */
+    public abstract void start() throws IOException;
+
+    /**
+     * Write the end of report and flush it.
+     *
+     * @throws IOException If I/O error occurs
+     */
+    public abstract void finish() throws IOException;
+}
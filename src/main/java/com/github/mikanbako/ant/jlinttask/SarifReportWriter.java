@@ -0,0 +1,130 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Implementation of {@link ReportWriter} that writes SARIF 2.1.0.
+ *
+ * <p>Each category of Jlint messages is a rule, and each finding is a
+ * result of the rule.</p>
+ */
+/* package */ final class SarifReportWriter extends ReportWriter {
+    /**
+     * URI of SARIF schema.
+     */
+    private static final String SCHEMA =
+            "https://json.schemastore.org/sarif-2.1.0.json";
+
+    /**
+     * Version of SARIF.
+     */
+    private static final String VERSION = "2.1.0";
+
+    /**
+     * URI of Jlint.
+     */
+    private static final String JLINT_URI = "http://jlint.sourceforge.net/";
+
+    /**
+     * Writer of JSON.
+     */
+    private final JsonWriter mJsonWriter;
+
+    /**
+     * Constructor.
+     *
+     * @param writer Destination of report
+     */
+    public SarifReportWriter(Writer writer) {
+        mJsonWriter = new JsonWriter(writer);
+    }
+
+    @Override
+    public void start() throws IOException {
+        mJsonWriter.beginObject()
+                .name("$schema").value(SCHEMA)
+                .name("version").value(VERSION)
+                .name("runs").beginArray().beginObject();
+
+        mJsonWriter.name("tool").beginObject()
+                .name("driver").beginObject()
+                .name("name").value("Jlint")
+                .name("informationUri").value(JLINT_URI)
+                .name("rules").beginArray();
+        for (Finding.Category category : Finding.Category.values()) {
+            mJsonWriter.breakLine().beginObject()
+                    .name("id").value(category.getOptionName())
+                    .endObject();
+        }
+        mJsonWriter.endArray().endObject().endObject();
+
+        mJsonWriter.name("results").beginArray();
+    }
+
+    @Override
+    public void consumeFinding(Finding finding) throws IOException {
+        mJsonWriter.breakLine().beginObject()
+                .name("ruleId").value(finding.getCategory().getOptionName())
+                .name("ruleIndex").value(finding.getCategory().ordinal())
+                .name("level").value("warning")
+                .name("message").beginObject()
+                .name("text").value(finding.getMessage())
+                .endObject();
+
+        mJsonWriter.name("locations").beginArray().beginObject()
+                .name("physicalLocation").beginObject()
+                .name("artifactLocation").beginObject()
+                .name("uri").value(toUri(finding.getPath()))
+                .endObject();
+        if (finding.getLineNumber() > 0) {
+            // SARIF does not allow line 0.
+            mJsonWriter.name("region").beginObject()
+                    .name("startLine").value(finding.getLineNumber())
+                    .endObject();
+        }
+        mJsonWriter.endObject().endObject().endArray();
+
+        mJsonWriter.endObject();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        mJsonWriter.breakLine().endArray()
+                .endObject().endArray().endObject()
+                .breakLine().flush();
+    }
+
+    /**
+     * Convert a path of source file to URI.
+     *
+     * @param path Path of source file as output by Jlint
+     * @return Absolute URI if the path is absolute, otherwise relative URI
+     */
+    private static String toUri(String path) {
+        File file = new File(path);
+        if (file.isAbsolute()) {
+            return file.toURI().toString();
+        }
+
+        return path.replace('\\', '/');
+    }
+}
@@ -0,0 +1,478 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measured analysis durations of Jlint processes and class files.
+ *
+ * <p>The duration of a Jlint process is apportioned to its class files by
+ * their size. The durations recorded in the previous run are used to
+ * estimate how long a class file takes. A class file that has not been
+ * measured is estimated from its size.</p>
+ *
+ * <p>The peak resident set size of each Jlint process is recorded as
+ * well, and the memory that a shard needs is estimated from the largest
+ * resident set size per byte of class files measured in the previous
+ * run.</p>
+ */
+/* package */ final class ShardStatistics {
+    /**
+     * Version of the format of the statistics file.
+     */
+    private static final int FORMAT_VERSION = 2;
+
+    /**
+     * Analysis duration per byte used when nothing has been measured.
+     */
+    private static final double DEFAULT_NANOS_PER_BYTE = 1000.0;
+
+    /**
+     * Resident set size per byte of class files used when nothing has been
+     * measured.
+     */
+    private static final double DEFAULT_RESIDENT_BYTES_PER_BYTE = 64.0;
+
+    /**
+     * Smallest estimated resident set size of a Jlint process in bytes.
+     */
+    private static final long MIN_RESIDENT_BYTES = 8L * 1024 * 1024;
+
+    /**
+     * Size of buffer to read and write the statistics file in bytes.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Measured duration of a Jlint process.
+     */
+    /* package */ static final class Shard {
+        /**
+         * Number of class files.
+         */
+        private final int mClassCount;
+
+        /**
+         * Total size of class files in bytes.
+         */
+        private final long mBytes;
+
+        /**
+         * Duration in nanoseconds.
+         */
+        private final long mNanos;
+
+        /**
+         * Peak resident set size in bytes, or -1 if it is unknown.
+         */
+        private final long mPeakResidentBytes;
+
+        /**
+         * Constructor.
+         *
+         * @param classCount Number of class files
+         * @param bytes Total size of class files in bytes
+         * @param nanos Duration in nanoseconds
+         * @param peakResidentBytes Peak resident set size in bytes, or -1
+         */
+        /* package */ Shard(int classCount, long bytes, long nanos,
+                long peakResidentBytes) {
+            mClassCount = classCount;
+            mBytes = bytes;
+            mNanos = nanos;
+            mPeakResidentBytes = peakResidentBytes;
+        }
+
+        /**
+         * Get the number of class files.
+         *
+         * @return Number of class files
+         */
+        public int getClassCount() {
+            return mClassCount;
+        }
+
+        /**
+         * Get the total size of class files.
+         *
+         * @return Total size in bytes
+         */
+        public long getBytes() {
+            return mBytes;
+        }
+
+        /**
+         * Get the duration.
+         *
+         * @return Duration in nanoseconds
+         */
+        public long getNanos() {
+            return mNanos;
+        }
+
+        /**
+         * Get the peak resident set size.
+         *
+         * @return Peak resident set size in bytes, or -1 if it is unknown
+         */
+        public long getPeakResidentBytes() {
+            return mPeakResidentBytes;
+        }
+    }
+
+    /**
+     * Measured durations of class files in nanoseconds for each path.
+     */
+    private final HashMap<String, Long> mClassNanos =
+            new HashMap<String, Long>();
+
+    /**
+     * Shards measured in the previous run.
+     */
+    private final ArrayList<Shard> mPreviousShards = new ArrayList<Shard>();
+
+    /**
+     * Shards measured in this run.
+     */
+    private final ArrayList<Shard> mShards = new ArrayList<Shard>();
+
+    /**
+     * Analysis duration per byte estimated from the previous run.
+     */
+    private double mNanosPerByte = DEFAULT_NANOS_PER_BYTE;
+
+    /**
+     * Resident set size per byte of class files estimated from the
+     * previous run.
+     */
+    private double mResidentBytesPerByte = DEFAULT_RESIDENT_BYTES_PER_BYTE;
+
+    /**
+     * Load statistics from a file.
+     *
+     * If the file does not exist or is broken, empty statistics are
+     * returned.
+     *
+     * @param file Statistics file
+     * @return Statistics
+     */
+    public static ShardStatistics load(File file) {
+        ShardStatistics statistics = new ShardStatistics();
+
+        if (file.isFile()) {
+            try {
+                statistics.read(file);
+            } catch (IOException e) {
+                // The broken statistics are discarded.
+                statistics.mClassNanos.clear();
+                statistics.mPreviousShards.clear();
+            }
+        }
+
+        long bytes = 0;
+        long nanos = 0;
+        for (Shard shard : statistics.mPreviousShards) {
+            bytes += shard.getBytes();
+            nanos += shard.getNanos();
+        }
+        if (bytes > 0 && nanos > 0) {
+            statistics.mNanosPerByte = (double) nanos / bytes;
+        }
+
+        // The largest ratio is used so that processes do not exceed
+        // the estimate.
+        double residentBytesPerByte = 0;
+        for (Shard shard : statistics.mPreviousShards) {
+            if (shard.getPeakResidentBytes() > 0 && shard.getBytes() > 0) {
+                residentBytesPerByte = Math.max(residentBytesPerByte,
+                        (double) shard.getPeakResidentBytes() /
+                        shard.getBytes());
+            }
+        }
+        if (residentBytesPerByte > 0) {
+            statistics.mResidentBytesPerByte = residentBytesPerByte;
+        }
+
+        return statistics;
+    }
+
+    /**
+     * Estimate how long a class file takes to be analyzed.
+     *
+     * @param classFile Class file
+     * @return Estimated duration in nanoseconds
+     */
+    public synchronized long estimate(File classFile) {
+        Long nanos = mClassNanos.get(classFile.getPath());
+        if (nanos != null) {
+            return nanos;
+        }
+
+        return (long) (getWeight(classFile) * mNanosPerByte);
+    }
+
+    /**
+     * Estimate how long class files take to be analyzed.
+     *
+     * @param classFiles Class files
+     * @return Estimated duration in nanoseconds
+     */
+    public long estimate(List<File> classFiles) {
+        long nanos = 0;
+        for (File classFile : classFiles) {
+            nanos += estimate(classFile);
+        }
+
+        return nanos;
+    }
+
+    /**
+     * Estimate how much memory a Jlint process needs to analyze class
+     * files.
+     *
+     * @param classFiles Class files
+     * @return Estimated peak resident set size in bytes
+     */
+    public synchronized long estimateMemory(List<File> classFiles) {
+        return estimateMemory(classFiles, mResidentBytesPerByte);
+    }
+
+    /**
+     * Estimate how much memory a Jlint process needs to analyze class
+     * files from their size only.
+     *
+     * @param classFiles Class files
+     * @return Estimated peak resident set size in bytes
+     */
+    public static long estimateMemoryBySize(List<File> classFiles) {
+        return estimateMemory(classFiles, DEFAULT_RESIDENT_BYTES_PER_BYTE);
+    }
+
+    /**
+     * Estimate how much memory a Jlint process needs to analyze class
+     * files.
+     *
+     * @param classFiles Class files
+     * @param residentBytesPerByte Resident set size per byte of class files
+     * @return Estimated peak resident set size in bytes
+     */
+    private static long estimateMemory(List<File> classFiles,
+            double residentBytesPerByte) {
+        long bytes = 0;
+        for (File classFile : classFiles) {
+            bytes += getWeight(classFile);
+        }
+
+        return Math.max((long) (bytes * residentBytesPerByte),
+                MIN_RESIDENT_BYTES);
+    }
+
+    /**
+     * Record the duration of a Jlint process.
+     *
+     * @param classFiles Class files analyzed by the process
+     * @param nanos Duration in nanoseconds
+     */
+    public void record(List<File> classFiles, long nanos) {
+        record(classFiles, nanos, -1);
+    }
+
+    /**
+     * Record the duration and the peak resident set size of a Jlint
+     * process.
+     *
+     * @param classFiles Class files analyzed by the process
+     * @param nanos Duration in nanoseconds
+     * @param peakResidentBytes Peak resident set size in bytes, or -1 if it
+     *  is unknown
+     */
+    public synchronized void record(List<File> classFiles, long nanos,
+            long peakResidentBytes) {
+        long[] weights = new long[classFiles.size()];
+        long totalWeight = 0;
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = getWeight(classFiles.get(i));
+            totalWeight += weights[i];
+        }
+
+        for (int i = 0; i < weights.length; i++) {
+            mClassNanos.put(classFiles.get(i).getPath(),
+                    (long) ((double) nanos * weights[i] / totalWeight));
+        }
+
+        int classCount = 0;
+        for (File classFile : classFiles) {
+            classCount += countClassFiles(classFile);
+        }
+
+        mShards.add(new Shard(classCount, totalWeight, nanos,
+                peakResidentBytes));
+    }
+
+    /**
+     * Get the shards measured in this run.
+     *
+     * @return Shards in order of their end
+     */
+    public synchronized List<Shard> getShards() {
+        return new ArrayList<Shard>(mShards);
+    }
+
+    /**
+     * Get the weight of a class file.
+     *
+     * A directory passed instead of its class files weighs the total size
+     * of the analyzable files in its subtree, because Jlint analyzes all of
+     * them.
+     *
+     * @param classFile Class file or directory
+     * @return Size of the files in bytes, but 1 at least
+     */
+    /* package */ static long getWeight(File classFile) {
+        if (!classFile.isDirectory()) {
+            return Math.max(classFile.length(), 1);
+        }
+
+        return Math.max(measure(classFile, true), 1);
+    }
+
+    /**
+     * Count class files.
+     *
+     * A directory passed instead of its class files is counted as the
+     * number of the analyzable files in its subtree.
+     *
+     * @param classFile Class file or directory
+     * @return Number of class files, but 1 at least
+     */
+    /* package */ static int countClassFiles(File classFile) {
+        if (!classFile.isDirectory()) {
+            return 1;
+        }
+
+        return (int) Math.max(measure(classFile, false), 1);
+    }
+
+    /**
+     * Measure the analyzable files in the subtree of a directory.
+     *
+     * @param directory Directory
+     * @param bytes true to sum the size of the files, or false to count
+     *  the files
+     * @return Total size in bytes, or number of the files
+     */
+    private static long measure(File directory, boolean bytes) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return 0;
+        }
+
+        long total = 0;
+        for (File file : files) {
+            if (file.isDirectory()) {
+                total += measure(file, bytes);
+            } else if (DirectoryCollapser.isAnalyzable(file.getName())) {
+                total += bytes ? Math.max(file.length(), 1) : 1;
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * Read the statistics file.
+     *
+     * @param file Statistics file
+     * @throws IOException If the file cannot be read or is broken
+     */
+    private void read(File file) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file), BUFFER_SIZE));
+        try {
+            if (input.readInt() != FORMAT_VERSION) {
+                return;
+            }
+
+            int shardCount = input.readInt();
+            for (int i = 0; i < shardCount; i++) {
+                mPreviousShards.add(new Shard(input.readInt(),
+                        input.readLong(), input.readLong(),
+                        input.readLong()));
+            }
+
+            int classCount = input.readInt();
+            for (int i = 0; i < classCount; i++) {
+                mClassNanos.put(input.readUTF(), input.readLong());
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Save the statistics to a file.
+     *
+     * The shards of this run are saved, or the shards of the previous run
+     * if no shard is measured in this run. Durations of class files that
+     * are not measured in this run are kept.
+     *
+     * @param file Statistics file
+     * @throws IOException If I/O error occurs
+     */
+    public synchronized void save(File file) throws IOException {
+        List<Shard> shards = mShards;
+        if (shards.isEmpty()) {
+            shards = mPreviousShards;
+        }
+
+        DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(
+                        new FileOutputStream(file), BUFFER_SIZE));
+        try {
+            output.writeInt(FORMAT_VERSION);
+
+            output.writeInt(shards.size());
+            for (Shard shard : shards) {
+                output.writeInt(shard.getClassCount());
+                output.writeLong(shard.getBytes());
+                output.writeLong(shard.getNanos());
+                output.writeLong(shard.getPeakResidentBytes());
+            }
+
+            output.writeInt(mClassNanos.size());
+            for (Map.Entry<String, Long> entry : mClassNanos.entrySet()) {
+                output.writeUTF(entry.getKey());
+                output.writeLong(entry.getValue());
+            }
+        } finally {
+            output.close();
+        }
+    }
+}
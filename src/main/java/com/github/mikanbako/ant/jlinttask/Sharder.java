@@ -0,0 +1,581 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Split class files into shards that are analyzed by separate Jlint
+ * processes.
+ *
+ * <p>The result depends only on the given class files. So the same class
+ * files are always split into the same shards.</p>
+ */
+/* package */ final class Sharder {
+    /**
+     * Maximum number of passes to refine parts of a split component.
+     */
+    private static final int MAX_REFINEMENT_PASSES = 10;
+
+    /**
+     * Do not create instance because this is utility class.
+     */
+    private Sharder() {
+        // no operation.
+    }
+
+    /**
+     * Split class files by package.
+     *
+     * <p>Class files in the same directory belong to the same package, so
+     * they are never split into different shards.</p>
+     *
+     * @param classFiles Class files
+     * @param shardCount Maximum number of shards
+     * @param statistics Statistics to estimate analysis durations, or null
+     *  to balance the number of class files
+     * @return Shards that are not empty
+     * @throws IllegalArgumentException If shardCount is less than 1
+     * @see #assign(List, int, ShardStatistics)
+     */
+    public static List<List<File>> shardByPackage(List<File> classFiles,
+            int shardCount, ShardStatistics statistics) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException(
+                    "shardCount must be 1 or more.");
+        }
+
+        // Group class files by package.
+
+        TreeMap<String, List<File>> packages =
+                new TreeMap<String, List<File>>();
+        for (File classFile : classFiles) {
+            String packageKey = getPackageKey(classFile);
+
+            List<File> packageFiles = packages.get(packageKey);
+            if (packageFiles == null) {
+                packageFiles = new ArrayList<File>();
+                packages.put(packageKey, packageFiles);
+            }
+            packageFiles.add(classFile);
+        }
+
+        ArrayList<List<File>> groups = new ArrayList<List<File>>();
+        for (Map.Entry<String, List<File>> entry : packages.entrySet()) {
+            groups.add(entry.getValue());
+        }
+
+        return assign(groups, shardCount, statistics);
+    }
+
+    /**
+     * Split class files by dependencies between the classes.
+     *
+     * <p>Classes that refer to each other directly or indirectly form a
+     * connected component. A component is not split unless it is larger
+     * than an even share of the class files. So Jlint checks across the
+     * classes in the component as well as a single process. A larger
+     * component is split into parts of at most an even share each, and
+     * the references cut between the parts are minimized greedily. Jlint
+     * cannot check across the parts, so a message is added to notes for
+     * each split component.</p>
+     *
+     * <p>Files that are not class files or cannot be read as class files
+     * have no dependency.</p>
+     *
+     * @param classFiles Class files
+     * @param shardCount Maximum number of shards
+     * @param statistics Statistics to estimate analysis durations, or null
+     *  to balance the number of class files
+     * @param notes List to which messages about split components are
+     *  added, or null
+     * @return Shards that are not empty
+     * @throws IllegalArgumentException If shardCount is less than 1
+     * @see #assign(List, int, ShardStatistics)
+     */
+    public static List<List<File>> shardByDependency(List<File> classFiles,
+            int shardCount, ShardStatistics statistics, List<String> notes) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException(
+                    "shardCount must be 1 or more.");
+        }
+
+        int classCount = classFiles.size();
+
+        // Read the classes.
+
+        HashMap<String, Integer> indexes = new HashMap<String, Integer>();
+        ClassFileInfo[] classFileInfos = new ClassFileInfo[classCount];
+        for (int i = 0; i < classCount; i++) {
+            File classFile = classFiles.get(i);
+            if (!classFile.getName().endsWith(".class")) {
+                continue;
+            }
+
+            try {
+                classFileInfos[i] = ClassFileInfo.read(classFile);
+                indexes.put(classFileInfos[i].getClassName(), i);
+            } catch (IOException e) {
+                // The file is regarded as having no dependency.
+                classFileInfos[i] = null;
+            }
+        }
+
+        // Make undirected edges between the classes.
+
+        ArrayList<TreeSet<Integer>> neighbors =
+                new ArrayList<TreeSet<Integer>>();
+        for (int i = 0; i < classCount; i++) {
+            neighbors.add(new TreeSet<Integer>());
+        }
+        for (int i = 0; i < classCount; i++) {
+            if (classFileInfos[i] == null) {
+                continue;
+            }
+
+            for (String referencedClass :
+                    classFileInfos[i].getReferencedClasses()) {
+                Integer j = indexes.get(referencedClass);
+                if (j != null && j != i) {
+                    neighbors.get(i).add(j);
+                    neighbors.get(j).add(i);
+                }
+            }
+        }
+
+        // Split the classes into connected components, and split too
+        // large components.
+
+        int maxGroupSize = (classCount + shardCount - 1) / shardCount;
+        boolean[] visited = new boolean[classCount];
+        ArrayList<List<File>> groups = new ArrayList<List<File>>();
+        for (int i = 0; i < classCount; i++) {
+            if (visited[i]) {
+                continue;
+            }
+
+            List<Integer> component = search(i, neighbors, visited,
+                    Integer.MAX_VALUE);
+            if (component.size() <= maxGroupSize) {
+                groups.add(toFiles(component, classFiles));
+            } else {
+                List<List<Integer>> parts =
+                        split(component, neighbors, maxGroupSize);
+                for (List<Integer> part : parts) {
+                    groups.add(toFiles(part, classFiles));
+                }
+
+                if (notes != null) {
+                    notes.add("Classes that refer to each other are split " +
+                            "because they are too many: " +
+                            component.size() + " classes including " +
+                            classFiles.get(component.get(0)).getPath() +
+                            " are split into " + parts.size() +
+                            " parts, cutting " +
+                            countCut(parts, neighbors) + " references.");
+                }
+            }
+        }
+
+        return assign(groups, shardCount, statistics);
+    }
+
+    /**
+     * Split a connected component into parts.
+     *
+     * <p>At first, each part is grown by breadth first search from the
+     * remaining class that has the fewest neighbors. Then the parts are
+     * refined greedily in the manner of Kernighan-Lin. A class is moved to
+     * another part that has room if more of its neighbors are there, and
+     * a pair of classes in two parts are swapped if it reduces the cut
+     * references. The refinement is repeated until the cut is not reduced
+     * any more.</p>
+     *
+     * @param component Indexes of classes in the component
+     * @param neighbors Neighbors of each class
+     * @param maxPartSize Maximum number of classes in a part
+     * @return Parts, each of which has indexes in ascending order
+     */
+    /* package */ static List<List<Integer>> split(List<Integer> component,
+            List<TreeSet<Integer>> neighbors, int maxPartSize) {
+        boolean[] assigned = new boolean[neighbors.size()];
+        for (int i = 0; i < assigned.length; i++) {
+            assigned[i] = true;
+        }
+        for (int index : component) {
+            assigned[index] = false;
+        }
+
+        ArrayList<List<Integer>> parts = new ArrayList<List<Integer>>();
+        int remaining = component.size();
+        while (remaining > 0) {
+            int start = -1;
+            for (int index : component) {
+                if (!assigned[index] && (start < 0 ||
+                        neighbors.get(index).size() <
+                        neighbors.get(start).size())) {
+                    start = index;
+                }
+            }
+
+            List<Integer> part = search(
+                    start, neighbors, assigned, maxPartSize);
+            parts.add(part);
+            remaining -= part.size();
+        }
+
+        if (parts.size() > 1) {
+            refine(component, neighbors, maxPartSize, parts);
+        }
+
+        return parts;
+    }
+
+    /**
+     * Refine parts of a connected component to reduce the cut references.
+     *
+     * @param component Indexes of classes in the component
+     * @param neighbors Neighbors of each class
+     * @param maxPartSize Maximum number of classes in a part
+     * @param parts Parts to refine. They are replaced by the refined parts.
+     */
+    private static void refine(List<Integer> component,
+            List<TreeSet<Integer>> neighbors, int maxPartSize,
+            List<List<Integer>> parts) {
+        int partCount = parts.size();
+        int[] partOf = new int[neighbors.size()];
+        int[] sizes = new int[partCount];
+        for (int i = 0; i < partCount; i++) {
+            for (int index : parts.get(i)) {
+                partOf[index] = i;
+            }
+            sizes[i] = parts.get(i).size();
+        }
+
+        int[] counts = new int[partCount];
+        boolean improved = true;
+        for (int pass = 0; improved && pass < MAX_REFINEMENT_PASSES;
+                pass++) {
+            improved = false;
+
+            // Move classes to parts that have room.
+
+            for (int index : component) {
+                int target = getBestPart(index, neighbors, partOf, counts);
+                int own = partOf[index];
+                if (target != own && counts[target] > counts[own] &&
+                        sizes[target] < maxPartSize) {
+                    partOf[index] = target;
+                    sizes[own]--;
+                    sizes[target]++;
+                    improved = true;
+                }
+            }
+
+            // Swap classes that want to move to each other's part.
+
+            ArrayList<List<Integer>> candidates =
+                    new ArrayList<List<Integer>>();
+            for (int i = 0; i < partCount * partCount; i++) {
+                candidates.add(new ArrayList<Integer>());
+            }
+            for (int index : component) {
+                int target = getBestPart(index, neighbors, partOf, counts);
+                if (target != partOf[index]) {
+                    candidates.get(partOf[index] * partCount + target).add(
+                            index);
+                }
+            }
+
+            for (int from = 0; from < partCount; from++) {
+                for (int to = from + 1; to < partCount; to++) {
+                    List<Integer> forward =
+                            candidates.get(from * partCount + to);
+                    List<Integer> backward =
+                            candidates.get(to * partCount + from);
+                    int pairCount = Math.min(forward.size(), backward.size());
+                    for (int i = 0; i < pairCount; i++) {
+                        int left = forward.get(i);
+                        int right = backward.get(i);
+                        if (partOf[left] != from || partOf[right] != to) {
+                            continue;
+                        }
+
+                        int gain = getGain(left, to, neighbors, partOf) +
+                                getGain(right, from, neighbors, partOf);
+                        if (neighbors.get(left).contains(right)) {
+                            gain -= 2;
+                        }
+                        if (gain > 0) {
+                            partOf[left] = to;
+                            partOf[right] = from;
+                            improved = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        parts.clear();
+        for (int i = 0; i < partCount; i++) {
+            parts.add(new ArrayList<Integer>());
+        }
+        for (int index : component) {
+            parts.get(partOf[index]).add(index);
+        }
+        for (List<Integer> part : parts) {
+            Collections.sort(part);
+        }
+    }
+
+    /**
+     * Get the part in which the most neighbors of a class are.
+     *
+     * @param index Index of the class
+     * @param neighbors Neighbors of each class
+     * @param partOf Part of each class
+     * @param counts Array to which the number of neighbors in each part is
+     *  stored
+     * @return Index of the part. The part of the class is preferred, and
+     *  then the part that has the smallest index.
+     */
+    private static int getBestPart(int index,
+            List<TreeSet<Integer>> neighbors, int[] partOf, int[] counts) {
+        Arrays.fill(counts, 0);
+        for (int neighbor : neighbors.get(index)) {
+            counts[partOf[neighbor]]++;
+        }
+
+        int best = partOf[index];
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > counts[best]) {
+                best = i;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Get the number of cut references reduced by moving a class.
+     *
+     * @param index Index of the class
+     * @param target Part to which the class is moved
+     * @param neighbors Neighbors of each class
+     * @param partOf Part of each class
+     * @return Number of reduced cut references. It is negative if the cut
+     *  references increase.
+     */
+    private static int getGain(int index, int target,
+            List<TreeSet<Integer>> neighbors, int[] partOf) {
+        int gain = 0;
+        for (int neighbor : neighbors.get(index)) {
+            if (partOf[neighbor] == target) {
+                gain++;
+            } else if (partOf[neighbor] == partOf[index]) {
+                gain--;
+            }
+        }
+
+        return gain;
+    }
+
+    /**
+     * Count references between different parts.
+     *
+     * @param parts Parts of classes
+     * @param neighbors Neighbors of each class
+     * @return Number of cut references
+     */
+    /* package */ static int countCut(List<List<Integer>> parts,
+            List<TreeSet<Integer>> neighbors) {
+        HashMap<Integer, Integer> partOf = new HashMap<Integer, Integer>();
+        for (int i = 0; i < parts.size(); i++) {
+            for (int index : parts.get(i)) {
+                partOf.put(index, i);
+            }
+        }
+
+        int cut = 0;
+        for (Map.Entry<Integer, Integer> entry : partOf.entrySet()) {
+            for (int neighbor : neighbors.get(entry.getKey())) {
+                Integer neighborPart = partOf.get(neighbor);
+                if (neighbor > entry.getKey() && neighborPart != null &&
+                        !neighborPart.equals(entry.getValue())) {
+                    cut++;
+                }
+            }
+        }
+
+        return cut;
+    }
+
+    /**
+     * Search classes reachable from a class by breadth first search.
+     *
+     * @param start Index of the class to start from
+     * @param neighbors Neighbors of each class
+     * @param visited Whether each class is visited. Found classes are
+     *  marked as visited.
+     * @param maxSize Maximum number of classes to find
+     * @return Indexes of the found classes in ascending order
+     */
+    private static List<Integer> search(int start,
+            List<TreeSet<Integer>> neighbors, boolean[] visited,
+            int maxSize) {
+        ArrayList<Integer> found = new ArrayList<Integer>();
+        LinkedList<Integer> queue = new LinkedList<Integer>();
+
+        visited[start] = true;
+        queue.add(start);
+        while (!queue.isEmpty() && found.size() < maxSize) {
+            int index = queue.removeFirst();
+            found.add(index);
+
+            for (int neighbor : neighbors.get(index)) {
+                if (!visited[neighbor]) {
+                    visited[neighbor] = true;
+                    queue.add(neighbor);
+                }
+            }
+        }
+
+        // Classes that are queued but not found are left for other parts.
+        for (int index : queue) {
+            visited[index] = false;
+        }
+
+        Collections.sort(found);
+        return found;
+    }
+
+    /**
+     * Convert indexes of classes into class files.
+     *
+     * @param indexes Indexes of classes
+     * @param classFiles Class files
+     * @return Class files
+     */
+    private static List<File> toFiles(List<Integer> indexes,
+            List<File> classFiles) {
+        ArrayList<File> files = new ArrayList<File>();
+        for (int index : indexes) {
+            files.add(classFiles.get(index));
+        }
+
+        return files;
+    }
+
+    /**
+     * Assign groups of class files to shards.
+     *
+     * Groups are assigned in descending order of their cost, each one to
+     * the shard that has the least cost, which is the longest processing
+     * time first scheduling. Groups of the same cost keep their order.
+     * The cost of a group is its estimated analysis duration if statistics
+     * are given, or the number of its class files. A directory passed
+     * instead of its class files costs as much as the class files in it.
+     *
+     * @param groups Groups of class files. A group is never split.
+     * @param shardCount Maximum number of shards
+     * @param statistics Statistics to estimate analysis durations, or null
+     * @return Shards that are not empty
+     */
+    /* package */ static List<List<File>> assign(List<List<File>> groups,
+            int shardCount, ShardStatistics statistics) {
+        // Groups are distinguished by identity.
+        final IdentityHashMap<List<File>, Long> costs =
+                new IdentityHashMap<List<File>, Long>();
+        for (List<File> group : groups) {
+            if (statistics == null) {
+                long classCount = 0;
+                for (File classFile : group) {
+                    classCount += ShardStatistics.countClassFiles(classFile);
+                }
+                costs.put(group, classCount);
+            } else {
+                costs.put(group, statistics.estimate(group));
+            }
+        }
+
+        ArrayList<List<File>> sortedGroups =
+                new ArrayList<List<File>>(groups);
+        Collections.sort(sortedGroups, new Comparator<List<File>>() {
+            @Override
+            public int compare(List<File> left, List<File> right) {
+                return costs.get(right).compareTo(costs.get(left));
+            }
+        });
+
+        int count = Math.min(shardCount, groups.size());
+        ArrayList<List<File>> shards = new ArrayList<List<File>>();
+        long[] shardCosts = new long[count];
+        for (int i = 0; i < count; i++) {
+            shards.add(new ArrayList<File>());
+        }
+
+        for (List<File> group : sortedGroups) {
+            int cheapestShard = 0;
+            for (int i = 1; i < count; i++) {
+                if (shardCosts[i] < shardCosts[cheapestShard]) {
+                    cheapestShard = i;
+                }
+            }
+
+            shards.get(cheapestShard).addAll(group);
+            shardCosts[cheapestShard] += costs.get(group);
+        }
+
+        return shards;
+    }
+
+    /**
+     * Get the key of package to which the class file belongs.
+     *
+     * A directory passed instead of its class files is a package by itself.
+     * It is told from class files by its name.
+     *
+     * @param classFile Class file or directory
+     * @return Key of package
+     */
+    private static String getPackageKey(File classFile) {
+        File absoluteFile = classFile.getAbsoluteFile();
+        if (!DirectoryCollapser.isAnalyzable(absoluteFile.getName())) {
+            return absoluteFile.getPath();
+        }
+
+        File directory = absoluteFile.getParentFile();
+        if (directory == null) {
+            return "";
+        }
+
+        return directory.getPath();
+    }
+}
@@ -0,0 +1,131 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Vector;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.types.AbstractFileSet;
+
+/**
+ * {@link DirectoryScanner} that lists directories through a
+ * {@link FileSnapshot}.
+ *
+ * <p>Only included files are scanned. Included directories, and files and
+ * directories that are not included, are not recorded.</p>
+ *
+ * <p>Selectors are not supported, because they may depend on the contents
+ * of files. Symbolic links to directories are always followed.</p>
+ */
+/* package */ final class SnapshotScanner extends DirectoryScanner {
+    /**
+     * Snapshot through which directories are listed.
+     */
+    private final FileSnapshot mSnapshot;
+
+    /**
+     * Constructor.
+     *
+     * @param snapshot Snapshot through which directories are listed
+     */
+    /* package */ SnapshotScanner(FileSnapshot snapshot) {
+        mSnapshot = snapshot;
+    }
+
+    /**
+     * Whether a file set can be scanned by this class.
+     *
+     * @param fileSet File set
+     * @return true if the file set can be scanned by this class
+     */
+    public static boolean isApplicable(AbstractFileSet fileSet) {
+        return !fileSet.hasSelectors() && fileSet.isFollowSymlinks();
+    }
+
+    /**
+     * Scan the base directory for included files.
+     *
+     * @throws IllegalStateException If the base directory is not set
+     * @throws BuildException If the base directory does not exist or a
+     *  directory cannot be listed
+     */
+    @Override
+    public void scan() {
+        synchronized (this) {
+            if (basedir == null) {
+                throw new IllegalStateException("No basedir set");
+            }
+            if (!basedir.exists()) {
+                throw new BuildException(
+                        basedir.getAbsolutePath() + " not found.");
+            }
+            if (!basedir.isDirectory()) {
+                throw new BuildException(
+                        basedir.getAbsolutePath() + " is not a directory.");
+            }
+
+            if (includes == null) {
+                setIncludes(new String[] {"**"});
+            }
+            if (excludes == null) {
+                setExcludes(new String[0]);
+            }
+
+            clearResults();
+        }
+
+        try {
+            scanDirectory(basedir, "");
+        } catch (IOException e) {
+            throw new BuildException(e);
+        }
+    }
+
+    /**
+     * Scan a directory for included files.
+     *
+     * @param directory Directory
+     * @param relativePath Path of the directory relative to the base
+     *  directory followed by a separator, or an empty string for the base
+     *  directory
+     * @throws IOException If a directory cannot be listed
+     */
+    @SuppressWarnings("unchecked")
+    private void scanDirectory(File directory, String relativePath)
+            throws IOException {
+        FileSnapshot.Listing listing = mSnapshot.list(directory);
+
+        for (String name : listing.getFiles()) {
+            String path = relativePath + name;
+            if (isIncluded(path) && !isExcluded(path)) {
+                ((Vector<String>) filesIncluded).add(path);
+            }
+        }
+
+        for (String name : listing.getDirectories()) {
+            String path = relativePath + name;
+            if (couldHoldIncluded(path)) {
+                scanDirectory(new File(directory, name),
+                        path + File.separator);
+            }
+        }
+    }
+}
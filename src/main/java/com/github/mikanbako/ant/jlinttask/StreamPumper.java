@@ -0,0 +1,268 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * This object drains a stream of subprocess on its own thread.
+ *
+ * <p>Each line read from the stream is handed off to a bounded queue.
+ * When the stream reaches its end or fails, a line that has no text is
+ * handed off to notify the end.</p>
+ *
+ * <p>If a file is given, the stream is copied to the file as it is
+ * instead, and only the end is handed off.</p>
+ */
+/* package */ final class StreamPumper implements Runnable {
+    /**
+     * Line read from a stream.
+     */
+    /* package */ static final class Line {
+        /**
+         * Pumper that read this line.
+         */
+        private final StreamPumper mSource;
+
+        /**
+         * Text of this line. null means the end of the stream.
+         */
+        private final String mText;
+
+        /**
+         * Constructor.
+         *
+         * @param source Pumper that read this line
+         * @param text Text of this line, or null at the end of the stream
+         */
+        /* package */ Line(StreamPumper source, String text) {
+            mSource = source;
+            mText = text;
+        }
+
+        /**
+         * Get the pumper that read this line.
+         *
+         * @return Pumper that read this line
+         */
+        public StreamPumper getSource() {
+            return mSource;
+        }
+
+        /**
+         * Get the text of this line.
+         *
+         * @return Text of this line, or null at the end of the stream
+         */
+        public String getText() {
+            return mText;
+        }
+
+        /**
+         * Whether this line notifies the end of the stream.
+         *
+         * @return true if this line notifies the end of the stream
+         */
+        public boolean isEnd() {
+            return mText == null;
+        }
+    }
+
+    /**
+     * Number of bytes copied to the file at a time.
+     */
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Stream to drain.
+     */
+    private final InputStream mInputStream;
+
+    /**
+     * File to which the stream is copied, or null.
+     */
+    private final FileChannel mTarget;
+
+    /**
+     * Queue to which read lines are handed off.
+     */
+    private final BlockingQueue<Line> mQueue;
+
+    /**
+     * Error occurred while reading the stream.
+     */
+    private volatile IOException mError;
+
+    /**
+     * Thread that drains the stream.
+     */
+    private final Thread mThread;
+
+    /**
+     * Constructor.
+     *
+     * @param inputStream Stream to drain
+     * @param queue Queue to which read lines are handed off
+     * @param name Name of thread that drains the stream
+     */
+    public StreamPumper(InputStream inputStream, BlockingQueue<Line> queue,
+            String name) {
+        this(inputStream, null, queue, name);
+    }
+
+    /**
+     * Constructor with a file to which the stream is copied.
+     *
+     * @param inputStream Stream to drain
+     * @param target File to which the stream is copied as it is, or null
+     *  to hand off lines
+     * @param queue Queue to which the end is handed off
+     * @param name Name of thread that drains the stream
+     */
+    public StreamPumper(InputStream inputStream, FileChannel target,
+            BlockingQueue<Line> queue, String name) {
+        mInputStream = inputStream;
+        mTarget = target;
+        mQueue = queue;
+
+        mThread = new Thread(this, name);
+        mThread.setDaemon(true);
+    }
+
+    /**
+     * Start draining the stream.
+     */
+    public void start() {
+        mThread.start();
+    }
+
+    /**
+     * Stop draining the stream.
+     *
+     * This method is used when the consumer of the queue quits.
+     */
+    public void stop() {
+        mThread.interrupt();
+    }
+
+    /**
+     * Throw the error occurred while reading the stream.
+     *
+     * @throws IOException If I/O error occurred while reading the stream
+     */
+    public void checkError() throws IOException {
+        if (mError != null) {
+            throw mError;
+        }
+    }
+
+    @Override
+    public void run() {
+        if (mTarget != null) {
+            copy();
+            return;
+        }
+
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(
+                        mInputStream, Charset.defaultCharset()));
+        try {
+            try {
+                while (true) {
+                    String line = reader.readLine();
+                    if (line == null) {
+                        break;
+                    }
+
+                    mQueue.put(new Line(this, line));
+                }
+            } catch (IOException e) {
+                mError = e;
+            } finally {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    if (mError == null) {
+                        mError = e;
+                    }
+                }
+            }
+
+            mQueue.put(new Line(this, null));
+        } catch (InterruptedException e) {
+            // The consumer quits. So the remaining lines are discarded.
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Copy the stream to the file without decoding it.
+     *
+     * The stream of a subprocess has no channel, so the bytes cannot be
+     * transferred by the kernel and are copied through the heap. They are
+     * read into an array and written from a direct buffer, both of which
+     * are allocated once, so that FileChannel does not copy them into a
+     * temporary direct buffer again. FileChannel.transferFrom with
+     * Channels.newChannel would copy them in the same way, but in chunks
+     * of 8 KiB.
+     */
+    private void copy() {
+        try {
+            byte[] bytes = new byte[COPY_BUFFER_SIZE];
+            ByteBuffer buffer = ByteBuffer.allocateDirect(COPY_BUFFER_SIZE);
+            try {
+                while (true) {
+                    // The stream blocks until some bytes are read.
+                    int readBytes = mInputStream.read(bytes);
+                    if (readBytes < 0) {
+                        break;
+                    }
+
+                    buffer.clear();
+                    buffer.put(bytes, 0, readBytes);
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        mTarget.write(buffer);
+                    }
+                }
+            } catch (IOException e) {
+                mError = e;
+            } finally {
+                try {
+                    mInputStream.close();
+                } catch (IOException e) {
+                    if (mError == null) {
+                        mError = e;
+                    }
+                }
+            }
+
+            mQueue.put(new Line(this, null));
+        } catch (InterruptedException e) {
+            // The consumer quits.
+            Thread.currentThread().interrupt();
+        }
+    }
+}
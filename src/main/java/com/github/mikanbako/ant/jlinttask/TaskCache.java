@@ -0,0 +1,473 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache shared by jlint tasks in a project.
+ *
+ * <p>Canonical files, whether files are executable and message filtering
+ * options parsed from files are cached for each absolute path. A cached
+ * value is discarded when the modification time or the size of its file
+ * changes. Canonical directories of class files are kept by
+ * {@link CanonicalPathCache}.</p>
+ *
+ * <p>Results of Jlint can be kept as well, so that analyzing the same
+ * class files with the same Jlint and options again in the build reuses
+ * the result. The results are kept up to
+ * {@link #MAX_RESULTS_CHARACTERS} characters in total, and the least
+ * recently used ones are discarded first.</p>
+ *
+ * <p>This object is shared as a reference of the project, and it is
+ * thread-safe.</p>
+ */
+/* package */ final class TaskCache {
+    /**
+     * ID of the reference of the project.
+     */
+    public static final String REFERENCE_ID = "jlint.taskCache";
+
+    /**
+     * Largest number of characters of a result that is kept.
+     */
+    public static final long MAX_RESULT_CHARACTERS = 16L * 1024 * 1024;
+
+    /**
+     * Largest number of characters of all the kept results.
+     */
+    public static final long MAX_RESULTS_CHARACTERS = 64L * 1024 * 1024;
+
+    /**
+     * Value computed from a file.
+     *
+     * @param <T> Type of value
+     */
+    private static final class Entry<T> {
+        /**
+         * Modification time of the file.
+         */
+        private final long mModifiedTime;
+
+        /**
+         * Size of the file in bytes.
+         */
+        private final long mLength;
+
+        /**
+         * Value.
+         */
+        private final T mValue;
+
+        /**
+         * Constructor.
+         *
+         * @param file File from which the value is computed
+         * @param value Value
+         */
+        /* package */ Entry(File file, T value) {
+            mModifiedTime = file.lastModified();
+            mLength = file.length();
+            mValue = value;
+        }
+
+        /**
+         * Whether the file is not modified after the value is computed.
+         *
+         * @param file File
+         * @return true if the value is still valid
+         */
+        public boolean isValid(File file) {
+            return mModifiedTime != 0 &&
+                    mModifiedTime == file.lastModified() &&
+                    mLength == file.length();
+        }
+    }
+
+    /**
+     * Kept result of Jlint.
+     */
+    private static final class Result {
+        /**
+         * Lines of the result.
+         */
+        private final List<String> mLines;
+
+        /**
+         * Number of characters of the lines.
+         */
+        private final long mCharacters;
+
+        /**
+         * Constructor.
+         *
+         * @param lines Lines of the result
+         * @param characters Number of characters of the lines
+         */
+        /* package */ Result(List<String> lines, long characters) {
+            mLines = lines;
+            mCharacters = characters;
+        }
+    }
+
+    /**
+     * {@link LineConsumer} that keeps the lines that it passes to another
+     * {@link LineConsumer}.
+     *
+     * <p>Lines are not kept after {@link TaskCache#MAX_RESULT_CHARACTERS}
+     * characters.</p>
+     */
+    /* package */ static final class ResultRecorder implements LineConsumer {
+        /**
+         * Destination of lines.
+         */
+        private final LineConsumer mOutput;
+
+        /**
+         * Kept lines, or null if the lines are too many.
+         */
+        private ArrayList<String> mLines = new ArrayList<String>();
+
+        /**
+         * Number of characters of the kept lines.
+         */
+        private long mCharacters;
+
+        /**
+         * Constructor.
+         *
+         * @param output Destination of lines
+         */
+        /* package */ ResultRecorder(LineConsumer output) {
+            mOutput = output;
+        }
+
+        @Override
+        public synchronized void consumeLine(String line) throws IOException {
+            if (mLines != null) {
+                mCharacters += line.length();
+                if (mCharacters <= MAX_RESULT_CHARACTERS) {
+                    mLines.add(line);
+                } else {
+                    mLines = null;
+                }
+            }
+
+            mOutput.consumeLine(line);
+        }
+
+        /**
+         * Get the kept lines.
+         *
+         * @return Kept lines, or null if the lines are too many
+         */
+        public synchronized List<String> getLines() {
+            if (mLines == null) {
+                return null;
+            }
+
+            return Collections.unmodifiableList(mLines);
+        }
+
+        /**
+         * Get the number of characters of the kept lines.
+         *
+         * @return Number of characters
+         */
+        public synchronized long getCharacters() {
+            return mCharacters;
+        }
+    }
+
+    /**
+     * Canonical files for each absolute path.
+     */
+    private final ConcurrentHashMap<String, Entry<File>> mCanonicalFiles =
+            new ConcurrentHashMap<String, Entry<File>>();
+
+    /**
+     * Whether files are executable for each absolute path.
+     */
+    private final ConcurrentHashMap<String, Entry<Boolean>> mExecutables =
+            new ConcurrentHashMap<String, Entry<Boolean>>();
+
+    /**
+     * Message filtering options for each absolute path of files.
+     */
+    private final ConcurrentHashMap<String, Entry<Set<String>>>
+            mFilterOptions =
+                    new ConcurrentHashMap<String, Entry<Set<String>>>();
+
+    /**
+     * Canonical directories of class files.
+     */
+    private final CanonicalPathCache mCanonicalPaths =
+            new CanonicalPathCache();
+
+    /**
+     * Results of Jlint for each key, in order of their last use. Guarded
+     * by itself.
+     */
+    private final LinkedHashMap<String, Result> mResults =
+            new LinkedHashMap<String, Result>(16, 0.75f, true);
+
+    /**
+     * Number of characters of all the kept results. Guarded by
+     * {@link #mResults}.
+     */
+    private long mResultsCharacters;
+
+    /**
+     * Get the cache of canonical directories of class files.
+     *
+     * @return Cache of canonical directories
+     */
+    public CanonicalPathCache getCanonicalPathCache() {
+        return mCanonicalPaths;
+    }
+
+    /**
+     * Get the canonical file of a file.
+     *
+     * @param file File
+     * @return Canonical file
+     * @throws IOException If the file cannot be canonicalized
+     */
+    public File getCanonicalFile(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        Entry<File> entry = mCanonicalFiles.get(path);
+        if (entry == null || !entry.isValid(file)) {
+            entry = new Entry<File>(file, file.getCanonicalFile());
+            mCanonicalFiles.put(path, entry);
+        }
+
+        return entry.mValue;
+    }
+
+    /**
+     * Whether a file is executable.
+     *
+     * @param file File
+     * @return true if the file is executable
+     */
+    public boolean canExecute(File file) {
+        String path = file.getAbsolutePath();
+        Entry<Boolean> entry = mExecutables.get(path);
+        if (entry == null || !entry.isValid(file)) {
+            entry = new Entry<Boolean>(file, file.canExecute());
+            mExecutables.put(path, entry);
+        }
+
+        return entry.mValue;
+    }
+
+    /**
+     * Get message filtering options in a file.
+     *
+     * @param file File of message filtering options in ASCII
+     * @return Unmodifiable set of message filtering options
+     * @throws IOException If the file cannot be read
+     */
+    public Set<String> getFilterOptions(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        Entry<Set<String>> entry = mFilterOptions.get(path);
+        if (entry == null || !entry.isValid(file)) {
+            // The options are kept only if the file is not modified while
+            // it is read.
+            long modifiedTime = file.lastModified();
+            long length = file.length();
+
+            Set<String> options;
+            Reader reader = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(file), Charset.forName("ASCII")));
+            try {
+                options = Collections.unmodifiableSet(
+                        OptionParser.parse(reader));
+            } finally {
+                reader.close();
+            }
+
+            entry = new Entry<Set<String>>(file, options);
+            if (entry.mModifiedTime == modifiedTime &&
+                    entry.mLength == length) {
+                mFilterOptions.put(path, entry);
+            }
+        }
+
+        return entry.mValue;
+    }
+
+    /**
+     * Get a kept result of Jlint.
+     *
+     * @param key Key computed by
+     *  {@link #computeResultKey(File, Set, File, List, String)}
+     * @return Lines of the result, or null if no result is kept
+     */
+    public List<String> getResult(String key) {
+        synchronized (mResults) {
+            Result result = mResults.get(key);
+            if (result == null) {
+                return null;
+            }
+
+            return result.mLines;
+        }
+    }
+
+    /**
+     * Keep a result of Jlint.
+     *
+     * The least recently used results are discarded so that the kept
+     * results do not exceed {@link #MAX_RESULTS_CHARACTERS} characters.
+     *
+     * @param key Key computed by
+     *  {@link #computeResultKey(File, Set, File, List, String)}
+     * @param lines Lines of the result
+     * @param characters Number of characters of the lines
+     */
+    public void putResult(String key, List<String> lines, long characters) {
+        if (characters > MAX_RESULTS_CHARACTERS) {
+            return;
+        }
+
+        synchronized (mResults) {
+            Result previous = mResults.put(key, new Result(lines, characters));
+            if (previous != null) {
+                mResultsCharacters -= previous.mCharacters;
+            }
+            mResultsCharacters += characters;
+
+            Iterator<Map.Entry<String, Result>> iterator =
+                    mResults.entrySet().iterator();
+            while (mResultsCharacters > MAX_RESULTS_CHARACTERS) {
+                Result eldest = iterator.next().getValue();
+                iterator.remove();
+                mResultsCharacters -= eldest.mCharacters;
+            }
+        }
+    }
+
+    /**
+     * Discard all the kept results.
+     *
+     * This method is called when the build finishes, because no task can
+     * reuse the results after that.
+     */
+    public void clearResults() {
+        synchronized (mResults) {
+            mResults.clear();
+            mResultsCharacters = 0;
+        }
+    }
+
+    /**
+     * Compute the key of a result of Jlint.
+     *
+     * The key depends on the Jlint executable, the options, the source
+     * directory, the paths, modification times and sizes of class files,
+     * and the configuration of the execution.
+     *
+     * A file modified just before this method is called may be modified
+     * again within the resolution of modification times without changing
+     * its size. No key is computed for such files, like
+     * {@link FileSnapshot}.
+     *
+     * @param jlintExecutable Canonical Jlint executable file
+     * @param options Options of Jlint
+     * @param sourceDirectory Canonical source directory, or null
+     * @param classFiles Canonical class files
+     * @param configuration Other configuration that changes the result
+     * @return Key of the result, or null if a class file is a directory,
+     *  whose modification is not detected, or a file is modified too
+     *  recently
+     */
+    public static String computeResultKey(File jlintExecutable,
+            Set<String> options, File sourceDirectory, List<File> classFiles,
+            String configuration) {
+        long now = System.currentTimeMillis();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        try {
+            if (!writeFile(output, jlintExecutable, now)) {
+                return null;
+            }
+            output.writeInt(options.size());
+            for (String option : options) {
+                output.writeUTF(option);
+            }
+            output.writeUTF(sourceDirectory == null ?
+                    "" : sourceDirectory.getPath());
+            output.writeUTF(configuration);
+
+            output.writeInt(classFiles.size());
+            for (File classFile : classFiles) {
+                if (classFile.isDirectory() ||
+                        !writeFile(output, classFile, now)) {
+                    return null;
+                }
+            }
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw IOException.
+            throw new IllegalStateException(e);
+        }
+
+        return AnalysisCache.digest(bytes.toByteArray());
+    }
+
+    /**
+     * Write the path, the modification time and the size of a file.
+     *
+     * @param output Output
+     * @param file File
+     * @param now Current time in milliseconds
+     * @return false if the file is modified too recently to be identified
+     *  by its modification time
+     * @throws IOException If I/O error occurs
+     */
+    private static boolean writeFile(DataOutputStream output, File file,
+            long now) throws IOException {
+        long modifiedTime = file.lastModified();
+        if (modifiedTime == 0 || now - modifiedTime <
+                FileSnapshot.MODIFIED_TIME_RESOLUTION_MILLIS) {
+            return false;
+        }
+
+        output.writeUTF(file.getPath());
+        output.writeLong(modifiedTime);
+        output.writeLong(file.length());
+
+        return true;
+    }
+}
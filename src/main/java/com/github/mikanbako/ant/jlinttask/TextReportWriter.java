@@ -0,0 +1,63 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.IOException;
+
+/**
+ * Implementation of {@link ReportWriter} that writes findings as Jlint
+ * outputs them.
+ *
+ * <p>A summary line that counts the findings is written at the end.</p>
+ */
+/* package */ final class TextReportWriter extends ReportWriter {
+    /**
+     * Destination of report.
+     */
+    private final LineConsumer mDestination;
+
+    /**
+     * Number of findings.
+     */
+    private long mCount;
+
+    /**
+     * Constructor.
+     *
+     * @param destination Destination of report
+     */
+    public TextReportWriter(LineConsumer destination) {
+        mDestination = destination;
+    }
+
+    @Override
+    public void start() {
+        // no operation.
+    }
+
+    @Override
+    public void consumeFinding(Finding finding) throws IOException {
+        mDestination.consumeLine(finding.getText());
+        mCount++;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        mDestination.consumeLine(OutputMerger.formatSummary(mCount));
+    }
+}
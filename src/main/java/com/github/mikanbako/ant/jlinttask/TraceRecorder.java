@@ -0,0 +1,235 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Record spans of an execution and write them in the trace event format.
+ *
+ * <p>The trace event format is read by trace viewers, for example
+ * chrome://tracing and Perfetto. Each span is a complete event on the
+ * thread that began it, so nested spans on a thread are displayed
+ * nested. This object is thread safe.</p>
+ */
+/* package */ final class TraceRecorder {
+    /**
+     * Value of {@link System#nanoTime()} at the start of the trace.
+     */
+    private final long mStartNanos = System.nanoTime();
+
+    /**
+     * Recorded spans.
+     */
+    private final ArrayList<Span> mSpans = new ArrayList<Span>();
+
+    /**
+     * Names of threads that began spans.
+     */
+    private final LinkedHashMap<Long, String> mThreadNames =
+            new LinkedHashMap<Long, String>();
+
+    /**
+     * Begin a span on the current thread.
+     *
+     * @param name Name of span
+     * @param category Category of span
+     * @return Span that is recorded by {@link Span#end()}
+     */
+    public Span begin(String name, String category) {
+        Thread thread = Thread.currentThread();
+        synchronized (this) {
+            if (!mThreadNames.containsKey(thread.getId())) {
+                mThreadNames.put(thread.getId(), thread.getName());
+            }
+        }
+
+        return new Span(name, category, thread.getId());
+    }
+
+    /**
+     * Write the recorded spans as JSON.
+     *
+     * @param writer Destination
+     * @throws IOException If I/O error occurs
+     */
+    public synchronized void write(Writer writer) throws IOException {
+        long processId = getProcessId();
+
+        JsonWriter jsonWriter = new JsonWriter(writer);
+        jsonWriter.beginObject().name("traceEvents").beginArray();
+
+        jsonWriter.breakLine().beginObject()
+                .name("name").value("process_name")
+                .name("ph").value("M")
+                .name("pid").value(processId)
+                .name("args").beginObject()
+                .name("name").value("Ant")
+                .endObject().endObject();
+        for (Map.Entry<Long, String> thread : mThreadNames.entrySet()) {
+            jsonWriter.breakLine().beginObject()
+                    .name("name").value("thread_name")
+                    .name("ph").value("M")
+                    .name("pid").value(processId)
+                    .name("tid").value(thread.getKey())
+                    .name("args").beginObject()
+                    .name("name").value(thread.getValue())
+                    .endObject().endObject();
+        }
+
+        for (Span span : mSpans) {
+            jsonWriter.breakLine().beginObject()
+                    .name("name").value(span.mName)
+                    .name("cat").value(span.mCategory)
+                    .name("ph").value("X")
+                    .name("ts").value(toMicros(span.mBeginNanos - mStartNanos))
+                    .name("dur").value(toMicros(span.mDurationNanos))
+                    .name("pid").value(processId)
+                    .name("tid").value(span.mThreadId);
+            if (!span.mArguments.isEmpty()) {
+                jsonWriter.name("args").beginObject();
+                for (Map.Entry<String, Long> argument :
+                        span.mArguments.entrySet()) {
+                    jsonWriter.name(argument.getKey())
+                            .value(argument.getValue());
+                }
+                jsonWriter.endObject();
+            }
+            jsonWriter.endObject();
+        }
+
+        jsonWriter.breakLine().endArray()
+                .name("displayTimeUnit").value("ms")
+                .endObject().breakLine().flush();
+    }
+
+    /**
+     * Record an ended span.
+     *
+     * @param span Span
+     */
+    private synchronized void add(Span span) {
+        mSpans.add(span);
+    }
+
+    /**
+     * Convert nanoseconds to microseconds.
+     *
+     * @param nanos Nanoseconds
+     * @return Microseconds
+     */
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    /**
+     * Get the ID of this process.
+     *
+     * @return ID of this process, or 0 if it is unknown
+     */
+    private static long getProcessId() {
+        // The name of the runtime is "pid@host" on most virtual machines.
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        int atIndex = name.indexOf('@');
+        if (atIndex > 0) {
+            try {
+                return Long.parseLong(name.substring(0, atIndex));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Span of an execution.
+     */
+    public final class Span {
+        /**
+         * Name of span.
+         */
+        private final String mName;
+
+        /**
+         * Category of span.
+         */
+        private final String mCategory;
+
+        /**
+         * ID of the thread that began this span.
+         */
+        private final long mThreadId;
+
+        /**
+         * Value of {@link System#nanoTime()} at the beginning.
+         */
+        private final long mBeginNanos = System.nanoTime();
+
+        /**
+         * Duration in nanoseconds.
+         */
+        private long mDurationNanos;
+
+        /**
+         * Arguments displayed with this span.
+         */
+        private final LinkedHashMap<String, Long> mArguments =
+                new LinkedHashMap<String, Long>();
+
+        /**
+         * Constructor.
+         *
+         * @param name Name of span
+         * @param category Category of span
+         * @param threadId ID of the thread that began this span
+         */
+        private Span(String name, String category, long threadId) {
+            mName = name;
+            mCategory = category;
+            mThreadId = threadId;
+        }
+
+        /**
+         * Set an argument displayed with this span.
+         *
+         * @param name Name of argument
+         * @param value Value of argument
+         * @return This object
+         */
+        public Span setArgument(String name, long value) {
+            mArguments.put(name, value);
+
+            return this;
+        }
+
+        /**
+         * End this span and record it.
+         */
+        public void end() {
+            mDurationNanos = System.nanoTime() - mBeginNanos;
+            add(this);
+        }
+    }
+}
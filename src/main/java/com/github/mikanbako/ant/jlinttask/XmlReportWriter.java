@@ -0,0 +1,171 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Implementation of {@link ReportWriter} that writes XML.
+ *
+ * <p>The report is formatted as below.</p>
+ *
+ * <pre>
+ * &lt;jlint&gt;
+ *   &lt;finding path="Foo.java" line="12" category="data_flow"&gt;
+ *     message
+ *   &lt;/finding&gt;
+ *   &lt;summary count="1"/&gt;
+ * &lt;/jlint&gt;
+ * </pre>
+ *
+ * <p>Characters that are not allowed in XML 1.0, for example control
+ * characters in a message, are replaced with U+FFFD so that the report
+ * is always well-formed.</p>
+ */
+/* package */ final class XmlReportWriter extends ReportWriter {
+    /**
+     * Character that replaces characters not allowed in XML 1.0.
+     */
+    private static final char REPLACEMENT_CHARACTER = '\uFFFD';
+
+    /**
+     * Destination of report.
+     */
+    private final Writer mWriter;
+
+    /**
+     * Writer of XML.
+     */
+    private XMLStreamWriter mXmlWriter;
+
+    /**
+     * Number of findings.
+     */
+    private long mCount;
+
+    /**
+     * Constructor.
+     *
+     * @param writer Destination of report
+     */
+    public XmlReportWriter(Writer writer) {
+        mWriter = writer;
+    }
+
+    @Override
+    public void start() throws IOException {
+        try {
+            mXmlWriter = XMLOutputFactory.newInstance().createXMLStreamWriter(
+                    mWriter);
+            mXmlWriter.writeStartDocument("UTF-8", "1.0");
+            mXmlWriter.writeCharacters("\n");
+            mXmlWriter.writeStartElement("jlint");
+            mXmlWriter.writeCharacters("\n");
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void consumeFinding(Finding finding) throws IOException {
+        try {
+            mXmlWriter.writeCharacters("  ");
+            mXmlWriter.writeStartElement("finding");
+            mXmlWriter.writeAttribute("path", sanitize(finding.getPath()));
+            mXmlWriter.writeAttribute("line",
+                    Integer.toString(finding.getLineNumber()));
+            mXmlWriter.writeAttribute("category",
+                    finding.getCategory().getOptionName());
+            mXmlWriter.writeCharacters(sanitize(finding.getMessage()));
+            mXmlWriter.writeEndElement();
+            mXmlWriter.writeCharacters("\n");
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+
+        mCount++;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        try {
+            mXmlWriter.writeCharacters("  ");
+            mXmlWriter.writeEmptyElement("summary");
+            mXmlWriter.writeAttribute("count", Long.toString(mCount));
+            mXmlWriter.writeCharacters("\n");
+            mXmlWriter.writeEndElement();
+            mXmlWriter.writeCharacters("\n");
+            mXmlWriter.writeEndDocument();
+            mXmlWriter.flush();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Replace characters that are not allowed in XML 1.0.
+     *
+     * @param text Text
+     * @return Text in which the characters are replaced with U+FFFD, or
+     *  the text itself if it has no such character
+     */
+    /* package */ static String sanitize(String text) {
+        int length = text.length();
+        StringBuilder builder = null;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            boolean allowed;
+            int charCount = 1;
+            if (Character.isHighSurrogate(c)) {
+                allowed = i + 1 < length &&
+                        Character.isLowSurrogate(text.charAt(i + 1));
+                if (allowed) {
+                    charCount = 2;
+                }
+            } else {
+                allowed = c == '\t' || c == '\n' || c == '\r' ||
+                        (c >= ' ' && c < Character.MIN_SURROGATE) ||
+                        (c > Character.MAX_SURROGATE && c < '\uFFFE');
+            }
+
+            if (!allowed && builder == null) {
+                builder = new StringBuilder(length);
+                builder.append(text, 0, i);
+            }
+            if (builder != null) {
+                if (allowed) {
+                    builder.append(text, i, i + charCount);
+                } else {
+                    builder.append(REPLACEMENT_CHARACTER);
+                }
+            }
+            i += charCount - 1;
+        }
+
+        if (builder == null) {
+            return text;
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,202 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.File;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Test {@link BaselineChecker} and {@link LongHashSet}.
+ */
+public class BaselineCheckerTest extends TestCase {
+    /**
+     * Test that fingerprints do not depend on line numbers and separators.
+     */
+    @Test
+    public void testFingerprint() {
+        long fingerprint = FindingParser.parse(
+                "src/a/Foo.java:10: Comparison always produces the same " +
+                "result").getFingerprint();
+
+        assertEquals(fingerprint, FindingParser.parse(
+                "src\\a\\Foo.java:25: Comparison always produces the same " +
+                "result").getFingerprint());
+        assertFalse(fingerprint == FindingParser.parse(
+                "src/a/Bar.java:10: Comparison always produces the same " +
+                "result").getFingerprint());
+    }
+
+    /**
+     * Test that fingerprints do not depend on the base directory.
+     */
+    @Test
+    public void testFingerprintWithBaseDirectory() {
+        long fingerprint = FindingParser.parse(
+                "/home/a/src/p/Foo.java:10: Comparison always produces " +
+                "the same result").getFingerprint("/home/a/src/", 0);
+
+        assertEquals(fingerprint, FindingParser.parse(
+                "C:\\b\\src\\p\\Foo.java:10: Comparison always " +
+                "produces the same result").getFingerprint("C:/b/src/", 0));
+        assertEquals(fingerprint, FindingParser.parse(
+                "p/Foo.java:10: Comparison always produces the same " +
+                "result").getFingerprint("/home/a/src/", 0));
+        assertFalse(fingerprint == FindingParser.parse(
+                "/home/a/src/p/Foo.java:10: Comparison always produces " +
+                "the same result").getFingerprint("/home/a/src/", 1));
+    }
+
+    /**
+     * Test checking findings that are repeated in a file.
+     *
+     * A repeated finding is new if the baseline has fewer occurrences.
+     *
+     * @throws Exception If error occurs
+     */
+    @Test
+    public void testCheckRepeatedFindings() throws Exception {
+        File sourceDirectory = new File("src").getAbsoluteFile();
+        String path = new File(sourceDirectory, "Foo.java").getPath();
+        String finding = "Compare strings as object references";
+
+        LineRecorder output = new LineRecorder();
+        BaselineChecker checker = new BaselineChecker(new LongHashSet(),
+                sourceDirectory, null, new TextReportWriter(output), output,
+                true);
+        checker.consumeFinding(FindingParser.parse(path + ":1: " + finding));
+
+        LineRecorder newFindings = new LineRecorder();
+        checker = new BaselineChecker(checker.getFingerprints(), null, null,
+                new TextReportWriter(output), newFindings, true);
+        FindingParser parser = new FindingParser(checker);
+        parser.consumeLine("Foo.java:5: " + finding);
+        parser.consumeLine("Foo.java:9: " + finding);
+        parser.consumeLine("Bar.java:9: " + finding);
+
+        assertEquals(Arrays.asList("Foo.java:9: " + finding,
+                "Bar.java:9: " + finding), newFindings.getLines());
+        assertEquals(3, checker.getFingerprints().size());
+    }
+
+    /**
+     * Test checking findings against a baseline.
+     *
+     * @throws Exception If error occurs
+     */
+    @Test
+    public void testCheck() throws Exception {
+        LongHashSet baseline = new LongHashSet();
+        baseline.add(FindingParser.parse(
+                "Foo.java:1: Compare strings as object references")
+                .getFingerprint());
+
+        LineRecorder output = new LineRecorder();
+        LineRecorder newFindings = new LineRecorder();
+        BaselineChecker checker = new BaselineChecker(baseline, null, null,
+                new TextReportWriter(output), newFindings, true);
+
+        FindingParser parser = new FindingParser(checker, output);
+        parser.consumeLine(
+                "Foo.java:5: Compare strings as object references");
+        parser.consumeLine("Foo.java:6: Zero operand for + operation");
+        parser.consumeLine("Verification completed: 2 reported messages.");
+
+        assertEquals(1, checker.getNewFindingCount());
+        assertEquals(Arrays.asList(
+                "Foo.java:6: Zero operand for + operation"),
+                newFindings.getLines());
+        assertEquals(3, output.getLines().size());
+        assertEquals(2, checker.getFingerprints().size());
+    }
+
+    /**
+     * Test that fingerprints are not recorded unless they are requested.
+     *
+     * @throws Exception If error occurs
+     */
+    @Test
+    public void testCheckWithoutRecordingFingerprints() throws Exception {
+        String finding = "Foo.java:5: Compare strings as object references";
+        LongHashSet baseline = new LongHashSet();
+        baseline.add(FindingParser.parse(finding).getFingerprint());
+
+        LineRecorder output = new LineRecorder();
+        LineRecorder newFindings = new LineRecorder();
+        BaselineChecker checker = new BaselineChecker(baseline, null, null,
+                new TextReportWriter(output), newFindings, false);
+
+        FindingParser parser = new FindingParser(checker);
+        parser.consumeLine(finding);
+        parser.consumeLine(finding);
+
+        assertEquals(1, checker.getNewFindingCount());
+        assertEquals(Arrays.asList(finding), newFindings.getLines());
+        assertNull(checker.getFingerprints());
+    }
+
+    /**
+     * Test saving and loading a baseline.
+     *
+     * @throws Exception If error occurs
+     */
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        File file = File.createTempFile("baseline", "");
+        try {
+            LongHashSet baseline = new LongHashSet();
+            baseline.add(0);
+            baseline.add(-1);
+            baseline.add(Long.MAX_VALUE);
+
+            BaselineChecker.save(file, baseline);
+            LongHashSet loaded = BaselineChecker.load(file);
+
+            assertEquals(3, loaded.size());
+            assertTrue(loaded.contains(0));
+            assertTrue(loaded.contains(-1));
+            assertTrue(loaded.contains(Long.MAX_VALUE));
+            assertFalse(loaded.contains(1));
+        } finally {
+            file.delete();
+        }
+
+        assertEquals(0, BaselineChecker.load(file).size());
+    }
+
+    /**
+     * Test growing a set.
+     */
+    @Test
+    public void testLongHashSet() {
+        LongHashSet set = new LongHashSet();
+        for (long i = 0; i < 100000; i++) {
+            assertTrue(set.add(i * 31));
+        }
+        assertFalse(set.add(31));
+
+        assertEquals(100000, set.size());
+        for (long i = 0; i < 100000; i++) {
+            assertTrue(set.contains(i * 31));
+            assertFalse(set.contains(i * 31 + 1));
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Test {@link CanonicalPathCache}.
+ */
+public class CanonicalPathCacheTest extends TestCase {
+    /**
+     * Temporary directory.
+     */
+    private File mDirectory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        mDirectory = File.createTempFile("canonical", "").getCanonicalFile();
+        mDirectory.delete();
+        mDirectory.mkdir();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TestFiles.delete(mDirectory);
+
+        super.tearDown();
+    }
+
+    /**
+     * Test canonicalizing files in the same directory.
+     *
+     * The directory is canonicalized once.
+     */
+    @Test
+    public void testGetCanonicalFile() throws Exception {
+        File packageDirectory = new File(mDirectory, "p");
+        packageDirectory.mkdir();
+        File relativeDirectory = new File(
+                new File(packageDirectory, ".."), "p");
+
+        CanonicalPathCache cache = new CanonicalPathCache();
+
+        assertEquals(new File(packageDirectory, "A.class"),
+                cache.getCanonicalFile(
+                        new File(relativeDirectory, "A.class")));
+        assertEquals(new File(packageDirectory, "B.class"),
+                cache.getCanonicalFile(
+                        new File(relativeDirectory, "B.class")));
+        assertEquals(1, cache.size());
+    }
+
+    /**
+     * Test canonicalizing a directory that is a symbolic link and a file
+     * in it.
+     */
+    @Test
+    public void testGetCanonicalFileInLink() throws Exception {
+        File packageDirectory = new File(mDirectory, "p");
+        packageDirectory.mkdir();
+        File link = new File(mDirectory, "link");
+        try {
+            Process process = Runtime.getRuntime().exec(new String[] {
+                    "ln", "-s", packageDirectory.getPath(), link.getPath()});
+            if (process.waitFor() != 0) {
+                return;
+            }
+        } catch (Exception e) {
+            // Symbolic links are not supported.
+            return;
+        }
+
+        CanonicalPathCache cache = new CanonicalPathCache();
+
+        assertEquals(new File(packageDirectory, "A.class"),
+                cache.getCanonicalFile(new File(link, "A.class")));
+        assertEquals(packageDirectory, cache.getCanonicalDirectory(link));
+    }
+
+    /**
+     * Test validating a directory again after a symbolic link on its path
+     * is changed.
+     *
+     * The directory is canonicalized again only after
+     * {@link CanonicalPathCache#revalidate()}.
+     */
+    @Test
+    public void testRevalidate() throws Exception {
+        File oldDirectory = new File(mDirectory, "old");
+        oldDirectory.mkdir();
+        oldDirectory.setLastModified(1000000000000L);
+        File newDirectory = new File(mDirectory, "new");
+        newDirectory.mkdir();
+        File link = new File(mDirectory, "link");
+        if (!createLink(oldDirectory, link)) {
+            return;
+        }
+
+        CanonicalPathCache cache = new CanonicalPathCache();
+        assertEquals(oldDirectory, cache.getCanonicalDirectory(link));
+
+        link.delete();
+        assertTrue(createLink(newDirectory, link));
+        assertEquals(oldDirectory, cache.getCanonicalDirectory(link));
+
+        cache.revalidate();
+        assertEquals(newDirectory, cache.getCanonicalDirectory(link));
+    }
+
+    /**
+     * Create a symbolic link.
+     *
+     * @param target Target of the link
+     * @param link Link
+     * @return false if symbolic links are not supported
+     */
+    private static boolean createLink(File target, File link) {
+        try {
+            Process process = Runtime.getRuntime().exec(new String[] {
+                    "ln", "-s", target.getPath(), link.getPath()});
+            return process.waitFor() == 0;
+        } catch (Exception e) {
+            // Symbolic links are not supported.
+            return false;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Test {@link ClassFileInfo}.
+ */
+public class ClassFileInfoTest extends TestCase {
+    /**
+     * Read the content of a class file of a class.
+     *
+     * @param type Class
+     * @return Content of the class file
+     * @throws IOException If I/O error occurs
+     */
+    /* package */ static byte[] readClassFile(Class<?> type) throws
+            IOException {
+        InputStream input = type.getResourceAsStream(
+                "/" + type.getName().replace('.', '/') + ".class");
+        try {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            while (true) {
+                int length = input.read(buffer);
+                if (length < 0) {
+                    break;
+                }
+                content.write(buffer, 0, length);
+            }
+
+            return content.toByteArray();
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Test reading a class file.
+     *
+     * The name of the class, its source file and referred classes are read.
+     */
+    @Test
+    public void testRead() throws Exception {
+        ClassFileInfo info = ClassFileInfo.read(
+                readClassFile(LineRecorder.class));
+
+        assertEquals("com/github/mikanbako/ant/jlinttask/LineRecorder",
+                info.getClassName());
+        assertEquals("LineRecorder.java", info.getSourceFile());
+        assertEquals("com/github/mikanbako/ant/jlinttask/LineRecorder.java",
+                info.getSourcePath());
+        assertTrue(info.getReferencedClasses().contains(
+                "com/github/mikanbako/ant/jlinttask/LineConsumer"));
+        assertTrue(info.getReferencedClasses().contains("java/util/List"));
+        assertFalse(info.getReferencedClasses().contains(
+                info.getClassName()));
+    }
+
+    /**
+     * Test reading a file that is not a class file.
+     *
+     * {@link IOException} is thrown.
+     */
+    @Test
+    public void testReadInvalidFile() {
+        try {
+            ClassFileInfo.read(new byte[] {1, 2, 3, 4, 5});
+            fail();
+        } catch (IOException e) {
+            // Expected.
+            assertNotNull(e.getMessage());
+        }
+    }
+
+    /**
+     * Create a class file that has a class "A" and an attribute.
+     *
+     * @param descriptorIndex Index of the descriptor of CONSTANT_MethodType
+     * @param attributeNameIndex Index of the name of the class attribute
+     * @return Content of the class file
+     * @throws IOException If I/O error occurs
+     */
+    private static byte[] createClassFile(int descriptorIndex,
+            int attributeNameIndex) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+
+        output.writeInt(0xCAFEBABE);
+        output.writeShort(0);
+        output.writeShort(50);
+
+        // #1 Utf8 "A", #2 Class #1, #3 MethodType.
+        output.writeShort(4);
+        output.writeByte(1);
+        output.writeUTF("A");
+        output.writeByte(7);
+        output.writeShort(1);
+        output.writeByte(16);
+        output.writeShort(descriptorIndex);
+
+        // Access flags, this class, super class, interfaces, fields and
+        // methods.
+        output.writeShort(0);
+        output.writeShort(2);
+        output.writeShort(0);
+        output.writeShort(0);
+        output.writeShort(0);
+        output.writeShort(0);
+
+        output.writeShort(1);
+        output.writeShort(attributeNameIndex);
+        output.writeInt(0);
+
+        output.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Test reading class files that have invalid indexes of the constant
+     * pool.
+     *
+     * {@link IOException} is thrown instead of a runtime exception.
+     */
+    @Test
+    public void testReadInvalidIndex() throws Exception {
+        assertEquals("A", ClassFileInfo.read(
+                createClassFile(1, 1)).getClassName());
+
+        try {
+            ClassFileInfo.read(createClassFile(1, 999));
+            fail();
+        } catch (IOException e) {
+            // Expected.
+        }
+
+        try {
+            ClassFileInfo.read(createClassFile(999, 1));
+            fail();
+        } catch (IOException e) {
+            // Expected.
+        }
+    }
+}
@@ -27,9 +27,15 @@ import java.util.List;
  */
 /* package */ class CommandRecordingExecutor implements CommandExecutor {
     /**
-     * Recorded command.
+     * Recorded commands.
      */
-    private final ArrayList<String> mRecordedCommand = new ArrayList<String>();
+    private final ArrayList<List<String>> mRecordedCommands =
+            new ArrayList<List<String>>();
+
+    /**
+     * Lines output by {@link #execute(List, LineConsumer, LineConsumer)}.
+     */
+    private final ArrayList<String> mOutputLines = new ArrayList<String>();
 
     /**
      * Exit code.
@@ -37,32 +43,58 @@ import java.util.List;
     private int mExitCode;
 
     @Override
-    public int execute(List<String> command, StringBuilder ignoredOutput,
-            StringBuilder ignoredError) throws IOException,
-            InterruptedException {
-        mRecordedCommand.clear();
-        mRecordedCommand.addAll(command);
+    public synchronized int execute(List<String> command,
+            LineConsumer output, LineConsumer ignoredError) throws
+            IOException, InterruptedException {
+        mRecordedCommands.add(new ArrayList<String>(command));
+
+        for (String line : mOutputLines) {
+            output.consumeLine(line);
+        }
 
         return mExitCode;
     }
 
     /**
-     * Set exit code for {@link #execute(List)}.
+     * Set lines output by {@link #execute(List, LineConsumer, LineConsumer)}.
+     *
+     * Default is empty.
+     *
+     * @param outputLines Lines to output
+     */
+    public synchronized void setOutputLines(List<String> outputLines) {
+        mOutputLines.clear();
+        mOutputLines.addAll(outputLines);
+    }
+
+    /**
+     * Set exit code for {@link #execute(List, LineConsumer, LineConsumer)}.
      *
      * Default is 0.
      *
      * @param exitCode Exit code
      */
-    public void setExitCode(int exitCode) {
+    public synchronized void setExitCode(int exitCode) {
         mExitCode = exitCode;
     }
 
     /**
-     * Get recorded command.
+     * Get the last recorded command.
      *
      * @return Unmodifiable list that contains recorded command
      */
-    public List<String> getRecordedCommand() {
-        return Collections.unmodifiableList(mRecordedCommand);
+    public synchronized List<String> getRecordedCommand() {
+        return Collections.unmodifiableList(
+                mRecordedCommands.get(mRecordedCommands.size() - 1));
+    }
+
+    /**
+     * Get all recorded commands in order of execution.
+     *
+     * @return Unmodifiable list that contains recorded commands
+     */
+    public synchronized List<List<String>> getRecordedCommands() {
+        return Collections.unmodifiableList(
+                new ArrayList<List<String>>(mRecordedCommands));
     }
 }
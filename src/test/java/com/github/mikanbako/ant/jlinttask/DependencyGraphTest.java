@@ -0,0 +1,112 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Test {@link DependencyGraph}.
+ */
+public class DependencyGraphTest extends TestCase {
+    private DependencyGraph mGraph;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        // A -> B -> C, D -> C, E
+
+        mGraph = new DependencyGraph();
+        mGraph.setReferences("A", Arrays.asList("B", "java/lang/Object"));
+        mGraph.setReferences("B", Arrays.asList("C"));
+        mGraph.setReferences("C", Collections.<String>emptyList());
+        mGraph.setReferences("D", Arrays.asList("C"));
+        mGraph.setReferences("E", Collections.<String>emptyList());
+    }
+
+    /**
+     * Test getting dependents.
+     *
+     * Classes that refer to the classes indirectly are contained.
+     */
+    @Test
+    public void testGetDependents() {
+        assertEquals(new HashSet<String>(Arrays.asList("A", "B", "C", "D")),
+                mGraph.getDependents(Collections.singleton("C")));
+        assertEquals(new HashSet<String>(Arrays.asList("A")),
+                mGraph.getDependents(Collections.singleton("A")));
+    }
+
+    /**
+     * Test getting dependencies.
+     *
+     * Classes that the classes refer to indirectly are contained.
+     */
+    @Test
+    public void testGetDependencies() {
+        assertEquals(new HashSet<String>(
+                Arrays.asList("A", "B", "C", "java/lang/Object")),
+                mGraph.getDependencies(Collections.singleton("A")));
+    }
+
+    /**
+     * Test getting direct dependents.
+     *
+     * Classes that refer to the classes indirectly are not contained.
+     */
+    @Test
+    public void testGetDirectDependents() {
+        assertEquals(new HashSet<String>(Arrays.asList("B", "C", "D")),
+                mGraph.getDirectDependents(Collections.singleton("C")));
+        assertEquals(new HashSet<String>(Arrays.asList("A")),
+                mGraph.getDirectDependents(Collections.singleton("A")));
+        assertEquals(new HashSet<String>(Arrays.asList("E")),
+                mGraph.getDirectDependents(Collections.singleton("E")));
+    }
+
+    /**
+     * Test saving and loading.
+     *
+     * The loaded graph has the same references.
+     */
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        File file = File.createTempFile("graph", "");
+        try {
+            mGraph.save(file);
+
+            DependencyGraph loadedGraph = DependencyGraph.load(file);
+
+            for (String className : Arrays.asList("A", "B", "C", "D", "E")) {
+                assertTrue(loadedGraph.contains(className));
+                assertEquals(mGraph.getReferences(className),
+                        loadedGraph.getReferences(className));
+            }
+            assertFalse(loadedGraph.contains("java/lang/Object"));
+        } finally {
+            file.delete();
+        }
+    }
+}
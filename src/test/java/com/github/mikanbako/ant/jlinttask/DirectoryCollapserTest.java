@@ -0,0 +1,179 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Test {@link DirectoryCollapser}.
+ */
+public class DirectoryCollapserTest extends TestCase {
+    private File mBaseDirectory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        mBaseDirectory = File.createTempFile("collapser", "");
+        mBaseDirectory.delete();
+        mBaseDirectory.mkdir();
+
+        // base/A.class, base/p/B.class, base/p/C.class, base/q/D.class,
+        // base/q/r/E.class, base/q/r/note.txt
+
+        createFile("A.class");
+        createFile("p", "B.class");
+        createFile("p", "C.class");
+        createFile("q", "D.class");
+        createFile("q", "r", "E.class");
+        createFile("q", "r", "note.txt");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TestFiles.delete(mBaseDirectory);
+
+        super.tearDown();
+    }
+
+    /**
+     * Create a file in the base directory.
+     *
+     * @param path Names of directories and the file
+     * @throws IOException If the file cannot be created
+     */
+    private void createFile(String... path) throws IOException {
+        File file = mBaseDirectory;
+        for (String name : path) {
+            file = new File(file, name);
+        }
+
+        file.getParentFile().mkdirs();
+        file.createNewFile();
+    }
+
+    /**
+     * Convert a path separated by '/' into a relative path.
+     *
+     * @param path Path separated by '/'
+     * @return Relative path
+     */
+    private static String path(String path) {
+        return path.replace('/', File.separatorChar);
+    }
+
+    /**
+     * Convert a path separated by '/' into a file in the base directory.
+     *
+     * @param path Path separated by '/'
+     * @return File
+     */
+    private File file(String path) {
+        return new File(mBaseDirectory, path(path));
+    }
+
+    /**
+     * Test when all class files are included.
+     *
+     * The base directory is returned.
+     */
+    @Test
+    public void testAllIncluded() {
+        List<File> result = DirectoryCollapser.collapse(mBaseDirectory,
+                new String[] {
+                    "A.class", path("p/B.class"), path("p/C.class"),
+                    path("q/D.class"), path("q/r/E.class"),
+                }, false);
+
+        assertEquals(Arrays.asList(mBaseDirectory), result);
+    }
+
+    /**
+     * Test when some class files are not included.
+     *
+     * Only fully included directories are collapsed.
+     */
+    @Test
+    public void testPartiallyIncluded() {
+        List<File> result = DirectoryCollapser.collapse(mBaseDirectory,
+                new String[] {
+                    "A.class", path("p/B.class"), path("p/C.class"),
+                    path("q/r/E.class"),
+                }, false);
+
+        assertEquals(new HashSet<File>(Arrays.asList(
+                file("A.class"), file("p"), file("q/r"))),
+                new HashSet<File>(result));
+        assertEquals(3, result.size());
+    }
+
+    /**
+     * Test in the leaf only mode.
+     *
+     * Only directories that have no analyzable subdirectory are collapsed.
+     */
+    @Test
+    public void testLeafOnly() {
+        List<File> result = DirectoryCollapser.collapse(mBaseDirectory,
+                new String[] {
+                    "A.class", path("p/B.class"), path("p/C.class"),
+                    path("q/D.class"), path("q/r/E.class"),
+                }, true);
+
+        assertEquals(new HashSet<File>(Arrays.asList(
+                file("A.class"), file("p"), file("q/D.class"), file("q/r"))),
+                new HashSet<File>(result));
+        assertEquals(4, result.size());
+    }
+
+    /**
+     * Test listing directories through a snapshot.
+     *
+     * The result is the same, and each directory is listed once even if
+     * it is visited again.
+     */
+    @Test
+    public void testWithSnapshot() {
+        FileSnapshot snapshot = FileSnapshot.load(file("none"));
+        String[] includedFiles = {
+            "A.class", path("p/B.class"), path("p/C.class"),
+            path("q/r/E.class"),
+        };
+
+        List<File> result = DirectoryCollapser.collapse(mBaseDirectory,
+                includedFiles, false, snapshot);
+
+        assertEquals(new HashSet<File>(Arrays.asList(
+                file("A.class"), file("p"), file("q/r"))),
+                new HashSet<File>(result));
+        assertEquals(3, result.size());
+        assertEquals(4, snapshot.getListedCount());
+
+        assertEquals(result, DirectoryCollapser.collapse(mBaseDirectory,
+                includedFiles, false, snapshot));
+        assertEquals(4, snapshot.getListedCount());
+    }
+}
@@ -0,0 +1,137 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.StringWriter;
+import java.util.EnumSet;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Test {@link ExecutionMetrics}.
+ */
+public class ExecutionMetricsTest extends TestCase {
+    /**
+     * Test accumulating durations and counts.
+     */
+    @Test
+    public void testAdd() {
+        ExecutionMetrics metrics = new ExecutionMetrics();
+        metrics.addTime(ExecutionMetrics.PHASE_SPAWN, 3);
+        metrics.addTime(ExecutionMetrics.PHASE_SPAWN, 4);
+        metrics.addCount(ExecutionMetrics.COUNT_PROCESSES, 1);
+        metrics.addCount(ExecutionMetrics.COUNT_PROCESSES, 1);
+
+        assertEquals(Long.valueOf(7),
+                metrics.getPhaseNanos().get(ExecutionMetrics.PHASE_SPAWN));
+        assertEquals(Long.valueOf(2),
+                metrics.getCounts().get(ExecutionMetrics.COUNT_PROCESSES));
+    }
+
+    /**
+     * Test clearing metrics for the next execution.
+     *
+     * @throws Exception If error occurs
+     */
+    @Test
+    public void testClear() throws Exception {
+        ExecutionMetrics metrics = new ExecutionMetrics();
+        metrics.addTime(ExecutionMetrics.PHASE_SPAWN, 3);
+        metrics.addCount(ExecutionMetrics.COUNT_PROCESSES, 1);
+        metrics.countFindings(new TextReportWriter(new LineRecorder()), null)
+                .consumeFinding(FindingParser.parse(
+                        "Foo.java:1: Zero operand for + operation"));
+
+        metrics.clear();
+
+        assertTrue(metrics.getPhaseNanos().isEmpty());
+        assertTrue(metrics.getCounts().isEmpty());
+    }
+
+    /**
+     * Test counting findings by category.
+     *
+     * @throws Exception If error occurs
+     */
+    @Test
+    public void testCountFindings() throws Exception {
+        ExecutionMetrics metrics = new ExecutionMetrics();
+        LineRecorder recorder = new LineRecorder();
+        LineConsumer consumer = new FindingParser(metrics.countFindings(
+                new TextReportWriter(recorder),
+                EnumSet.of(Finding.Category.DATA_FLOW,
+                        Finding.Category.INHERITANCE)), recorder);
+
+        consumer.consumeLine("Foo.java:1: Zero operand for + operation");
+        consumer.consumeLine("Foo.java:2: Compare strings as object " +
+                "references");
+        consumer.consumeLine("Foo.java:3: Method wait() is called without " +
+                "synchronizing on this");
+        consumer.consumeLine("Verification completed: 3 reported messages.");
+
+        assertEquals(4, recorder.getLines().size());
+        assertEquals(Long.valueOf(2), metrics.getCounts().get("findings"));
+        assertEquals(Long.valueOf(2),
+                metrics.getCounts().get("findings.data_flow"));
+        assertNull(metrics.getCounts().get("findings.synchronization"));
+    }
+
+    /**
+     * Test accumulating resource usage of processes.
+     *
+     * CPU time and I/O are summed, the peak resident set size is the
+     * largest one and unknown values are ignored.
+     */
+    @Test
+    public void testAddProcessUsage() {
+        ExecutionMetrics metrics = new ExecutionMetrics();
+        metrics.addProcessUsage(new ProcessUsage(10, 300, 20, 5, -1));
+        metrics.addProcessUsage(new ProcessUsage(11, 200, 30, 7, -1));
+
+        assertEquals(2, metrics.getProcessUsages().size());
+        assertEquals(Long.valueOf(50), metrics.getCounts().get(
+                ExecutionMetrics.COUNT_CPU_MILLIS));
+        assertEquals(Long.valueOf(300), metrics.getCounts().get(
+                ExecutionMetrics.COUNT_PEAK_RESIDENT_BYTES));
+        assertEquals(Long.valueOf(12), metrics.getCounts().get(
+                ExecutionMetrics.COUNT_READ_BYTES));
+        assertNull(metrics.getCounts().get(
+                ExecutionMetrics.COUNT_WRITTEN_BYTES));
+    }
+
+    /**
+     * Test writing metrics as JSON.
+     *
+     * @throws Exception If error occurs
+     */
+    @Test
+    public void testWrite() throws Exception {
+        ExecutionMetrics metrics = new ExecutionMetrics();
+        metrics.addTime(ExecutionMetrics.PHASE_SCAN, 10);
+        metrics.addTime(ExecutionMetrics.PHASE_TOTAL, 20);
+        metrics.addCount(ExecutionMetrics.COUNT_OUTPUT_LINES, 5);
+
+        StringWriter writer = new StringWriter();
+        metrics.write(writer);
+
+        assertEquals("{\"phaseNanos\":{\n\"scan\":10,\n\"total\":20\n}," +
+                "\"counts\":{\n\"outputLines\":5\n}}\n", writer.toString());
+    }
+}
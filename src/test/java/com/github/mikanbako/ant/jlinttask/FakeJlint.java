@@ -0,0 +1,237 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Program that behaves like Jlint for tests.
+ *
+ * <p>For each class file in the arguments, or in a directory in the
+ * arguments, this program writes messages to the standard output and then
+ * the summary line. Options of Jlint are ignored. The behavior is
+ * configured by system properties.</p>
+ *
+ * <ul>
+ * <li>{@link #MESSAGES}: Number of messages for each class file.
+ *  Default is 1.</li>
+ * <li>{@link #DELAY}: Milliseconds to wait before the output.
+ *  Default is 0.</li>
+ * <li>{@link #ERROR_LINES}: Number of lines written to the standard
+ *  error. Default is 0.</li>
+ * <li>{@link #EXIT_CODE}: Exit code. Default is 0.</li>
+ * <li>{@link #CRASH_AFTER}: Number of messages after which the process
+ *  aborts without the summary line and exits with
+ *  {@link #CRASH_EXIT_CODE}. Default is -1, which means never.</li>
+ * </ul>
+ */
+public final class FakeJlint {
+    /**
+     * Name of the property of the number of messages for each class file.
+     */
+    public static final String MESSAGES = "fakejlint.messages";
+
+    /**
+     * Name of the property of milliseconds to wait before the output.
+     */
+    public static final String DELAY = "fakejlint.delay";
+
+    /**
+     * Name of the property of the number of lines to the standard error.
+     */
+    public static final String ERROR_LINES = "fakejlint.errorLines";
+
+    /**
+     * Name of the property of the exit code.
+     */
+    public static final String EXIT_CODE = "fakejlint.exitCode";
+
+    /**
+     * Name of the property of the number of messages after which the
+     * process aborts.
+     */
+    public static final String CRASH_AFTER = "fakejlint.crashAfter";
+
+    /**
+     * Exit code of the aborted process, which is the same as SIGABRT.
+     */
+    public static final int CRASH_EXIT_CODE = 134;
+
+    /**
+     * Messages written in turn, one for each category.
+     */
+    private static final String[] MESSAGE_TEXTS = {
+        "Method wait() is called without synchronizing on this",
+        "Compare strings as object references",
+        "Zero operand for + operation",
+        "Field 'x' in class Foo shadows field in base class Bar",
+    };
+
+    /**
+     * Do not create instance.
+     */
+    private FakeJlint() {
+        // no operation.
+    }
+
+    /**
+     * Write messages like Jlint.
+     *
+     * @param arguments Options and class files
+     * @throws Exception If error occurs
+     */
+    public static void main(String[] arguments) throws Exception {
+        int messages = Integer.getInteger(MESSAGES, 1);
+        long delay = Long.getLong(DELAY, 0);
+        int errorLines = Integer.getInteger(ERROR_LINES, 0);
+        int exitCode = Integer.getInteger(EXIT_CODE, 0);
+        int crashAfter = Integer.getInteger(CRASH_AFTER, -1);
+
+        if (delay > 0) {
+            Thread.sleep(delay);
+        }
+
+        PrintWriter error = new PrintWriter(new OutputStreamWriter(
+                System.err));
+        for (int i = 0; i < errorLines; i++) {
+            error.println("Warning " + i);
+        }
+        error.flush();
+
+        Writer output = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(FileDescriptor.out)));
+        int count = 0;
+        for (File classFile : getClassFiles(arguments)) {
+            String name = classFile.getName();
+            String source = name.substring(0, name.length() -
+                    ".class".length()) + ".java";
+            for (int i = 0; i < messages; i++) {
+                if (count == crashAfter) {
+                    output.flush();
+                    Runtime.getRuntime().halt(CRASH_EXIT_CODE);
+                }
+
+                output.write(source + ":" + (i + 1) + ": " +
+                        MESSAGE_TEXTS[count % MESSAGE_TEXTS.length] + "\n");
+                count++;
+            }
+        }
+        output.write("Verification completed: " + count +
+                " reported messages.\n");
+        output.flush();
+
+        System.exit(exitCode);
+    }
+
+    /**
+     * Get class files in the arguments.
+     *
+     * @param arguments Options and class files
+     * @return Class files
+     */
+    private static List<File> getClassFiles(String[] arguments) {
+        ArrayList<File> classFiles = new ArrayList<File>();
+        for (int i = 0; i < arguments.length; i++) {
+            String argument = arguments[i];
+            if ("-source".equals(argument)) {
+                i++;
+            } else if (!argument.startsWith("-") &&
+                    !argument.startsWith("+")) {
+                addClassFiles(new File(argument), classFiles);
+            }
+        }
+
+        return classFiles;
+    }
+
+    /**
+     * Add a class file, or class files in a directory.
+     *
+     * @param file Class file or directory
+     * @param classFiles Destination of class files
+     */
+    private static void addClassFiles(File file, List<File> classFiles) {
+        File[] children = file.listFiles();
+        if (children == null) {
+            if (file.getName().endsWith(".class")) {
+                classFiles.add(file);
+            }
+            return;
+        }
+
+        for (File child : children) {
+            addClassFiles(child, classFiles);
+        }
+    }
+
+    /**
+     * Create an executable file that executes this program.
+     *
+     * @param directory Directory in which the file is created
+     * @param properties System properties that configure the behavior
+     * @return Executable file
+     * @throws IOException If I/O error occurs
+     */
+    public static File createExecutable(File directory,
+            Map<String, String> properties) throws IOException {
+        boolean windows = File.separatorChar == '\\';
+
+        StringBuilder command = new StringBuilder();
+        command.append('"').append(new File(new File(
+                System.getProperty("java.home"), "bin"), "java"))
+                .append('"');
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            command.append(" -D").append(property.getKey()).append('=')
+                    .append(property.getValue());
+        }
+        command.append(" -cp \"")
+                .append(System.getProperty("java.class.path"))
+                .append("\" ").append(FakeJlint.class.getName());
+
+        File executable;
+        PrintWriter writer;
+        if (windows) {
+            executable = new File(directory, "fakejlint.cmd");
+            writer = new PrintWriter(executable);
+            writer.println("@" + command + " %*");
+        } else {
+            executable = new File(directory, "fakejlint");
+            writer = new PrintWriter(executable);
+            writer.println("#!/bin/sh");
+            writer.println("exec " + command + " \"$@\"");
+        }
+        writer.close();
+
+        if (!executable.setExecutable(true)) {
+            throw new IOException("Cannot make " + executable +
+                    " executable.");
+        }
+
+        return executable;
+    }
+}
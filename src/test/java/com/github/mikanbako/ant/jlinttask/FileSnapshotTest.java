@@ -0,0 +1,183 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Test {@link FileSnapshot}.
+ */
+public class FileSnapshotTest extends TestCase {
+    /**
+     * Modification time of directories in the past in milliseconds.
+     */
+    private static final long PAST_MILLIS = 1000000000000L;
+
+    /**
+     * Temporary directory.
+     */
+    private File mDirectory;
+
+    /**
+     * Snapshot file.
+     */
+    private File mSnapshotFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        mDirectory = File.createTempFile("snapshot", "");
+        mDirectory.delete();
+        mDirectory.mkdir();
+        mSnapshotFile = File.createTempFile("snapshot", ".bin");
+        mSnapshotFile.delete();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TestFiles.delete(mDirectory);
+        mSnapshotFile.delete();
+
+        super.tearDown();
+    }
+
+    /**
+     * Get sorted names.
+     *
+     * @param names Names
+     * @return Sorted names
+     */
+    private static String[] sort(String[] names) {
+        Arrays.sort(names);
+
+        return names;
+    }
+
+    /**
+     * Test listing a directory.
+     */
+    @Test
+    public void testList() throws Exception {
+        new File(mDirectory, "A.class").createNewFile();
+        new File(mDirectory, "B.class").createNewFile();
+        new File(mDirectory, "p").mkdir();
+
+        FileSnapshot snapshot = FileSnapshot.load(mSnapshotFile);
+        FileSnapshot.Listing listing = snapshot.list(mDirectory);
+
+        assertEquals(Arrays.asList("A.class", "B.class"),
+                Arrays.asList(sort(listing.getFiles())));
+        assertEquals(Arrays.asList("p"),
+                Arrays.asList(listing.getDirectories()));
+        assertEquals(1, snapshot.getListedCount());
+        assertEquals(0, snapshot.getReusedCount());
+    }
+
+    /**
+     * Test reusing the listing of a directory that is not modified.
+     */
+    @Test
+    public void testReuse() throws Exception {
+        new File(mDirectory, "A.class").createNewFile();
+        mDirectory.setLastModified(PAST_MILLIS);
+
+        FileSnapshot snapshot = FileSnapshot.load(mSnapshotFile);
+        snapshot.list(mDirectory);
+        snapshot.save(mSnapshotFile);
+
+        // A file that is added without changing the modification time is
+        // not listed.
+        new File(mDirectory, "B.class").createNewFile();
+        mDirectory.setLastModified(PAST_MILLIS);
+
+        snapshot = FileSnapshot.load(mSnapshotFile);
+        FileSnapshot.Listing listing = snapshot.list(mDirectory);
+
+        assertEquals(Arrays.asList("A.class"),
+                Arrays.asList(listing.getFiles()));
+        assertEquals(0, snapshot.getListedCount());
+        assertEquals(1, snapshot.getReusedCount());
+    }
+
+    /**
+     * Test listing a modified directory again.
+     */
+    @Test
+    public void testListModified() throws Exception {
+        new File(mDirectory, "A.class").createNewFile();
+        mDirectory.setLastModified(PAST_MILLIS);
+
+        FileSnapshot snapshot = FileSnapshot.load(mSnapshotFile);
+        snapshot.list(mDirectory);
+        snapshot.save(mSnapshotFile);
+
+        new File(mDirectory, "B.class").createNewFile();
+        mDirectory.setLastModified(PAST_MILLIS + 1000);
+
+        snapshot = FileSnapshot.load(mSnapshotFile);
+        FileSnapshot.Listing listing = snapshot.list(mDirectory);
+
+        assertEquals(Arrays.asList("A.class", "B.class"),
+                Arrays.asList(sort(listing.getFiles())));
+        assertEquals(1, snapshot.getListedCount());
+    }
+
+    /**
+     * Test listing a directory modified just now again.
+     */
+    @Test
+    public void testListRecentlyModified() throws Exception {
+        new File(mDirectory, "A.class").createNewFile();
+
+        FileSnapshot snapshot = FileSnapshot.load(mSnapshotFile);
+        snapshot.list(mDirectory);
+        snapshot.save(mSnapshotFile);
+
+        snapshot = FileSnapshot.load(mSnapshotFile);
+        snapshot.list(mDirectory);
+
+        assertEquals(1, snapshot.getListedCount());
+        assertEquals(0, snapshot.getReusedCount());
+    }
+
+    /**
+     * Test loading a broken snapshot file.
+     */
+    @Test
+    public void testLoadBroken() throws Exception {
+        FileOutputStream output = new FileOutputStream(mSnapshotFile);
+        try {
+            output.write(new byte[] {0, 0, 0, 1, 0, 0});
+        } finally {
+            output.close();
+        }
+        mDirectory.setLastModified(PAST_MILLIS);
+
+        FileSnapshot snapshot = FileSnapshot.load(mSnapshotFile);
+        snapshot.list(mDirectory);
+
+        assertEquals(1, snapshot.getListedCount());
+    }
+}
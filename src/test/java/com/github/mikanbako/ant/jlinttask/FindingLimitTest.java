@@ -0,0 +1,209 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Test {@link FindingLimit}.
+ */
+public class FindingLimitTest extends TestCase {
+    /**
+     * Finding of data flow.
+     */
+    private static final String DATA_FLOW =
+            "Foo.java:1: Zero operand for + operation";
+
+    /**
+     * Finding of synchronization.
+     */
+    private static final String SYNCHRONIZATION =
+            "Foo.java:2: Method Foo.run() is called from " +
+            "non-synchronized method";
+
+    /**
+     * Maximum duration to wait for a stopped process in seconds.
+     */
+    private static final long TIMEOUT_SECONDS = 30;
+
+    /**
+     * Program that writes a finding and sleeps.
+     */
+    public static final class Sleeper {
+        /**
+         * Do not create instance.
+         */
+        private Sleeper() {
+            // no operation.
+        }
+
+        /**
+         * Write a finding and sleep long.
+         *
+         * @param arguments Ignored
+         * @throws InterruptedException If this thread is interrupted
+         */
+        public static void main(String[] arguments)
+                throws InterruptedException {
+            System.out.println(DATA_FLOW);
+            System.out.flush();
+            Thread.sleep(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS * 10));
+        }
+    }
+
+    /**
+     * Test counting findings up to the limit.
+     *
+     * Lines that are not findings are not counted, and the finding that
+     * exceeds the limit is not passed to the destination.
+     */
+    @Test
+    public void testLimit() throws Exception {
+        FindingLimit limit = new FindingLimit(2, null);
+        LineRecorder recorder = new LineRecorder();
+        LineConsumer consumer = limit.wrap(recorder);
+
+        consumer.consumeLine(DATA_FLOW);
+        consumer.consumeLine("Loading class");
+        limit.add(SYNCHRONIZATION);
+        try {
+            consumer.consumeLine(DATA_FLOW);
+            fail();
+        } catch (FindingLimitExceededException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("2"));
+        }
+
+        assertEquals(Arrays.asList(DATA_FLOW, "Loading class"),
+                recorder.getLines());
+        assertEquals(Arrays.asList(DATA_FLOW, SYNCHRONIZATION, DATA_FLOW),
+                limit.getFindings());
+    }
+
+    /**
+     * Test counting findings of some categories.
+     *
+     * Findings of the other categories are not counted.
+     */
+    @Test
+    public void testCategories() throws Exception {
+        FindingLimit limit = new FindingLimit(0,
+                EnumSet.of(Finding.Category.SYNCHRONIZATION));
+        LineConsumer consumer = limit.wrap(new LineRecorder());
+
+        consumer.consumeLine(DATA_FLOW);
+        limit.add(DATA_FLOW);
+        assertTrue(limit.getFindings().isEmpty());
+
+        try {
+            consumer.consumeLine(SYNCHRONIZATION);
+            fail();
+        } catch (FindingLimitExceededException e) {
+            // expected.
+        }
+
+        assertEquals(Arrays.asList(SYNCHRONIZATION), limit.getFindings());
+    }
+
+    /**
+     * Test exceeding the limit while a process runs.
+     *
+     * The process is destroyed without waiting for its end.
+     */
+    @Test
+    public void testKillProcess() throws Exception {
+        ArrayList<String> command = new ArrayList<String>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"),
+                "java").getAbsolutePath());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Sleeper.class.getName());
+
+        FindingLimit limit = new FindingLimit(0, null);
+        long startNanos = System.nanoTime();
+        try {
+            new ProcessExecutor().execute(command,
+                    limit.wrap(new LineRecorder()), new LineRecorder());
+            fail();
+        } catch (FindingLimitExceededException e) {
+            // expected.
+        }
+
+        assertTrue(System.nanoTime() - startNanos <
+                TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS));
+        assertEquals(Arrays.asList(DATA_FLOW), limit.getFindings());
+    }
+
+    /**
+     * Test exceeding the limit while processes run concurrently.
+     *
+     * The other processes are cancelled.
+     */
+    @Test
+    public void testCancelProcesses() throws Exception {
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        CommandExecutor commandExecutor = new CommandExecutor() {
+            @Override
+            public int execute(List<String> command, LineConsumer output,
+                    LineConsumer error) throws IOException,
+                    InterruptedException {
+                if (command.get(command.size() - 1).endsWith("a")) {
+                    output.consumeLine(DATA_FLOW);
+                    return 0;
+                }
+
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(
+                            TIMEOUT_SECONDS * 10));
+                } catch (InterruptedException e) {
+                    cancelled.countDown();
+                    throw e;
+                }
+                return 0;
+            }
+        };
+
+        File executable = new File("jlint");
+        List<File> classFiles = Arrays.asList(new File("b"), new File("a"));
+        JlintExecutor executor = new JlintExecutor(
+                commandExecutor, executable, classFiles);
+        executor.setThreads(2);
+        executor.setMaxCommandLength(
+                CommandBuilder.measure(executable.getAbsolutePath()) +
+                CommandBuilder.measure(classFiles.get(0).getAbsolutePath()));
+        executor.setFindingLimit(new FindingLimit(0, null));
+        try {
+            executor.execute(new LineRecorder(), new LineRecorder());
+            fail();
+        } catch (FindingLimitExceededException e) {
+            // expected.
+        }
+
+        assertTrue(cancelled.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+}
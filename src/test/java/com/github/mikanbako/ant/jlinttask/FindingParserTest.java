@@ -0,0 +1,183 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Test {@link FindingParser}.
+ */
+public class FindingParserTest extends TestCase {
+    /**
+     * Test parsing a finding.
+     */
+    @Test
+    public void testParse() {
+        Finding finding = FindingParser.parse(
+                "src/a/Foo.java:123: Value of referenced variable 'x' " +
+                "may be NULL");
+
+        assertEquals("src/a/Foo.java", finding.getPath());
+        assertEquals(123, finding.getLineNumber());
+        assertEquals("Value of referenced variable 'x' may be NULL",
+                finding.getMessage());
+        assertEquals(Finding.Category.DATA_FLOW, finding.getCategory());
+    }
+
+    /**
+     * Test parsing a finding whose path contains a colon.
+     */
+    @Test
+    public void testParseWithDrive() {
+        Finding finding = FindingParser.parse(
+                "C:\\src\\Foo.java:7: Method finalize() doesn't call " +
+                "super.finalize()");
+
+        assertEquals("C:\\src\\Foo.java", finding.getPath());
+        assertEquals(7, finding.getLineNumber());
+        assertEquals(Finding.Category.INHERITANCE, finding.getCategory());
+    }
+
+    /**
+     * Test categories of messages.
+     */
+    @Test
+    public void testCategory() {
+        assertEquals(Finding.Category.SYNCHRONIZATION,
+                FindingParser.parse("Foo.java:1: Loop 1: invocation of " +
+                        "synchronized method Foo.a() can cause deadlock")
+                        .getCategory());
+        assertEquals(Finding.Category.INHERITANCE,
+                FindingParser.parse("Foo.java:2: Field 'x' in class Foo " +
+                        "shadows one in base class Bar").getCategory());
+        assertEquals(Finding.Category.DATA_FLOW,
+                FindingParser.parse("Foo.java:3: Compare strings as " +
+                        "object references").getCategory());
+        assertEquals(Finding.Category.UNKNOWN,
+                FindingParser.parse("Foo.java:4: Something happened")
+                        .getCategory());
+    }
+
+    /**
+     * Test the category of each message of Jlint.
+     *
+     * Each message is in the category of its message filtering option.
+     */
+    @Test
+    public void testCategoryOfEachMessage() {
+        EnumSet<Finding.Category> categories =
+                EnumSet.noneOf(Finding.Category.class);
+        HashSet<String> codes = new HashSet<String>();
+        for (String[] message : OptionParser.MESSAGES) {
+            Finding.Category category =
+                    Finding.Category.forOptionName(message[0]);
+            assertNotNull(message[0], category);
+            assertTrue(message[1], codes.add(message[1]));
+            categories.add(category);
+
+            String text = message[2].replaceAll("%.", "x1");
+            assertEquals(text, category,
+                    FindingParser.parse("Foo.java:1: " + text).getCategory());
+        }
+
+        assertEquals(EnumSet.complementOf(
+                EnumSet.of(Finding.Category.UNKNOWN)), categories);
+    }
+
+    /**
+     * Test messages that only contain words of a category.
+     *
+     * The category is not guessed from the words.
+     */
+    @Test
+    public void testCategoryOfUnknownMessage() {
+        assertEquals(Finding.Category.UNKNOWN,
+                FindingParser.parse("Foo.java:1: Value of x is null")
+                        .getCategory());
+        assertEquals(Finding.Category.UNKNOWN,
+                FindingParser.parse("Foo.java:2: Thread is started")
+                        .getCategory());
+        assertEquals(Finding.Category.UNKNOWN,
+                FindingParser.parse("Foo.java:3: Compare strings as " +
+                        "object references twice").getCategory());
+        assertEquals(Finding.Category.UNKNOWN,
+                FindingParser.parse("Foo.java:4: Zero operand")
+                        .getCategory());
+    }
+
+    /**
+     * Test lines that are not findings.
+     */
+    @Test
+    public void testNotFinding() {
+        assertNull(FindingParser.parse(
+                "Verification completed: 3 reported messages."));
+        assertNull(FindingParser.parse("Foo.java:abc: message"));
+        assertNull(FindingParser.parse("Foo.java:12"));
+        assertNull(FindingParser.parse(""));
+    }
+
+    /**
+     * Test consuming lines.
+     *
+     * Findings are passed to the finding consumer and the other lines are
+     * passed to the line consumer.
+     *
+     * @throws Exception If error occurs
+     */
+    @Test
+    public void testConsumeLine() throws Exception {
+        final ArrayList<Finding> findings = new ArrayList<Finding>();
+        LineRecorder others = new LineRecorder();
+
+        FindingParser parser = new FindingParser(new FindingConsumer() {
+            @Override
+            public void consumeFinding(Finding finding) {
+                findings.add(finding);
+            }
+        }, others);
+        parser.consumeLine("Foo.java:1: Comparison always produces " +
+                "the same result");
+        parser.consumeLine("Verification completed: 1 reported messages.");
+
+        assertEquals(1, findings.size());
+        assertEquals(1, findings.get(0).getLineNumber());
+        assertEquals(Arrays.asList(
+                "Verification completed: 1 reported messages."),
+                others.getLines());
+    }
+
+    /**
+     * Test the category of message filtering option.
+     */
+    @Test
+    public void testForOptionName() {
+        assertEquals(Finding.Category.DATA_FLOW,
+                Finding.Category.forOptionName("+data_flow"));
+        assertEquals(Finding.Category.SYNCHRONIZATION,
+                Finding.Category.forOptionName("synchronization"));
+        assertNull(Finding.Category.forOptionName("-all"));
+    }
+}
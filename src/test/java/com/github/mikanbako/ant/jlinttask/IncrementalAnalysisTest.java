@@ -0,0 +1,284 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Test {@link IncrementalAnalysis}.
+ */
+public class IncrementalAnalysisTest extends TestCase {
+    private static final String ENVIRONMENT_KEY = "environment";
+
+    private static final String RECORDER_FINDING =
+            "com/github/mikanbako/ant/jlinttask/LineRecorder.java:1: a";
+
+    private static final String SUMMARY =
+            "Verification completed: 1 reported messages.";
+
+    private File mDirectory;
+
+    private File mCacheDirectory;
+
+    private File mConsumerFile;
+
+    private File mRecorderFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        mDirectory = File.createTempFile("incremental", "");
+        mDirectory.delete();
+        mDirectory.mkdir();
+
+        mCacheDirectory = new File(mDirectory, "cache");
+
+        // LineRecorder refers to LineConsumer.
+
+        mConsumerFile = new File(mDirectory, "LineConsumer.class");
+        write(mConsumerFile,
+                ClassFileInfoTest.readClassFile(LineConsumer.class));
+        mRecorderFile = new File(mDirectory, "LineRecorder.class");
+        write(mRecorderFile,
+                ClassFileInfoTest.readClassFile(LineRecorder.class));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        for (File file : mCacheDirectory.listFiles()) {
+            file.delete();
+        }
+        mCacheDirectory.delete();
+        mConsumerFile.delete();
+        mRecorderFile.delete();
+        mDirectory.delete();
+
+        super.tearDown();
+    }
+
+    /**
+     * Write content to a file.
+     *
+     * @param file File
+     * @param content Content
+     * @throws IOException If I/O error occurs
+     */
+    private static void write(File file, byte[] content) throws IOException {
+        FileOutputStream output = new FileOutputStream(file);
+        try {
+            output.write(content);
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Run incremental analysis.
+     *
+     * @param jlintOutput Output from Jlint
+     * @param report Destination of the report
+     * @return Files passed to Jlint
+     * @throws IOException If I/O error occurs
+     */
+    private List<File> analyze(List<String> jlintOutput,
+            LineConsumer report) throws IOException {
+        return analyze(Arrays.asList(mConsumerFile, mRecorderFile),
+                jlintOutput, report);
+    }
+
+    /**
+     * Run incremental analysis of class files.
+     *
+     * @param classFiles Class files
+     * @param jlintOutput Output from Jlint
+     * @param report Destination of the report
+     * @return Files passed to Jlint
+     * @throws IOException If I/O error occurs
+     */
+    private List<File> analyze(List<File> classFiles,
+            List<String> jlintOutput, LineConsumer report)
+            throws IOException {
+        IncrementalAnalysis analysis = IncrementalAnalysis.prepare(
+                AnalysisCache.load(mCacheDirectory, ENVIRONMENT_KEY),
+                classFiles);
+        try {
+            LineConsumer consumer = analysis.getOutputConsumer();
+            for (String line : jlintOutput) {
+                consumer.consumeLine(line);
+            }
+            analysis.finish(report);
+        } finally {
+            analysis.close();
+        }
+
+        return analysis.getAnalyzedFiles();
+    }
+
+    /**
+     * Test when the class files are not changed.
+     *
+     * Jlint does not have to run and the cached findings are reported.
+     */
+    @Test
+    public void testUnchanged() throws Exception {
+        LineRecorder firstReport = new LineRecorder();
+        List<File> firstFiles = analyze(
+                Arrays.asList(RECORDER_FINDING, SUMMARY), firstReport);
+
+        assertEquals(Arrays.asList(mConsumerFile, mRecorderFile), firstFiles);
+        assertEquals(Arrays.asList(RECORDER_FINDING, SUMMARY),
+                firstReport.getLines());
+
+        LineRecorder secondReport = new LineRecorder();
+        List<File> secondFiles = analyze(
+                Collections.<String>emptyList(), secondReport);
+
+        assertTrue(secondFiles.isEmpty());
+        assertEquals(firstReport.getLines(), secondReport.getLines());
+    }
+
+    /**
+     * Test repeated findings and a line that cannot be attributed.
+     *
+     * Repeated findings are kept, and the line is reported once.
+     */
+    @Test
+    public void testRepeatedAndUnattributedLines() throws Exception {
+        String warning = "Failed to read a class file";
+
+        LineRecorder report = new LineRecorder();
+        analyze(Arrays.asList(RECORDER_FINDING, warning, RECORDER_FINDING,
+                SUMMARY), report);
+
+        List<String> expected = Arrays.asList(warning, RECORDER_FINDING,
+                RECORDER_FINDING,
+                "Verification completed: 2 reported messages.");
+        assertEquals(expected, report.getLines());
+
+        report = new LineRecorder();
+        analyze(Collections.<String>emptyList(), report);
+
+        assertEquals(expected, report.getLines());
+    }
+
+    /**
+     * Test when a referred class file is changed.
+     *
+     * The changed class file and the class file that refers to it are
+     * analyzed again.
+     */
+    @Test
+    public void testReferredClassChanged() throws Exception {
+        analyze(Arrays.asList(RECORDER_FINDING, SUMMARY), new LineRecorder());
+
+        byte[] content = ClassFileInfoTest.readClassFile(LineConsumer.class);
+        write(mConsumerFile, Arrays.copyOf(content, content.length + 1));
+
+        LineRecorder report = new LineRecorder();
+        List<File> files = analyze(Collections.<String>emptyList(), report);
+
+        assertEquals(Arrays.asList(mConsumerFile, mRecorderFile), files);
+        assertEquals(Collections.singletonList(
+                "Verification completed: 0 reported messages."),
+                report.getLines());
+    }
+
+    /**
+     * Test when a class file that refers to another class is changed.
+     *
+     * The changed class file is analyzed again with the referred class.
+     * The findings of the referred class are taken from the cache,
+     * because only classes that refer to changed classes are analyzed
+     * again.
+     */
+    @Test
+    public void testReferringClassChanged() throws Exception {
+        String consumerFinding =
+                "com/github/mikanbako/ant/jlinttask/LineConsumer.java:2: b";
+        analyze(Arrays.asList(consumerFinding, RECORDER_FINDING),
+                new LineRecorder());
+
+        byte[] content = ClassFileInfoTest.readClassFile(LineRecorder.class);
+        write(mRecorderFile, Arrays.copyOf(content, content.length + 1));
+
+        LineRecorder report = new LineRecorder();
+        List<File> files = analyze(
+                Collections.singletonList(RECORDER_FINDING), report);
+
+        assertEquals(Arrays.asList(mConsumerFile, mRecorderFile), files);
+        assertEquals(Arrays.asList(consumerFinding, RECORDER_FINDING,
+                "Verification completed: 2 reported messages."),
+                report.getLines());
+    }
+
+    /**
+     * Test when a class file that is not connected to another class file
+     * is changed.
+     *
+     * The other class file is not analyzed again and its findings are
+     * taken from the cache.
+     */
+    @Test
+    public void testUnconnectedClassChanged() throws Exception {
+        File parserFile = new File(mDirectory, "OptionParser.class");
+        write(parserFile, ClassFileInfoTest.readClassFile(OptionParser.class));
+        String parserFinding =
+                "com/github/mikanbako/ant/jlinttask/OptionParser.java:3: c";
+        List<File> classFiles =
+                Arrays.asList(mConsumerFile, mRecorderFile, parserFile);
+        try {
+            analyze(classFiles, Arrays.asList(RECORDER_FINDING,
+                    parserFinding), new LineRecorder());
+
+            byte[] content =
+                    ClassFileInfoTest.readClassFile(LineRecorder.class);
+            write(mRecorderFile, Arrays.copyOf(content, content.length + 1));
+
+            IncrementalAnalysis analysis = IncrementalAnalysis.prepare(
+                    AnalysisCache.load(mCacheDirectory, ENVIRONMENT_KEY),
+                    classFiles);
+            try {
+                assertEquals(Collections.singletonList(parserFinding),
+                        analysis.getCachedFindings());
+            } finally {
+                analysis.close();
+            }
+
+            LineRecorder report = new LineRecorder();
+            List<File> files = analyze(classFiles,
+                    Collections.singletonList(RECORDER_FINDING), report);
+
+            assertEquals(Arrays.asList(mConsumerFile, mRecorderFile), files);
+            assertEquals(Arrays.asList(RECORDER_FINDING, parserFinding,
+                    "Verification completed: 2 reported messages."),
+                    report.getLines());
+        } finally {
+            parserFile.delete();
+        }
+    }
+}
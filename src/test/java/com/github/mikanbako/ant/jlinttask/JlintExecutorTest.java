@@ -17,11 +17,16 @@
  */
 package com.github.mikanbako.ant.jlinttask;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 import junit.framework.TestCase;
 
@@ -35,17 +40,17 @@ public class JlintExecutorTest extends TestCase {
 
     private CommandRecordingExecutor mCommandExecutor;
 
-    private StringBuilder mResultStringBuilder;
+    private LineRecorder mResultRecorder;
 
-    private StringBuilder mErrorStringBuilder;
+    private LineRecorder mErrorRecorder;
 
     @Override
     protected void setUp() throws Exception {
         super.setUp();
 
         mCommandExecutor = new CommandRecordingExecutor();
-        mResultStringBuilder = new StringBuilder();
-        mErrorStringBuilder = new StringBuilder();
+        mResultRecorder = new LineRecorder();
+        mErrorRecorder = new LineRecorder();
     }
 
     /**
@@ -72,7 +77,7 @@ public class JlintExecutorTest extends TestCase {
 
         JlintExecutor executor = createJlintExecutor(
                 JLINT_EXECUTABLE, classFiles);
-        executor.execute(mResultStringBuilder, mErrorStringBuilder);
+        executor.execute(mResultRecorder, mErrorRecorder);
 
         List<String> recordedCommand = mCommandExecutor.getRecordedCommand();
         assertEquals(
@@ -101,7 +106,7 @@ public class JlintExecutorTest extends TestCase {
         JlintExecutor executor = createJlintExecutor(
                 JLINT_EXECUTABLE, classFiles);
         executor.setSourceDirectory(sourceDirectory);
-        executor.execute(mResultStringBuilder, mErrorStringBuilder);
+        executor.execute(mResultRecorder, mErrorRecorder);
 
         List<String> recordedCommand = mCommandExecutor.getRecordedCommand();
         assertEquals(
@@ -128,7 +133,7 @@ public class JlintExecutorTest extends TestCase {
         JlintExecutor executor = createJlintExecutor(JLINT_EXECUTABLE,
                 classFiles);
         executor.setOptions(options);
-        executor.execute(mResultStringBuilder, mErrorStringBuilder);
+        executor.execute(mResultRecorder, mErrorRecorder);
 
         List<String> recordedCommand = mCommandExecutor.getRecordedCommand();
         assertEquals(
@@ -138,4 +143,272 @@ public class JlintExecutorTest extends TestCase {
         assertEquals(classFiles.get(0).getAbsolutePath(),
                 recordedCommand.get(3));
     }
+
+    /**
+     * Test with options whose order matters.
+     *
+     * The options are passed in the iteration order of the set.
+     */
+    @Test
+    public void testWithOrderedOptions() throws Exception {
+        List<File> classFiles = Collections.singletonList(new File("a"));
+        LinkedHashSet<String> options = new LinkedHashSet<String>();
+        options.add("-all");
+        options.add("+data_flow");
+        options.add("-null_reference");
+
+        JlintExecutor executor = createJlintExecutor(JLINT_EXECUTABLE,
+                classFiles);
+        executor.setOptions(options);
+        executor.execute(mResultRecorder, mErrorRecorder);
+
+        assertEquals(Arrays.asList("-all", "+data_flow", "-null_reference"),
+                mCommandExecutor.getRecordedCommand().subList(1, 4));
+    }
+
+    /**
+     * Test output from Jlint.
+     *
+     * The output is delivered to the consumer line by line.
+     */
+    @Test
+    public void testOutput() throws Exception {
+        List<String> outputLines = Arrays.asList("A.java:1: a", "B.java:2: b");
+        mCommandExecutor.setOutputLines(outputLines);
+
+        JlintExecutor executor = createJlintExecutor(JLINT_EXECUTABLE,
+                Collections.singletonList(new File("a")));
+        executor.execute(mResultRecorder, mErrorRecorder);
+
+        assertEquals(outputLines, mResultRecorder.getLines());
+    }
+
+    /**
+     * Test with some threads.
+     *
+     * Class files are split by package and the output is merged.
+     */
+    @Test
+    public void testWithThreads() throws Exception {
+        List<File> classFiles = Arrays.asList(
+                new File("p/A.class"), new File("q/B.class"),
+                new File("p/C.class"));
+        mCommandExecutor.setOutputLines(Arrays.asList(
+                "X.java:1: x", "Verification completed: 1 reported messages."));
+
+        JlintExecutor executor = createJlintExecutor(JLINT_EXECUTABLE,
+                classFiles);
+        executor.setThreads(2);
+        executor.execute(mResultRecorder, mErrorRecorder);
+
+        List<List<String>> recordedCommands =
+                mCommandExecutor.getRecordedCommands();
+        assertEquals(2, recordedCommands.size());
+
+        HashSet<List<String>> arguments = new HashSet<List<String>>();
+        for (List<String> command : recordedCommands) {
+            arguments.add(command.subList(1, command.size()));
+        }
+        assertTrue(arguments.contains(Arrays.asList(
+                classFiles.get(0).getAbsolutePath(),
+                classFiles.get(2).getAbsolutePath())));
+        assertTrue(arguments.contains(Collections.singletonList(
+                classFiles.get(1).getAbsolutePath())));
+
+        assertEquals(Arrays.asList("X.java:1: x", "X.java:1: x",
+                "Verification completed: 2 reported messages."),
+                mResultRecorder.getLines());
+    }
+
+    /**
+     * Test sharding by dependency with a single thread.
+     *
+     * The class files are passed in order to a single process without
+     * reading them for their dependencies.
+     */
+    @Test
+    public void testShardByDependencyWithSingleThread() throws Exception {
+        List<File> classFiles = Arrays.asList(
+                new File("q/B.class"), new File("p/A.class"));
+
+        JlintExecutor executor = createJlintExecutor(JLINT_EXECUTABLE,
+                classFiles);
+        executor.setShardByDependency(true);
+        executor.execute(mResultRecorder, mErrorRecorder);
+
+        assertEquals(Arrays.asList(JLINT_EXECUTABLE.getAbsolutePath(),
+                classFiles.get(0).getAbsolutePath(),
+                classFiles.get(1).getAbsolutePath()),
+                mCommandExecutor.getRecordedCommand());
+    }
+
+    /**
+     * Test with some threads whose output is written to temporary files.
+     *
+     * The output is merged in the same way as it is on the heap.
+     */
+    @Test
+    public void testWithThreadsAndSpilledOutput() throws Exception {
+        List<File> classFiles = Arrays.asList(
+                new File("p/A.class"), new File("q/B.class"));
+        mCommandExecutor.setOutputLines(Arrays.asList(
+                "X.java:1: x", "Verification completed: 1 reported messages."));
+
+        JlintExecutor executor = createJlintExecutor(JLINT_EXECUTABLE,
+                classFiles);
+        executor.setThreads(2);
+        executor.setMaxBufferedBytes(0);
+        executor.execute(mResultRecorder, mErrorRecorder);
+
+        assertEquals(Arrays.asList("X.java:1: x", "X.java:1: x",
+                "Verification completed: 2 reported messages."),
+                mResultRecorder.getLines());
+    }
+
+    /**
+     * Test with a memory scheduler.
+     *
+     * All batches are executed and the reserved memory is released.
+     */
+    @Test
+    public void testWithScheduler() throws Exception {
+        List<File> classFiles = Arrays.asList(
+                new File("p/A.class"), new File("q/B.class"));
+        MemoryScheduler scheduler = new MemoryScheduler(1, 1);
+
+        JlintExecutor executor = createJlintExecutor(JLINT_EXECUTABLE,
+                classFiles);
+        executor.setThreads(2);
+        executor.setScheduler(scheduler);
+        executor.execute(mResultRecorder, mErrorRecorder);
+
+        assertEquals(2, mCommandExecutor.getRecordedCommands().size());
+        assertEquals(0, scheduler.getReservedBytes());
+    }
+
+    /**
+     * Test writing the output to a file with an executor that cannot copy
+     * it as it is.
+     *
+     * The lines are written to the file.
+     */
+    @Test
+    public void testOutputToFile() throws Exception {
+        List<String> outputLines = Arrays.asList(
+                "X.java:1: x", "Verification completed: 1 reported messages.");
+        mCommandExecutor.setOutputLines(outputLines);
+        File file = File.createTempFile("result", ".txt");
+        try {
+            JlintExecutor executor = createJlintExecutor(JLINT_EXECUTABLE,
+                    Arrays.asList(new File("A.class")));
+            FileOutputStream output = new FileOutputStream(file);
+            try {
+                executor.execute(output.getChannel(), mErrorRecorder);
+            } finally {
+                output.close();
+            }
+
+            BufferedReader reader = new BufferedReader(new FileReader(file));
+            try {
+                assertEquals(outputLines.get(0), reader.readLine());
+                assertEquals(outputLines.get(1), reader.readLine());
+                assertNull(reader.readLine());
+            } finally {
+                reader.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Test with maximum length of command.
+     *
+     * Class files are split into batches in order so that each command
+     * does not exceed the length.
+     */
+    @Test
+    public void testWithMaxCommandLength() throws Exception {
+        List<File> classFiles = Arrays.asList(
+                new File("a"), new File("b"), new File("c"));
+        String executablePath = JLINT_EXECUTABLE.getAbsolutePath();
+        long maxCommandLength = CommandBuilder.measure(executablePath) +
+                CommandBuilder.measure(classFiles.get(0).getAbsolutePath()) +
+                CommandBuilder.measure(classFiles.get(1).getAbsolutePath());
+
+        JlintExecutor executor = createJlintExecutor(JLINT_EXECUTABLE,
+                classFiles);
+        executor.setMaxCommandLength(maxCommandLength);
+        LineRecorder log = new LineRecorder();
+        executor.setLog(log);
+        executor.execute(mResultRecorder, mErrorRecorder);
+
+        List<List<String>> recordedCommands =
+                mCommandExecutor.getRecordedCommands();
+        assertEquals(2, recordedCommands.size());
+        assertEquals(1, log.getLines().size());
+        assertEquals(Arrays.asList(executablePath,
+                classFiles.get(0).getAbsolutePath(),
+                classFiles.get(1).getAbsolutePath()),
+                recordedCommands.get(0));
+        assertEquals(Arrays.asList(executablePath,
+                classFiles.get(2).getAbsolutePath()),
+                recordedCommands.get(1));
+    }
+
+    /**
+     * Test the default maximum length of command.
+     *
+     * The environment variables are subtracted from ARG_MAX except on
+     * Windows.
+     */
+    @Test
+    public void testDefaultMaxCommandLength() {
+        Map<String, String> environment = Collections.emptyMap();
+        long linux = CommandBuilder.getDefaultMaxCommandLength(
+                "Linux", environment);
+        assertTrue(linux > 2000000);
+        assertTrue(linux <= 2L * 1024 * 1024);
+        assertTrue(CommandBuilder.getDefaultMaxCommandLength(
+                "Mac OS X", environment) < linux);
+        assertEquals(32000, CommandBuilder.getDefaultMaxCommandLength(
+                "Windows 7", environment));
+
+        environment = Collections.singletonMap("A", "b");
+        assertEquals(linux - CommandBuilder.measure("A=b"),
+                CommandBuilder.getDefaultMaxCommandLength(
+                        "Linux", environment));
+    }
+
+    /**
+     * Test with limit of findings.
+     *
+     * The remaining batches are not executed once the limit is exceeded.
+     */
+    @Test
+    public void testWithFindingLimit() throws Exception {
+        List<File> classFiles = Arrays.asList(
+                new File("a"), new File("b"), new File("c"));
+        long maxCommandLength =
+                CommandBuilder.measure(JLINT_EXECUTABLE.getAbsolutePath()) +
+                CommandBuilder.measure(classFiles.get(0).getAbsolutePath());
+        mCommandExecutor.setOutputLines(Arrays.asList(
+                "X.java:1: Compare strings as object references",
+                "Verification completed: 1 reported messages."));
+
+        FindingLimit findingLimit = new FindingLimit(1, null);
+        JlintExecutor executor = createJlintExecutor(JLINT_EXECUTABLE,
+                classFiles);
+        executor.setMaxCommandLength(maxCommandLength);
+        executor.setFindingLimit(findingLimit);
+        try {
+            executor.execute(mResultRecorder, mErrorRecorder);
+            fail();
+        } catch (FindingLimitExceededException e) {
+            // expected.
+        }
+
+        assertEquals(2, mCommandExecutor.getRecordedCommands().size());
+        assertEquals(2, findingLimit.getFindings().size());
+    }
 }
@@ -0,0 +1,614 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.FileSet;
+import org.junit.Test;
+
+/**
+ * Test {@link JlintTask} from end to end with {@link FakeJlint}.
+ *
+ * <p>The number of class files is set by the system property
+ * {@link #CLASS_FILES_PROPERTY}, for example 100000 to test at the scale
+ * of production. The wall time, the peak heap and the file descriptors
+ * of each run are appended to the file set by the system property
+ * {@link #RESULT_FILE_PROPERTY}.</p>
+ *
+ * <p>The tests are skipped on systems that are not POSIX, because the
+ * leak of file descriptors can only be checked on them.</p>
+ */
+public class JlintTaskEndToEndTest extends TestCase {
+    /**
+     * Name of the system property of the number of class files.
+     */
+    private static final String CLASS_FILES_PROPERTY =
+            "jlint.test.classFiles";
+
+    /**
+     * Name of the system property of the file to which the measurements
+     * are appended.
+     */
+    private static final String RESULT_FILE_PROPERTY =
+            "jlint.test.resultFile";
+
+    /**
+     * Default file to which the measurements are appended.
+     */
+    private static final String DEFAULT_RESULT_FILE =
+            "target/jlint-e2e-results.txt";
+
+    /**
+     * Default number of class files.
+     */
+    private static final int DEFAULT_CLASS_FILES = 2000;
+
+    /**
+     * Number of class files in a package.
+     */
+    private static final int CLASSES_PER_PACKAGE = 100;
+
+    /**
+     * Number of file descriptors that may be opened by the JVM itself
+     * during a run.
+     */
+    private static final long FILE_DESCRIPTOR_SLACK = 8;
+
+    /**
+     * Modification time of files in the past in milliseconds.
+     */
+    private static final long PAST_MILLIS = 1000000000000L;
+
+    /**
+     * Temporary directory.
+     */
+    private File mDirectory;
+
+    /**
+     * Directory of class files.
+     */
+    private File mClassDirectory;
+
+    /**
+     * Result file.
+     */
+    private File mOutputFile;
+
+    /**
+     * Project that executes the task.
+     */
+    private Project mProject;
+
+    /**
+     * Run a test only on POSIX systems.
+     *
+     * JUnit 3 has no assumption, so a test on another system passes
+     * without running.
+     *
+     * @throws Throwable If the test fails
+     */
+    @Override
+    public void runBare() throws Throwable {
+        if (File.separatorChar != '/' || getOpenFileDescriptors() < 0) {
+            return;
+        }
+
+        super.runBare();
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        mDirectory = File.createTempFile("jlint-e2e", "");
+        mDirectory.delete();
+        mDirectory.mkdir();
+        mClassDirectory = new File(mDirectory, "classes");
+        mOutputFile = new File(mDirectory, "result.txt");
+
+        mProject = new Project();
+        mProject.setBaseDir(mDirectory);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TestFiles.delete(mDirectory);
+
+        super.tearDown();
+    }
+
+    /**
+     * Create empty class files.
+     *
+     * @param count Number of class files
+     * @throws IOException If I/O error occurs
+     */
+    private void createClassFiles(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            File packageDirectory = new File(mClassDirectory,
+                    "p" + (i / CLASSES_PER_PACKAGE));
+            packageDirectory.mkdirs();
+            new File(packageDirectory, "C" + i + ".class").createNewFile();
+        }
+    }
+
+    /**
+     * Create a task that analyzes the class files with {@link FakeJlint}.
+     *
+     * @param properties Properties that configure {@link FakeJlint}
+     * @return Task
+     * @throws IOException If I/O error occurs
+     */
+    private JlintTask createTask(Map<String, String> properties) throws
+            IOException {
+        return createTask(FakeJlint.createExecutable(mDirectory, properties));
+    }
+
+    /**
+     * Create a task that analyzes the class files with an executable.
+     *
+     * @param executable Executable of {@link FakeJlint}
+     * @return Task
+     */
+    private JlintTask createTask(File executable) {
+        FileSet fileSet = new FileSet();
+        fileSet.setProject(mProject);
+        fileSet.setDir(mClassDirectory);
+        fileSet.setIncludes("**/*.class");
+
+        JlintTask task = new JlintTask();
+        task.setProject(mProject);
+        task.setExecutable(executable);
+        task.setOutputFile(mOutputFile);
+        task.addFileSet(fileSet);
+
+        return task;
+    }
+
+    /**
+     * Count lines of the result file.
+     *
+     * @return Number of lines
+     * @throws IOException If I/O error occurs
+     */
+    private long countOutputLines() throws IOException {
+        BufferedReader reader = new BufferedReader(
+                new FileReader(mOutputFile));
+        try {
+            long lines = 0;
+            while (reader.readLine() != null) {
+                lines++;
+            }
+
+            return lines;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Read the last line of the result file.
+     *
+     * @return Last line
+     * @throws IOException If I/O error occurs
+     */
+    private String readLastLine() throws IOException {
+        BufferedReader reader = new BufferedReader(
+                new FileReader(mOutputFile));
+        try {
+            String lastLine = null;
+            for (String line = reader.readLine(); line != null;
+                    line = reader.readLine()) {
+                lastLine = line;
+            }
+
+            return lastLine;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Reset the peak usage of the heap.
+     */
+    private static void resetPeakHeap() {
+        System.gc();
+        for (MemoryPoolMXBean pool :
+                ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * Get the peak usage of the heap since it is reset.
+     *
+     * @return Peak usage in bytes
+     */
+    private static long getPeakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool :
+                ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+
+        return peak;
+    }
+
+    /**
+     * Get the number of file descriptors opened by this JVM.
+     *
+     * @return Number of file descriptors, or -1 if it is unknown
+     */
+    private static long getOpenFileDescriptors() {
+        try {
+            Class<?> type = Class.forName(
+                    "com.sun.management.UnixOperatingSystemMXBean");
+            Object bean = ManagementFactory.getOperatingSystemMXBean();
+            if (!type.isInstance(bean)) {
+                return -1;
+            }
+
+            Method method = type.getMethod("getOpenFileDescriptorCount");
+            return ((Number) method.invoke(bean)).longValue();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Append a measurement to the result file.
+     *
+     * @param line Line of the measurement
+     * @throws IOException If I/O error occurs
+     */
+    private static void writeResult(String line) throws IOException {
+        File resultFile = new File(System.getProperty(
+                RESULT_FILE_PROPERTY, DEFAULT_RESULT_FILE));
+        File parent = resultFile.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+
+        PrintWriter writer = new PrintWriter(
+                new FileWriter(resultFile, true));
+        try {
+            writer.println(line);
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Execute a task and write its wall time, peak heap and file
+     * descriptors into the result file.
+     *
+     * File descriptors must not be leaked.
+     *
+     * @param name Name of the run
+     * @param task Task
+     * @throws IOException If I/O error occurs
+     */
+    private static void executeAndMeasure(String name, JlintTask task) throws
+            IOException {
+        long fileDescriptors = getOpenFileDescriptors();
+        resetPeakHeap();
+        long startNanos = System.nanoTime();
+
+        task.execute();
+
+        long wallMillis = (System.nanoTime() - startNanos) / 1000000;
+        long peakHeap = getPeakHeap();
+        System.gc();
+        long leakedFileDescriptors =
+                getOpenFileDescriptors() - fileDescriptors;
+
+        writeResult(name + ": wall " + wallMillis + " ms, peak heap " +
+                peakHeap + " bytes, file descriptors +" +
+                leakedFileDescriptors);
+        assertTrue(leakedFileDescriptors <= FILE_DESCRIPTOR_SLACK);
+    }
+
+    /**
+     * Test analyzing many class files in some Jlint processes.
+     *
+     * Every message is in the merged result.
+     */
+    @Test
+    public void testScale() throws Exception {
+        int classFiles = Integer.getInteger(
+                CLASS_FILES_PROPERTY, DEFAULT_CLASS_FILES);
+        createClassFiles(classFiles);
+        HashMap<String, String> properties = new HashMap<String, String>();
+        properties.put(FakeJlint.MESSAGES, "2");
+
+        JlintTask task = createTask(properties);
+        task.setThreads(4);
+        executeAndMeasure("testScale(" + classFiles + ")", task);
+
+        assertEquals(classFiles * 2 + 1, countOutputLines());
+        assertEquals("Verification completed: " + (classFiles * 2) +
+                " reported messages.", readLastLine());
+    }
+
+    /**
+     * Test copying the output of a single Jlint process as it is.
+     */
+    @Test
+    public void testPassThrough() throws Exception {
+        createClassFiles(CLASSES_PER_PACKAGE);
+        HashMap<String, String> properties = new HashMap<String, String>();
+        properties.put(FakeJlint.MESSAGES, "100");
+        properties.put(FakeJlint.ERROR_LINES, "10");
+
+        executeAndMeasure("testPassThrough", createTask(properties));
+
+        assertEquals(CLASSES_PER_PACKAGE * 100 + 1, countOutputLines());
+    }
+
+    /**
+     * Test a slow Jlint process with a report.
+     */
+    @Test
+    public void testDelayWithReport() throws Exception {
+        createClassFiles(CLASSES_PER_PACKAGE);
+        HashMap<String, String> properties = new HashMap<String, String>();
+        properties.put(FakeJlint.DELAY, "500");
+
+        JlintTask task = createTask(properties);
+        Report report = task.createReport();
+        File reportFile = new File(mDirectory, "report.xml");
+        report.setOutputFile(reportFile);
+        report.setFormat(ReportWriter.FORMAT_XML);
+        executeAndMeasure("testDelayWithReport", task);
+
+        assertEquals(CLASSES_PER_PACKAGE + 1, countOutputLines());
+        assertTrue(reportFile.length() > 0);
+    }
+
+    /**
+     * Test collapsing directories of a file set that includes only class
+     * files.
+     *
+     * A directory that has a jar file is not passed to Jlint, because
+     * Jlint would analyze the jar file as well.
+     */
+    @Test
+    public void testCollapseDirectoriesWithArchive() throws Exception {
+        createClassFiles(CLASSES_PER_PACKAGE * 2);
+        File archive = new File(new File(mClassDirectory, "p0"), "lib.jar");
+        archive.createNewFile();
+
+        JlintTask task = createTask(new HashMap<String, String>());
+        task.setCollapseDirectories(true);
+        List<File> classFiles = task.getClassFiles();
+
+        File canonicalDirectory = mClassDirectory.getCanonicalFile();
+        assertFalse(classFiles.contains(canonicalDirectory));
+        assertFalse(classFiles.contains(new File(canonicalDirectory, "p0")));
+        assertTrue(classFiles.contains(new File(canonicalDirectory, "p1")));
+        assertFalse(classFiles.contains(archive.getCanonicalFile()));
+        assertEquals(CLASSES_PER_PACKAGE + 1, classFiles.size());
+    }
+
+    /**
+     * Test file sets that include the same class files.
+     *
+     * Each class file is analyzed once.
+     */
+    @Test
+    public void testOverlappingFileSets() throws Exception {
+        createClassFiles(CLASSES_PER_PACKAGE * 2);
+        HashMap<String, String> properties = new HashMap<String, String>();
+        properties.put(FakeJlint.MESSAGES, "1");
+
+        FileSet fileSet = new FileSet();
+        fileSet.setProject(mProject);
+        fileSet.setDir(new File(mClassDirectory, "p0"));
+        fileSet.setIncludes("*.class");
+
+        JlintTask task = createTask(properties);
+        task.setCollapseDirectories(false);
+        task.addFileSet(fileSet);
+        executeAndMeasure("testOverlappingFileSets", task);
+
+        assertEquals(CLASSES_PER_PACKAGE * 2 + 1, countOutputLines());
+    }
+
+    /**
+     * Test collapsing directories of file sets that include the same class
+     * files.
+     *
+     * The files and the directories under a collapsed directory are not
+     * passed to Jlint again.
+     */
+    @Test
+    public void testOverlappingCollapsedFileSets() throws Exception {
+        createClassFiles(CLASSES_PER_PACKAGE * 2);
+        HashMap<String, String> properties = new HashMap<String, String>();
+        properties.put(FakeJlint.MESSAGES, "1");
+
+        JlintTask task = createTask(properties);
+        task.setCollapseDirectories(true);
+        FileSet packageFileSet = new FileSet();
+        packageFileSet.setProject(mProject);
+        packageFileSet.setDir(new File(mClassDirectory, "p0"));
+        task.addFileSet(packageFileSet);
+        FileSet classFileSet = new FileSet();
+        classFileSet.setProject(mProject);
+        classFileSet.setDir(mClassDirectory);
+        classFileSet.setIncludes("p1/C" + CLASSES_PER_PACKAGE + ".class");
+        task.addFileSet(classFileSet);
+
+        assertEquals(Collections.singletonList(
+                mClassDirectory.getCanonicalFile()), task.getClassFiles());
+
+        executeAndMeasure("testOverlappingCollapsedFileSets", task);
+
+        assertEquals(CLASSES_PER_PACKAGE * 2 + 1, countOutputLines());
+    }
+
+    /**
+     * Set the modification time of files in the past.
+     *
+     * Results of files modified just now are not reused.
+     *
+     * @param file File or directory whose files are set
+     */
+    private static void setModifiedInPast(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                setModifiedInPast(child);
+            }
+        }
+
+        file.setLastModified(PAST_MILLIS);
+    }
+
+    /**
+     * Test analyzing the same class files twice in the same project.
+     *
+     * The second task reuses the result without running Jlint.
+     */
+    @Test
+    public void testReuseResults() throws Exception {
+        createClassFiles(CLASSES_PER_PACKAGE);
+        HashMap<String, String> properties = new HashMap<String, String>();
+        properties.put(FakeJlint.MESSAGES, "1");
+        File executable = FakeJlint.createExecutable(mDirectory, properties);
+        setModifiedInPast(mClassDirectory);
+        setModifiedInPast(executable);
+
+        JlintTask task = createTask(executable);
+        task.setReuseResults(true);
+        task.setMetricsPrefix("first.");
+        executeAndMeasure("testReuseResults(first)", task);
+
+        assertEquals(CLASSES_PER_PACKAGE + 1, countOutputLines());
+        assertEquals("1", mProject.getProperty("first.processes"));
+
+        mOutputFile.delete();
+        task = createTask(executable);
+        task.setReuseResults(true);
+        task.setMetricsPrefix("second.");
+        executeAndMeasure("testReuseResults(second)", task);
+
+        assertEquals(CLASSES_PER_PACKAGE + 1, countOutputLines());
+        assertNull(mProject.getProperty("second.processes"));
+    }
+
+    /**
+     * Test Jlint that exits with an error.
+     *
+     * The build fails and the result is deleted.
+     */
+    @Test
+    public void testExitCode() throws Exception {
+        createClassFiles(CLASSES_PER_PACKAGE);
+        HashMap<String, String> properties = new HashMap<String, String>();
+        properties.put(FakeJlint.EXIT_CODE, "2");
+
+        try {
+            createTask(properties).execute();
+            fail();
+        } catch (BuildException e) {
+            assertEquals("Exit code is 2", e.getMessage());
+        }
+        assertFalse(mOutputFile.exists());
+    }
+
+    /**
+     * Test writing the trace of a task that fails.
+     *
+     * The trace is written with the span of the task.
+     */
+    @Test
+    public void testTraceOfFailedTask() throws Exception {
+        createClassFiles(CLASSES_PER_PACKAGE);
+        HashMap<String, String> properties = new HashMap<String, String>();
+        properties.put(FakeJlint.EXIT_CODE, "2");
+
+        JlintTask task = createTask(properties);
+        File traceFile = new File(mDirectory, "trace.json");
+        task.setTraceFile(traceFile);
+        try {
+            task.execute();
+            fail();
+        } catch (BuildException e) {
+            assertEquals("Exit code is 2", e.getMessage());
+        }
+
+        BufferedReader reader = new BufferedReader(new FileReader(traceFile));
+        try {
+            StringBuilder trace = new StringBuilder();
+            for (String line = reader.readLine(); line != null;
+                    line = reader.readLine()) {
+                trace.append(line);
+            }
+            assertTrue(trace.indexOf("\"jlint task\"") >= 0);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Test Jlint that crashes in the middle of the output while other
+     * Jlint processes run.
+     *
+     * The build fails and the result is deleted.
+     */
+    @Test
+    public void testCrash() throws Exception {
+        createClassFiles(CLASSES_PER_PACKAGE * 4);
+        HashMap<String, String> properties = new HashMap<String, String>();
+        properties.put(FakeJlint.CRASH_AFTER, "10");
+
+        JlintTask task = createTask(properties);
+        task.setThreads(4);
+        try {
+            task.execute();
+            fail();
+        } catch (BuildException e) {
+            assertEquals("Exit code is " + FakeJlint.CRASH_EXIT_CODE,
+                    e.getMessage());
+        }
+        assertFalse(mOutputFile.exists());
+    }
+}
@@ -0,0 +1,90 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Test {@link KeywordMatcher}.
+ */
+public class KeywordMatcherTest extends TestCase {
+    /**
+     * Find keywords in text.
+     *
+     * @param text Text
+     * @param keywords Keywords
+     * @return Indexes of found keywords
+     */
+    private static BitSet match(String text, String... keywords) {
+        BitSet matched = new BitSet();
+        new KeywordMatcher(Arrays.asList(keywords)).match(text, 0, matched);
+
+        return matched;
+    }
+
+    /**
+     * Test finding keywords.
+     */
+    @Test
+    public void testMatch() {
+        BitSet matched = match("ushers", "he", "she", "his", "hers");
+
+        assertTrue(matched.get(0));
+        assertTrue(matched.get(1));
+        assertFalse(matched.get(2));
+        assertTrue(matched.get(3));
+    }
+
+    /**
+     * Test finding a keyword through a fallback state.
+     */
+    @Test
+    public void testMatchAfterFailure() {
+        BitSet matched = match("abcd", "abce", "bcd");
+
+        assertFalse(matched.get(0));
+        assertTrue(matched.get(1));
+    }
+
+    /**
+     * Test finding keywords from a start index.
+     */
+    @Test
+    public void testMatchFromStart() {
+        BitSet matched = new BitSet();
+        new KeywordMatcher(Arrays.asList("null", "lock")).match(
+                "null.java:1: Value of lock is changed", 12, matched);
+
+        assertFalse(matched.get(0));
+        assertTrue(matched.get(1));
+    }
+
+    /**
+     * Test that no keyword is found.
+     */
+    @Test
+    public void testNoMatch() {
+        assertTrue(match("deadlock", "null", "").isEmpty());
+        assertTrue(match("anything").isEmpty());
+    }
+}
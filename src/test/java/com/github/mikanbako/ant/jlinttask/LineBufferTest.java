@@ -0,0 +1,85 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Test {@link LineBuffer}.
+ */
+public class LineBufferTest extends TestCase {
+    /**
+     * Test keeping lines on the heap.
+     */
+    @Test
+    public void testReplay() throws Exception {
+        LineBuffer buffer = new LineBuffer();
+        buffer.consumeLine("a");
+        buffer.consumeLine("b");
+
+        LineRecorder recorder = new LineRecorder();
+        buffer.replay(recorder);
+        buffer.close();
+
+        assertFalse(buffer.isSpilled());
+        assertEquals(Arrays.asList("a", "b"), recorder.getLines());
+    }
+
+    /**
+     * Test writing lines after the limit to the temporary file.
+     *
+     * The lines are replayed in order including non-ASCII characters.
+     */
+    @Test
+    public void testReplaySpilledLines() throws Exception {
+        LineBuffer buffer = new LineBuffer(60);
+        buffer.consumeLine("first");
+        buffer.consumeLine("second");
+        buffer.consumeLine("");
+        buffer.consumeLine("\u3042\u3044");
+
+        LineRecorder recorder = new LineRecorder();
+        buffer.replay(recorder);
+        buffer.close();
+
+        assertTrue(buffer.isSpilled());
+        assertEquals(Arrays.asList("first", "second", "", "\u3042\u3044"),
+                recorder.getLines());
+    }
+
+    /**
+     * Test consuming a line after the buffer is closed.
+     */
+    @Test
+    public void testConsumeAfterClose() throws Exception {
+        LineBuffer buffer = new LineBuffer(0);
+        buffer.close();
+
+        try {
+            buffer.consumeLine("a");
+            fail();
+        } catch (IOException e) {
+            assertFalse(buffer.isSpilled());
+        }
+    }
+}
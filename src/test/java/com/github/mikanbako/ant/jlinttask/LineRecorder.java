@@ -0,0 +1,46 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Implementation of {@link LineConsumer} that records lines.
+ */
+/* package */ class LineRecorder implements LineConsumer {
+    /**
+     * Recorded lines.
+     */
+    private final ArrayList<String> mLines = new ArrayList<String>();
+
+    @Override
+    public synchronized void consumeLine(String line) {
+        mLines.add(line);
+    }
+
+    /**
+     * Get recorded lines.
+     *
+     * @return Unmodifiable list that contains recorded lines
+     */
+    public synchronized List<String> getLines() {
+        return Collections.unmodifiableList(new ArrayList<String>(mLines));
+    }
+}
@@ -0,0 +1,142 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Test {@link MemoryScheduler}.
+ */
+public class MemorySchedulerTest extends TestCase {
+    /**
+     * Time to wait for a thread that should be blocked in milliseconds.
+     */
+    private static final long BLOCKED_MILLIS = 200;
+
+    /**
+     * Thread that acquires memory.
+     */
+    private static final class Acquirer extends Thread {
+        /**
+         * Scheduler.
+         */
+        private final MemoryScheduler mScheduler;
+
+        /**
+         * Estimated memory in bytes.
+         */
+        private final long mBytes;
+
+        /**
+         * Whether memory is acquired.
+         */
+        private volatile boolean mAcquired;
+
+        /**
+         * Constructor.
+         *
+         * @param scheduler Scheduler
+         * @param bytes Estimated memory in bytes
+         */
+        Acquirer(MemoryScheduler scheduler, long bytes) {
+            mScheduler = scheduler;
+            mBytes = bytes;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                mScheduler.acquire(mBytes);
+                mAcquired = true;
+            } catch (InterruptedException e) {
+                // Not acquired.
+            }
+        }
+
+        /**
+         * Check whether memory is acquired.
+         *
+         * @return true if memory is acquired
+         */
+        public boolean isAcquired() {
+            return mAcquired;
+        }
+    }
+
+    /**
+     * Test waiting until memory is released.
+     */
+    @Test
+    public void testAcquireWithinBudget() throws Exception {
+        MemoryScheduler scheduler = new MemoryScheduler(100, 4);
+        assertEquals(60, scheduler.acquire(60));
+        assertEquals(40, scheduler.acquire(40));
+
+        Acquirer acquirer = new Acquirer(scheduler, 10);
+        acquirer.start();
+        acquirer.join(BLOCKED_MILLIS);
+        assertFalse(acquirer.isAcquired());
+
+        scheduler.release(40);
+        acquirer.join();
+        assertTrue(acquirer.isAcquired());
+        assertEquals(70, scheduler.getReservedBytes());
+    }
+
+    /**
+     * Test waiting until a process ends when the maximum number of
+     * processes are running.
+     */
+    @Test
+    public void testAcquireWithinMaxProcesses() throws Exception {
+        MemoryScheduler scheduler = new MemoryScheduler(100, 1);
+        scheduler.acquire(10);
+
+        Acquirer acquirer = new Acquirer(scheduler, 10);
+        acquirer.start();
+        acquirer.join(BLOCKED_MILLIS);
+        assertFalse(acquirer.isAcquired());
+
+        scheduler.release(10);
+        acquirer.join();
+        assertTrue(acquirer.isAcquired());
+    }
+
+    /**
+     * Test a process whose estimate exceeds the budget.
+     *
+     * It runs alone.
+     */
+    @Test
+    public void testAcquireLargerThanBudget() throws Exception {
+        MemoryScheduler scheduler = new MemoryScheduler(100, 4);
+        assertEquals(100, scheduler.acquire(500));
+
+        Acquirer acquirer = new Acquirer(scheduler, 1);
+        acquirer.start();
+        acquirer.join(BLOCKED_MILLIS);
+        assertFalse(acquirer.isAcquired());
+
+        scheduler.release(100);
+        acquirer.join();
+        assertTrue(acquirer.isAcquired());
+    }
+}
@@ -20,6 +20,7 @@ package com.github.mikanbako.ant.jlinttask;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
@@ -80,6 +81,22 @@ public class OptionParserTest extends TestCase {
         assertContainedOptions(Arrays.asList("-all", "+data_flow"), result);
     }
 
+    /**
+     * Test the order of options.
+     *
+     * The options are iterated in the given order, because Jlint applies
+     * them in order.
+     */
+    @Test
+    public void testOptionsOrder() {
+        Set<String> result = OptionParser.parse(
+                "+data_flow -all +inheritance -data_flow");
+
+        assertEquals(Arrays.asList(
+                "+data_flow", "-all", "+inheritance", "-data_flow"),
+                new ArrayList<String>(result));
+    }
+
     /**
      * Test with options string that contains white space.
      *
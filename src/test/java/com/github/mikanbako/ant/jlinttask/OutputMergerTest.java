@@ -0,0 +1,84 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Test {@link OutputMerger}.
+ */
+public class OutputMergerTest extends TestCase {
+    /**
+     * Test merging output of some Jlint processes.
+     *
+     * Messages are passed in the order in which they are consumed, and a
+     * single summary line that counts all messages is output at last.
+     */
+    @Test
+    public void testMerge() throws Exception {
+        LineRecorder recorder = new LineRecorder();
+        OutputMerger merger = new OutputMerger(recorder);
+
+        merger.consumeLine("A.java:1: a");
+        merger.consumeLine("Verification completed: 1 reported messages.");
+        merger.consumeLine("B.java:1: b");
+        merger.consumeLine("B.java:2: b");
+        merger.consumeLine("Verification completed: 2 reported messages.");
+        merger.finish();
+
+        assertEquals(Arrays.asList("A.java:1: a", "B.java:1: b",
+                "B.java:2: b", "Verification completed: 3 reported messages."),
+                recorder.getLines());
+    }
+
+    /**
+     * Test merging output that has no summary line.
+     *
+     * No summary line is output.
+     */
+    @Test
+    public void testMergeWithoutSummary() throws Exception {
+        LineRecorder recorder = new LineRecorder();
+        OutputMerger merger = new OutputMerger(recorder);
+
+        merger.consumeLine("A.java:1: a");
+        merger.finish();
+
+        assertEquals(Collections.singletonList("A.java:1: a"),
+                recorder.getLines());
+    }
+
+    /**
+     * Test parsing summary lines.
+     */
+    @Test
+    public void testParseSummary() {
+        assertEquals(12, OutputMerger.parseSummary(
+                "Verification completed: 12 reported messages."));
+        assertEquals(-1, OutputMerger.parseSummary(
+                "Verification completed: x reported messages."));
+        assertEquals(-1, OutputMerger.parseSummary("A.java:1: a"));
+        assertEquals("Verification completed: 0 reported messages.",
+                OutputMerger.formatSummary(0));
+    }
+}
@@ -0,0 +1,211 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Test {@link ProcessExecutor}.
+ */
+public class ProcessExecutorTest extends TestCase {
+    /**
+     * Number of lines written by {@link Flood}.
+     *
+     * The output is larger than usual pipe buffers.
+     */
+    private static final int FLOOD_LINES = 20000;
+
+    /**
+     * Program that floods the standard output and the standard error.
+     */
+    public static final class Flood {
+        /**
+         * Do not create instance.
+         */
+        private Flood() {
+            // no operation.
+        }
+
+        /**
+         * Write many lines and exit with code 3.
+         *
+         * @param arguments Ignored
+         */
+        public static void main(String[] arguments) {
+            for (int i = 0; i < FLOOD_LINES; i++) {
+                System.out.println("output line " + i);
+                System.err.println("error line " + i);
+            }
+
+            System.exit(3);
+        }
+    }
+
+    /**
+     * Create a command that executes {@link Flood}.
+     *
+     * @return Command
+     */
+    private static List<String> createFloodCommand() {
+        ArrayList<String> command = new ArrayList<String>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"),
+                "java").getAbsolutePath());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Flood.class.getName());
+
+        return command;
+    }
+
+    /**
+     * Test with a command whose output is larger than pipe buffers.
+     *
+     * All lines are read and the exit code is returned.
+     */
+    @Test
+    public void testLargeOutput() throws Exception {
+        LineRecorder output = new LineRecorder();
+        LineRecorder error = new LineRecorder();
+
+        int exitCode = new ProcessExecutor().execute(
+                createFloodCommand(), output, error);
+
+        assertEquals(3, exitCode);
+        assertEquals(FLOOD_LINES, output.getLines().size());
+        assertEquals("output line 0", output.getLines().get(0));
+        assertEquals("output line " + (FLOOD_LINES - 1),
+                output.getLines().get(FLOOD_LINES - 1));
+        assertEquals(FLOOD_LINES, error.getLines().size());
+    }
+
+    /**
+     * Test copying the standard output to a file as it is.
+     */
+    @Test
+    public void testRawOutput() throws Exception {
+        File file = File.createTempFile("raw", ".txt");
+        try {
+            LineRecorder error = new LineRecorder();
+
+            FileOutputStream output = new FileOutputStream(file);
+            int exitCode;
+            try {
+                exitCode = new ProcessExecutor().execute(
+                        createFloodCommand(), output.getChannel(), error);
+            } finally {
+                output.close();
+            }
+
+            assertEquals(3, exitCode);
+            assertEquals(FLOOD_LINES, error.getLines().size());
+
+            BufferedReader reader = new BufferedReader(new FileReader(file));
+            try {
+                for (int i = 0; i < FLOOD_LINES; i++) {
+                    assertEquals("output line " + i, reader.readLine());
+                }
+                assertNull(reader.readLine());
+            } finally {
+                reader.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Test killing a process that exceeds the maximum memory.
+     */
+    @Test
+    public void testMaxMemory() throws Exception {
+        if (!ProcessSampler.isSupported()) {
+            return;
+        }
+
+        ExecutionMetrics metrics = new ExecutionMetrics();
+        ProcessExecutor executor = new ProcessExecutor();
+        executor.setMetrics(metrics);
+        executor.setMaxMemory(1);
+
+        try {
+            executor.execute(createFloodCommand(),
+                    new LineRecorder(), new LineRecorder());
+            fail();
+        } catch (MemoryLimitExceededException e) {
+            assertTrue(e.getMessage().contains("exceeds 1 bytes"));
+        }
+    }
+
+    /**
+     * Test sampling resource usage of a process.
+     */
+    @Test
+    public void testProcessUsage() throws Exception {
+        if (!ProcessSampler.isSupported()) {
+            return;
+        }
+
+        ExecutionMetrics metrics = new ExecutionMetrics();
+        ProcessExecutor executor = new ProcessExecutor();
+        executor.setMetrics(metrics);
+
+        executor.execute(createFloodCommand(),
+                new LineRecorder(), new LineRecorder());
+
+        assertEquals(1, metrics.getProcessUsages().size());
+        ProcessUsage usage = metrics.getProcessUsages().get(0);
+        assertTrue(usage.getProcessId() > 0);
+        assertTrue(usage.getPeakResidentBytes() > 0);
+        assertTrue(usage.getCpuMillis() >= 0);
+    }
+
+    /**
+     * Test recording spans of a process.
+     *
+     * The lifetime of the process is recorded with its process ID.
+     */
+    @Test
+    public void testTrace() throws Exception {
+        TraceRecorder trace = new TraceRecorder();
+        ProcessExecutor executor = new ProcessExecutor();
+        executor.setTrace(trace);
+
+        executor.execute(createFloodCommand(),
+                new LineRecorder(), new LineRecorder());
+
+        StringWriter writer = new StringWriter();
+        trace.write(writer);
+        String json = writer.toString();
+
+        assertTrue(json.contains("\"name\":\"spawn\""));
+        assertTrue(json.contains("\"name\":\"drain\""));
+        assertTrue(json.matches(
+                "(?s).*\"name\":\"process\",[^\n]*\"pid\":[1-9].*"));
+        assertTrue(json.contains("\"exitCode\":3"));
+    }
+}
@@ -0,0 +1,51 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Test {@link ProcessSampler}.
+ */
+public class ProcessSamplerTest extends TestCase {
+    /**
+     * Test parsing a number in a line of /proc.
+     */
+    @Test
+    public void testParseNumber() {
+        assertEquals(1234, ProcessSampler.parseNumber("VmRSS:\t    1234 kB"));
+        assertEquals(42, ProcessSampler.parseNumber("read_bytes: 42"));
+        assertEquals(-1, ProcessSampler.parseNumber("Name:\tjlint"));
+    }
+
+    /**
+     * Test parsing the CPU time from /proc/&lt;pid&gt;/stat.
+     *
+     * The command name may contain spaces and parentheses.
+     */
+    @Test
+    public void testParseCpuMillis() {
+        assertEquals(1500, ProcessSampler.parseCpuMillis(
+                "123 (jl (int) x) S 1 123 123 0 -1 4194304 100 0 0 0 " +
+                "120 30 0 0 20 0 1 0 100 1000 50"));
+        assertEquals(-1, ProcessSampler.parseCpuMillis("123 (jlint) S 1"));
+        assertEquals(-1, ProcessSampler.parseCpuMillis(null));
+    }
+}
@@ -0,0 +1,208 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Test {@link ReportDispatcher} and {@link CategoryFilter}.
+ */
+public class ReportDispatcherTest extends TestCase {
+    /**
+     * Finding of data flow.
+     */
+    private static final String DATA_FLOW =
+            "src/a/Foo.java:1: Value of referenced variable 'x' may be NULL";
+
+    /**
+     * Finding of synchronization.
+     */
+    private static final String SYNCHRONIZATION =
+            "src/b/Bar.java:2: Method Bar.run() is called from " +
+            "non-synchronized method";
+
+    /**
+     * Finding of inheritance.
+     */
+    private static final String INHERITANCE =
+            "src/a/Baz.java:3: Field 'x' in class Baz shadows one in " +
+            "base class Foo";
+
+    /**
+     * Implementation of {@link FindingConsumer} that records findings.
+     */
+    private static final class FindingRecorder implements FindingConsumer {
+        /**
+         * Recorded findings.
+         */
+        private final ArrayList<String> mFindings = new ArrayList<String>();
+
+        @Override
+        public void consumeFinding(Finding finding) {
+            mFindings.add(finding.getText());
+        }
+
+        /**
+         * Get recorded findings.
+         *
+         * @return Text of recorded findings
+         */
+        public List<String> getFindings() {
+            return mFindings;
+        }
+    }
+
+    /**
+     * Test routing findings by categories, paths and keywords.
+     *
+     * @throws Exception If error occurs
+     */
+    @Test
+    public void testDispatch() throws Exception {
+        List<String> noFilter = Collections.emptyList();
+        FindingRecorder all = new FindingRecorder();
+        FindingRecorder dataFlow = new FindingRecorder();
+        FindingRecorder packageA = new FindingRecorder();
+        FindingRecorder keywords = new FindingRecorder();
+
+        ReportDispatcher dispatcher = new ReportDispatcher();
+        dispatcher.addReport(null, noFilter, noFilter, all);
+        dispatcher.addReport(EnumSet.of(Finding.Category.DATA_FLOW),
+                noFilter, noFilter, dataFlow);
+        dispatcher.addReport(null, Arrays.asList("src/a/**"), noFilter,
+                packageA);
+        dispatcher.addReport(null, noFilter,
+                Arrays.asList("shadows", "synchronized"), keywords);
+
+        FindingParser parser = new FindingParser(dispatcher);
+        parser.consumeLine(DATA_FLOW);
+        parser.consumeLine(SYNCHRONIZATION);
+        parser.consumeLine(INHERITANCE);
+
+        assertEquals(Arrays.asList(DATA_FLOW, SYNCHRONIZATION, INHERITANCE),
+                all.getFindings());
+        assertEquals(Arrays.asList(DATA_FLOW), dataFlow.getFindings());
+        assertEquals(Arrays.asList(DATA_FLOW, INHERITANCE),
+                packageA.getFindings());
+        assertEquals(Arrays.asList(SYNCHRONIZATION, INHERITANCE),
+                keywords.getFindings());
+    }
+
+    /**
+     * Test routing findings of unknown category.
+     *
+     * They are routed to every report that enables any category, because
+     * they may be in the category.
+     *
+     * @throws Exception If error occurs
+     */
+    @Test
+    public void testDispatchUnknown() throws Exception {
+        List<String> noFilter = Collections.emptyList();
+        FindingRecorder dataFlow = new FindingRecorder();
+        FindingRecorder noCategory = new FindingRecorder();
+
+        ReportDispatcher dispatcher = new ReportDispatcher();
+        dispatcher.addReport(CategoryFilter.getKeptCategories(
+                OptionParser.parse("-all +data_flow")), noFilter, noFilter,
+                dataFlow);
+        dispatcher.addReport(CategoryFilter.getKeptCategories(
+                OptionParser.parse("-all")), noFilter, noFilter, noCategory);
+
+        String unknown = "src/a/Foo.java:4: Unknown message";
+        FindingParser parser = new FindingParser(dispatcher);
+        parser.consumeLine(unknown);
+        parser.consumeLine(INHERITANCE);
+
+        assertEquals(Arrays.asList(unknown), dataFlow.getFindings());
+        assertTrue(noCategory.getFindings().isEmpty());
+    }
+
+    /**
+     * Test evaluating message filtering options.
+     */
+    @Test
+    public void testGetCategories() {
+        assertEquals(EnumSet.of(Finding.Category.DATA_FLOW),
+                CategoryFilter.getCategories(
+                        OptionParser.parse("-all +data_flow")));
+        assertEquals(EnumSet.noneOf(Finding.Category.class),
+                CategoryFilter.getCategories(
+                        OptionParser.parse("+data_flow -all")));
+        assertEquals(EnumSet.complementOf(EnumSet.of(
+                Finding.Category.INHERITANCE)),
+                CategoryFilter.getCategories(OptionParser.parse(
+                        "-all +data_flow +all -inheritance")));
+        assertEquals(EnumSet.of(Finding.Category.SYNCHRONIZATION,
+                Finding.Category.INHERITANCE, Finding.Category.UNKNOWN),
+                CategoryFilter.getCategories(
+                        OptionParser.parse("-data_flow")));
+        assertEquals(EnumSet.allOf(Finding.Category.class),
+                CategoryFilter.getCategories(OptionParser.parse("")));
+    }
+
+    /**
+     * Test getting the categories of findings that are kept.
+     */
+    @Test
+    public void testGetKeptCategories() {
+        assertEquals(EnumSet.of(Finding.Category.DATA_FLOW,
+                Finding.Category.UNKNOWN),
+                CategoryFilter.getKeptCategories(
+                        OptionParser.parse("-all +data_flow")));
+        assertEquals(EnumSet.noneOf(Finding.Category.class),
+                CategoryFilter.getKeptCategories(
+                        OptionParser.parse("+data_flow -all")));
+        assertEquals(EnumSet.allOf(Finding.Category.class),
+                CategoryFilter.getKeptCategories(OptionParser.parse("")));
+    }
+
+    /**
+     * Test widening options for additional categories.
+     */
+    @Test
+    public void testWiden() {
+        Set<String> options = OptionParser.parse("-all +data_flow -ref");
+
+        assertSame(options, CategoryFilter.widen(options,
+                EnumSet.of(Finding.Category.DATA_FLOW)));
+
+        assertEquals(Arrays.asList(
+                "-all", "+synchronization", "+data_flow", "-ref"),
+                new ArrayList<String>(CategoryFilter.widen(options,
+                        EnumSet.of(Finding.Category.SYNCHRONIZATION))));
+
+        assertEquals(Arrays.asList("-ref"),
+                new ArrayList<String>(CategoryFilter.widen(options,
+                        EnumSet.allOf(Finding.Category.class))));
+
+        assertEquals(Arrays.asList("-inheritance", "-ref"),
+                new ArrayList<String>(CategoryFilter.widen(
+                        OptionParser.parse("-ref -data_flow -inheritance"),
+                        EnumSet.of(Finding.Category.DATA_FLOW))));
+    }
+}
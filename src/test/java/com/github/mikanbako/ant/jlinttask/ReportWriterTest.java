@@ -0,0 +1,195 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Test implementations of {@link ReportWriter}.
+ */
+public class ReportWriterTest extends TestCase {
+    /**
+     * Finding with characters that must be escaped.
+     */
+    private static final String FINDING = "src/Foo.java:12: " +
+            "Zero operand for \"a\" & <b> operation";
+
+    /**
+     * Write a report of the finding.
+     *
+     * @param format Format of report
+     * @return Report
+     * @throws Exception If error occurs
+     */
+    private static String writeReport(String format) throws Exception {
+        StringWriter writer = new StringWriter();
+        BufferedWriter bufferedWriter = new BufferedWriter(writer);
+        ReportWriter reportWriter =
+                ReportWriter.create(format, bufferedWriter);
+
+        reportWriter.start();
+        new FindingParser(reportWriter).consumeLine(FINDING);
+        new FindingParser(reportWriter).consumeLine(
+                "Verification completed: 1 reported messages.");
+        reportWriter.finish();
+        bufferedWriter.flush();
+
+        return writer.toString();
+    }
+
+    /**
+     * Test writing XML.
+     *
+     * @throws Exception If error occurs
+     */
+    @Test
+    public void testXml() throws Exception {
+        String report = writeReport(ReportWriter.FORMAT_XML);
+
+        Document document = DocumentBuilderFactory.newInstance()
+                .newDocumentBuilder().parse(
+                        new ByteArrayInputStream(report.getBytes("UTF-8")));
+        Element finding = (Element) document.getElementsByTagName(
+                "finding").item(0);
+        assertEquals("src/Foo.java", finding.getAttribute("path"));
+        assertEquals("12", finding.getAttribute("line"));
+        assertEquals("data_flow", finding.getAttribute("category"));
+        assertEquals("Zero operand for \"a\" & <b> operation",
+                finding.getTextContent());
+
+        Element summary = (Element) document.getElementsByTagName(
+                "summary").item(0);
+        assertEquals("1", summary.getAttribute("count"));
+    }
+
+    /**
+     * Test writing XML of a finding with characters that are not allowed
+     * in XML 1.0.
+     *
+     * The characters are replaced, so the report is well-formed.
+     *
+     * @throws Exception If error occurs
+     */
+    @Test
+    public void testXmlWithInvalidCharacters() throws Exception {
+        StringWriter writer = new StringWriter();
+        BufferedWriter bufferedWriter = new BufferedWriter(writer);
+        ReportWriter reportWriter =
+                ReportWriter.create(ReportWriter.FORMAT_XML, bufferedWriter);
+
+        reportWriter.start();
+        new FindingParser(reportWriter).consumeLine(
+                "src/F\u0000oo.java:1: Zero operand for \u0001\t" +
+                "\uFFFE\uD800 \uD83D\uDE00 operation");
+        reportWriter.finish();
+        bufferedWriter.flush();
+
+        Document document = DocumentBuilderFactory.newInstance()
+                .newDocumentBuilder().parse(new ByteArrayInputStream(
+                        writer.toString().getBytes("UTF-8")));
+        Element finding = (Element) document.getElementsByTagName(
+                "finding").item(0);
+        assertEquals("src/F\uFFFDoo.java", finding.getAttribute("path"));
+        assertEquals("Zero operand for \uFFFD\t\uFFFD\uFFFD " +
+                "\uD83D\uDE00 operation", finding.getTextContent());
+    }
+
+    /**
+     * Test writing JSON.
+     *
+     * @throws Exception If error occurs
+     */
+    @Test
+    public void testJson() throws Exception {
+        assertEquals("{\"findings\":[\n" +
+                "{\"path\":\"src/Foo.java\",\"line\":12," +
+                "\"category\":\"data_flow\",\"message\":" +
+                "\"Zero operand for \\\"a\\\" & <b> operation\"}\n" +
+                "],\"count\":1}\n",
+                writeReport(ReportWriter.FORMAT_JSON));
+    }
+
+    /**
+     * Test writing SARIF.
+     *
+     * @throws Exception If error occurs
+     */
+    @Test
+    public void testSarif() throws Exception {
+        String report = writeReport(ReportWriter.FORMAT_SARIF);
+
+        assertTrue(report.startsWith("{\"$schema\":"));
+        assertTrue(report.contains("\"version\":\"2.1.0\""));
+        assertTrue(report.contains("{\"ruleId\":\"data_flow\"," +
+                "\"ruleIndex\":2,\"level\":\"warning\"," +
+                "\"message\":{\"text\":" +
+                "\"Zero operand for \\\"a\\\" & <b> operation\"}," +
+                "\"locations\":[{\"physicalLocation\":{\"artifactLocation\":" +
+                "{\"uri\":\"src/Foo.java\"}," +
+                "\"region\":{\"startLine\":12}}}]}"));
+        assertTrue(report.endsWith("]}]}\n"));
+    }
+
+    /**
+     * Test writing text.
+     *
+     * @throws Exception If error occurs
+     */
+    @Test
+    public void testText() throws Exception {
+        String separator = System.getProperty("line.separator");
+
+        assertEquals(FINDING + separator +
+                "Verification completed: 1 reported messages." + separator,
+                writeReport(ReportWriter.FORMAT_TEXT));
+    }
+
+    /**
+     * Test escaping control characters in JSON.
+     *
+     * @throws Exception If error occurs
+     */
+    @Test
+    public void testJsonEscape() throws Exception {
+        StringWriter writer = new StringWriter();
+        new JsonWriter(writer).beginArray()
+                .value("a\\b\n\u0001").value(1).value(true)
+                .value((String) null).endArray().flush();
+
+        assertEquals("[\"a\\\\b\\n\\u0001\",1,true,null]", writer.toString());
+    }
+
+    /**
+     * Test an unsupported format.
+     */
+    @Test
+    public void testUnsupportedFormat() {
+        assertNull(ReportWriter.create("html",
+                new BufferedWriter(new StringWriter())));
+    }
+}
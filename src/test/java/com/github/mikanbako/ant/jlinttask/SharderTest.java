@@ -0,0 +1,408 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Test {@link Sharder}.
+ */
+public class SharderTest extends TestCase {
+    private File mDirectory;
+
+    private final ArrayList<File> mClassFiles = new ArrayList<File>();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        mDirectory = File.createTempFile("sharder", "");
+        mDirectory.delete();
+        mDirectory.mkdir();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        for (File classFile : mClassFiles) {
+            classFile.delete();
+        }
+        mDirectory.delete();
+
+        super.tearDown();
+    }
+
+    /**
+     * Copy the class file of a class into the directory.
+     *
+     * @param type Class
+     * @return Copied class file
+     * @throws Exception If I/O error occurs
+     */
+    private File copyClassFile(Class<?> type) throws Exception {
+        File classFile = new File(mDirectory, type.getSimpleName() + ".class");
+        FileOutputStream output = new FileOutputStream(classFile);
+        try {
+            output.write(ClassFileInfoTest.readClassFile(type));
+        } finally {
+            output.close();
+        }
+
+        mClassFiles.add(classFile);
+        return classFile;
+    }
+
+    /**
+     * Test splitting by package.
+     *
+     * Class files in the same directory are in the same shard.
+     */
+    @Test
+    public void testShardByPackage() {
+        File a = new File("p/A.class");
+        File b = new File("q/B.class");
+        File c = new File("p/C.class");
+
+        List<List<File>> shards = Sharder.shardByPackage(
+                Arrays.asList(a, b, c), 2, null);
+
+        assertEquals(Arrays.asList(Arrays.asList(a, c), Arrays.asList(b)),
+                shards);
+    }
+
+    /**
+     * Test splitting by package into balanced shards.
+     *
+     * The largest package is assigned first, and each package goes to the
+     * shard that has the fewest class files.
+     */
+    @Test
+    public void testShardByPackageBalance() {
+        File a1 = new File("a/A1.class");
+        File a2 = new File("a/A2.class");
+        File a3 = new File("a/A3.class");
+        File b1 = new File("b/B1.class");
+        File b2 = new File("b/B2.class");
+        File c1 = new File("c/C1.class");
+
+        List<List<File>> shards = Sharder.shardByPackage(
+                Arrays.asList(c1, b1, a1, b2, a2, a3), 2, null);
+
+        assertEquals(Arrays.asList(Arrays.asList(a1, a2, a3),
+                Arrays.asList(b1, b2, c1)), shards);
+    }
+
+    /**
+     * Test splitting by package into more shards than packages.
+     *
+     * No shard is empty.
+     */
+    @Test
+    public void testShardByPackageWithFewPackages() {
+        File a = new File("p/A.class");
+        File b = new File("p/B.class");
+
+        List<List<File>> shards = Sharder.shardByPackage(
+                Arrays.asList(a, b), 4, null);
+
+        assertEquals(Arrays.asList(Arrays.asList(a, b)), shards);
+    }
+
+    /**
+     * Test splitting by package with directories passed instead of their
+     * class files.
+     *
+     * Each directory is a package by itself.
+     */
+    @Test
+    public void testShardByPackageWithDirectories() {
+        File p = new File("p");
+        File q = new File("q");
+        File a = new File("A.class");
+
+        List<List<File>> shards = Sharder.shardByPackage(
+                Arrays.asList(p, q, a), 3, null);
+
+        assertEquals(3, shards.size());
+        assertTrue(shards.contains(Arrays.asList(p)));
+        assertTrue(shards.contains(Arrays.asList(q)));
+        assertTrue(shards.contains(Arrays.asList(a)));
+    }
+
+    /**
+     * Test splitting the same class files twice.
+     *
+     * The shards are the same.
+     */
+    @Test
+    public void testShardByPackageIsDeterministic() {
+        ArrayList<File> classFiles = new ArrayList<File>();
+        for (int i = 0; i < 20; i++) {
+            classFiles.add(new File("p" + (i % 7) + "/C" + i + ".class"));
+        }
+
+        assertEquals(Sharder.shardByPackage(classFiles, 3, null),
+                Sharder.shardByPackage(classFiles, 3, null));
+    }
+
+    /**
+     * Test splitting into no shard.
+     */
+    @Test
+    public void testShardByPackageWithInvalidCount() {
+        try {
+            Sharder.shardByPackage(
+                    Arrays.asList(new File("p/A.class")), 0, null);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+    }
+
+    /**
+     * Test splitting by dependencies.
+     *
+     * Classes that refer to each other are in the same shard.
+     */
+    @Test
+    public void testShardByDependency() throws Exception {
+        File parser = copyClassFile(OptionParser.class);
+        File consumer = copyClassFile(LineConsumer.class);
+        File recorder = copyClassFile(LineRecorder.class);
+
+        List<List<File>> shards = Sharder.shardByDependency(
+                Arrays.asList(parser, consumer, recorder), 2, null, null);
+
+        assertEquals(Arrays.asList(Arrays.asList(consumer, recorder),
+                Arrays.asList(parser)), shards);
+    }
+
+    /**
+     * Test splitting by dependencies with a component larger than an even
+     * share.
+     *
+     * The component is split and it is noted.
+     */
+    @Test
+    public void testShardByDependencyWithLargeComponent() throws Exception {
+        File consumer = copyClassFile(LineConsumer.class);
+        File recorder = copyClassFile(LineRecorder.class);
+
+        ArrayList<String> notes = new ArrayList<String>();
+        List<List<File>> shards = Sharder.shardByDependency(
+                Arrays.asList(consumer, recorder), 2, null, notes);
+
+        assertEquals(2, shards.size());
+        assertEquals(1, notes.size());
+        assertTrue(notes.get(0), notes.get(0).contains("cutting 1 "));
+    }
+
+    /**
+     * Test splitting a component whose parts found by breadth first search
+     * cut many references.
+     *
+     * The classes form a ladder of 2 rows and 6 columns. The parts are
+     * refined into the left and right halves that cut only 2 references.
+     */
+    @Test
+    public void testSplit() {
+        int columns = 6;
+        ArrayList<TreeSet<Integer>> neighbors =
+                new ArrayList<TreeSet<Integer>>();
+        ArrayList<Integer> component = new ArrayList<Integer>();
+        for (int i = 0; i < 2 * columns; i++) {
+            neighbors.add(new TreeSet<Integer>());
+            component.add(i);
+        }
+        for (int row = 0; row < 2; row++) {
+            for (int column = 0; column < columns; column++) {
+                int index = row * columns + column;
+                if (column + 1 < columns) {
+                    neighbors.get(index).add(index + 1);
+                    neighbors.get(index + 1).add(index);
+                }
+                if (row == 0) {
+                    neighbors.get(index).add(index + columns);
+                    neighbors.get(index + columns).add(index);
+                }
+            }
+        }
+
+        List<List<Integer>> parts =
+                Sharder.split(component, neighbors, columns);
+
+        assertEquals(2, parts.size());
+        assertEquals(columns, parts.get(0).size());
+        assertEquals(columns, parts.get(1).size());
+        assertEquals(2, Sharder.countCut(parts, neighbors));
+    }
+
+    /**
+     * Test assigning groups by the recorded durations.
+     *
+     * A slow group is alone in a shard even though it has fewer class files.
+     */
+    @Test
+    public void testAssignWithStatistics() {
+        List<File> slow = Arrays.asList(new File("a/Slow.class"));
+        List<File> fast1 = Arrays.asList(
+                new File("b/Fast1.class"), new File("b/Fast2.class"));
+        List<File> fast2 = Arrays.asList(
+                new File("c/Fast3.class"), new File("c/Fast4.class"));
+
+        ShardStatistics statistics = new ShardStatistics();
+        statistics.record(slow, 100);
+        statistics.record(fast1, 20);
+        statistics.record(fast2, 20);
+
+        List<List<File>> shards = Sharder.assign(
+                Arrays.asList(fast1, fast2, slow), 2, statistics);
+
+        assertEquals(2, shards.size());
+        assertTrue(shards.contains(slow));
+        assertTrue(shards.contains(Arrays.asList(
+                new File("b/Fast1.class"), new File("b/Fast2.class"),
+                new File("c/Fast3.class"), new File("c/Fast4.class"))));
+    }
+
+    /**
+     * Test assigning a directory passed instead of its class files.
+     *
+     * The directory costs as much as the class files in it.
+     */
+    @Test
+    public void testAssignWithDirectory() throws Exception {
+        File directory = new File(mDirectory, "p");
+        directory.mkdir();
+        File[] classFiles = {
+                new File(directory, "A.class"),
+                new File(directory, "B.class"),
+                new File(directory, "C.class")};
+        try {
+            for (File classFile : classFiles) {
+                classFile.createNewFile();
+            }
+
+            List<File> group = Arrays.asList(directory);
+            List<File> single1 = Arrays.asList(new File("q/D.class"));
+            List<File> single2 = Arrays.asList(new File("r/E.class"));
+            List<List<File>> shards = Sharder.assign(
+                    Arrays.asList(single1, single2, group), 2, null);
+
+            assertEquals(2, shards.size());
+            assertTrue(shards.contains(group));
+        } finally {
+            for (File classFile : classFiles) {
+                classFile.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    /**
+     * Test estimating memory of a directory passed instead of its class
+     * files.
+     *
+     * The directory weighs the total size of the class files in it.
+     */
+    @Test
+    public void testEstimateMemoryOfDirectory() throws Exception {
+        File directory = new File(mDirectory, "p");
+        File subdirectory = new File(directory, "q");
+        subdirectory.mkdirs();
+        File consumer = new File(directory, "LineConsumer.class");
+        File recorder = new File(subdirectory, "LineRecorder.class");
+        try {
+            copy(LineConsumer.class, consumer);
+            copy(LineRecorder.class, recorder);
+
+            long residentBytes = 100000000;
+            ShardStatistics statistics = new ShardStatistics();
+            statistics.record(Arrays.asList(directory), 10, residentBytes);
+            File file = new File(mDirectory, "stats");
+            statistics.save(file);
+            ShardStatistics loaded = ShardStatistics.load(file);
+            file.delete();
+
+            assertEquals(2, statistics.getShards().get(0).getClassCount());
+            assertEquals(consumer.length() + recorder.length(),
+                    statistics.getShards().get(0).getBytes());
+            assertEquals(residentBytes,
+                    loaded.estimateMemory(Arrays.asList(consumer, recorder)));
+            assertEquals(ShardStatistics.estimateMemoryBySize(
+                    Arrays.asList(consumer, recorder)),
+                    ShardStatistics.estimateMemoryBySize(
+                            Arrays.asList(directory)));
+        } finally {
+            consumer.delete();
+            recorder.delete();
+            subdirectory.delete();
+            directory.delete();
+        }
+    }
+
+    /**
+     * Write the class file of a class.
+     *
+     * @param type Class
+     * @param classFile File to write
+     * @throws Exception If I/O error occurs
+     */
+    private static void copy(Class<?> type, File classFile)
+            throws Exception {
+        FileOutputStream output = new FileOutputStream(classFile);
+        try {
+            output.write(ClassFileInfoTest.readClassFile(type));
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Test estimating memory from the peak resident set sizes recorded in
+     * the previous run.
+     */
+    @Test
+    public void testEstimateMemory() throws Exception {
+        File small = copyClassFile(LineConsumer.class);
+        File large = copyClassFile(LineRecorder.class);
+        long residentBytes = small.length() * 1000000;
+
+        ShardStatistics statistics = new ShardStatistics();
+        statistics.record(Arrays.asList(small), 10, residentBytes);
+        File file = new File(mDirectory, "stats");
+        statistics.save(file);
+        ShardStatistics loaded = ShardStatistics.load(file);
+        file.delete();
+
+        assertEquals(residentBytes,
+                loaded.estimateMemory(Arrays.asList(small)));
+        assertEquals(large.length() * 1000000,
+                loaded.estimateMemory(Arrays.asList(large)));
+        assertTrue(ShardStatistics.estimateMemoryBySize(
+                Arrays.asList(large)) > 0);
+    }
+}
@@ -0,0 +1,168 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.File;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.DirectoryScanner;
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.FileSet;
+import org.apache.tools.ant.types.selectors.FilenameSelector;
+import org.junit.Test;
+
+/**
+ * Test {@link SnapshotScanner}.
+ */
+public class SnapshotScannerTest extends TestCase {
+    /**
+     * Temporary directory.
+     */
+    private File mDirectory;
+
+    /**
+     * Project.
+     */
+    private Project mProject;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        mDirectory = File.createTempFile("scanner", "");
+        mDirectory.delete();
+        mDirectory.mkdir();
+
+        mProject = new Project();
+        mProject.init();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TestFiles.delete(mDirectory);
+
+        super.tearDown();
+    }
+
+    /**
+     * Create an empty file and its directories.
+     *
+     * @param path Path relative to the temporary directory
+     * @throws Exception If the file cannot be created
+     */
+    private void createFile(String path) throws Exception {
+        File file = new File(mDirectory, path);
+        file.getParentFile().mkdirs();
+        file.createNewFile();
+    }
+
+    /**
+     * Create a file set of the temporary directory.
+     *
+     * @param includes Include patterns
+     * @param excludes Exclude patterns, or null
+     * @return File set
+     */
+    private FileSet createFileSet(String includes, String excludes) {
+        FileSet fileSet = new FileSet();
+        fileSet.setProject(mProject);
+        fileSet.setDir(mDirectory);
+        fileSet.setIncludes(includes);
+        if (excludes != null) {
+            fileSet.setExcludes(excludes);
+        }
+
+        return fileSet;
+    }
+
+    /**
+     * Scan a file set with {@link SnapshotScanner}.
+     *
+     * @param fileSet File set
+     * @return Included files
+     */
+    private String[] scan(FileSet fileSet) {
+        DirectoryScanner scanner =
+                new SnapshotScanner(new FileSnapshot());
+        fileSet.setupDirectoryScanner(scanner, mProject);
+        scanner.scan();
+
+        return scanner.getIncludedFiles();
+    }
+
+    /**
+     * Test including the same files as {@link DirectoryScanner}.
+     */
+    @Test
+    public void testScan() throws Exception {
+        createFile("A.class");
+        createFile("a/B.class");
+        createFile("a/B.java");
+        createFile("a/b/C.class");
+        createFile("a/c/D.class");
+        createFile("CVS/E.class");
+
+        String[][] patterns = {
+                {"**/*.class", null},
+                {"a/**/*.class", "a/c/**"},
+                {"*.class", null},
+                {"a/b/", null}};
+        for (String[] pattern : patterns) {
+            FileSet fileSet = createFileSet(pattern[0], pattern[1]);
+
+            assertEquals(Arrays.asList(fileSet.getDirectoryScanner(
+                            mProject).getIncludedFiles()),
+                    Arrays.asList(scan(fileSet)));
+        }
+    }
+
+    /**
+     * Test scanning a base directory that does not exist.
+     */
+    @Test
+    public void testScanNotFound() throws Exception {
+        FileSet fileSet = createFileSet("**/*.class", null);
+        fileSet.setDir(new File(mDirectory, "missing"));
+
+        try {
+            scan(fileSet);
+            fail();
+        } catch (BuildException e) {
+            // Expected.
+        }
+    }
+
+    /**
+     * Test whether file sets can be scanned.
+     */
+    @Test
+    public void testIsApplicable() throws Exception {
+        FileSet fileSet = createFileSet("**/*.class", null);
+        assertTrue(SnapshotScanner.isApplicable(fileSet));
+
+        fileSet.addFilename(new FilenameSelector());
+        assertFalse(SnapshotScanner.isApplicable(fileSet));
+
+        fileSet = createFileSet("**/*.class", null);
+        fileSet.setFollowSymlinks(false);
+        assertFalse(SnapshotScanner.isApplicable(fileSet));
+    }
+}
@@ -0,0 +1,233 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Test {@link TaskCache}.
+ */
+public class TaskCacheTest extends TestCase {
+    /**
+     * Modification time of files in the past in milliseconds.
+     */
+    private static final long PAST_MILLIS = 1000000000000L;
+
+    /**
+     * Temporary directory.
+     */
+    private File mDirectory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        mDirectory = File.createTempFile("taskcache", "").getCanonicalFile();
+        mDirectory.delete();
+        mDirectory.mkdir();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+
+        super.tearDown();
+    }
+
+    /**
+     * Write a file and set its modification time.
+     *
+     * @param file File
+     * @param content Content
+     * @param modifiedTime Modification time
+     * @throws Exception If the file cannot be written
+     */
+    private static void write(File file, String content, long modifiedTime)
+            throws Exception {
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+        file.setLastModified(modifiedTime);
+    }
+
+    /**
+     * Test reading message filtering options again only when the file is
+     * modified.
+     */
+    @Test
+    public void testGetFilterOptions() throws Exception {
+        File filterFile = new File(mDirectory, "filter.txt");
+        write(filterFile, "-all +data_flow", PAST_MILLIS);
+
+        TaskCache cache = new TaskCache();
+        Set<String> options = cache.getFilterOptions(filterFile);
+
+        assertEquals(new HashSet<String>(Arrays.asList("-all", "+data_flow")),
+                options);
+        assertSame(options, cache.getFilterOptions(filterFile));
+
+        write(filterFile, "-all +synchronization", PAST_MILLIS + 1000);
+
+        assertEquals(new HashSet<String>(
+                        Arrays.asList("-all", "+synchronization")),
+                cache.getFilterOptions(filterFile));
+    }
+
+    /**
+     * Test getting canonical files.
+     */
+    @Test
+    public void testGetCanonicalFile() throws Exception {
+        File file = new File(mDirectory, "jlint");
+        write(file, "", PAST_MILLIS);
+        File relativeFile = new File(
+                new File(new File(mDirectory, "."), ".."),
+                mDirectory.getName() + File.separator + "jlint");
+
+        TaskCache cache = new TaskCache();
+
+        assertEquals(file, cache.getCanonicalFile(relativeFile));
+        assertSame(cache.getCanonicalFile(relativeFile),
+                cache.getCanonicalFile(relativeFile));
+    }
+
+    /**
+     * Test checking whether a file is executable again when the file is
+     * modified.
+     */
+    @Test
+    public void testCanExecute() throws Exception {
+        File file = new File(mDirectory, "jlint");
+        write(file, "", PAST_MILLIS);
+        if (!file.setExecutable(false) || file.canExecute()) {
+            // Permissions are not supported.
+            return;
+        }
+
+        TaskCache cache = new TaskCache();
+        assertFalse(cache.canExecute(file));
+
+        file.setExecutable(true);
+        file.setLastModified(PAST_MILLIS + 1000);
+
+        assertTrue(cache.canExecute(file));
+    }
+
+    /**
+     * Test computing keys of results.
+     */
+    @Test
+    public void testComputeResultKey() throws Exception {
+        File jlint = new File(mDirectory, "jlint");
+        write(jlint, "", PAST_MILLIS);
+        File classFile = new File(mDirectory, "A.class");
+        write(classFile, "a", PAST_MILLIS);
+        Set<String> options = Collections.singleton("-all");
+        List<File> classFiles = Collections.singletonList(classFile);
+
+        String key = TaskCache.computeResultKey(
+                jlint, options, null, classFiles, "1");
+
+        assertEquals(key, TaskCache.computeResultKey(
+                jlint, options, null, classFiles, "1"));
+        assertFalse(key.equals(TaskCache.computeResultKey(
+                jlint, options, null, classFiles, "2")));
+        assertFalse(key.equals(TaskCache.computeResultKey(
+                jlint, Collections.singleton("+all"), null, classFiles,
+                "1")));
+        assertFalse(key.equals(TaskCache.computeResultKey(
+                jlint, options, mDirectory, classFiles, "1")));
+
+        write(classFile, "b", PAST_MILLIS + 1000);
+        assertFalse(key.equals(TaskCache.computeResultKey(
+                jlint, options, null, classFiles, "1")));
+
+        assertNull(TaskCache.computeResultKey(jlint, options, null,
+                Collections.singletonList(mDirectory), "1"));
+
+        write(classFile, "c", System.currentTimeMillis());
+        assertNull(TaskCache.computeResultKey(
+                jlint, options, null, classFiles, "1"));
+    }
+
+    /**
+     * Test keeping results up to the total size.
+     *
+     * The least recently used result is discarded first.
+     */
+    @Test
+    public void testPutResult() {
+        TaskCache cache = new TaskCache();
+        long half = TaskCache.MAX_RESULTS_CHARACTERS / 2;
+        List<String> a = Collections.singletonList("a");
+        List<String> b = Collections.singletonList("b");
+        List<String> c = Collections.singletonList("c");
+
+        cache.putResult("a", a, half);
+        cache.putResult("b", b, half);
+        assertEquals(a, cache.getResult("a"));
+        cache.putResult("c", c, half);
+
+        assertEquals(a, cache.getResult("a"));
+        assertNull(cache.getResult("b"));
+        assertEquals(c, cache.getResult("c"));
+
+        cache.putResult("d", a, TaskCache.MAX_RESULTS_CHARACTERS + 1);
+        assertNull(cache.getResult("d"));
+        assertEquals(a, cache.getResult("a"));
+
+        cache.clearResults();
+        assertNull(cache.getResult("a"));
+    }
+
+    /**
+     * Test keeping lines that are passed to another consumer.
+     */
+    @Test
+    public void testResultRecorder() throws Exception {
+        LineRecorder output = new LineRecorder();
+        TaskCache.ResultRecorder recorder =
+                new TaskCache.ResultRecorder(output);
+        recorder.consumeLine("a");
+        recorder.consumeLine("b");
+
+        assertEquals(Arrays.asList("a", "b"), output.getLines());
+        assertEquals(Arrays.asList("a", "b"), recorder.getLines());
+        assertEquals(2, recorder.getCharacters());
+    }
+}
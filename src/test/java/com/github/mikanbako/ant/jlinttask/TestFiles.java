@@ -0,0 +1,65 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Helpers for files used by tests.
+ */
+/* package */ final class TestFiles {
+    /**
+     * Constructor. This class is not instantiated.
+     */
+    private TestFiles() {
+    }
+
+    /**
+     * Delete a file or a directory and its contents.
+     *
+     * A symbolic link is deleted without following it.
+     *
+     * @param file File or directory
+     */
+    public static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null && !isLink(file)) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+
+        file.delete();
+    }
+
+    /**
+     * Whether a file is a symbolic link.
+     *
+     * @param file File
+     * @return true if the file is a symbolic link or it cannot be
+     *  canonicalized
+     */
+    private static boolean isLink(File file) {
+        try {
+            return !file.getAbsoluteFile().equals(file.getCanonicalFile());
+        } catch (IOException e) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/* Jlint Ant Task
+    Copyright (C) 2012 Keita Kita
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package com.github.mikanbako.ant.jlinttask;
+
+import java.io.StringWriter;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * Test {@link TraceRecorder}.
+ */
+public class TraceRecorderTest extends TestCase {
+    /**
+     * Test writing spans in the trace event format.
+     *
+     * @throws Exception If error occurs
+     */
+    @Test
+    public void testWrite() throws Exception {
+        TraceRecorder trace = new TraceRecorder();
+        TraceRecorder.Span outer = trace.begin("outer", "task");
+        trace.begin("inner", "shard").setArgument("shard", 2).end();
+        outer.end();
+
+        StringWriter writer = new StringWriter();
+        trace.write(writer);
+        String json = writer.toString();
+
+        assertTrue(json.startsWith("{\"traceEvents\":["));
+        assertTrue(json.contains("\"name\":\"thread_name\",\"ph\":\"M\""));
+        assertTrue(json.contains("\"tid\":" +
+                Thread.currentThread().getId()));
+        assertTrue(json.contains("{\"name\":\"inner\",\"cat\":\"shard\"," +
+                "\"ph\":\"X\",\"ts\":"));
+        assertTrue(json.contains("\"args\":{\"shard\":2}"));
+        assertTrue(json.indexOf("\"inner\"") < json.indexOf("\"outer\""));
+        assertTrue(json.endsWith("],\"displayTimeUnit\":\"ms\"}\n"));
+    }
+}